@@ -14,6 +14,7 @@ import ch.specchio.spaces.MeasurementUnit;
 import ch.specchio.spaces.ReferenceSpaceStruct;
 import ch.specchio.spaces.Space;
 import ch.specchio.spaces.SpectralSpace;
+import ch.specchio.types.CacheStatistics;
 import ch.specchio.types.Calibration;
 import ch.specchio.types.CalibrationMetadata;
 import ch.specchio.types.Campaign;
@@ -33,9 +34,11 @@ import ch.specchio.types.ReferenceBrand;
 import ch.specchio.types.ReferenceDescriptor;
 import ch.specchio.types.Sensor;
 import ch.specchio.types.SpectralFile;
+import ch.specchio.types.SpectralFileBatch;
 import ch.specchio.types.Spectrum;
 import ch.specchio.types.SpectrumDataLink;
 import ch.specchio.types.SpectrumFactorTable;
+import ch.specchio.types.StatementStatistics;
 import ch.specchio.types.TaxonomyNodeObject;
 import ch.specchio.types.User;
 import ch.specchio.types.attribute;
@@ -57,6 +60,18 @@ public interface SPECCHIOClient {
 	 */
 	public void connect() throws SPECCHIOClientException;
 	
+	/**
+	 * Calculate the illumination azimuth and zenith of a set of spectra from
+	 * their latitude, longitude and acquisition time. Existing illumination
+	 * angles are replaced.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra
+	 * 
+	 * @return the number of spectra for which angles could be calculated
+	 */
+	public int calculateSunAngles(ArrayList<Integer> spectrum_ids) throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Clears the known metaparameter list held by the server for this user
 	 */
@@ -218,6 +233,17 @@ public interface SPECCHIOClient {
 	public InputStream getCampaignExportInputStream(Campaign c) throws SPECCHIOClientException;
 	
 	
+	/**
+	 * Export a campaign in a given format.
+	 * 
+	 * @param c			the campaign to be exported
+	 * @param file_type	FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY or FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	 * 
+	 * @return an input stream connected to the exported campaign date
+	 */
+	public InputStream getCampaignExportInputStream(Campaign c, int file_type) throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Get a campaign node for the spectral data browser.
 	 * 
@@ -295,6 +321,20 @@ public interface SPECCHIOClient {
 	 * @return a ConflictTable object containing all of the conflicts
 	 */
 	public ConflictTable getEavMetadataConflicts(ArrayList<Integer> spectrum_ids) throws SPECCHIOClientException;
+	
+	
+	/**
+	 * Update the conflicts in the EAV metadata of a selection after spectra
+	 * have been added to or removed from it.
+	 * 
+	 * @param conflicts					the conflicts of the previous selection
+	 * @param no_of_selected_records	the number of spectra in the previous selection
+	 * @param added_ids					the spectra added to the selection
+	 * @param removed_ids				the spectra removed from the selection
+	 * 
+	 * @return a ConflictTable object containing all of the conflicts of the new selection
+	 */
+	public ConflictTable getEavMetadataConflicts(ConflictTable conflicts, int no_of_selected_records, ArrayList<Integer> added_ids, ArrayList<Integer> removed_ids) throws SPECCHIOClientException;
 
 	
 	/**
@@ -539,6 +579,53 @@ public interface SPECCHIOClient {
 	public Spectrum getSpectrum(int spectrum_id, boolean load_metadata) throws SPECCHIOClientException;
 	
 	
+	/**
+	 * Get a list of spectra.
+	 * 
+	 * @param spectrum_ids	the spectrum identifiers
+	 * @param load_metadata	load all spectrum metadata?
+	 * 
+	 * @return an array of Spectrum objects in the same order as the input identifiers
+	 */
+	public Spectrum[] getSpectra(ArrayList<Integer> spectrum_ids, boolean load_metadata) throws SPECCHIOClientException;
+	
+	
+	/**
+	 * Get the usage statistics of the server's measurement cache. Only
+	 * available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getMeasurementCacheStatistics() throws SPECCHIOClientException;
+	
+	
+	/**
+	 * Get the usage statistics of the server's query result cache. Only
+	 * available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getQueryCacheStatistics() throws SPECCHIOClientException;
+	
+	
+	/**
+	 * Get the usage statistics of the server's prepared statement caches.
+	 * Only available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getStatementCacheStatistics() throws SPECCHIOClientException;
+	
+	
+	/**
+	 * Get the execution counts and times of the server's cached prepared
+	 * statements. Only available to administrators.
+	 * 
+	 * @return an array of StatementStatistics objects, in descending order of total execution time
+	 */
+	public StatementStatistics[] getStatementStatistics() throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Get the calibration spaces for a set of spectra.
 	 * 
@@ -720,6 +807,16 @@ public interface SPECCHIOClient {
 	public List<Integer> insertSpectralFile(SpectralFile spec_file) throws SPECCHIOClientException;
 	
 	
+	/**
+	 * Insert a batch of spectral files into the database in a single transaction.
+	 * 
+	 * @param batch	the files
+	 * 
+	 * @return a list containing the list of spectrum identifiers that were inserted for each file
+	 */
+	public List<List<Integer>> insertSpectralFiles(SpectralFileBatch batch) throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Insert a target-reference link.
 	 * 
@@ -761,6 +858,24 @@ public interface SPECCHIOClient {
 	public Space loadSpace(Space space) throws SPECCHIOClientException;
 	
 	
+	/**
+	 * Load a Space object using the binary space transport. The vectors are
+	 * added to the space as they arrive from the server.
+	 * 
+	 * @param space	a partially-filled space object
+	 * 
+	 * @return the input space object, filled with the vectors
+	 */
+	public Space loadSpaceStream(Space space) throws SPECCHIOClientException;
+	
+	
+	/**
+	 * Reload the server's cache of instruments, sensors and institutes from
+	 * the database. Only available to administrators.
+	 */
+	public void refreshDataCache() throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Remove an item of EAV metadata.
 	 * 
@@ -796,6 +911,16 @@ public interface SPECCHIOClient {
 	public void removeSpectralNode(spectral_node_object sn) throws SPECCHIOClientException;
 	
 	
+	/**
+	 * Remove a set of spectra from the database.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra to be removed
+	 * 
+	 * @return the number of spectra removed
+	 */
+	public int removeSpectra(ArrayList<Integer> spectrum_ids) throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Set the progress report interface to which progress made by this
 	 * client will be reported.
@@ -805,6 +930,17 @@ public interface SPECCHIOClient {
 	public void setProgressReport(ProgressReportInterface pr);
 	
 	
+	/**
+	 * Convert the acquisition times of a set of spectra to UTC.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra
+	 * @param shift			the number of hours East of UTC in which the times were recorded
+	 * 
+	 * @return the number of spectra whose acquisition time was shifted
+	 */
+	public int shiftAcquisitionTimes(ArrayList<Integer> spectrum_ids, double shift) throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Test for the existence of a spectral file in the database.
 	 * 
@@ -817,6 +953,16 @@ public interface SPECCHIOClient {
 	public boolean spectralFileExists(SpectralFile spec_file) throws SPECCHIOClientException;
 	
 	
+	/**
+	 * Test for the existence of each of a batch of spectral files in the database.
+	 * 
+	 * @param batch	the files
+	 * 
+	 * @return a list containing true for each file that already exists in the database, and false for each file that does not
+	 */
+	public List<Boolean> spectralFilesExist(SpectralFileBatch batch) throws SPECCHIOClientException;
+	
+	
 	/**
 	 * Submit a collection to Research Data Australia.
 	 * 
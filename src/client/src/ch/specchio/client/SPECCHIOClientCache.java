@@ -15,6 +15,7 @@ import ch.specchio.spaces.MeasurementUnit;
 import ch.specchio.spaces.ReferenceSpaceStruct;
 import ch.specchio.spaces.Space;
 import ch.specchio.spaces.SpectralSpace;
+import ch.specchio.types.CacheStatistics;
 import ch.specchio.types.Calibration;
 import ch.specchio.types.CalibrationMetadata;
 import ch.specchio.types.Campaign;
@@ -34,9 +35,11 @@ import ch.specchio.types.ReferenceBrand;
 import ch.specchio.types.ReferenceDescriptor;
 import ch.specchio.types.Sensor;
 import ch.specchio.types.SpectralFile;
+import ch.specchio.types.SpectralFileBatch;
 import ch.specchio.types.Spectrum;
 import ch.specchio.types.SpectrumDataLink;
 import ch.specchio.types.SpectrumFactorTable;
+import ch.specchio.types.StatementStatistics;
 import ch.specchio.types.TaxonomyNodeObject;
 import ch.specchio.types.Units;
 import ch.specchio.types.User;
@@ -142,6 +145,22 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 		
 	}
 	
+	/**
+	 * Calculate the illumination azimuth and zenith of a set of spectra from
+	 * their latitude, longitude and acquisition time. Existing illumination
+	 * angles are replaced.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra
+	 * 
+	 * @return the number of spectra for which angles could be calculated
+	 */
+	public int calculateSunAngles(ArrayList<Integer> spectrum_ids) throws SPECCHIOClientException {
+		
+		return realClient.calculateSunAngles(spectrum_ids);
+		
+	}
+	
+	
 	/**
 	 * Clears the known metaparameter list held by the server for this user
 	 */
@@ -395,6 +414,21 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Export a campaign in a given format.
+	 * 
+	 * @param c			the campaign to be exported
+	 * @param file_type	FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY or FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	 * 
+	 * @return an input stream connected to the exported campaign date
+	 */
+	public InputStream getCampaignExportInputStream(Campaign c, int file_type) throws SPECCHIOClientException {
+		
+		return realClient.getCampaignExportInputStream(c, file_type);
+		
+	}
+	
+	
 	/**
 	 * Get a campaign node for the spectral data browser.
 	 * 
@@ -504,6 +538,24 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 		return realClient.getEavMetadataConflicts(spectrum_ids);
 		
 	}
+	
+	
+	/**
+	 * Update the conflicts in the EAV metadata of a selection after spectra
+	 * have been added to or removed from it.
+	 * 
+	 * @param conflicts					the conflicts of the previous selection
+	 * @param no_of_selected_records	the number of spectra in the previous selection
+	 * @param added_ids					the spectra added to the selection
+	 * @param removed_ids				the spectra removed from the selection
+	 * 
+	 * @return a ConflictTable object containing all of the conflicts of the new selection
+	 */
+	public ConflictTable getEavMetadataConflicts(ConflictTable conflicts, int no_of_selected_records, ArrayList<Integer> added_ids, ArrayList<Integer> removed_ids) throws SPECCHIOClientException {
+		
+		return realClient.getEavMetadataConflicts(conflicts, no_of_selected_records, added_ids, removed_ids);
+		
+	}
 
 	
 	/**
@@ -852,6 +904,73 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Get a list of spectra.
+	 * 
+	 * @param spectrum_ids	the spectrum identifiers
+	 * @param load_metadata	load all spectrum metadata?
+	 * 
+	 * @return an array of Spectrum objects in the same order as the input identifiers
+	 */
+	public Spectrum[] getSpectra(ArrayList<Integer> spectrum_ids, boolean load_metadata) throws SPECCHIOClientException {
+		
+		return realClient.getSpectra(spectrum_ids, load_metadata);
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the server's measurement cache. Only
+	 * available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getMeasurementCacheStatistics() throws SPECCHIOClientException {
+		
+		return realClient.getMeasurementCacheStatistics();
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the server's query result cache. Only
+	 * available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getQueryCacheStatistics() throws SPECCHIOClientException {
+		
+		return realClient.getQueryCacheStatistics();
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the server's prepared statement caches.
+	 * Only available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getStatementCacheStatistics() throws SPECCHIOClientException {
+		
+		return realClient.getStatementCacheStatistics();
+		
+	}
+	
+	
+	/**
+	 * Get the execution counts and times of the server's cached prepared
+	 * statements. Only available to administrators.
+	 * 
+	 * @return an array of StatementStatistics objects, in descending order of total execution time
+	 */
+	public StatementStatistics[] getStatementStatistics() throws SPECCHIOClientException {
+		
+		return realClient.getStatementStatistics();
+		
+	}
+	
+	
 	/**
 	 * Get the calibration spaces for a set of spectra.
 	 * 
@@ -1107,6 +1226,20 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Insert a batch of spectral files into the database in a single transaction.
+	 * 
+	 * @param batch	the files
+	 * 
+	 * @return a list containing the list of spectrum identifiers that were inserted for each file
+	 */
+	public List<List<Integer>> insertSpectralFiles(SpectralFileBatch batch) throws SPECCHIOClientException {
+		
+		return realClient.insertSpectralFiles(batch);
+		
+	}
+	
+	
 	/**
 	 * Insert a target-reference link.
 	 * 
@@ -1164,6 +1297,31 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Load a Space object using the binary space transport.
+	 * 
+	 * @param space	a partially-filled space object
+	 * 
+	 * @return the input space object, filled with the vectors
+	 */
+	public Space loadSpaceStream(Space space) throws SPECCHIOClientException {
+		
+		return realClient.loadSpaceStream(space);
+		
+	}
+	
+	
+	/**
+	 * Reload the server's cache of instruments, sensors and institutes from
+	 * the database. Only available to administrators.
+	 */
+	public void refreshDataCache() throws SPECCHIOClientException {
+		
+		realClient.refreshDataCache();
+		
+	}
+	
+	
 	/**
 	 * Remove an item of EAV metadata.
 	 * 
@@ -1215,6 +1373,20 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Remove a set of spectra from the database.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra to be removed
+	 * 
+	 * @return the number of spectra removed
+	 */
+	public int removeSpectra(ArrayList<Integer> spectrum_ids) throws SPECCHIOClientException {
+		
+		return realClient.removeSpectra(spectrum_ids);
+		
+	}
+	
+	
 	/**
 	 * Set the progress report interface to which progress made by this
 	 * client will be reported.
@@ -1229,6 +1401,21 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Convert the acquisition times of a set of spectra to UTC.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra
+	 * @param shift			the number of hours East of UTC in which the times were recorded
+	 * 
+	 * @return the number of spectra whose acquisition time was shifted
+	 */
+	public int shiftAcquisitionTimes(ArrayList<Integer> spectrum_ids, double shift) throws SPECCHIOClientException {
+		
+		return realClient.shiftAcquisitionTimes(spectrum_ids, shift);
+		
+	}
+	
+	
 	/**
 	 * Test for the existence of a spectral file in the database.
 	 * 
@@ -1245,6 +1432,20 @@ public class SPECCHIOClientCache implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Test for the existence of each of a batch of spectral files in the database.
+	 * 
+	 * @param batch	the files
+	 * 
+	 * @return a list containing true for each file that already exists in the database, and false for each file that does not
+	 */
+	public List<Boolean> spectralFilesExist(SpectralFileBatch batch) throws SPECCHIOClientException {
+		
+		return realClient.spectralFilesExist(batch);
+		
+	}
+	
+	
 	/**
 	 * Submit a collection to Research Data Australia.
 	 * 
@@ -0,0 +1,71 @@
+package ch.specchio.client;
+
+import java.io.InputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * This HTTP client filter marks XML request bodies for gzip compression.
+ * The marked requests are compressed by the GZIPContentEncodingFilter
+ * further down the chain. Streams posted as application/octet-stream, such
+ * as campaign exports and sensor definitions, are sent as they are; they
+ * are often compressed already.
+ */
+public class SPECCHIORequestCompressionFilter extends ClientFilter {
+	
+	/** the content encoding that marks a request for compression */
+	public static final String GZIP_ENCODING = "gzip";
+	
+	/**
+	 * Handle an HTTP request.
+	 * 
+	 * @param request	the request object created by the previous filter
+	 * 
+	 * @return a response object
+	 * 
+	 * @throws ClientHandlerException
+	 */
+	@Override
+	public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+		
+		if (isCompressible(request)) {
+			request.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+		}
+		
+		// pass the request to the next filter in the chain
+		return getNext().handle(request);
+		
+	}
+	
+	
+	/**
+	 * Test whether or not a request body should be compressed.
+	 * 
+	 * @param request	the request
+	 * 
+	 * @return true if the request has a body that is neither a stream nor of type application/octet-stream
+	 */
+	private boolean isCompressible(ClientRequest request) {
+		
+		Object entity = request.getEntity();
+		if (entity == null || entity instanceof InputStream) {
+			return false;
+		}
+		
+		if (request.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+			// already encoded by the caller
+			return false;
+		}
+		
+		Object type = request.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+		return type == null || !MediaType.APPLICATION_OCTET_STREAM_TYPE.isCompatible(MediaType.valueOf(type.toString()));
+		
+	}
+	
+}
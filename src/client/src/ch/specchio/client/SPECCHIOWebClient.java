@@ -1,5 +1,6 @@
 package ch.specchio.client;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Array;
 import java.net.URL;
@@ -15,6 +16,7 @@ import javax.ws.rs.core.MediaType;
 import au.ands.org.researchdata.RDACollectionDescriptor;
 import ch.specchio.interfaces.ProgressReportInterface;
 import ch.specchio.jaxb.XmlBoolean;
+import ch.specchio.jaxb.XmlIdList;
 import ch.specchio.jaxb.XmlInteger;
 import ch.specchio.jaxb.XmlIntegerAdapter;
 import ch.specchio.jaxb.XmlString;
@@ -25,7 +27,9 @@ import ch.specchio.spaces.MeasurementUnit;
 import ch.specchio.spaces.ReferenceSpaceStruct;
 import ch.specchio.spaces.Space;
 import ch.specchio.spaces.SpaceQueryDescriptor;
+import ch.specchio.spaces.SpaceStreamReader;
 import ch.specchio.spaces.SpectralSpace;
+import ch.specchio.types.CacheStatistics;
 import ch.specchio.types.Calibration;
 import ch.specchio.types.CalibrationMetadata;
 import ch.specchio.types.Campaign;
@@ -34,6 +38,7 @@ import ch.specchio.types.Capabilities;
 import ch.specchio.types.CategoryTable;
 import ch.specchio.types.ConflictDetectionDescriptor;
 import ch.specchio.types.ConflictTable;
+import ch.specchio.types.ConflictUpdateDescriptor;
 import ch.specchio.types.Country;
 import ch.specchio.types.Institute;
 import ch.specchio.types.Instrument;
@@ -48,12 +53,16 @@ import ch.specchio.types.Reference;
 import ch.specchio.types.ReferenceBrand;
 import ch.specchio.types.ReferenceDescriptor;
 import ch.specchio.types.Sensor;
+import ch.specchio.types.SpectraDescriptor;
 import ch.specchio.types.SpectraMetadataUpdateDescriptor;
 import ch.specchio.types.SpectralFile;
+import ch.specchio.types.SpectralFileBatch;
 import ch.specchio.types.Spectrum;
 import ch.specchio.types.SpectrumDataLink;
 import ch.specchio.types.SpectrumFactorTable;
+import ch.specchio.types.StatementStatistics;
 import ch.specchio.types.SpectrumIdsDescriptor;
+import ch.specchio.types.TimeShiftDescriptor;
 import ch.specchio.types.TaxonomyNodeObject;
 import ch.specchio.types.attribute;
 import ch.specchio.types.campaign_node;
@@ -71,6 +80,7 @@ import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.client.filter.HTTPBasicAuthFilter;
 import com.sun.jersey.client.urlconnection.HTTPSProperties;
 
@@ -80,6 +90,9 @@ import com.sun.jersey.client.urlconnection.HTTPSProperties;
  */
 public class SPECCHIOWebClient implements SPECCHIOClient {
 	
+	/** the name of the system property that enables or disables compression */
+	public static final String COMPRESSION_PROPERTY = "specchio.compression";
+	
 	/** the URL to which we are connected */
 	private URL url;
 	
@@ -89,6 +102,12 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	/** web service */
 	private WebResource web_service = null;
 	
+	/** the filter that compresses requests and decompresses responses, or null if compression is disabled */
+	private GZIPContentEncodingFilter compression_filter = null;
+	
+	/** the filter that marks requests for compression, or null if requests are not compressed */
+	private SPECCHIORequestCompressionFilter request_compression_filter = null;
+	
 	/** the username under which we are logged in */
 	private String username = null;
 	
@@ -162,6 +181,12 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 			// add response-fixing filter
 			web_client.addFilter(new SPECCHIOWebClientFilter());
 			
+			if (!"false".equalsIgnoreCase(System.getProperty(COMPRESSION_PROPERTY))) {
+				// accept gzip-compressed responses; requests are only compressed once the server says it can decode them
+				compression_filter = new GZIPContentEncodingFilter(false);
+				web_client.addFilter(compression_filter);
+			}
+			
 			if (username != null) {
 				// configure HTTP basic authentication
 				web_client.addFilter(new HTTPBasicAuthFilter(username, password));
@@ -193,9 +218,41 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 			user = getObject(User.class, "user", "login");
 		}
 		
+		if (compression_filter != null) {
+			capabilities = getObject(Capabilities.class, "public", "capabilities");
+			if (capabilities.getCapability(Capabilities.COMPRESSED_REQUESTS) != null && request_compression_filter == null) {
+				// compress xml requests as well as responses; the marking filter must run before the compression filter
+				request_compression_filter = new SPECCHIORequestCompressionFilter();
+				web_client.addFilter(request_compression_filter);
+			} else if (capabilities.getCapability(Capabilities.COMPRESSED_REQUESTS) == null && request_compression_filter != null) {
+				// the server cannot decode compressed requests
+				web_client.removeFilter(request_compression_filter);
+				request_compression_filter = null;
+			}
+		}
+		
 	}
 	
 
+	/**
+	 * Calculate the illumination azimuth and zenith of a set of spectra from
+	 * their latitude, longitude and acquisition time. Existing illumination
+	 * angles are replaced.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra
+	 * 
+	 * @return the number of spectra for which angles could be calculated
+	 */
+	public int calculateSunAngles(ArrayList<Integer> spectrum_ids) throws SPECCHIOClientException {
+		
+		SpectrumIdsDescriptor d = new SpectrumIdsDescriptor(spectrum_ids);
+		d.setCompactIds(compactIdLists());
+		
+		return postForInteger("metadata", "calculate_sun_angles", d);
+		
+	}
+	
+	
 	/**
 	 * Clears the known metaparameter list held by the server for this user
 	 */
@@ -460,6 +517,21 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Export a campaign in a given format.
+	 * 
+	 * @param c			the campaign to be exported
+	 * @param file_type	FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY or FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	 * 
+	 * @return an input stream connected to the exported campaign date
+	 */
+	public InputStream getCampaignExportInputStream(Campaign c, int file_type) throws SPECCHIOWebClientException {
+		
+		return getInputStream("campaign", "export", c.getType(), Integer.toString(c.getId()), Integer.toString(file_type));
+		
+	}
+	
+	
 	/**
 	 * Get a campaign node for the spectral data browser.
 	 * 
@@ -493,6 +565,23 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Test whether or not the server accepts and returns identifier lists in
+	 * the compact form of XmlIdListAdapter.
+	 * 
+	 * @return true if the server advertises the COMPACT_ID_LISTS capability
+	 */
+	private boolean compactIdLists() throws SPECCHIOWebClientException {
+		
+		if (capabilities == null) {
+			capabilities = getObject(Capabilities.class, "public", "capabilities");
+		}
+		
+		return capabilities.getCapability(Capabilities.COMPACT_ID_LISTS) != null;
+		
+	}
+	
+	
 	/**
 	 * Get the value of a capability.
 	 * 
@@ -586,6 +675,31 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Update the conflicts in the EAV metadata of a selection after spectra
+	 * have been added to or removed from it.
+	 * 
+	 * @param conflicts					the conflicts of the previous selection
+	 * @param no_of_selected_records	the number of spectra in the previous selection
+	 * @param added_ids					the spectra added to the selection
+	 * @param removed_ids				the spectra removed from the selection
+	 * 
+	 * @return a ConflictTable object containing all of the conflicts of the new selection
+	 */
+	public ConflictTable getEavMetadataConflicts(ConflictTable conflicts, int no_of_selected_records, ArrayList<Integer> added_ids, ArrayList<Integer> removed_ids) throws SPECCHIOWebClientException {
+		
+		ConflictUpdateDescriptor cu_d = new ConflictUpdateDescriptor(
+				conflicts,
+				no_of_selected_records,
+				added_ids.toArray(new Integer[added_ids.size()]),
+				removed_ids.toArray(new Integer[removed_ids.size()])
+			);
+			
+		return postForObject(ConflictTable.class, "metadata", "conflicts_eav_update", cu_d);
+		
+	}
+	
+	
 	/**
 	 * Get the count of existing metaparameters for the supplied spectrum ids and attribute id
 	 * 
@@ -890,6 +1004,7 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	public ReferenceSpaceStruct getReferenceSpace(ArrayList<Integer> input_ids) throws SPECCHIOWebClientException {
 		
 		SpectrumIdsDescriptor query_d = new SpectrumIdsDescriptor(input_ids);
+		query_d.setCompactIds(compactIdLists());
 		
 		return postForObject(ReferenceSpaceStruct.class, "spectrum", "getReferenceSpace", query_d);
 		
@@ -963,6 +1078,7 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 				  split_spaces_by_sensor_and_unit,
 				  order_by
 			);
+		  space_d.compact_ids = compactIdLists();
 		  
 		  return  postForArray(Space.class, "spectrum", "getSpaces", space_d);
 		  
@@ -984,6 +1100,73 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Get a list of spectra.
+	 * 
+	 * @param spectrum_ids	the spectrum identifiers
+	 * @param load_metadata	load all spectrum metadata?
+	 * 
+	 * @return an array of Spectrum objects in the same order as the input identifiers
+	 */
+	public Spectrum[] getSpectra(ArrayList<Integer> spectrum_ids, boolean load_metadata) throws SPECCHIOWebClientException {
+		
+		return postForArray(Spectrum.class, "spectrum", "getSpectra", new SpectraDescriptor(spectrum_ids, load_metadata));
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the server's measurement cache. Only
+	 * available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getMeasurementCacheStatistics() throws SPECCHIOWebClientException {
+		
+		return getObject(CacheStatistics.class, "spectrum", "getMeasurementCacheStatistics");
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the server's query result cache. Only
+	 * available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getQueryCacheStatistics() throws SPECCHIOWebClientException {
+		
+		return getObject(CacheStatistics.class, "spectrum", "getQueryCacheStatistics");
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the server's prepared statement caches.
+	 * Only available to administrators.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	public CacheStatistics getStatementCacheStatistics() throws SPECCHIOWebClientException {
+		
+		return getObject(CacheStatistics.class, "spectrum", "getStatementCacheStatistics");
+		
+	}
+	
+	
+	/**
+	 * Get the execution counts and times of the server's cached prepared
+	 * statements. Only available to administrators.
+	 * 
+	 * @return an array of StatementStatistics objects, in descending order of total execution time
+	 */
+	public StatementStatistics[] getStatementStatistics() throws SPECCHIOWebClientException {
+		
+		return getArray(StatementStatistics.class, "spectrum", "getStatementStatistics");
+		
+	}
+	
+	
 	/**
 	 * Get the calibration spaces for a set of spectra.
 	 * 
@@ -994,6 +1177,7 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	public Space[] getSpectrumCalibrationSpaces(ArrayList<Integer> spectrum_ids) throws SPECCHIOWebClientException {
 		
 		SpaceQueryDescriptor query_d = new SpaceQueryDescriptor(spectrum_ids);
+		query_d.compact_ids = compactIdLists();
 		return postForArray(Space.class, "spectrum", "getCalibrationSpaces", query_d);
 		
 	}
@@ -1013,6 +1197,7 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 				spectrum_ids_1,
 				spectrum_ids_2
 			);
+		factor_d.setCompactIds(compactIdLists());
 		
 		return postForObject(SpectrumFactorTable.class, "spectrum", "getSpectrumFactorTable", factor_d);
 		
@@ -1028,8 +1213,12 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	 */
 	public List<Integer> getSpectrumIdsForNode(spectral_node_object sn) throws SPECCHIOWebClientException {
 		
-		XmlIntegerAdapter adapter = new XmlIntegerAdapter();
-		return adapter.unmarshalList(postForList(XmlInteger.class, "browser", "spectrum_ids", sn));
+		if (compactIdLists()) {
+			return postForObject(XmlIdList.class, "browser", "spectrum_id_list", sn).getIds();
+		} else {
+			XmlIntegerAdapter adapter = new XmlIntegerAdapter();
+			return adapter.unmarshalList(postForList(XmlInteger.class, "browser", "spectrum_ids", sn));
+		}
 				
 	}
 	
@@ -1043,15 +1232,19 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	 */
 	public ArrayList<Integer> getSpectrumIdsMatchingQuery(Query query) throws SPECCHIOWebClientException {
 
-		XmlIntegerAdapter adapter = new XmlIntegerAdapter();
-		Integer[] id_array = adapter.unmarshalArray(postForArray(XmlInteger.class, "spectrum", "query", query));
-		
-		ArrayList<Integer> ids = new ArrayList<Integer>();
-		for (int id : id_array) {
-			ids.add(id);
-		}		
-		
-		return ids;
+		if (compactIdLists()) {
+			return postForObject(XmlIdList.class, "spectrum", "query_id_list", query).getIds();
+		} else {
+			XmlIntegerAdapter adapter = new XmlIntegerAdapter();
+			Integer[] id_array = adapter.unmarshalArray(postForArray(XmlInteger.class, "spectrum", "query", query));
+			
+			ArrayList<Integer> ids = new ArrayList<Integer>();
+			for (int id : id_array) {
+				ids.add(id);
+			}		
+			
+			return ids;
+		}
 	}
 	
 	
@@ -1093,7 +1286,10 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	 */
 	public SpectrumDataLink[] getTargetReferenceLinks(ArrayList<Integer> target_ids, ArrayList<Integer> reference_ids) throws SPECCHIOClientException {
 		
-		return postForArray(SpectrumDataLink.class, "spectrum", "getTargetReferenceLinks", new SpectrumIdsDescriptor(target_ids, reference_ids));
+		SpectrumIdsDescriptor d = new SpectrumIdsDescriptor(target_ids, reference_ids);
+		d.setCompactIds(compactIdLists());
+		
+		return postForArray(SpectrumDataLink.class, "spectrum", "getTargetReferenceLinks", d);
 		
 	}
 		
@@ -1256,6 +1452,26 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Insert a batch of spectral files into the database in a single transaction.
+	 * 
+	 * @param batch	the files
+	 * 
+	 * @return a list containing the list of spectrum identifiers that were inserted for each file
+	 */
+	public List<List<Integer>> insertSpectralFiles(SpectralFileBatch batch) throws SPECCHIOWebClientException {
+		
+		XmlIdList[] id_lists = postForArray(XmlIdList.class, "spectral_file", "insert_batch", batch);
+		List<List<Integer>> ids = new ArrayList<List<Integer>>(id_lists.length);
+		for (XmlIdList id_list : id_lists) {
+			ids.add(id_list.getIds());
+		}
+		
+		return ids;
+		
+	}
+	
+	
 	/**
 	 * Insert a target-reference link.
 	 * 
@@ -1268,7 +1484,10 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	 */
 	public int insertTargetReferenceLinks(int target_id, ArrayList<Integer> reference_ids) throws SPECCHIOClientException {
 		
-		return postForInteger("spectrum", "insertTargetReferenceLinks", new SpectrumIdsDescriptor(target_id, reference_ids));
+		SpectrumIdsDescriptor d = new SpectrumIdsDescriptor(target_id, reference_ids);
+		d.setCompactIds(compactIdLists());
+		
+		return postForInteger("spectrum", "insertTargetReferenceLinks", d);
 		
 	}
 
@@ -1313,6 +1532,52 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Load a Space object using the binary space transport. The vectors are
+	 * added to the space chunk by chunk as they arrive from the server.
+	 * 
+	 * @param space	a partially-filled space object
+	 * 
+	 * @return the input space object, filled with the vectors
+	 */
+	public Space loadSpaceStream(Space space) throws SPECCHIOWebClientException {
+		
+		InputStream is = postForInputStream("spectrum", "loadSpaceStream", space);
+		try {
+			SpaceStreamReader reader = new SpaceStreamReader(is);
+			reader.readHeader(space);
+			if (pr != null) {
+				pr.set_operation("Loading spectra");
+				pr.set_min_max(0, reader.getNumberOfVectors());
+			}
+			while (reader.readChunk(space) > 0) {
+				if (pr != null) {
+					pr.set_progress(reader.getNumberOfVectorsRead());
+				}
+			}
+			is.close();
+		}
+		catch (IOException ex) {
+			// network error or truncated stream
+			throw new SPECCHIOWebClientException(new ClientHandlerException(ex));
+		}
+		
+		return space;
+		
+	}
+	
+	
+	/**
+	 * Reload the server's cache of instruments, sensors and institutes from
+	 * the database. Only available to administrators.
+	 */
+	public void refreshDataCache() throws SPECCHIOWebClientException {
+		
+		getString("instrumentation", "refreshDataCache");
+		
+	}
+	
+	
 	/**
 	 * Remove an item of EAV metadata.
 	 * 
@@ -1366,6 +1631,24 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Convert the acquisition times of a set of spectra to UTC.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra
+	 * @param shift			the number of hours East of UTC in which the times were recorded
+	 * 
+	 * @return the number of spectra whose acquisition time was shifted
+	 */
+	public int shiftAcquisitionTimes(ArrayList<Integer> spectrum_ids, double shift) throws SPECCHIOClientException {
+		
+		TimeShiftDescriptor d = new TimeShiftDescriptor(spectrum_ids, shift);
+		d.setCompactIds(compactIdLists());
+		
+		return postForInteger("metadata", "shift_acquisition_times", d);
+		
+	}
+	
+	
 	
 	/**
 	 * Remove the data corresponding to a node of the spectral data browser.
@@ -1390,6 +1673,23 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Remove a set of spectra from the database.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra to be removed
+	 * 
+	 * @return the number of spectra removed
+	 */
+	public int removeSpectra(ArrayList<Integer> spectrum_ids) throws SPECCHIOWebClientException {
+		
+		SpectrumIdsDescriptor d = new SpectrumIdsDescriptor(spectrum_ids);
+		d.setCompactIds(compactIdLists());
+		
+		return postForInteger("spectrum", "remove_spectra", d);
+		
+	}
+	
+	
 	/**
 	 * Test for the existence of a spectral file in the database.
 	 * 
@@ -1404,6 +1704,26 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Test for the existence of each of a batch of spectral files in the database.
+	 * 
+	 * @param batch	the files
+	 * 
+	 * @return a list containing true for each file that already exists in the database, and false for each file that does not
+	 */
+	public List<Boolean> spectralFilesExist(SpectralFileBatch batch) throws SPECCHIOWebClientException {
+		
+		XmlBoolean[] exists = postForArray(XmlBoolean.class, "spectral_file", "exists_batch", batch);
+		List<Boolean> list = new ArrayList<Boolean>(exists.length);
+		for (XmlBoolean b : exists) {
+			list.add(b.getBoolean());
+		}
+		
+		return list;
+		
+	}
+	
+	
 	/**
 	 * Submit a collection to Research Data Australia.
 	 * 
@@ -1818,6 +2138,44 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	}
 	
 	
+	/**
+	 * Post an object to a web service and get an input stream that reads from
+	 * the body of the service's response.
+	 * 
+	 * @param service	the service name
+	 * @param method	the service method
+	 * @param arg		the object to be posted
+	 * 
+	 * @return an InputStream object that reads from the body of the service's response
+	 * @throws SPECCHIOWebClientException 
+	 */
+	private InputStream postForInputStream(String service, String method, Object arg) throws SPECCHIOWebClientException {
+		
+		try {
+			ClientResponse response = web_service.path(buildPath(service, method)).accept(MediaType.APPLICATION_OCTET_STREAM).type(MediaType.APPLICATION_XML).post(ClientResponse.class, arg);
+			if (response.getClientResponseStatus() != ClientResponse.Status.OK) {
+				throw new ClientHandlerException(
+					web_service.path(buildPath(service, method)) +
+					" returned a response status of " + 
+					response.getStatus() + " " + response.getClientResponseStatus()
+					);
+			}
+			
+			return response.getEntityInputStream();
+			
+		}
+		catch (UniformInterfaceException ex) {
+			// could represent any kind of HTTP error
+			throw new SPECCHIOWebClientException(ex);
+		}
+		catch (ClientHandlerException ex) {
+			// could represent any kind of network error
+			throw new SPECCHIOWebClientException(ex);
+		}
+		
+	}
+	
+	
 	/**
 	 * Post an object to a web service that returns a list of objects.
 	 * 
@@ -1987,7 +2345,7 @@ public class SPECCHIOWebClient implements SPECCHIOClient {
 	private void postInputStream(InputStream is, String service, String method, String ... args) throws SPECCHIOWebClientException {
 		
 		try {
-			ClientResponse response = web_service.path(buildPath(service, method, args)).entity(is).post(ClientResponse.class);
+			ClientResponse response = web_service.path(buildPath(service, method, args)).type(MediaType.APPLICATION_OCTET_STREAM).post(ClientResponse.class, is);
 			if (response.getClientResponseStatus() != ClientResponse.Status.OK) {
 				throw new ClientHandlerException(
 					web_service.path(buildPath(service, method, args)) +
@@ -4,22 +4,72 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.client.SPECCHIOClientException;
 import ch.specchio.file.reader.spectrum.*;
 import ch.specchio.types.MetaParameterFormatException;
 import ch.specchio.types.SpectralFile;
-
+import ch.specchio.types.SpectralFileBatch;
+
+/**
+ * Campaign data loader that loads a directory tree into a SPECCHIO campaign.
+ * 
+ * The loading is pipelined: the directory tree is walked on the loader's own
+ * thread, which also creates the hierarchies so that they are created in the
+ * same order as before. The files of each directory are parsed on a pool of
+ * parser threads, and the parsed files are passed through a bounded queue to
+ * a set of uploader threads that send them to the server in batches.
+ */
 public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 	
+	/** the number of threads used to parse files */
+	private static final int PARSER_THREADS = Runtime.getRuntime().availableProcessors();
+	
+	/** the number of files waiting to be parsed before the walker parses files itself */
+	private static final int PARSER_QUEUE_SIZE = 256;
+	
+	/** the number of threads used to upload files */
+	private static final int UPLOADER_THREADS = 4;
+	
+	/** the number of parsed files waiting to be uploaded before the parsers block */
+	private static final int UPLOAD_QUEUE_SIZE = 64;
+	
+	/** the maximum number of files taken from the upload queue at a time */
+	private static final int UPLOAD_BATCH_SIZE = 8;
+	
+	/** marker placed on the upload queue when all files have been parsed */
+	private static final ParsedFile END_OF_FILES = new ParsedFile(null, null, 0);
+	
 	private SPECCHIOClient specchio_client;
-	private SpectralFileLoader sfl;
 
 	private int root_hierarchy_id;
 	
 	ArrayList<String> file_errors = new ArrayList<String>();
 	private int successful_file_counter;
+	
+	/** the pool of parser threads */
+	private ThreadPoolExecutor parser_pool;
+	
+	/** the parsed files waiting to be uploaded */
+	private BlockingQueue<ParsedFile> upload_queue;
+	
+	/** the uploader threads */
+	private ArrayList<Thread> uploaders;
+	
+	/** the first exception thrown by the server during an upload */
+	private volatile SPECCHIOClientException upload_exception;
+	
+	/** the loader used by each parser thread for the directory currently being parsed */
+	private ThreadLocal<SpectralFileLoader[]> thread_loaders = new ThreadLocal<SpectralFileLoader[]>() {
+		protected SpectralFileLoader[] initialValue() {
+			return new SpectralFileLoader[2];
+		}
+	};
 
 
 	public SpecchioCampaignDataLoader(CampaignDataLoaderListener listener, SPECCHIOClient specchio_client) {
@@ -46,15 +96,26 @@ public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 			File f = new File(campaign.getPath());
 
 			// now we create the root hierarchy for this campaign
-			root_hierarchy_id = insert_hierarchy(f.getName(), 0);
-			load_directory(root_hierarchy_id, f, false);
+			start_pipeline();
+			try {
+				root_hierarchy_id = insert_hierarchy(f.getName(), 0);
+				load_directory(root_hierarchy_id, f, false);
+			}
+			finally {
+				finish_pipeline();
+			}
+			
+			// report any failure of the uploaders
+			if (upload_exception != null) {
+				throw upload_exception;
+			}
 
 		}
 		catch (SPECCHIOClientException ex) {
-			listener.campaignDataLoadException(ex.getMessage(), ex);
+			report_exception(ex.getMessage(), ex);
 		}
 		catch (IOException ex) {
-			listener.campaignDataLoadException(ex.getMessage(), ex);
+			report_exception(ex.getMessage(), ex);
 		}
 		
 		// tell the listener that we're finished
@@ -69,9 +130,13 @@ public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 	void load_directory(int parent_id, File dir, boolean parent_garbage_flag) throws SPECCHIOClientException, FileNotFoundException {
 		int hierarchy_id = 0;
 		ArrayList<File> files, directories;
-		SpectralFile spec_file;
 		boolean is_garbage = parent_garbage_flag;
 		
+		// stop walking the tree if the uploaders have failed
+		if (upload_exception != null) {
+			throw upload_exception;
+		}
+		
 		// Garbage detection: all data that are under a folder called 'Garbage' will get an EAV garbage flag
 		// this allows users to load also suboptimal (i.e. garbage) data into the database, but easily exclude them from any selection
 		if(dir.getName().equals("Garbage"))
@@ -136,7 +201,7 @@ public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 			// use the names of the first hierarchy (the one below
 			// the root) to show in progress report
 			if (parent_id == root_hierarchy_id) {
-				listener.campaignDataLoadOperation(curr_dir.getName());
+				report_operation(curr_dir.getName());
 			}
 
 			// create a new entry in the database for this directory
@@ -145,12 +210,11 @@ public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 			load_directory(hierarchy_id, curr_dir, parent_garbage_flag);
 		}
 
-		// load each file using the spectral
-		// file loader
+		// hand each file to the parser threads
 		if (files.size() > 0) {	
 
 			// get the spectral file loader needed for this directory
-			sfl = get_spectral_file_loader(files);
+			SpectralFileLoader sfl = get_spectral_file_loader(files);
 
 			if (sfl != null) {
 				
@@ -158,62 +222,10 @@ public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 				ListIterator<File> file_li = files.listIterator();
 				
 				while(file_li.hasNext()) {
-					File file = file_li.next();
-					
-					try {
-
-						// the loader can return null, e.g. if ENVI files are
-						// read
-						// and a body (*.slb) is passed.
-						// In such a case no spectrum is inserted.
-						spec_file = sfl.load(file);
-						if (spec_file != null && spec_file.getNumberOfSpectra() > 0)
-						{
-							spec_file.setGarbageIndicator(is_garbage);
-							int ids[] = insert_spectral_file(spec_file, parent_id);
-							if(ids != null)
-							{
-								spectrum_counter += ids.length;
-							}
-							
-							// check on file errors
-							if(spec_file.getFileErrors().size() > 0)
-							{
-								// concatenate all errors into one message
-								StringBuffer buf = new StringBuffer("Errors found in : " + spec_file.getFilename());
-								boolean first = true;
-								for (String error : spec_file.getFileErrors()) {
-									if (!first) {
-										buf.append(", ");
-									} else {
-										first = false;
-									}
-									buf.append(error);
-								}
-								
-								// add the message to the list of all errors
-								this.file_errors.add(buf.toString());
-								
-							}
-							else
-							{
-								successful_file_counter++;
-							}
-						}
-								
-						file_counter++;
-							
-						listener.campaignDataLoadFileCount(file_counter, spectrum_counter);
-					}
-					catch (IOException ex) {
-						listener.campaignDataLoadException(file + ": " + ex.getMessage(), ex);
-					}
-					catch (MetaParameterFormatException ex) {
-						listener.campaignDataLoadException(file + ": " + ex.getMessage(), ex);
-					}
+					parser_pool.execute(new ParseTask(file_li.next(), sfl, parent_id, is_garbage));
 				}
 			} else {
-				listener.campaignDataLoadError(
+				report_error(
 						"Unknown file types in directory " + dir.toString() + ". \n" +
 						"Data will not be loaded.\n" +
 						"Please check the file types and refer to the user guide for a list of supported files."
@@ -224,32 +236,238 @@ public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 	}
 	
 	
-	int[] insert_spectral_file(SpectralFile spec_file, int hierarchy_id) throws SPECCHIOClientException {
+	/**
+	 * Start the parser and uploader threads.
+	 */
+	private void start_pipeline() {
 		
-		int ids[] = null;
+		upload_exception = null;
+		upload_queue = new ArrayBlockingQueue<ParsedFile>(UPLOAD_QUEUE_SIZE);
 		
-		// first check whether or not the file has already been loaded
-		// to do this, create a clone of the spectral file, remove it's measurement to reduce size and send it 
-		// to the web service
-		SpectralFile light_clone = new SpectralFile(spec_file);
-		light_clone.setHierarchyId(hierarchy_id);
-		light_clone.setCampaignId(campaign.getId());
-		light_clone.setCampaignType(campaign.getType());
-		
-		boolean exists = specchio_client.spectralFileExists(light_clone);
-		
-		// if it doesn't exist, upload it
-		if (!exists) {
-			spec_file.setCampaignType(campaign.getType());
-			spec_file.setCampaignId(campaign.getId());
-			spec_file.setHierarchyId(hierarchy_id);
-			List<Integer> results = specchio_client.insertSpectralFile(spec_file);
+		// when the parsers fall behind, the walker parses files itself rather than queueing more
+		parser_pool = new ThreadPoolExecutor(
+				PARSER_THREADS, PARSER_THREADS,
+				0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(PARSER_QUEUE_SIZE),
+				new ThreadPoolExecutor.CallerRunsPolicy()
+			);
+		
+		uploaders = new ArrayList<Thread>();
+		for (int i = 0; i < UPLOADER_THREADS; i++) {
+			Thread uploader = new Uploader();
+			uploader.setName(getName() + " uploader " + i);
+			uploader.start();
+			uploaders.add(uploader);
+		}
+		
+	}
+	
+	
+	/**
+	 * Wait for all of the queued files to be parsed and uploaded, and then
+	 * stop the parser and uploader threads.
+	 */
+	private void finish_pipeline() {
+		
+		try {
 			
-			ids = new int[results.size()];
-			for (int i = 0; i < results.size(); i++) {
-				ids[i] = results.get(i);
+			// wait for the parsers to empty their queue
+			parser_pool.shutdown();
+			while (!parser_pool.awaitTermination(1, TimeUnit.SECONDS)) {
+				// keep waiting
+			}
+			
+			// tell the uploaders that there are no more files
+			upload_queue.put(END_OF_FILES);
+			for (Thread uploader : uploaders) {
+				uploader.join();
+			}
+			
+		}
+		catch (InterruptedException ex) {
+			// abandon the remaining files
+			parser_pool.shutdownNow();
+			for (Thread uploader : uploaders) {
+				uploader.interrupt();
 			}
-		} 
+			Thread.currentThread().interrupt();
+		}
+		
+	}
+	
+	
+	/**
+	 * Get the parser thread's own copy of a directory's spectral file loader.
+	 * Loaders keep per-file state and so cannot be shared between threads.
+	 * 
+	 * @param sfl	the loader selected for the directory
+	 * 
+	 * @return a loader of the same class and file format as sfl
+	 */
+	private SpectralFileLoader get_thread_loader(SpectralFileLoader sfl) throws InstantiationException, IllegalAccessException {
+		
+		// element 0 is the directory's loader, element 1 is this thread's copy of it
+		SpectralFileLoader[] loaders = thread_loaders.get();
+		if (loaders[0] != sfl) {
+			loaders[1] = sfl.getClass().newInstance();
+			loaders[1].set_file_format_id(sfl.file_format_id);
+			loaders[0] = sfl;
+		}
+		
+		return loaders[1];
+		
+	}
+	
+	
+	/**
+	 * Record a file that has been completely processed.
+	 * 
+	 * @param spec_file	the parsed file, or null if the file did not contain any spectra
+	 * @param ids		the identifiers of the inserted spectra, or null if nothing was inserted
+	 */
+	private synchronized void file_processed(SpectralFile spec_file, int ids[]) {
+		
+		if (spec_file != null) {
+			if(ids != null)
+			{
+				spectrum_counter += ids.length;
+			}
+			
+			// check on file errors
+			if(spec_file.getFileErrors().size() > 0)
+			{
+				// concatenate all errors into one message
+				StringBuffer buf = new StringBuffer("Errors found in : " + spec_file.getFilename());
+				boolean first = true;
+				for (String error : spec_file.getFileErrors()) {
+					if (!first) {
+						buf.append(", ");
+					} else {
+						first = false;
+					}
+					buf.append(error);
+				}
+				
+				// add the message to the list of all errors
+				this.file_errors.add(buf.toString());
+				
+			}
+			else
+			{
+				successful_file_counter++;
+			}
+		}
+		
+		file_counter++;
+		
+		listener.campaignDataLoadFileCount(file_counter, spectrum_counter);
+		
+	}
+	
+	
+	/**
+	 * Record the first exception thrown by the server during an upload.
+	 * 
+	 * @param ex	the exception
+	 */
+	private synchronized void upload_failed(SPECCHIOClientException ex) {
+		
+		if (upload_exception == null) {
+			upload_exception = ex;
+		}
+		
+	}
+	
+	
+	/**
+	 * Pass an error message to the listener.
+	 * 
+	 * @param message	the message
+	 */
+	private synchronized void report_error(String message) {
+		
+		listener.campaignDataLoadError(message);
+		
+	}
+	
+	
+	/**
+	 * Pass an exception to the listener.
+	 * 
+	 * @param message	the message
+	 * @param ex		the exception
+	 */
+	private synchronized void report_exception(String message, Exception ex) {
+		
+		listener.campaignDataLoadException(message, ex);
+		
+	}
+	
+	
+	/**
+	 * Pass the name of the current operation to the listener.
+	 * 
+	 * @param operation	the name of the operation
+	 */
+	private synchronized void report_operation(String operation) {
+		
+		listener.campaignDataLoadOperation(operation);
+		
+	}
+	
+	
+	/**
+	 * Insert a batch of parsed files into the database. The files that are
+	 * already in the database are identified with a single request, and the
+	 * remaining files are then inserted with a single request.
+	 * 
+	 * @param batch	the files
+	 * 
+	 * @return an array containing the identifiers of the spectra inserted for each file, or null for files that were already in the database
+	 * 
+	 * @throws SPECCHIOClientException	the files could not be inserted
+	 */
+	int[][] insert_spectral_files(List<ParsedFile> batch) throws SPECCHIOClientException {
+		
+		int ids[][] = new int[batch.size()][];
+		
+		// first check whether or not the files have already been loaded
+		// to do this, create clones of the spectral files without their measurements to reduce size and send them
+		// to the web service
+		ArrayList<SpectralFile> light_clones = new ArrayList<SpectralFile>(batch.size());
+		for (ParsedFile parsed : batch) {
+			SpectralFile light_clone = new SpectralFile(parsed.spec_file);
+			light_clone.setHierarchyId(parsed.hierarchy_id);
+			light_clone.setCampaignId(campaign.getId());
+			light_clone.setCampaignType(campaign.getType());
+			light_clones.add(light_clone);
+		}
+		List<Boolean> exists = specchio_client.spectralFilesExist(new SpectralFileBatch(campaign.getType(), campaign.getId(), light_clones));
+		
+		// upload the files that don't exist
+		ArrayList<SpectralFile> new_files = new ArrayList<SpectralFile>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			if (!exists.get(i)) {
+				SpectralFile spec_file = batch.get(i).spec_file;
+				spec_file.setCampaignType(campaign.getType());
+				spec_file.setCampaignId(campaign.getId());
+				spec_file.setHierarchyId(batch.get(i).hierarchy_id);
+				new_files.add(spec_file);
+			}
+		}
+		if (new_files.size() > 0) {
+			List<List<Integer>> results = specchio_client.insertSpectralFiles(new SpectralFileBatch(campaign.getType(), campaign.getId(), new_files));
+			int j = 0;
+			for (int i = 0; i < batch.size(); i++) {
+				if (!exists.get(i)) {
+					List<Integer> file_ids = results.get(j++);
+					ids[i] = new int[file_ids.size()];
+					for (int k = 0; k < file_ids.size(); k++) {
+						ids[i][k] = file_ids.get(k);
+					}
+				}
+			}
+		}
 		
 		return ids;
 		
@@ -452,6 +670,163 @@ public class SpecchioCampaignDataLoader extends CampaignDataLoader {
 
 		return loader;
 	}
+	
+	
+	/**
+	 * A parsed file waiting to be uploaded.
+	 */
+	private static class ParsedFile {
+		
+		/** the file on disk */
+		public File file;
+		
+		/** the contents of the file */
+		public SpectralFile spec_file;
+		
+		/** the hierarchy into which the file will be inserted */
+		public int hierarchy_id;
+		
+		public ParsedFile(File file, SpectralFile spec_file, int hierarchy_id) {
+			
+			this.file = file;
+			this.spec_file = spec_file;
+			this.hierarchy_id = hierarchy_id;
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Task that parses a single file and queues it for upload.
+	 */
+	private class ParseTask implements Runnable {
+		
+		/** the file to be parsed */
+		private File file;
+		
+		/** the loader selected for the file's directory */
+		private SpectralFileLoader sfl;
+		
+		/** the hierarchy into which the file will be inserted */
+		private int hierarchy_id;
+		
+		/** the value of the garbage indicator */
+		private boolean is_garbage;
+		
+		public ParseTask(File file, SpectralFileLoader sfl, int hierarchy_id, boolean is_garbage) {
+			
+			this.file = file;
+			this.sfl = sfl;
+			this.hierarchy_id = hierarchy_id;
+			this.is_garbage = is_garbage;
+			
+		}
+		
+		public void run() {
+			
+			// don't bother parsing if the uploaders have failed
+			if (upload_exception != null) {
+				return;
+			}
+			
+			try {
+				
+				// the loader can return null, e.g. if ENVI files are
+				// read
+				// and a body (*.slb) is passed.
+				// In such a case no spectrum is inserted.
+				SpectralFile spec_file = get_thread_loader(sfl).load(file);
+				if (spec_file != null && spec_file.getNumberOfSpectra() > 0)
+				{
+					spec_file.setGarbageIndicator(is_garbage);
+					upload_queue.put(new ParsedFile(file, spec_file, hierarchy_id));
+				}
+				else
+				{
+					file_processed(null, null);
+				}
+				
+			}
+			catch (IOException ex) {
+				report_exception(file + ": " + ex.getMessage(), ex);
+			}
+			catch (MetaParameterFormatException ex) {
+				report_exception(file + ": " + ex.getMessage(), ex);
+			}
+			catch (InstantiationException ex) {
+				report_exception(file + ": " + ex.getMessage(), ex);
+			}
+			catch (IllegalAccessException ex) {
+				report_exception(file + ": " + ex.getMessage(), ex);
+			}
+			catch (InterruptedException ex) {
+				// the load has been abandoned
+				Thread.currentThread().interrupt();
+			}
+			catch (RuntimeException ex) {
+				// a failing loader must not make the file vanish silently inside the thread pool
+				report_exception(file + ": " + ex.toString(), ex);
+			}
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Thread that uploads parsed files to the server. Files are taken from the
+	 * upload queue in batches of up to UPLOAD_BATCH_SIZE, and each batch is
+	 * inserted in a single transaction. Once an upload has
+	 * failed, the remaining files are taken from the queue but not uploaded,
+	 * so that the parsers are never left blocked on a full queue.
+	 */
+	private class Uploader extends Thread {
+		
+		public void run() {
+			
+			ArrayList<ParsedFile> batch = new ArrayList<ParsedFile>(UPLOAD_BATCH_SIZE);
+			boolean finished = false;
+			
+			try {
+				while (!finished) {
+					
+					// wait for at least one file, then take whatever else is ready
+					batch.add(upload_queue.take());
+					upload_queue.drainTo(batch, UPLOAD_BATCH_SIZE - 1);
+					
+					// pass the end marker on to the other uploaders
+					if (batch.remove(END_OF_FILES)) {
+						upload_queue.put(END_OF_FILES);
+						finished = true;
+					}
+					
+					if (batch.size() > 0 && upload_exception == null) {
+						try {
+							int ids[][] = insert_spectral_files(batch);
+							for (int i = 0; i < batch.size(); i++) {
+								file_processed(batch.get(i).spec_file, ids[i]);
+							}
+						}
+						catch (SPECCHIOClientException ex) {
+							upload_failed(ex);
+						}
+						catch (RuntimeException ex) {
+							// keep draining the queue so that the parsers cannot block on it
+							upload_failed(new SPECCHIOClientException(ex));
+						}
+					}
+					batch.clear();
+					
+				}
+			}
+			catch (InterruptedException ex) {
+				// the load has been abandoned
+			}
+			
+		}
+		
+	}
 
 
 }
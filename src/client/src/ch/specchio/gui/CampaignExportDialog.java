@@ -36,6 +36,7 @@ public class CampaignExportDialog   extends JFrame implements ActionListener
 
 	private static final long serialVersionUID = 1L;
 	JComboBox campaign_combo;
+	JComboBox<String> format_combo;
 	Connection db_conn;
 	GridbagLayouter l;
 	JTextField target_dir;
@@ -43,6 +44,11 @@ public class CampaignExportDialog   extends JFrame implements ActionListener
 	JButton load;
 	SPECCHIOClient specchio_client;
 	
+	/** the file types that can be selected in the format combo box */
+	private static final int[] export_file_types = {
+		FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY, FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	};
+	
 	public CampaignExportDialog() throws SPECCHIOClientException
 	{
 		
@@ -77,7 +83,18 @@ public class CampaignExportDialog   extends JFrame implements ActionListener
 		
 		constraints.gridx = 0;
 		constraints.gridy = 2;	
-		l.insertComponent(new JLabel("All relational data of this campaign will be exported to an xml file."), constraints);
+		l.insertComponent(new JLabel("All relational data of this campaign will be exported to a file."), constraints);
+		
+		constraints.gridy++;
+		constraints.gridx = 0;	
+		constraints.gridwidth = 1;
+		l.insertComponent(new JLabel("File format:"), constraints);
+		format_combo = new JComboBox<String>();
+		for (int file_type : export_file_types) {
+			format_combo.addItem(FileTypes.descr_strs[file_type]);
+		}
+		constraints.gridx = 1;
+		l.insertComponent(format_combo, constraints);
 		
 		constraints.gridy++;
 		constraints.gridx = 0;	
@@ -139,6 +156,7 @@ public class CampaignExportDialog   extends JFrame implements ActionListener
 			try {
 				// get currently selected campaign from combobox
 				Campaign c = (Campaign)campaign_combo.getSelectedItem();
+				int file_type = export_file_types[format_combo.getSelectedIndex()];
 	
 				// the file name consists of target directory, campaign name plus current date plus time
 			    DateFormat dateFormat = new SimpleDateFormat("yyyy_MM_dd_HH_mm_ss");
@@ -146,12 +164,12 @@ public class CampaignExportDialog   extends JFrame implements ActionListener
 				File f = new File(
 						this.target_dir.getText(),
 						c.getName() + "_" + dateFormat.format(date) +
-							FileTypes.get_filename_extension(FileTypes.CAMPAIGN_EXPORT_XML, HeaderBody.Body)
+							FileTypes.get_filename_extension(file_type, HeaderBody.Body)
 					);
 				
 				// launch a thread to handle the download
 				FileOutputStream fos = new FileOutputStream(f);
-				CampaignExportThread thread = new CampaignExportThread(c, fos);
+				CampaignExportThread thread = new CampaignExportThread(c, file_type, fos);
 				thread.start();
 			}
 			catch (IOException ex) {
@@ -191,18 +209,24 @@ public class CampaignExportDialog   extends JFrame implements ActionListener
 		/** the campaign to be written */
 		private Campaign campaign;
 		
+		/** the format in which to write the campaign */
+		private int file_type;
+		
 		/** the stream to which the campaign will be written */
 		private OutputStream out;
 		
 		/**
 		 * Constructor.
 		 * 
-		 * @param out	the stream to which to write the campaign
+		 * @param campaign	the campaign to be written
+		 * @param file_type	the format in which to write the campaign
+		 * @param out		the stream to which to write the campaign
 		 */
-		public CampaignExportThread(Campaign campaign, OutputStream out) {
+		public CampaignExportThread(Campaign campaign, int file_type, OutputStream out) {
 			
 			// save references to the input parameters
 			this.campaign = campaign;
+			this.file_type = file_type;
 			this.out = out;
 			
 		}
@@ -222,7 +246,7 @@ public class CampaignExportDialog   extends JFrame implements ActionListener
 			try {
 				
 				// ask the server for the campaign data
-				InputStream is = specchio_client.getCampaignExportInputStream(campaign);
+				InputStream is = specchio_client.getCampaignExportInputStream(campaign, file_type);
 				
 				// copy the response to a file
 				pr.set_operation("Writing the campaign to a file...");
@@ -23,6 +23,8 @@ import javax.swing.filechooser.FileFilter;
 
 import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.client.SPECCHIOClientException;
+import ch.specchio.constants.FileTypes;
+import ch.specchio.constants.HeaderBody;
 import ch.specchio.types.User;
 
 
@@ -143,18 +145,24 @@ public class CampaignImportDialog  extends JFrame implements ActionListener
 		if(e.getActionCommand().equals("browse"))
 		{
 			// from "http://www.leepoint.net/notes-java/GUI/containers/20dialogs/35filefilter.html"
-			class XMLFileFilter extends javax.swing.filechooser.FileFilter {
+			class CampaignFileFilter extends javax.swing.filechooser.FileFilter {
 			    public boolean accept(File f) {
-			        return f.isDirectory() || f.getName().toLowerCase().endsWith(".xml");
+			    	String name = f.getName().toLowerCase();
+			    	for (int file_type : new int[] { FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY, FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP }) {
+			    		if (name.endsWith(FileTypes.get_filename_extension(file_type, HeaderBody.Body))) {
+			    			return true;
+			    		}
+			    	}
+			        return f.isDirectory();
 			    }
 			    
 			    public String getDescription() {
-			        return ".xml files";
+			        return "Campaign export files (.xml, .scb, .scb.gz)";
 			    }
 			}
 						
 			fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
-			FileFilter filter = new XMLFileFilter();
+			FileFilter filter = new CampaignFileFilter();
 			fc.setFileFilter(filter);
 			
 			int returnVal = fc.showOpenDialog(this);
@@ -5,6 +5,7 @@ import java.awt.GridBagConstraints;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -20,6 +21,7 @@ import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.client.SPECCHIOClientException;
 import ch.specchio.constants.UserRoles;
 import ch.specchio.types.database_node;
+import ch.specchio.types.spectrum_node;
 
 
 public class DataRemoverDialog extends JFrame implements ActionListener, TreeSelectionListener{
@@ -38,6 +40,9 @@ public class DataRemoverDialog extends JFrame implements ActionListener, TreeSel
 	
 	class removing_thread extends Thread
 	{
+		
+		/** the number of spectra to be removed by each request to the server */
+		private static final int BLOCK_SIZE = 1000;
 
 		ProgressReportDialog pr = new ProgressReportDialog(DataRemoverDialog.this, "Removing data ...", false, 20);
 		
@@ -54,6 +59,22 @@ public class DataRemoverDialog extends JFrame implements ActionListener, TreeSel
 			pr.setVisible(true);
 			
 			try {
+				if (!(sdb_node.getNode() instanceof spectrum_node)) {
+					// remove the spectra beneath the node in blocks so that progress can be shown
+					pr.set_operation("Finding spectra...");
+					ArrayList<Integer> ids = new ArrayList<Integer>(specchio_client.getSpectrumIdsForNode(sdb_node.getNode()));
+					pr.set_operation("Deleting spectra...");
+					pr.set_indeterminate(false);
+					int progress = 0;
+					for (int start = 0; start < ids.size(); start += BLOCK_SIZE) {
+						ArrayList<Integer> block = new ArrayList<Integer>(ids.subList(start, Math.min(start + BLOCK_SIZE, ids.size())));
+						specchio_client.removeSpectra(block);
+						progress += block.size();
+						pr.set_progress(progress * 100.0 / ids.size());
+					}
+					pr.set_indeterminate(true);
+				}
+				
 				// ask the server to remove the node from the database
 				pr.set_operation("Deleting data. Please wait.");
 				specchio_client.removeSpectralNode(sdb_node.getNode());
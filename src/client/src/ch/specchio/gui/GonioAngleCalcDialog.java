@@ -612,17 +612,16 @@ public class GonioAngleCalcDialog extends JDialog implements ActionListener, Tre
 			pr.set_operation("Reading spectrum metadata");
 			
 			
-			int cnt = 0;
-			double tot = new Double(spectrumIds.length);
 			try {
+				// download all spectra in one request
+				ArrayList<Integer> ids = new ArrayList<Integer>(spectrumIds.length);
 				for (Integer id : spectrumIds) {
-					
-					// download spectrum
-					spectra.add(specchioClient.getSpectrum(id, true));
-					
-					// update progress meter
-					pr.set_progress(++cnt * 100.0 / tot);
+					ids.add(id);
+				}
+				for (Spectrum s : specchioClient.getSpectra(ids, true)) {
+					spectra.add(s);
 				}
+				pr.set_progress(100);
 				
 			}
 			catch (SPECCHIOClientException ex) {
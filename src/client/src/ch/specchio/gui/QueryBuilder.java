@@ -983,7 +983,7 @@ public class QueryBuilder extends JFrame  implements ActionListener, TreeSelecti
 				{
 					pr.set_operation("Loading space " + i);
 					pr.set_progress(0);
-					Space s = specchio_client.loadSpace(space);
+					Space s = specchio_client.loadSpaceStream(space);
 					pr.set_progress(50);
 					
 					pr.set_operation("Building plot");
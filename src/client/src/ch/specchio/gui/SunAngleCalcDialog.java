@@ -4,11 +4,8 @@ import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.TimeZone;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -22,13 +19,6 @@ import javax.swing.event.TreeSelectionListener;
 
 import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.client.SPECCHIOClientException;
-import ch.specchio.types.CelestialAngle;
-import ch.specchio.types.MetaDate;
-import ch.specchio.types.MetaParameter;
-import ch.specchio.types.MetaParameterFormatException;
-import ch.specchio.types.MetaSimple;
-import ch.specchio.types.Metadata;
-import ch.specchio.types.Spectrum;
 import ch.specchio.types.attribute;
 
 
@@ -203,6 +193,9 @@ public class SunAngleCalcDialog extends JDialog implements ActionListener, TreeS
 	 */
 	private class SunAngleCalcThread extends Thread {
 		
+		/** the number of spectra sent to the server per request */
+		private static final int BLOCK_SIZE = 1000;
+		
 		/** the spectrum identifiers to be processed */
 		private Integer spectrumIds[];
 		
@@ -232,62 +225,27 @@ public class SunAngleCalcDialog extends JDialog implements ActionListener, TreeS
 			pr.set_operation("Updating illumination angles");
 			pr.setVisible(true);
 
-			// calculate angles for each identifier
+			// calculate angles on the server, a block of identifiers at a time
 			int cnt = 0;
 			int progress = 0;
 			double tot = new Double(spectrumIds.length);
 			try {
 				
-				for (Integer id : spectrumIds) {
-					
-					// download spectrum metadata from server
-					Spectrum s = specchioClient.getSpectrum(id, true);
-					Metadata md = s.getMetadata();
-					
-					// get latitude and longitude
-					MetaSimple latitude = (MetaSimple)md.get_first_entry("Latitude");
-					MetaSimple longitude = (MetaSimple)md.get_first_entry("Longitude");
+				for (int start = 0; start < spectrumIds.length; start += BLOCK_SIZE) {
 					
-					// get acquisition time
-					MetaDate acquisitionTime = (MetaDate)md.get_first_entry("Acquisition Time");
-					
-					// calculate angles only if we have a position and acquisition time
-					if (latitude != null && longitude != null && acquisitionTime != null) {
-						
-						// calculate the angle of the sun at the position and acquistion time
-						CelestialAngle angle = calculateSunAngle(
-								(Double)latitude.getValue(),
-								(Double)longitude.getValue(),
-								(Date)acquisitionTime.getValue()
-							);
-						
-						// build the list of identifiers to be updated
-						ArrayList<Integer> updateIds = new ArrayList<Integer>();
-						updateIds.add(id);
-						
-						// update azimuth
-						MetaParameter azimuthParameter = md.get_first_entry(azimuthAttribute.getId());
-						if (azimuthParameter == null) {
-							azimuthParameter = MetaParameter.newInstance(azimuthAttribute);
-						}
-						azimuthParameter.setValue(new Double(angle.azimuth));
-						specchioClient.updateEavMetadata(azimuthParameter, updateIds);
-						
-						// update zenith
-						MetaParameter zenithParameter = md.get_first_entry(zenithAttribute.getId());
-						if (zenithParameter == null) {
-							zenithParameter = MetaParameter.newInstance(zenithAttribute);
-						}
-						zenithParameter.setValue(new Double(angle.zenith));
-						specchioClient.updateEavMetadata(zenithParameter, updateIds);
-						
-						// udpate counter
-						cnt++;
-						
+					// build the list of identifiers in this block
+					int end = Math.min(start + BLOCK_SIZE, spectrumIds.length);
+					ArrayList<Integer> updateIds = new ArrayList<Integer>(end - start);
+					for (int i = start; i < end; i++) {
+						updateIds.add(spectrumIds[i]);
 					}
 					
+					// update counter
+					cnt += specchioClient.calculateSunAngles(updateIds);
+					
 					// update progress meter
-					pr.set_progress(++progress * 100.0 / tot);
+					progress = end;
+					pr.set_progress(progress * 100.0 / tot);
 					
 				}
 				
@@ -297,16 +255,6 @@ public class SunAngleCalcDialog extends JDialog implements ActionListener, TreeS
 				ErrorDialog error = new ErrorDialog((Frame)SunAngleCalcDialog.this.getOwner(), "Error", ex.getUserMessage(), ex);
 				error.setVisible(true);
 			}
-			catch (ClassCastException ex) {
-				// invalid data stored in the database
-				ErrorDialog error = new ErrorDialog((Frame)SunAngleCalcDialog.this.getOwner(), "Error", "The database contains invalid data for one or more of these spectra.", ex);
-				error.setVisible(true);
-			}
-			catch (MetaParameterFormatException ex) {
-				// the parameter have the wrong type
-				ErrorDialog error = new ErrorDialog((Frame)SunAngleCalcDialog.this.getOwner(), "Error", "The illumination attributes have the wrong type. Please contact your system administrator.", ex);
-				error.setVisible(true);
-			}
 			
 			// show a completion message
 			StringBuffer message = new StringBuffer();
@@ -324,77 +272,6 @@ public class SunAngleCalcDialog extends JDialog implements ActionListener, TreeS
 			pr.setVisible(false);
 		}
 		
-		
-		/**
-		 * Calculate the angle of the sun for a given longitude, latitude and time.
-		 * 
-		 * @param latitude	the latitude
-		 * @param longitude	the longitude
-		 * @param date		the date and time
-		 * 
-		 * @return a new CelestialAngle object representing the position of the sun
-		 */
-		private CelestialAngle calculateSunAngle(double latitude, double longitude, Date date) {
-
-			// get the time of year
-			TimeZone tz = TimeZone.getDefault();
-			Calendar cal = Calendar.getInstance(tz);
-			cal.setTime(date);
-			int dy = cal.get(Calendar.DAY_OF_YEAR);
-			dy--; // Java starts the count at 1 (first day of year)
-				// but this routine expects the first day as 0 (zero)
-			int hh = cal.get(Calendar.HOUR_OF_DAY);
-			int mm = cal.get(Calendar.MINUTE);
-			int ss = cal.get(Calendar.SECOND);
-			
-						
-			double hours = hh + mm/60.0 + ss/3600.0;
-											
-			
-			int timezone = 0; // time zone: we expect the capture time to be in GMT
-				
-			double wdy = 2*Math.PI*dy/365.0; 
-			
-			// sun declination [rad]
-			double delta = 0.006918-0.399912*Math.cos(wdy)+0.070257*Math.sin(wdy)-0.006758*Math.cos(2*wdy)+0.000908*Math.sin(2*wdy);
-			
-			// longitude correction
-			double lc = -longitude / 15;
-			
-			// time equation
-			double et = 0.0172+0.4281*Math.cos(wdy)-7.3515*Math.sin(wdy)- 3.3495*Math.cos(2*wdy)-9.3619*Math.sin(2*wdy);
-			
-			// true solar time
-			double tst = hours-timezone+lc+et/60;
-			double wtst = Math.PI*(tst-12)/12;
-			
-			if(wtst > Math.PI)
-				wtst=wtst-2*Math.PI;
-			
-			if(wtst < -Math.PI)
-				wtst=wtst+2*Math.PI;
-			
-			// sun height, sun zenith angle
-			double lat_r = Math.toRadians(latitude);
-			
-			
-			double h = Math.asin(Math.cos(lat_r)*Math.cos(delta)*Math.cos(wtst)+Math.sin(lat_r)*Math.sin(delta));
-			
-			double thz = Math.PI/2 - h;
-			double nen = Math.sin(lat_r)*Math.cos(delta)*Math.cos(wtst)-Math.cos(lat_r)*Math.sin(delta);
-			double phi = Math.acos(nen/Math.cos(h));
-			
-			if( wtst < 0)
-				phi=-phi;
-			
-			double azimuth = phi + Math.PI;
-			if(azimuth > 2*Math.PI)
-				azimuth = azimuth - 2*Math.PI;
-			
-			return new CelestialAngle(Math.toDegrees(azimuth), Math.toDegrees(thz));
-			
-		}
-		
 	}
 
 }
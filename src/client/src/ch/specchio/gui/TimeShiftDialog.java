@@ -7,7 +7,7 @@ import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.swing.JButton;
@@ -22,10 +22,6 @@ import javax.swing.event.TreeSelectionListener;
 import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.client.SPECCHIOClientException;
 import ch.specchio.constants.UserRoles;
-import ch.specchio.types.MetaDate;
-import ch.specchio.types.MetaParameter;
-import ch.specchio.types.MetaParameterFormatException;
-import ch.specchio.types.Spectrum;
 import ch.specchio.types.spectral_node_object;
 
 
@@ -303,67 +299,21 @@ public class TimeShiftDialog extends JFrame implements ActionListener, TreeSelec
 		public void run() {
 
 			// create a progress report
-			int progress = 0;
-			double tot = new Double(spectrumIds.length);
 			ProgressReportDialog pr = new ProgressReportDialog(TimeShiftDialog.this, "UTC Time Correction", false, 20);
 			pr.set_operation("Updating acquisition times");
 			pr.setVisible(true);
 			
 			try {
 				
-				specchioClient.clearMetaparameterRedundancyList(); // otherwise, repeated calls of the time shift leads to Duplicate entry SQL exception
-				
-				// shift the capture dates of the selected spectra
-				ArrayList<Integer> updatedIds = new ArrayList<Integer>();
-				for (Integer id : spectrumIds) {
-					
-					// get the existing spectrum with metadata
-					Spectrum s = specchioClient.getSpectrum(id, true);
-					
-					// get the existing capture date
-					MetaDate mpAcquisitionTime = (MetaDate)s.getMetadata().get_first_entry("Acquisition Time");
-					if (mpAcquisitionTime != null) {
-						
-						// remove gmt offset
-						long time_in_millis = ((Date) mpAcquisitionTime.getValue()).getTime();
-						long gmt_offset_in_millis = (long)(shift*3600*1000);
-						time_in_millis -= gmt_offset_in_millis;
-						
-						// update the metadata object
-						mpAcquisitionTime.setValue(new Date(time_in_millis));
-						ArrayList<Integer> id_list = new ArrayList<Integer>();
-						id_list.add(id);
-						specchioClient.updateEavMetadata(mpAcquisitionTime, id_list);
-						
-						// add the identifier to the list of updated identifiers
-						updatedIds.add(id);
-						
-					}
-					
-					// update progress meter
-					pr.set_progress(++progress * 100.0 / tot);
-				}
-	
-				if (updatedIds.size() > 0) {
-					
-					// create a metaparameter noting that the time was shifted
-					MetaParameter mpShift = MetaParameter.newInstance(
-							"Processing",
-							"",
-							"Capture time was shifted by " + shift + " hours East using the SPECCHIO timeshift function."
-						);
-					mpShift.setAttributeName("Time Shift");	
-					
-					// add the metaparameter to the database
-					pr.set_operation("Updating database");
-					specchioClient.updateEavMetadata(mpShift, updatedIds);
-					
-				}
+				// shift the capture dates of all of the selected spectra with one request, so
+				// that the server either shifts all of them or none of them
+				int cnt = specchioClient.shiftAcquisitionTimes(new ArrayList<Integer>(Arrays.asList(spectrumIds)), shift);
+				pr.set_progress(100);
 				
 				// display a success message
 				String message;
-				if (updatedIds.size() > 0) {
-					message = "Acquisition times of " + Integer.toString(updatedIds.size()) + " spectra successfully shifted.";
+				if (cnt > 0) {
+					message = "Acquisition times of " + Integer.toString(cnt) + " spectra successfully shifted.";
 				} else {
 					message = "No acquisition times found. No data was updated.";
 				}
@@ -375,11 +325,6 @@ public class TimeShiftDialog extends JFrame implements ActionListener, TreeSelec
 				ErrorDialog error = new ErrorDialog(TimeShiftDialog.this, "Error", ex.getUserMessage(), ex);
 				error.setVisible(true);
 			}
-			catch (MetaParameterFormatException ex) {
-				// the time shift attribute has the wrong type
-				ErrorDialog error = new ErrorDialog(TimeShiftDialog.this, "Error", "The time shift attribute has the wrong type. Please contact your system administrator.", ex);
-				error.setVisible(true);
-			}
 			
 			// close progress report
 			pr.setVisible(false);
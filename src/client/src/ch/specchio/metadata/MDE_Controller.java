@@ -2,6 +2,7 @@ package ch.specchio.metadata;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.ListIterator;
@@ -27,6 +28,13 @@ public class MDE_Controller {
 	MD_FormDescriptor form_descriptor;
 	Hashtable<Integer, attribute> attributes;
 	
+	// eav conflicts of the last selection, used to update the conflicts when the selection changes
+	ConflictTable eav_conflict_stati;
+	HashSet<Integer> eav_conflict_ids;
+	
+	// maximum number of added and removed spectra for which the conflicts are updated rather than detected again
+	static final int MAX_INCREMENTAL_CONFLICT_CHANGES = 100;
+	
 	
 	public MDE_Controller(SPECCHIOClient specchio_client) throws SPECCHIOClientException
 	{
@@ -88,7 +96,7 @@ public class MDE_Controller {
 			Spectrum s = specchio_client.getSpectrum(ids.get(0), false);
 
 			// add EAV parameters including their conflict status
-			ConflictTable eav_conflict_stati = specchio_client.getEavMetadataConflicts(ids);
+			ConflictTable eav_conflict_stati = get_eav_conflicts();
 			Enumeration<String> conflicts = eav_conflict_stati.conflicts();
 			while (conflicts.hasMoreElements()) {
 				try {
@@ -129,6 +137,54 @@ public class MDE_Controller {
 	
 	
 	
+	private ConflictTable get_eav_conflicts() throws SPECCHIOClientException
+	{
+		HashSet<Integer> new_ids = new HashSet<Integer>(ids);
+		ConflictTable stati = null;
+		
+		if (eav_conflict_stati != null)
+		{
+			// work out how the selection has changed since the conflicts were last detected
+			ArrayList<Integer> added_ids = new ArrayList<Integer>();
+			for (Integer id : new_ids)
+			{
+				if (!eav_conflict_ids.contains(id))
+					added_ids.add(id);
+			}
+			ArrayList<Integer> removed_ids = new ArrayList<Integer>();
+			for (Integer id : eav_conflict_ids)
+			{
+				if (!new_ids.contains(id))
+					removed_ids.add(id);
+			}
+			
+			int no_of_changes = added_ids.size() + removed_ids.size();
+			if (no_of_changes <= MAX_INCREMENTAL_CONFLICT_CHANGES && no_of_changes < new_ids.size())
+			{
+				stati = specchio_client.getEavMetadataConflicts(eav_conflict_stati, eav_conflict_ids.size(), added_ids, removed_ids);
+			}
+		}
+		
+		if (stati == null)
+		{
+			stati = specchio_client.getEavMetadataConflicts(ids);
+		}
+		
+		eav_conflict_stati = stati;
+		eav_conflict_ids = new_ids;
+		
+		return stati;
+	}
+	
+	
+	private void clear_eav_conflicts()
+	{
+		// the metadata has changed so the conflicts must be detected again
+		eav_conflict_stati = null;
+		eav_conflict_ids = null;
+	}
+	
+	
 	public MDE_Form getForm()
 	{
 		return form;
@@ -150,6 +206,7 @@ public class MDE_Controller {
 	
 	public void update(MD_Field field) throws SPECCHIOClientException
 	{
+		clear_eav_conflicts();
 		
 		if(field instanceof MD_EAV_Field)
 		{
@@ -194,6 +251,8 @@ public class MDE_Controller {
 		// - link new entry with spectral subset
 		// - remove links to old EAV for spectral subset
 		
+		clear_eav_conflicts();
+		
 		if(field instanceof MD_EAV_Field)
 		{
 			try {
@@ -213,6 +272,7 @@ public class MDE_Controller {
 	
 	public void remove(MD_Field field) throws SPECCHIOClientException
 	{
+		clear_eav_conflicts();
 		
 		if(field instanceof MD_EAV_Field)
 		{
@@ -228,6 +288,7 @@ public class MDE_Controller {
 
 	public void remove_selection(MD_Field field) throws SPECCHIOClientException {
 		
+		clear_eav_conflicts();
 		MetaParameter mp = ((MD_EAV_Field) field).getMetaParameter();
 		specchio_client.removeEavMetadata(mp, ids);
 		if (form != null) {
@@ -239,6 +300,7 @@ public class MDE_Controller {
 
 	public void remove_all_mps_of_attribute(MD_Field field) throws SPECCHIOClientException {
 		
+		clear_eav_conflicts();
 		MetaParameter mp = ((MD_EAV_Field) field).getMetaParameter();
 		attribute attr = specchio_client.getAttributesIdHash().get(mp.getAttributeId());
 		specchio_client.removeEavMetadata(attr, ids);
@@ -3,6 +3,7 @@ package ch.specchio.plots.swing;
 
 import java.awt.BorderLayout;
 import java.awt.Font;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Vector;
 
@@ -193,16 +194,14 @@ public abstract class SpectralPlot extends JPanel
 	
 	public void plot_all()
 	{
-		ArrayList<double[]> vectors = space.getVectors();		
-    	ArrayList<Integer> ids = space.getSpectrumIds();
-    	double[] vector;
+    	DoubleBuffer vector;
 
     	for(currentDataset= 0; currentDataset < space.getNumberOfDataPoints();currentDataset++)
     	{
-    		vector = space.getVector(ids.get(currentDataset));
+    		vector = space.getVectorView(currentDataset);
     		
-    		for ( int i = 0; i < vector.length; i++ ) {
-    			plot.addPoint(currentDataset,space.get_wvl_of_band(i), vector[i], true);
+    		for ( int i = 0; i < vector.limit(); i++ ) {
+    			plot.addPoint(currentDataset,space.get_wvl_of_band(i), vector.get(i), true);
     		}    		
     	}
     	
@@ -229,7 +228,7 @@ public abstract class SpectralPlot extends JPanel
 			
 			VectorStatistics stats = new VectorStatistics();
 			
-			stats.calc_stats(vectors, space.get_index_of_band(vis_nir_start), space.get_index_of_band(vis_nir_end));	
+			stats.calc_stats(space, space.get_index_of_band(vis_nir_start), space.get_index_of_band(vis_nir_end));	
 			
 			plot.setYRange(0, stats.mean()+1*stats.standardDeviation());
 
@@ -260,7 +259,7 @@ public abstract class SpectralPlot extends JPanel
 	public void plot(int spectrum_id)
 	{
 
-		double[] vector = space.getVector(spectrum_id);
+		DoubleBuffer vector = space.getVectorView(space.getVectorIndex(spectrum_id));
 //		double[] wvl = space.getAverageWavelengths();
 		
 //		Vector<VectorRegion> chunks = get_chunks();
@@ -270,8 +269,8 @@ public abstract class SpectralPlot extends JPanel
 		currentDataset= 0;
 		plot.clear(true);
 		
-		for ( int i = 0; i < vector.length; i++ ) {
-			plot.addPoint(currentDataset,space.get_wvl_of_band(i), vector[i], true);
+		for ( int i = 0; i < vector.limit(); i++ ) {
+			plot.addPoint(currentDataset,space.get_wvl_of_band(i), vector.get(i), true);
 		}   
 		
 		wvl_indicator_dataset_no = 1;
@@ -215,14 +215,14 @@ public class TimelinePlot extends JPanel implements ListSelectionListener, Chart
 		
 		TimeSeries s = new TimeSeries("Band " + inc_band.toString() + "(" + space.get_wvl_of_band(band) + "nm]" + " Time Plot");
 		
-		ArrayList<double[]> vectors = space.getVectors();
+		int n = space.getNumberOfDataPoints();
 
 		
-		for(int d = 0; d < vectors.size();d++)
+		for(int d = 0; d < n;d++)
 		{			
 			Millisecond time = new Millisecond(time_vector[d]);
 			//s.addOrUpdate(time , vectors.get(d)[band]);
-			s.add(time , vectors.get(d)[band]);
+			s.add(time , space.getVectorView(d).get(band));
 		}
 		
 		dataset.addSeries(s);		
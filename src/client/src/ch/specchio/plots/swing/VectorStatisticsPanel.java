@@ -32,7 +32,7 @@ public class VectorStatisticsPanel extends JPanel{
 	// spectrum number, start and end band of region to calculate
 	public void set_context(int spectrum_id,  int start_ind, int end_ind)
 	{		
-		stats.calc_stats(space.getVector(spectrum_id), start_ind, end_ind);	
+		stats.calc_stats(space.getVectorView(space.getVectorIndex(spectrum_id)), start_ind, end_ind);	
 		
 		NumberFormat f = NumberFormat.getInstance();
 		f.setMaximumFractionDigits(5);
@@ -1,7 +1,7 @@
 package ch.specchio.proc_modules;
 
 import java.awt.Frame;
-import java.util.ArrayList;
+import java.nio.DoubleBuffer;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -10,6 +10,7 @@ import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.client.SPECCHIOClientException;
 import ch.specchio.spaces.MeasurementUnit;
 import ch.specchio.spaces.SensorAndInstrumentSpace;
+import ch.specchio.spaces.Space;
 import ch.specchio.spaces.SpectralSpace;
 import ch.specchio.types.Instrument;
 import ch.specchio.types.Sensor;
@@ -68,21 +69,22 @@ public abstract class BandTypeFilter extends SensorAndInstrumentProcessingModule
 		// create output array with new dimension
 		double[] out_wvl = new double[dim];
 		
-		this.filter_vector(in_wvl, out_wvl);
+		this.filter_vector(DoubleBuffer.wrap(in_wvl), out_wvl);
 				
 		return out_wvl;
 	}
 
 	public void transform() throws SPECCHIOClientException 
 	{
-		ArrayList<double[]> vectors = get_main_input_space().getSpace().getVectors();
+		Space input_space = get_main_input_space().getSpace();
+		int n = input_space.getNumberOfDataPoints();
 
 		System.out.println("Filtering broadbands");
 		
 		// loop over all vectors
-		for(int i = 0; i < vectors.size(); i++)
+		for(int i = 0; i < n; i++)
 		{
-			double[] vector = vectors.get(i);
+			DoubleBuffer vector = input_space.getVectorView(i);
 			double[] out_vector = new double[get_main_output_space().getSpace().getDimensionality()]; // new vector dimension is equal to output space dimension
 			
 			// filter each vector
@@ -92,23 +94,23 @@ public abstract class BandTypeFilter extends SensorAndInstrumentProcessingModule
 			get_main_output_space().getSpace().addVector(out_vector);	
 			
 			// update progress bar
-			set_progress((i+1)*100.0/vectors.size());
+			set_progress((i+1)*100.0/n);
 		}
 		
 	}
 
 	
-	void filter_vector(double[] in_vector, double[] out_vector) throws SPECCHIOClientException
+	void filter_vector(DoubleBuffer in_vector, double[] out_vector) throws SPECCHIOClientException
 	{
 
 		Sensor sensor = ((SensorAndInstrumentSpace)get_main_input_space().getSpace()).getSensor();
 		int out_index = 0;
-		for(int j=0; j<in_vector.length; j++)
+		for(int j=0; j<in_vector.limit(); j++)
 		{
 			if(sensor.getElementTypes()[j] != ElementToFilter)
 			{
 				// band not filtered
-				out_vector[out_index++] = in_vector[j];
+				out_vector[out_index++] = in_vector.get(j);
 			}
 		}
 	
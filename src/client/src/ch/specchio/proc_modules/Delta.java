@@ -1,13 +1,14 @@
 package ch.specchio.proc_modules;
 
 import java.awt.Frame;
-import java.util.ArrayList;
+import java.nio.DoubleBuffer;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.spaces.MeasurementUnit;
+import ch.specchio.spaces.Space;
 import ch.specchio.spaces.SpectralSpace;
 
 public class Delta extends SpectralProcessingModule {
@@ -45,21 +46,22 @@ public class Delta extends SpectralProcessingModule {
 
 	@Override
 	public void transform() {
-		ArrayList<double[]> A = input_spaces.get(0).getSpace().getVectors();
-		ArrayList<double[]> B = input_spaces.get(1).getSpace().getVectors();
+		Space A = input_spaces.get(0).getSpace();
+		Space B = input_spaces.get(1).getSpace();
 		
 		int dim = input_spaces.get(0).getSpace().getDimensionality();
+		int n = A.getNumberOfDataPoints();
 		
 		// loop over all vectors
-		for(int i = 0; i < A.size(); i++)
+		for(int i = 0; i < n; i++)
 		{
-			double[] a = A.get(i);
-			double[] b = B.get(i);
+			DoubleBuffer a = A.getVectorView(i);
+			DoubleBuffer b = B.getVectorView(i);
 			double[] out_vector = new double[dim]; // new vector dimension is equal to output space dimension
 			
 			for(int band = 0; band < out_vector.length;band++)
 			{
-				out_vector[band] = a[band]-b[band];
+				out_vector[band] = a.get(band)-b.get(band);
 			}
 
 			
@@ -67,7 +69,7 @@ public class Delta extends SpectralProcessingModule {
 			get_main_output_space().getSpace().addVector(out_vector);
 			
 			// update progress bar
-			set_progress((i+1)*100.0/A.size());
+			set_progress((i+1)*100.0/n);
 			
 		}
 
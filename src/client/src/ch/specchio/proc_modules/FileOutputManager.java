@@ -6,7 +6,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.swing.JOptionPane;
 
 import ch.specchio.client.SPECCHIOClient;
@@ -27,6 +35,12 @@ import ch.specchio.types.Spectrum;
 
 public class FileOutputManager extends Thread {
 	
+	/** number of spectra or vectors downloaded from the server per request */
+	private static final int DOWNLOAD_BLOCK_SIZE = 200;
+	
+	/** number of blocks being downloaded while the previous one is written */
+	private static final int DOWNLOAD_THREADS = 3;
+	
 	String target_dir;
 	String base_name;
 	int file_type;
@@ -210,93 +224,147 @@ public class FileOutputManager extends Thread {
 		int count = 0;
 		for (SpaceProcessingChainComponent og_c : spaces) {
 			
-			// make sure the space is loaded
-			Space og;
-			if (og_c.get_data_ready_status()) {
-				og = og_c.getSpace();
-			} else {
-				og = specchio_client.loadSpace(og_c.getSpace());
+			// spaces that have not been loaded are loaded a block of vectors at a time while the body is written
+			Space og = og_c.getSpace();
+			boolean paged = !og_c.get_data_ready_status();
+			ArrayList<Integer> spectrumIds = new ArrayList<Integer>(og.getSpectrumIds());
+			pr.set_min_max(0, spectrumIds.size());
+			try {
+				if (paged && !og.getDimensionalityIsSet() && spectrumIds.size() > 0) {
+					// the dimensionality of some spaces is only known once their first vector has been loaded
+					loadBlock(og, spectrumIds.subList(0, Math.min(DOWNLOAD_BLOCK_SIZE, spectrumIds.size())));
+					og.setSpectrumIds(spectrumIds);
+				}
+				count += write(og, paged, spectrumIds, writerFactory);
 			}
-			pr.set_min_max(0, og.getNumberOfDataPoints());
-			
-			// open output files
-			OutputStream headerStream;
-			OutputStream bodyStream;
-			if (split_hdr_and_body) {
-				
-				// separate writers for header and body
-				File headerFilename = new File(
-						target_dir,
-						base_name + "_" + og.get_filename_addon() + FileTypes.get_filename_extension(this.file_type, HeaderBody.Header)
-					);
-									
-				File bodyFilename = new File(
-						target_dir,
-						base_name + "_" + og.get_filename_addon() + FileTypes.get_filename_extension(this.file_type, HeaderBody.Body)
-					);
-				headerStream = new FileOutputStream(headerFilename);
-				bodyStream = new FileOutputStream(bodyFilename);
-				
-			} else {
-				// same writer for header and body
-				File filename = new File(
-						target_dir,
-						base_name + "_" + og.get_filename_addon() + FileTypes.get_filename_extension(this.file_type, HeaderBody.Both)
-					);
-				headerStream = new FileOutputStream(filename);
-				bodyStream = headerStream;
-				
+			finally {
+				if (paged) {
+					// put back the full list of spectra and drop the last block of vectors
+					og.setSpectrumIds(spectrumIds);
+					og.setVectors(new ArrayList<double[]>());
+				}
 			}
 			
-			// download spectra from the server
-			pr.set_operation("Downloading spectra");
-			Spectrum spectra[] = new Spectrum[og.getSpectrumIds().size()];
-			int i = 0;
-			for (Integer spectrumId : og.getSpectrumIds()) {
-				spectra[i] = specchio_client.getSpectrum(spectrumId, true);
-				pr.set_progress(++i);
-			}
+		}
+		
+		return count;
+	}
+	
+	
+	/**
+	 * Write one space.
+	 * 
+	 * @param og			the space
+	 * @param paged			load the vectors of the space a block at a time?
+	 * @param spectrumIds	the identifiers of the spectra in the space
+	 * @param writerFactory	the factory for the header and body writers
+	 * 
+	 * @return the number of spectra written
+	 */
+	private int write(Space og, boolean paged, ArrayList<Integer> spectrumIds, SpectrumWriterFactory writerFactory) throws IOException, SPECCHIOClientException
+	{
+		
+		int count = 0;
+		
+		// open output files
+		OutputStream headerStream;
+		OutputStream bodyStream;
+		if (split_hdr_and_body) {
 			
+			// separate writers for header and body
+			File headerFilename = new File(
+					target_dir,
+					base_name + "_" + og.get_filename_addon() + FileTypes.get_filename_extension(this.file_type, HeaderBody.Header)
+				);
+								
+			File bodyFilename = new File(
+					target_dir,
+					base_name + "_" + og.get_filename_addon() + FileTypes.get_filename_extension(this.file_type, HeaderBody.Body)
+				);
+			headerStream = new FileOutputStream(headerFilename);
+			bodyStream = new FileOutputStream(bodyFilename);
 			
-			// write header
-			pr.set_operation("Writing file header");
-			SpectrumWriter headerWriter = writerFactory.getWriter(headerStream, file_type, HeaderBody.Header);
-			headerWriter.setTimeFormat(time_format);
-			headerWriter.setUseSpectrumUnits(get_unit_from_spectrum);
-			headerWriter.startSpace(og);
-			i = 0;
-			for (Spectrum s : spectra) {
-				headerWriter.writeSpectrum(s);
-				pr.set_progress(++i);
-			}
-			headerWriter.endSpace();
+		} else {
+			// same writer for header and body
+			File filename = new File(
+					target_dir,
+					base_name + "_" + og.get_filename_addon() + FileTypes.get_filename_extension(this.file_type, HeaderBody.Both)
+				);
+			headerStream = new FileOutputStream(filename);
+			bodyStream = headerStream;
 			
-			// write body
-			pr.set_operation("Writing file body");
-			SpectrumWriter bodyWriter = writerFactory.getWriter(bodyStream, file_type, HeaderBody.Body);
-			bodyWriter.setTimeFormat(time_format);
-			bodyWriter.setUseSpectrumUnits(get_unit_from_spectrum);
-			bodyWriter.startSpace(og);
-			i = 0;
-			for (Spectrum s : spectra) {
-				bodyWriter.writeSpectrum(s);
+		}
+		
+		// write header, streaming the spectra from the server a block at a time
+		pr.set_operation("Writing file header");
+		SpectrumWriter headerWriter = writerFactory.getWriter(headerStream, file_type, HeaderBody.Header);
+		headerWriter.setTimeFormat(time_format);
+		headerWriter.setUseSpectrumUnits(get_unit_from_spectrum);
+		headerWriter.startSpace(og);
+		SpectrumDownloader downloader = new SpectrumDownloader(spectrumIds);
+		int i = 0;
+		try {
+			while (downloader.hasNext()) {
+				for (Spectrum s : downloader.next()) {
+					headerWriter.writeSpectrum(s);
+					pr.set_progress(++i);
+				}
+				pr.set_operation("Writing file header (" + downloader.getStatistics() + ")");
+			}
+		}
+		finally {
+			downloader.shutdown();
+		}
+		headerWriter.endSpace();
+		
+		// write body; the vectors come from the space, so the spectra need not be downloaded again
+		pr.set_operation("Writing file body");
+		SpectrumWriter bodyWriter = writerFactory.getWriter(bodyStream, file_type, HeaderBody.Body);
+		bodyWriter.setTimeFormat(time_format);
+		bodyWriter.setUseSpectrumUnits(get_unit_from_spectrum);
+		bodyWriter.startSpace(og);
+		i = 0;
+		for (int start = 0; start < spectrumIds.size(); start += DOWNLOAD_BLOCK_SIZE) {
+			List<Integer> blockIds = spectrumIds.subList(start, Math.min(start + DOWNLOAD_BLOCK_SIZE, spectrumIds.size()));
+			if (paged) {
+				// load only the vectors of this block, just before they are written
+				loadBlock(og, blockIds);
+			}
+			for (Integer spectrumId : blockIds) {
+				bodyWriter.writeSpectrum(new Spectrum(spectrumId));
 				pr.set_progress(++i);
 				
 				// everything for this spectrum has now been written, so increment the spectrum counter
 				count++;
 			}
-			bodyWriter.endSpace();
+		}
+		bodyWriter.endSpace();
 
-			// close files
-			headerStream.close();
-			if (split_hdr_and_body) {
-				bodyStream.close();
-			}
-			
-		
+		// close files
+		headerStream.close();
+		if (split_hdr_and_body) {
+			bodyStream.close();
 		}
 		
 		return count;
+		
+	}
+	
+	
+	/**
+	 * Load the vectors of a block of spectra into a space. The identifiers
+	 * of the space are replaced by those of the block, so that only their
+	 * vectors are sent by the server.
+	 * 
+	 * @param space		the space
+	 * @param blockIds	the identifiers of the spectra in the block
+	 * 
+	 * @throws SPECCHIOClientException	error contacting the server
+	 */
+	private void loadBlock(Space space, List<Integer> blockIds) throws SPECCHIOClientException
+	{
+		space.setSpectrumIds(new ArrayList<Integer>(blockIds));
+		specchio_client.loadSpaceStream(space);
 	}
 	
 	int total_no_of_spectra()
@@ -324,5 +392,151 @@ public class FileOutputManager extends Thread {
 		
 		return total_no;		
 	}
+	
+	
+	/**
+	 * Downloads the spectra of a space in blocks. Up to DOWNLOAD_THREADS blocks
+	 * are requested from the server at once, so that the next blocks are
+	 * arriving while the current one is written, but no more than that are
+	 * held in memory.
+	 */
+	private class SpectrumDownloader {
+		
+		/** the identifiers of the spectra to be downloaded */
+		private ArrayList<Integer> spectrumIds;
+		
+		/** the position in the identifier list of the next block to be requested */
+		private int nextRequest = 0;
+		
+		/** the requests in progress, in the order in which the blocks are to be returned */
+		private LinkedList<Future<Spectrum[]>> pending = new LinkedList<Future<Spectrum[]>>();
+		
+		/** the threads making the requests */
+		private ThreadPoolExecutor pool;
+		
+		/** the time at which downloading started */
+		private long startTime;
+		
+		/** the number of spectra returned so far */
+		private int received = 0;
+		
+		/** the largest heap usage seen so far, in bytes */
+		private long peakHeap = 0;
+		
+		
+		/**
+		 * Constructor. Starts downloading the first blocks.
+		 * 
+		 * @param spectrumIds	the identifiers of the spectra to be downloaded
+		 */
+		public SpectrumDownloader(ArrayList<Integer> spectrumIds) {
+			
+			this.spectrumIds = spectrumIds;
+			this.pool = new ThreadPoolExecutor(
+					DOWNLOAD_THREADS, DOWNLOAD_THREADS,
+					0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>()
+				);
+			this.startTime = System.currentTimeMillis();
+			
+			while (pending.size() < DOWNLOAD_THREADS && nextRequest < spectrumIds.size()) {
+				request();
+			}
+			
+		}
+		
+		
+		/**
+		 * Get a description of the download rate and the peak heap usage.
+		 * 
+		 * @return a string describing the statistics
+		 */
+		public String getStatistics() {
+			
+			long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+			
+			return Long.toString(received * 1000L / elapsed) + " spectra/s, peak heap " + Long.toString(peakHeap / (1024 * 1024)) + " MB";
+			
+		}
+		
+		
+		/**
+		 * Test whether there are more blocks to be returned.
+		 * 
+		 * @return true if next() will return another block
+		 */
+		public boolean hasNext() {
+			
+			return pending.size() > 0;
+			
+		}
+		
+		
+		/**
+		 * Wait for the next block of spectra and request another one in its place.
+		 * 
+		 * @return the spectra of the next block, in the order of the identifier list
+		 * 
+		 * @throws SPECCHIOClientException	error contacting the server
+		 */
+		public Spectrum[] next() throws SPECCHIOClientException {
+			
+			Spectrum block[];
+			try {
+				block = pending.removeFirst().get();
+			}
+			catch (InterruptedException ex) {
+				throw new SPECCHIOClientException("Interrupted while downloading spectra.", ex);
+			}
+			catch (ExecutionException ex) {
+				if (ex.getCause() instanceof SPECCHIOClientException) {
+					throw (SPECCHIOClientException)ex.getCause();
+				}
+				throw new SPECCHIOClientException(ex);
+			}
+			
+			// keep the pipeline full
+			if (nextRequest < spectrumIds.size()) {
+				request();
+			}
+			
+			// update statistics
+			received += block.length;
+			Runtime runtime = Runtime.getRuntime();
+			peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+			
+			return block;
+			
+		}
+		
+		
+		/**
+		 * Stop downloading. Blocks that have not yet been returned are discarded.
+		 */
+		public void shutdown() {
+			
+			pool.shutdownNow();
+			pending.clear();
+			
+		}
+		
+		
+		/**
+		 * Request the next block of spectra.
+		 */
+		private void request() {
+			
+			int end = Math.min(nextRequest + DOWNLOAD_BLOCK_SIZE, spectrumIds.size());
+			final ArrayList<Integer> blockIds = new ArrayList<Integer>(spectrumIds.subList(nextRequest, end));
+			pending.add(pool.submit(new Callable<Spectrum[]>() {
+				public Spectrum[] call() throws SPECCHIOClientException {
+					return specchio_client.getSpectra(blockIds, true);
+				}
+			}));
+			nextRequest = end;
+			
+		}
+		
+	}
 
 }
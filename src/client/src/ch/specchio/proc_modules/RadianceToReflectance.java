@@ -1,6 +1,7 @@
 package ch.specchio.proc_modules;
 
 import java.awt.Frame;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Hashtable;
 
@@ -51,7 +52,9 @@ public class RadianceToReflectance extends SpectralProcessingModule
 	public void transform()
 	{
 		ArrayList<Integer> spectrum_ids = get_main_input_space().getSpace().getSpectrumIds();
-		ArrayList<double[]> vectors = get_main_input_space().getSpace().getVectors();
+		Space input_space = get_main_input_space().getSpace();
+		int n_vectors = input_space.getNumberOfDataPoints();
+		Space output_space = get_main_output_space().getSpace();
 		
 		// check if dimensions of spectralon space and target space match
 		if(reference_space != null)
@@ -70,11 +73,16 @@ public class RadianceToReflectance extends SpectralProcessingModule
 			}
 		}
 		
-		// loop over all vectors
-		for(int i = 0; i < vectors.size(); i++)
+		// the output vectors are written straight into the rows of the output matrix
+		output_space.allocateMatrix(n_vectors);
+		int out_dim = output_space.getDimensionality(); // new vector dimension is equal to output space dimension
+		
+		// loop over all vectors, reading each through a view of the input space
+		for(int i = 0; i < n_vectors; i++)
 		{
-			double[] vector = vectors.get(i);
-			double[] out_vector = new double[get_main_output_space().getSpace().getDimensionality()]; // new vector dimension is equal to output space dimension
+			DoubleBuffer vector = input_space.getVectorView(i);
+			int out_offset = output_space.getRowOffset(output_space.nextRow());
+			double[] out_matrix = output_space.getMatrix();
 			
 			// convert each vector
 			if(reference_space != null)
@@ -86,17 +94,17 @@ public class RadianceToReflectance extends SpectralProcessingModule
 					int index = spectrum_reference_hash.get(spectrum_id);
 					
 					
-					double[] spectralon_vector = reference_space.getVector(index);
+					DoubleBuffer spectralon_vector = reference_space.getVectorView(reference_space.getVectorIndex(index));
 					
-					for(int band = 0; band < out_vector.length;band++)
+					for(int band = 0; band < out_dim;band++)
 					{
 						if(this.is_spectralon)
 						{
-							out_vector[band] = vector[band]/spectralon_vector[band];
+							out_matrix[out_offset + band] = vector.get(band)/spectralon_vector.get(band);
 						}
 						else
 						{
-							out_vector[band] = vector[band]/(spectralon_vector[band]/PI);
+							out_matrix[out_offset + band] = vector.get(band)/(spectralon_vector.get(band)/PI);
 						}
 					}
 				
@@ -106,15 +114,12 @@ public class RadianceToReflectance extends SpectralProcessingModule
 			else
 			{
 				// simple copy if spectralon space could not be filled
-				System.arraycopy(vector, 0, out_vector, 0, out_vector.length);
+				vector.get(out_matrix, out_offset, out_dim);
 			}
 		
 			
-			// add output vector to output space
-			get_main_output_space().getSpace().addVector(out_vector);
-			
 			// update progress bar
-			set_progress((i+1)*100.0/vectors.size());
+			set_progress((i+1)*100.0/n_vectors);
 			
 		}
 		
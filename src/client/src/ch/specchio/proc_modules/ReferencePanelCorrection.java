@@ -1,6 +1,7 @@
 package ch.specchio.proc_modules;
 
 import java.awt.Frame;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -9,6 +10,7 @@ import javax.swing.JPanel;
 import ch.specchio.client.SPECCHIOClient;
 import ch.specchio.client.SPECCHIOClientException;
 import ch.specchio.spaces.MeasurementUnit;
+import ch.specchio.spaces.Space;
 import ch.specchio.spaces.SpectralSpace;
 import ch.specchio.types.SpectrumFactorTable;
 
@@ -78,7 +80,9 @@ public class ReferencePanelCorrection extends SpectralProcessingModule {
 		if(valid_configuration)
 		{
 			ArrayList<Integer> spectrum_ids = input_spaces.get(0).getSpace().getSpectrumIds();
-			ArrayList<double[]> vectors = input_spaces.get(0).getSpace().getVectors();
+			Space input_space = input_spaces.get(0).getSpace();
+			Space factor_space = input_spaces.get(1).getSpace();
+			int n = input_space.getNumberOfDataPoints();
 
 			System.out.println("Correcting for panel non-idealness");
 
@@ -89,21 +93,21 @@ public class ReferencePanelCorrection extends SpectralProcessingModule {
 
 
 			// loop over all vectors
-			for(int i = 0; i < vectors.size(); i++)
+			for(int i = 0; i < n; i++)
 			{
-				double[] spectrum_vector = vectors.get(i);
+				DoubleBuffer spectrum_vector = input_space.getVectorView(i);
 				double[] out_vector = new double[input_spaces.get(0).getSpace().getDimensionality()]; // new vector dimension is equal to output space dimension
 
 				int spectrum_id = spectrum_ids.get(i);
 				int curr_factor_id = spectrum_factor_table.getFactor(spectrum_id);
 
-				double[] factor_vector = input_spaces.get(1).getSpace().getVector(curr_factor_id);
+				DoubleBuffer factor_vector = factor_space.getVectorView(factor_space.getVectorIndex(curr_factor_id));
 
 				// convert each vector
 
 				for(int band = 0; band < out_vector.length;band++)
 				{
-					out_vector[band] = spectrum_vector[band]*factor_vector[band];
+					out_vector[band] = spectrum_vector.get(band)*factor_vector.get(band);
 				}
 
 
@@ -111,7 +115,7 @@ public class ReferencePanelCorrection extends SpectralProcessingModule {
 				get_main_output_space().getSpace().addVector(out_vector);
 
 				// update progress bar
-				set_progress((i+1)*100.0/vectors.size());
+				set_progress((i+1)*100.0/n);
 
 			}
 		}
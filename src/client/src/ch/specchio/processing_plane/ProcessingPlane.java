@@ -121,7 +121,7 @@ public class ProcessingPlane implements ActionListener, ModuleCallback
 					{
 						Space curr_space = input_spaces.get(i).getSpace();
 						SpaceProcessingChainComponent spcc = input_spaces.get(i);												
-						Space space = specchio_client.loadSpace(curr_space);
+						Space space = specchio_client.loadSpaceStream(curr_space);
 						
 						spcc.setSpace(space);
 						spcc.finalized();
@@ -15,8 +15,14 @@ public class FileTypes
 	/** XML-formatteed campaign export */
 	public final static int CAMPAIGN_EXPORT_XML = 2;
 	
+	/** binary campaign export */
+	public final static int CAMPAIGN_EXPORT_BINARY = 3;
+	
+	/** gzip-compressed binary campaign export */
+	public final static int CAMPAIGN_EXPORT_BINARY_GZIP = 4;
+	
 	/** file type names */
-	public static String[] descr_strs = {"CSV", "ENVI SLB", "XML"};
+	public static String[] descr_strs = {"CSV", "ENVI SLB", "XML", "Binary", "Compressed binary"};
 	
 	
 	/**
@@ -46,6 +52,12 @@ public class FileTypes
 				
 			case FileTypes.CAMPAIGN_EXPORT_XML:
 				return ".xml";		
+				
+			case FileTypes.CAMPAIGN_EXPORT_BINARY:
+				return ".scb";
+				
+			case FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP:
+				return ".scb.gz";
 		}
 		
 		return "";
@@ -0,0 +1,313 @@
+package ch.specchio.file.writer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Transposes values that arrive one column at a time into rows, for file
+ * formats that write one spectrum in each column.
+ * 
+ * At most one page of columns is held in memory. When a page is full, each
+ * of its rows is written to a temporary file as a ready-formatted fragment.
+ * The rows are then written out by joining the fragments of every page.
+ * Within each page the rows are kept in the order of the spool's
+ * comparator, so rows must be written out in that same order. Rows that
+ * are never written out are skipped.
+ */
+public class CsvColumnSpool {
+	
+	/** the separator written before each value */
+	private String separator;
+	
+	/** the number of columns held in memory before they are written to the temporary file */
+	private int pageSize;
+	
+	/** the order of the rows, or null for the natural order of the row keys */
+	private Comparator<String> order;
+	
+	/** the rows of the current page, each a fragment holding one value for each column */
+	private TreeMap<String, StringBuilder> page;
+	
+	/** the number of columns in the current page */
+	private int columnsInPage = 0;
+	
+	/** the pages already written to the temporary file */
+	private ArrayList<Page> pages = new ArrayList<Page>();
+	
+	/** the temporary file, or null if no page has been written yet */
+	private File file = null;
+	
+	/** random access to the temporary file */
+	private RandomAccessFile raf = null;
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param separator	the separator written before each value
+	 * @param pageSize	the number of columns to be held in memory
+	 * @param order		the order of the rows, or null for the natural order of the row keys
+	 */
+	public CsvColumnSpool(String separator, int pageSize, Comparator<String> order) {
+		
+		this.separator = separator;
+		this.pageSize = Math.max(pageSize, 1);
+		this.order = order;
+		this.page = new TreeMap<String, StringBuilder>(order);
+		
+	}
+	
+	
+	/**
+	 * Add a column.
+	 * 
+	 * @param values	the values of the column by row key, already formatted for output
+	 * 
+	 * @throws IOException	could not write to the temporary file
+	 */
+	public void addColumn(Map<String, String> values) throws IOException {
+		
+		// extend the rows already in this page
+		for (Map.Entry<String, StringBuilder> row : page.entrySet()) {
+			row.getValue().append(separator);
+			String value = values.get(row.getKey());
+			if (value != null) {
+				row.getValue().append(value);
+			}
+		}
+		
+		// start the rows that are new to this page, leaving the earlier columns empty
+		for (Map.Entry<String, String> value : values.entrySet()) {
+			if (!page.containsKey(value.getKey())) {
+				StringBuilder row = new StringBuilder();
+				for (int i = 0; i <= columnsInPage; i++) {
+					row.append(separator);
+				}
+				if (value.getValue() != null) {
+					row.append(value.getValue());
+				}
+				page.put(value.getKey(), row);
+			}
+		}
+		
+		columnsInPage++;
+		if (columnsInPage >= pageSize) {
+			flush();
+		}
+		
+	}
+	
+	
+	/**
+	 * Delete the temporary file.
+	 * 
+	 * @throws IOException	could not close the temporary file
+	 */
+	public void close() throws IOException {
+		
+		if (raf != null) {
+			raf.close();
+			raf = null;
+		}
+		if (file != null) {
+			file.delete();
+			file = null;
+		}
+		page.clear();
+		columnsInPage = 0;
+		pages.clear();
+		
+	}
+	
+	
+	/**
+	 * Get the number of columns currently held in memory.
+	 * 
+	 * @return the number of columns that have not yet been written to the temporary file
+	 */
+	public int getColumnsInMemory() {
+		
+		return columnsInPage;
+		
+	}
+	
+	
+	/**
+	 * Get the number of columns held in memory before they are written to the temporary file.
+	 * 
+	 * @return the page size
+	 */
+	public int getPageSize() {
+		
+		return pageSize;
+		
+	}
+	
+	
+	/**
+	 * Write the values of a row for every column. No more columns may be
+	 * added once the first row has been written.
+	 * 
+	 * @param key	the row key
+	 * @param out	the writer to which the values are written
+	 * 
+	 * @throws IOException	could not read from the temporary file or write to the output
+	 */
+	public void writeRow(String key, Writer out) throws IOException {
+		
+		if (columnsInPage > 0) {
+			flush();
+		}
+		
+		for (Page p : pages) {
+			
+			// skip the rows of this page that come before this one but were not written out
+			while (readKey(p) && compare(p.nextKey, key) < 0) {
+				readFragment(p);
+			}
+			
+			if (key.equals(p.nextKey)) {
+				
+				// copy this page's fragment of the row
+				out.write(new String(readFragment(p), "UTF-8"));
+				
+			} else {
+				
+				// the row has no values in this page
+				for (int i = 0; i < p.columns; i++) {
+					out.write(separator);
+				}
+				
+			}
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Compare two row keys in the order of the rows.
+	 * 
+	 * @param a	the first key
+	 * @param b	the second key
+	 * 
+	 * @return a negative number, zero or a positive number as a comes before, with or after b
+	 */
+	private int compare(String a, String b) {
+		
+		return (order != null)? order.compare(a, b) : a.compareTo(b);
+		
+	}
+	
+	
+	/**
+	 * Write the current page to the temporary file.
+	 * 
+	 * @throws IOException	could not write to the temporary file
+	 */
+	private void flush() throws IOException {
+		
+		if (raf == null) {
+			file = File.createTempFile("specchio", ".spool");
+			file.deleteOnExit();
+			raf = new RandomAccessFile(file, "rw");
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream dos = new DataOutputStream(bytes);
+		for (Map.Entry<String, StringBuilder> row : page.entrySet()) {
+			byte fragment[] = row.getValue().toString().getBytes("UTF-8");
+			dos.writeUTF(row.getKey());
+			dos.writeInt(fragment.length);
+			dos.write(fragment);
+		}
+		dos.flush();
+		
+		Page p = new Page();
+		p.position = raf.length();
+		p.columns = columnsInPage;
+		p.rows = page.size();
+		pages.add(p);
+		raf.seek(p.position);
+		raf.write(bytes.toByteArray());
+		
+		page.clear();
+		columnsInPage = 0;
+		
+	}
+	
+	
+	/**
+	 * Read the fragment of the next row of a page.
+	 * 
+	 * @param p	the page, whose next key has already been read
+	 * 
+	 * @return the fragment
+	 * 
+	 * @throws IOException	could not read from the temporary file
+	 */
+	private byte[] readFragment(Page p) throws IOException {
+		
+		raf.seek(p.position);
+		byte fragment[] = new byte[raf.readInt()];
+		raf.readFully(fragment);
+		p.position = raf.getFilePointer();
+		p.nextKey = null;
+		p.rows--;
+		
+		return fragment;
+		
+	}
+	
+	
+	/**
+	 * Read the key of the next row of a page, if it has not been read already.
+	 * 
+	 * @param p	the page
+	 * 
+	 * @return true if the page has another row, false if all of its rows have been read
+	 * 
+	 * @throws IOException	could not read from the temporary file
+	 */
+	private boolean readKey(Page p) throws IOException {
+		
+		if (p.nextKey == null && p.rows > 0) {
+			raf.seek(p.position);
+			p.nextKey = raf.readUTF();
+			p.position = raf.getFilePointer();
+		}
+		
+		return p.nextKey != null;
+		
+	}
+	
+	
+	/**
+	 * The position and size of a page in the temporary file.
+	 */
+	private static class Page {
+		
+		/** the position of the next row of the page */
+		public long position;
+		
+		/** the number of columns in the page */
+		public int columns;
+		
+		/** the number of rows of the page not yet written out */
+		public int rows;
+		
+		/** the key of the next row, if it has already been read */
+		public String nextKey = null;
+		
+	}
+	
+}
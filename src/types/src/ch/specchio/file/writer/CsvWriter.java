@@ -4,13 +4,14 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.DoubleBuffer;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -32,6 +33,9 @@ public abstract class CsvWriter extends SpectrumWriter {
 	/** separator character */
 	private static String separator = ",";
 	
+	/** number of spectra whose values are held in memory by writers that write one spectrum in each column */
+	private static final int SPOOL_PAGE_SIZE = 200;
+	
 	/** buffered writer for output */
 	private BufferedWriter bw;
 	
@@ -86,6 +90,47 @@ public abstract class CsvWriter extends SpectrumWriter {
 	}
 	
 	
+	/**
+	 * Escape a field value for output.
+	 * 
+	 * @param value	the value of the field, or null
+	 * 
+	 * @return the value as it is to be written, with quotes if necessary
+	 */
+	protected static String escape(String value) {
+		
+		if (value == null) {
+			return "";
+		}
+		
+		// escape special characters
+		boolean specialCharacters = value.contains(separator) || value.contains("\n") || value.contains("\"");
+		String escapedValue = value.replaceAll("\"", "\"\"");
+		
+		// quote the value if necessary
+		if (specialCharacters) {
+			return "\"" + escapedValue + "\"";
+		} else {
+			return escapedValue;
+		}
+		
+	}
+	
+	
+	/**
+	 * Create a spool for the values of a space with one spectrum in each column.
+	 * 
+	 * @param order	the order of the rows, or null for the natural order of the row keys
+	 * 
+	 * @return a new CsvColumnSpool
+	 */
+	protected CsvColumnSpool newColumnSpool(Comparator<String> order) {
+		
+		return new CsvColumnSpool(separator, SPOOL_PAGE_SIZE, order);
+		
+	}
+	
+	
 	/**
 	 * Write a field.
 	 * 
@@ -95,24 +140,22 @@ public abstract class CsvWriter extends SpectrumWriter {
 	 */
 	protected void writeField(String value) throws IOException {
 		
-		// escape special characters
-		boolean specialCharacters = false;
-		String escapedValue = null;
-		if (value != null) {
-			specialCharacters = value.contains(separator) || value.contains("\n") || value.contains("\"");
-			escapedValue = value.replaceAll("\"", "\"\"");
-		}
+		bw.write(escape(value));
 		
-		// output the value, with quotes if necessary
-		if (specialCharacters) {
-			bw.write("\"");
-		}
-		if (escapedValue != null) {
-			bw.write(escapedValue);
-		}
-		if (specialCharacters) {
-			bw.write("\"");
-		}
+	}
+	
+	
+	/**
+	 * Write the values of a row of a spool, one for each spectrum.
+	 * 
+	 * @param spool	the spool
+	 * @param key	the row key
+	 * 
+	 * @throws IOException	could not write to the output
+	 */
+	protected void writeSpooledRow(CsvColumnSpool spool, String key) throws IOException {
+		
+		spool.writeRow(key, bw);
 		
 	}
 	
@@ -151,8 +194,14 @@ class CsvHdrWriter extends CsvWriter {
 	/** date formatter */
 	private static final DateFormat df = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss");
 	
-	/** the list of spectra to be written out */
-	private List<Spectrum> spectra;
+	/** the metadata field values of each spectrum to be written out */
+	private CsvColumnSpool fieldValues;
+	
+	/** the attribute values of each spectrum to be written out */
+	private CsvColumnSpool attributeValues;
+	
+	/** the names supplied by the metadata value objects of each field */
+	private Map<String, String> metadataNames;
 	
 	/** the set of metadata fields to be written out */
 	private Set<String> metadataFields;
@@ -170,7 +219,9 @@ class CsvHdrWriter extends CsvWriter {
 		super(os, HeaderBody.Header);
 		
 		// initialise member variables
-		spectra = new LinkedList<Spectrum>();
+		fieldValues = newColumnSpool(null);
+		attributeValues = newColumnSpool(null);
+		metadataNames = new HashMap<String, String>();
 		metadataFields = new TreeSet<String>();
 		attributeNames = new TreeSet<String>();
 		
@@ -184,92 +235,39 @@ class CsvHdrWriter extends CsvWriter {
 	 */
 	public void endSpace() throws IOException {
 		
-		// write one row for every metadata field
-		for (String metadataField : metadataFields) {
-			
-			try {
+		try {
 			
+			// write one row for every metadata field
+			for (String metadataField : metadataFields) {
+				
 				// work out the name of this field
-				String metadataName = null;
-				Iterator<Spectrum> iter = spectra.iterator();
-				while (metadataName == null && iter.hasNext()) {
-					Spectrum s = iter.next();
-					Object value = s.getMetadataValue(metadataField);
-					if (value != null && value instanceof MetaDatatype) {
-						// use the name supplied in this metadata value object
-						metadataName = ((MetaDatatype<?>)value).name;
-					}
-				}
+				String metadataName = metadataNames.get(metadataField);
 				if (metadataName == null) {
 					// not a MetaDatatype; make up something from the field name
 					metadataName = inferMetadataName(metadataField);
 				}
 				
-				// write the name of the field
+				// write the name of the field followed by its value for each spectrum
 				writeField(metadataName);
+				writeSpooledRow(fieldValues, metadataField);
+				writeRecordSeparator();
 				
-				// write the field's value for each spectrum
-				for (Spectrum s : spectra) {
-				
-					// write a field separator
-					writeFieldSeparator();
-					
-					// write the fields's value
-					Object value = s.getMetadataValue(metadataField);
-					if (value != null) {
-						writeField(value.toString());
-					}
-					
-				}
-			
 			}
-			catch (NoSuchMethodException ex) {
-				// should never happen if Spectrum.METADATA_FIELDS is correct
-				ex.printStackTrace();
-			}
-			
-			// write end of the record
-			writeRecordSeparator();
-			
-		}
-		
-		// write one row for every attribute
-		for (String attributeName : attributeNames) {
 			
-			// write the name of the attribute
-			writeField(attributeName);
-			
-			// write the attribute's value for each spectrum
-			for (Spectrum s : spectra) {
-				
-				// write a field separator
-				writeFieldSeparator();
+			// write one row for every attribute
+			for (String attributeName : attributeNames) {
 				
-				// write the attribute's value
-				MetaParameter mp = s.getMetadata().get_first_entry(attributeName);
-				if (mp != null && mp.getValue() != null) {
-					
-					if (mp instanceof MetaDate) {
-						
-						// output date according to the time format setting
-						Date date = (Date)mp.getValue();
-						if (getTimeFormat() == TimeFormats.Seconds) {
-							writeField(Long.toString(date.getTime()));
-						} else {
-							writeField(df.format(date));
-						}
-					} else {
-						
-						// convert the value to its string form
-						writeField(mp.getValue().toString());
-					}
-				}
+				// write the name of the attribute followed by its value for each spectrum
+				writeField(attributeName);
+				writeSpooledRow(attributeValues, attributeName);
+				writeRecordSeparator();
 				
 			}
 			
-			// write the end of the record
-			writeRecordSeparator();
-			
+		}
+		finally {
+			fieldValues.close();
+			attributeValues.close();
 		}
 		
 		super.endSpace();
@@ -324,7 +322,9 @@ class CsvHdrWriter extends CsvWriter {
 		super.startSpace(spaceIn);
 		
 		// reset lists
-		spectra.clear();
+		fieldValues.close();
+		attributeValues.close();
+		metadataNames.clear();
 		metadataFields.clear();
 		attributeNames.clear();
 		
@@ -340,8 +340,9 @@ class CsvHdrWriter extends CsvWriter {
 	 */
 	public void writeSpectrum(Spectrum s) throws IOException {
 		
-		// add the spectrum to the list to be written
-		spectra.add(s);
+		// keep only the values to be written, not the spectrum itself
+		Map<String, String> fields = new HashMap<String, String>();
+		Map<String, String> attributes = new HashMap<String, String>();
 		
 		// make sure all of this spectrum's non-null metadata is included in the set to be output
 		for (String field : Spectrum.METADATA_FIELDS) {
@@ -349,6 +350,14 @@ class CsvHdrWriter extends CsvWriter {
 				if (s.getMetadataId(field) != 0) {
 					metadataFields.add(field);
 				}
+				Object value = s.getMetadataValue(field);
+				if (value != null) {
+					fields.put(field, escape(value.toString()));
+					if (value instanceof MetaDatatype && !metadataNames.containsKey(field)) {
+						// use the name supplied in this metadata value object
+						metadataNames.put(field, ((MetaDatatype<?>)value).name);
+					}
+				}
 			}
 			catch (NoSuchMethodException ex) {
 				// should never happen if Spectrum.METADATA_FIELDS is correct
@@ -360,9 +369,46 @@ class CsvHdrWriter extends CsvWriter {
 		for (MetaParameter mp : s.getMetadata().getEntries()) {
 			if (!"binary_val".equals(mp.getDefaultStorageField())) {
 				attributeNames.add(mp.getAttributeName());
+				
+				// only the first value of each attribute is written
+				if (!attributes.containsKey(mp.getAttributeName())) {
+					attributes.put(mp.getAttributeName(), escape(formatValue(mp)));
+				}
 			}
 		}
 		
+		fieldValues.addColumn(fields);
+		attributeValues.addColumn(attributes);
+		
+	}
+	
+	
+	/**
+	 * Convert the value of a metaparameter to the string form in which it is written.
+	 * 
+	 * @param mp	the metaparameter
+	 * 
+	 * @return the string form of the value, or null if the metaparameter has no value
+	 */
+	private String formatValue(MetaParameter mp) {
+		
+		if (mp.getValue() == null) {
+			return null;
+		} else if (mp instanceof MetaDate) {
+			
+			// output date according to the time format setting
+			Date date = (Date)mp.getValue();
+			if (getTimeFormat() == TimeFormats.Seconds) {
+				return Long.toString(date.getTime());
+			} else {
+				return df.format(date);
+			}
+		} else {
+			
+			// convert the value to its string form
+			return mp.getValue().toString();
+		}
+		
 	}
 
 }
@@ -376,8 +422,15 @@ class CsvBodyWriter extends CsvWriter {
 	/** number formatter */
 	private static final DecimalFormat df = new java.text.DecimalFormat("###.#########");
 	
-	/** the list of spectra to be written out */
-	private List<Spectrum> spectra;
+	/** orders the rows of the spool by channel number */
+	private static final Comparator<String> channelOrder = new Comparator<String>() {
+		public int compare(String a, String b) {
+			return Integer.valueOf(a).compareTo(Integer.valueOf(b));
+		}
+	};
+	
+	/** the vector elements of each spectrum to be written out, by channel */
+	private CsvColumnSpool vectorElements;
 
 	/**
 	 * Constructor.
@@ -389,7 +442,7 @@ class CsvBodyWriter extends CsvWriter {
 		super(os, HeaderBody.Body);
 		
 		// initialise member variables
-		spectra = new LinkedList<Spectrum>();
+		vectorElements = newColumnSpool(channelOrder);
 		
 	}
 	
@@ -401,21 +454,25 @@ class CsvBodyWriter extends CsvWriter {
 	 */
 	public void endSpace() throws IOException {
 		
-		// write one record for each channel
-		for (int channel = 0; channel < getCurrentSpace().getDimensionality() ; channel++) {
-			
-			// write the dimension number for this row
-			writeField(df.format(getCurrentSpace().get_dimension_number(channel)));
+		try {
 			
-			// write the vector elements for this dimension for each spectrum
-			for (Spectrum s : spectra) {
-				writeFieldSeparator();
-				writeField(df.format(getCurrentSpace().get_vector_element(s.getSpectrumId(), channel)));
+			// write one record for each channel
+			for (int channel = 0; channel < getCurrentSpace().getDimensionality() ; channel++) {
+				
+				// write the dimension number for this row
+				writeField(df.format(getCurrentSpace().get_dimension_number(channel)));
+				
+				// write the vector elements for this dimension for each spectrum
+				writeSpooledRow(vectorElements, Integer.toString(channel));
+				
+				// end the row
+				writeRecordSeparator();
+				
 			}
 			
-			// end the row
-			writeRecordSeparator();
-			
+		}
+		finally {
+			vectorElements.close();
 		}
 		
 		super.endSpace();
@@ -435,7 +492,7 @@ class CsvBodyWriter extends CsvWriter {
 		super.startSpace(spaceIn);
 		
 		// reset lists
-		spectra.clear();
+		vectorElements.close();
 		
 	}
 	
@@ -449,8 +506,14 @@ class CsvBodyWriter extends CsvWriter {
 	 */
 	public void writeSpectrum(Spectrum s) throws IOException {
 		
-		// add the spectrum to the list to be output
-		spectra.add(s);
+		// read the vector now, so that the space need only hold the vectors of the spectra being written
+		Space space = getCurrentSpace();
+		DoubleBuffer vector = space.getVectorView(space.getVectorIndex(s.getSpectrumId()));
+		Map<String, String> elements = new HashMap<String, String>();
+		for (int channel = 0; channel < space.getDimensionality(); channel++) {
+			elements.put(Integer.toString(channel), escape(df.format(vector.get(channel))));
+		}
+		vectorElements.addColumn(elements);
 		
 	}
 
@@ -6,6 +6,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.DoubleBuffer;
 
 import ch.specchio.constants.FileTypes;
 import ch.specchio.constants.HeaderBody;
@@ -239,11 +240,12 @@ class ENVIBodyWriter extends ENVIWriter {
 	public void writeSpectrum(Spectrum s) throws IOException {
 		
 		DataOutput dos = new DataOutputStream(getOutputStream());
-		double[] vector = getCurrentSpace().getVector(s.getSpectrumId());
+		Space space = getCurrentSpace();
+		DoubleBuffer vector = space.getVectorView(space.getVectorIndex(s.getSpectrumId()));
 		
-		for(int i = 0; i < getCurrentSpace().getDimensionality(); i++)
+		for(int i = 0; i < space.getDimensionality(); i++)
 		{
-			dos.writeDouble(vector[i]);		
+			dos.writeDouble(vector.get(i));		
 		}
 		
 	}
@@ -0,0 +1,26 @@
+package ch.specchio.jaxb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.*;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+/**
+ * A list of identifiers that is transmitted in the compact form produced by
+ * XmlIdListAdapter rather than as one element per identifier.
+ */
+@XmlRootElement(name="id_list")
+public class XmlIdList {
+	
+	private ArrayList<Integer> ids;
+	
+	public XmlIdList() { this(new ArrayList<Integer>()); };
+	public XmlIdList(List<Integer> ids) { this.ids = new ArrayList<Integer>(ids); }
+	
+	@XmlElement(name="ids")
+	@XmlJavaTypeAdapter(XmlIdListAdapter.class)
+	public ArrayList<Integer> getIds() { return this.ids; }
+	public void setIds(ArrayList<Integer> ids) { this.ids = ids; }
+	
+}
@@ -0,0 +1,159 @@
+package ch.specchio.jaxb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+
+/**
+ * Converts lists of identifiers into a compact string for transmission. Runs
+ * of consecutive ascending identifiers are written as "first-last" and the
+ * remaining identifiers are written individually, separated by commas, so
+ * that the order and any duplicates of the list are preserved.
+ * 
+ * For example, the list 1, 2, 3, 4, 9, 7 is written as "1-4,9,7".
+ * 
+ * A compact string can describe far more identifiers than it has characters,
+ * so decoding refuses strings that expand to more than MAX_IDS identifiers.
+ */
+public class XmlIdListAdapter extends XmlAdapter<String, ArrayList<Integer>> {
+	
+	/** the largest number of identifiers that a compact string may expand to */
+	public static final int MAX_IDS = 10000000;
+	
+	/**
+	 * Convert a list of identifiers into a compact string.
+	 * 
+	 * @param ids	the list
+	 * 
+	 * @return the compact string, or null if the list is null
+	 */
+	@Override
+	public String marshal(ArrayList<Integer> ids) {
+		
+		return (ids != null)? encode(ids) : null;
+		
+	}
+	
+	
+	/**
+	 * Convert a compact string into a list of identifiers.
+	 * 
+	 * @param str	the compact string
+	 * 
+	 * @return a new list of identifiers, or null if the string is null
+	 */
+	@Override
+	public ArrayList<Integer> unmarshal(String str) {
+		
+		return (str != null)? decode(str) : null;
+		
+	}
+	
+	
+	/**
+	 * Encode a list of identifiers.
+	 * 
+	 * @param ids	the list
+	 * 
+	 * @return the compact string
+	 */
+	public static String encode(List<Integer> ids) {
+		
+		StringBuffer sb = new StringBuffer();
+		int i = 0;
+		while (i < ids.size()) {
+			
+			// find the end of the run starting at i
+			int start = ids.get(i);
+			int j = i + 1;
+			while (j < ids.size() && ids.get(j) == ids.get(j - 1) + 1) {
+				j++;
+			}
+			
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(start);
+			if (j - i > 1) {
+				sb.append('-').append(ids.get(j - 1));
+			}
+			
+			i = j;
+			
+		}
+		
+		return sb.toString();
+		
+	}
+	
+	
+	/**
+	 * Decode a list of identifiers.
+	 * 
+	 * @param str	the compact string
+	 * 
+	 * @return a new list of identifiers
+	 * 
+	 * @throws NumberFormatException	the string is malformed, contains a range whose end is less than its start, or expands to more than MAX_IDS identifiers
+	 */
+	public static ArrayList<Integer> decode(String str) {
+		
+		return decode(str, MAX_IDS);
+		
+	}
+	
+	
+	/**
+	 * Decode a list of identifiers, up to a given number of identifiers.
+	 * 
+	 * @param str		the compact string
+	 * @param max_ids	the largest number of identifiers to accept
+	 * 
+	 * @return a new list of identifiers
+	 * 
+	 * @throws NumberFormatException	the string is malformed, contains a range whose end is less than its start, or expands to more than max_ids identifiers
+	 */
+	public static ArrayList<Integer> decode(String str, int max_ids) {
+		
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for (String token : str.split(",")) {
+			
+			token = token.trim();
+			if (token.length() == 0) {
+				continue;
+			}
+			
+			// the separator cannot be the first character, which may be the sign of the first identifier
+			int sep = token.indexOf('-', 1);
+			if (sep > 0) {
+				int start = Integer.parseInt(token.substring(0, sep));
+				int end = Integer.parseInt(token.substring(sep + 1));
+				if (end < start) {
+					throw new NumberFormatException("Inverted identifier range \"" + token + "\".");
+				}
+				
+				// count in long arithmetic so that ranges ending at Integer.MAX_VALUE cannot overflow
+				long length = (long)end - (long)start + 1;
+				if (ids.size() + length > max_ids) {
+					throw new NumberFormatException("Identifier list expands to more than " + max_ids + " identifiers.");
+				}
+				ids.ensureCapacity(ids.size() + (int)length);
+				for (long id = start; id <= end; id++) {
+					ids.add((int)id);
+				}
+			} else {
+				if (ids.size() >= max_ids) {
+					throw new NumberFormatException("Identifier list expands to more than " + max_ids + " identifiers.");
+				}
+				ids.add(Integer.parseInt(token));
+			}
+			
+		}
+		
+		return ids;
+		
+	}
+	
+}
@@ -1,6 +1,5 @@
 package ch.specchio.plots;
 
-import java.util.ArrayList;
 
 import javax.xml.bind.annotation.*;
 
@@ -57,14 +56,12 @@ public class GonioSamplingPoints
 	
 	public void prepare_z_coords(int band)
 	{
-		ArrayList<double[]> vectors = space.getVectors();
-		
 		// init statistics with first vector value
-		z_stats = new z_statistics(vectors.get(0)[band]);
+		z_stats = new z_statistics(space.getVectorView(0).get(band));
 			
 		for(int s = 0; s < angle_array.length;s++)
 		{
-			Double z = vectors.get(s)[band];
+			Double z = space.getVectorView(s).get(band);
 			z_stats.update(z);
 			angle_array[s].z=z;	
 		}
@@ -2,8 +2,11 @@ package ch.specchio.plots;
 
 import static java.lang.Math.sqrt;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 
+import ch.specchio.spaces.Space;
+
 public class VectorStatistics {
 
 	private double mean;
@@ -50,28 +53,51 @@ public class VectorStatistics {
 	}
 
 	
+	// statistics over a view of a vector, without copying it
+	public void calc_stats(DoubleBuffer vector, int start_ind, int end_ind)
+	{
+		if(vector.hasArray())
+		{
+			calc_stats(vector.array(), vector.arrayOffset(), 1, vector.limit(), start_ind, end_ind);
+		}
+		else
+		{
+			double[] copy = new double[vector.limit()];
+			vector.duplicate().get(copy);
+			calc_stats(copy, start_ind, end_ind);
+		}
+	}
+	
+	
 	public void calc_stats(ArrayList<double[]> vectors, int start_ind, int end_ind)
+	{
+		calc_stats(vectors.toArray(new double[vectors.size()][]), start_ind, end_ind);
+	}
+	
+	
+	public void calc_stats(double[][] vectors, int start_ind, int end_ind)
 	{
 		// init min and max with first vector element
-		max = vectors.get(0)[0];
-		min = vectors.get(0)[0];
+		max = vectors[0][0];
+		min = vectors[0][0];
 		int band;
 		double sum = 0;
-		int N = (end_ind - start_ind + 1) * vectors.size(); // e.g. 300 to 301 are two bands: (301 - 300) + 1 = 2
+		int N = (end_ind - start_ind + 1) * vectors.length; // e.g. 300 to 301 are two bands: (301 - 300) + 1 = 2
 		
 		// get mean, min and max
-		for(int i = 0; i < vectors.size();i++)
+		for(int i = 0; i < vectors.length;i++)
 		{
+			double[] vector = vectors[i];
 			for(band = start_ind; band <= end_ind;band++)
 			{
 				
-				sum += vectors.get(i)[band];
+				sum += vector[band];
 				
-				if(max < vectors.get(i)[band])
-					max = vectors.get(i)[band];
+				if(max < vector[band])
+					max = vector[band];
 				
-				if(min > vectors.get(i)[band])
-					min = vectors.get(i)[band];
+				if(min > vector[band])
+					min = vector[band];
 								
 			}
 		}
@@ -80,11 +106,78 @@ public class VectorStatistics {
 		
 		
 		// get standard deviation			
-		for(int i = 0; i < vectors.size();i++)
+		for(int i = 0; i < vectors.length;i++)
+		{		
+			double[] vector = vectors[i];
+			for(band = start_ind; band <= end_ind;band++)
+			{
+				sum += Math.pow(vector[band] - mean, 2);				
+			}
+		}
+		
+		var = sum/(N-1);
+		std_dev = sqrt(var);
+		
+	}
+	
+	
+	public void calc_stats(Space space, int start_ind, int end_ind)
+	{
+		if(space.isMatrixStorage())
+		{
+			calc_stats(space.getMatrix(), space.getNumberOfDataPoints(), space.getDimension(), start_ind, end_ind);
+		}
+		else
+		{
+			calc_stats(space.getVectorsAsArray(), start_ind, end_ind);
+		}
+	}
+	
+	
+	// statistics over the first rows of a matrix held in one array, row after row
+	public void calc_stats(double[] matrix, int rows, int dim, int start_ind, int end_ind)
+	{
+		calc_stats(matrix, 0, rows, dim, start_ind, end_ind);
+	}
+	
+	
+	// statistics over the rows of a matrix held in one array, row after row from the given offset
+	public void calc_stats(double[] matrix, int first_offset, int rows, int dim, int start_ind, int end_ind)
+	{
+		// init min and max with first vector element
+		max = matrix[first_offset];
+		min = matrix[first_offset];
+		int band;
+		double sum = 0;
+		int N = (end_ind - start_ind + 1) * rows; // e.g. 300 to 301 are two bands: (301 - 300) + 1 = 2
+		int end_offset = first_offset + rows * dim;
+		
+		// get mean, min and max
+		for(int offset = first_offset; offset < end_offset;offset += dim)
+		{
+			for(band = start_ind; band <= end_ind;band++)
+			{
+				
+				sum += matrix[offset + band];
+				
+				if(max < matrix[offset + band])
+					max = matrix[offset + band];
+					
+				if(min > matrix[offset + band])
+					min = matrix[offset + band];
+					
+			}
+		}
+		
+		mean = sum/N;
+		
+		
+		// get standard deviation			
+		for(int offset = first_offset; offset < end_offset;offset += dim)
 		{		
 			for(band = start_ind; band <= end_ind;band++)
 			{
-				sum += Math.pow(vectors.get(i)[band] - mean, 2);				
+				sum += Math.pow(matrix[offset + band] - mean, 2);				
 			}
 		}
 		
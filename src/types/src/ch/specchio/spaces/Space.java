@@ -1,6 +1,9 @@
 package ch.specchio.spaces;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import javax.xml.bind.annotation.*;
 
@@ -20,6 +23,15 @@ public abstract class Space {
 	boolean wvls_are_known;
 	boolean dimensionality_is_set = false;
 	
+	// contiguous vector storage, row i starting at i * matrix_dim; null while the vectors are held in the list
+	double[] matrix = null;
+	int matrix_dim = 0;
+	int matrix_rows = 0;
+	
+	// hash index of spectrum identifiers to vector positions, rebuilt when the identifier list changes size
+	HashMap<Integer, Integer> id_index = null;
+	int id_index_size = 0;
+	
 	private String order_by;
 	
 	public Space()
@@ -52,27 +64,251 @@ public abstract class Space {
 	
 	@XmlElement(name="spectrum_ids")
 	public ArrayList<Integer> getSpectrumIds() { return this.spectrum_ids; }
-	public void setSpectrumIds(ArrayList<Integer> spectrum_ids) { this.spectrum_ids = spectrum_ids; }
+	public void setSpectrumIds(ArrayList<Integer> spectrum_ids) { this.spectrum_ids = spectrum_ids; this.id_index = null; }
 	
+	/**
+	 * Get the vectors as a list. In matrix storage every vector is a copy of its
+	 * matrix row; use getVectorView() to read the vectors without copying them.
+	 * 
+	 * @return the vectors
+	 */
 	@XmlElement(name="vectors")
-	public ArrayList<double[]> getVectors() { return this.vectors; }
-	public void setVectors(ArrayList<double[]> vectors) { this.vectors = vectors; }
-	public void addVector(double[] vector) { vectors.add(vector); }
-	public void clearDataVectors() { vectors.clear(); }
-	public int getNumberOfDataPoints() { return vectors.size(); }
-	public double[] getVector(int spectrum_id) { return vectors.get(spectrum_ids.indexOf(spectrum_id)); }
+	public ArrayList<double[]> getVectors()
+	{
+		if (matrix != null)
+		{
+			// list of copies of the matrix rows
+			ArrayList<double[]> rows = new ArrayList<double[]>(matrix_rows);
+			for (int i = 0; i < matrix_rows; i++)
+			{
+				rows.add(getVectorByIndex(i));
+			}
+			return rows;
+		}
+		return this.vectors;
+	}
+	public void setVectors(ArrayList<double[]> vectors) { this.vectors = vectors; this.matrix = null; this.matrix_rows = 0; }
+	public void addVector(double[] vector)
+	{
+		if (matrix != null)
+		{
+			if (vector.length != matrix_dim)
+			{
+				throw new IllegalArgumentException("Vector of length " + vector.length + " added to a space of dimensionality " + matrix_dim + ".");
+			}
+			int offset = getRowOffset(nextRow()); // the matrix may be replaced as it grows
+			System.arraycopy(vector, 0, matrix, offset, matrix_dim);
+		}
+		else
+		{
+			vectors.add(vector);
+		}
+	}
+	public void clearDataVectors() { vectors.clear(); matrix_rows = 0; }
+	public int getNumberOfDataPoints() { return (matrix != null)? matrix_rows : vectors.size(); }
+	public double[] getVector(int spectrum_id) { return getVectorByIndex(getVectorIndex(spectrum_id)); }
+	
+	/**
+	 * Get the number of elements in each vector of the space.
+	 * 
+	 * @return the length of the vectors
+	 */
+	public int getDimension()
+	{
+		if (matrix != null)
+		{
+			return matrix_dim;
+		}
+		else if (vectors.size() > 0)
+		{
+			return vectors.get(0).length;
+		}
+		return (dimensionality != null)? dimensionality : 0;
+	}
+	
+	/**
+	 * Get a view of a vector by its position in the space. The view shares the
+	 * storage of the space, so nothing is copied and element i of the vector is
+	 * get(i) of the view. The view stays valid until the matrix grows or the
+	 * space is cleared.
+	 * 
+	 * @param index	the index of the vector
+	 * 
+	 * @return a buffer of getDimension() elements over the vector
+	 */
+	public DoubleBuffer getVectorView(int index)
+	{
+		if (matrix != null)
+		{
+			if (index < 0 || index >= matrix_rows)
+			{
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + matrix_rows);
+			}
+			return DoubleBuffer.wrap(matrix, getRowOffset(index), matrix_dim).slice();
+		}
+		return DoubleBuffer.wrap(vectors.get(index));
+	}
+	
+	/**
+	 * Get a vector by its position in the space. In matrix storage the vector is a
+	 * copy of the matrix row, so changing it does not change the space; use
+	 * getVectorView() to read the vector without copying it.
+	 * 
+	 * @param index	the index of the vector
+	 * 
+	 * @return the vector
+	 */
+	public double[] getVectorByIndex(int index)
+	{
+		if (matrix != null)
+		{
+			double[] vector = new double[matrix_dim];
+			copyVector(index, vector);
+			return vector;
+		}
+		return vectors.get(index);
+	}
+	
+	/**
+	 * Copy a vector into an existing array, so that the space can be read without
+	 * allocating an array for every vector.
+	 * 
+	 * @param index		the index of the vector
+	 * @param vector	the array to receive the vector
+	 */
+	public void copyVector(int index, double[] vector)
+	{
+		if (matrix != null)
+		{
+			if (index < 0 || index >= matrix_rows)
+			{
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + matrix_rows);
+			}
+			System.arraycopy(matrix, getRowOffset(index), vector, 0, matrix_dim);
+		}
+		else
+		{
+			double[] source = vectors.get(index);
+			System.arraycopy(source, 0, vector, 0, source.length);
+		}
+	}
+	
+	/**
+	 * Switch the space to contiguous matrix storage with room for a given number
+	 * of vectors of the current dimensionality. All vectors are held in a single
+	 * array, one row after another. Vectors already in the space are carried over.
+	 * 
+	 * @param capacity	the number of vectors to allocate
+	 */
+	public void allocateMatrix(int capacity)
+	{
+		int n = getNumberOfDataPoints();
+		int dim = getDimensionality();
+		double[] new_matrix = new double[Math.max(capacity, n) * dim];
+		for (int i = 0; i < n; i++)
+		{
+			if (matrix != null)
+			{
+				System.arraycopy(matrix, getRowOffset(i), new_matrix, i * dim, Math.min(dim, matrix_dim));
+			}
+			else
+			{
+				double[] vector = vectors.get(i);
+				System.arraycopy(vector, 0, new_matrix, i * dim, Math.min(dim, vector.length));
+			}
+		}
+		
+		matrix = new_matrix;
+		matrix_dim = dim;
+		matrix_rows = n;
+		vectors.clear();
+	}
+	
+	public boolean isMatrixStorage() { return matrix != null; }
+	
+	/**
+	 * Get the array that holds the vectors in matrix storage. The array may be
+	 * longer than the vectors in use, and is replaced when the matrix grows.
+	 * 
+	 * @return the matrix, or null if the vectors are held in a list
+	 */
+	public double[] getMatrix() { return matrix; }
+	
+	/**
+	 * Get the position in the matrix of the first element of a vector.
+	 * 
+	 * @param index	the index of the vector
+	 * 
+	 * @return the offset of the vector's row in the matrix
+	 */
+	public int getRowOffset(int index) { return index * matrix_dim; }
+	
+	/**
+	 * Add a vector of zeros to the space in matrix storage, so that loaders can
+	 * write straight into its row of the matrix. The matrix grows if it is full.
+	 * 
+	 * @return the index of the new vector
+	 */
+	public int nextRow()
+	{
+		if (matrix == null)
+		{
+			allocateMatrix(getNumberOfDataPoints() + 1);
+		}
+		else if (getRowOffset(matrix_rows + 1) > matrix.length)
+		{
+			matrix = Arrays.copyOf(matrix, Math.max(2 * matrix.length, getRowOffset(16)));
+		}
+		
+		// a row left over from before the space was cleared must start from zero
+		Arrays.fill(matrix, getRowOffset(matrix_rows), getRowOffset(matrix_rows + 1), 0.0);
+		
+		return matrix_rows++;
+	}
+	
+	/**
+	 * Get the vectors as an array. In matrix storage every vector is a copy of its
+	 * matrix row.
+	 * 
+	 * @return the vectors
+	 */
 	public double[][] getVectorsAsArray()
 	{
-		double[][] array = new double[getNumberOfDataPoints()][getDimensionality()];		
+		if (matrix != null)
+		{
+			double[][] rows = new double[matrix_rows][];
+			for (int i = 0; i < matrix_rows; i++)
+			{
+				rows[i] = getVectorByIndex(i);
+			}
+			return rows;
+		}
 		
-		int i = 0;
-		for(double[] v : vectors)
+		return vectors.toArray(new double[vectors.size()][]);
+	}
+	
+	/**
+	 * Get the position of a spectrum's vector in the space.
+	 * 
+	 * @param spectrum_id	the spectrum identifier
+	 * 
+	 * @return the index of the vector, or -1 if the spectrum is not in the space
+	 */
+	public int getVectorIndex(int spectrum_id)
+	{
+		if (id_index == null || id_index_size != spectrum_ids.size())
 		{
-			array[i++] = v;
-		}	
+			id_index = new HashMap<Integer, Integer>(2 * spectrum_ids.size());
+			for (int i = spectrum_ids.size() - 1; i >= 0; i--)
+			{
+				id_index.put(spectrum_ids.get(i), i);
+			}
+			id_index_size = spectrum_ids.size();
+		}
 		
-		return array;
-	}	
+		Integer index = id_index.get(spectrum_id);
+		return (index != null)? index : -1;
+	}
 	
 	@XmlElement(name="wvls_are_known")
 	public boolean getWvlsAreKnown() { return this.wvls_are_known; }
@@ -84,9 +320,11 @@ public abstract class Space {
 	
 	public void add_unique_spectrum_id(Integer id)
 	{
-		if(!spectrum_ids.contains(id))
+		if(getVectorIndex(id) == -1)
 		{
 			spectrum_ids.add(id);
+			id_index.put(id, spectrum_ids.size() - 1);
+			id_index_size = spectrum_ids.size();
 		}
 
 	}
@@ -94,7 +332,8 @@ public abstract class Space {
 	public void clear_space()
 	{
 		spectrum_ids.clear();
-		vectors.clear();
+		id_index = null;
+		clearDataVectors();
 	}
 	
 	// for spectral space, this should be the wavelength, for other spaces, just a number given to the dimension
@@ -105,8 +344,16 @@ public abstract class Space {
 	
 	public double get_vector_element(int spectrum_id, int band_index)
 	{
-		int vector_index = spectrum_ids.indexOf(spectrum_id);		
-		return vectors.get(vector_index)[band_index];
+		if (matrix != null)
+		{
+			int index = getVectorIndex(spectrum_id);
+			if (index == -1 || band_index < 0 || band_index >= matrix_dim)
+			{
+				throw new IndexOutOfBoundsException("No element " + band_index + " for spectrum " + spectrum_id + ".");
+			}
+			return matrix[getRowOffset(index) + band_index];
+		}
+		return getVector(spectrum_id)[band_index];
 	}
 
 	public String get_filename_addon() {
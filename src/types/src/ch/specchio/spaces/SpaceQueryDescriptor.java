@@ -3,6 +3,9 @@ package ch.specchio.spaces;
 import java.util.ArrayList;
 
 import javax.xml.bind.annotation.*;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import ch.specchio.jaxb.XmlIdListAdapter;
 
 
 /**
@@ -11,11 +14,27 @@ import javax.xml.bind.annotation.*;
 @XmlRootElement(name="space_query_descriptor")
 public class SpaceQueryDescriptor {
 	
-	@XmlElement public ArrayList<Integer> spectrum_ids;
+	@XmlTransient public ArrayList<Integer> spectrum_ids;
 	@XmlElement public Boolean split_spaces_by_sensor = false;
 	@XmlElement public Boolean split_spaces_by_sensor_and_unit = false;
 	@XmlElement public String order_by = "date";
 	
+	/** send the identifiers in the compact form of XmlIdListAdapter instead of one element per identifier */
+	@XmlTransient public boolean compact_ids = false;
+	
+	
+	// the identifiers are written either as one element each, which every server
+	// understands, or as a single compact element; both forms are accepted on input
+	
+	@XmlElement(name="spectrum_ids")
+	public ArrayList<Integer> getSpectrumIdElements() { return (compact_ids)? null : this.spectrum_ids; }
+	public void setSpectrumIdElements(ArrayList<Integer> spectrum_ids) { this.spectrum_ids = spectrum_ids; }
+	
+	@XmlElement(name="spectrum_id_ranges")
+	@XmlJavaTypeAdapter(XmlIdListAdapter.class)
+	public ArrayList<Integer> getSpectrumIdRanges() { return (compact_ids)? this.spectrum_ids : null; }
+	public void setSpectrumIdRanges(ArrayList<Integer> spectrum_ids) { this.spectrum_ids = spectrum_ids; }
+	
 	
 	public SpaceQueryDescriptor() {
 		
@@ -0,0 +1,185 @@
+package ch.specchio.spaces;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+
+/**
+ * Reader for the binary space transport format written by SpaceStreamWriter.
+ * Vectors are added to the target space chunk by chunk as they are read, so
+ * that the space can be filled while the data is still arriving. The target
+ * space is switched to matrix storage sized from the header.
+ */
+public class SpaceStreamReader {
+	
+	/** the input stream */
+	private DataInputStream dis;
+	
+	/** the dimensionality of the space being read */
+	private int dimensionality = 0;
+	
+	/** the number of vectors announced in the header */
+	private int n_vectors = 0;
+	
+	/** the number of vectors read so far */
+	private int vectors_read = 0;
+	
+	/** has the end-of-stream marker been read? */
+	private boolean end_of_stream = false;
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param is	the input stream to be read from
+	 */
+	public SpaceStreamReader(InputStream is) {
+		
+		this.dis = new DataInputStream(is);
+		
+	}
+	
+	
+	/**
+	 * Get the number of vectors announced in the header.
+	 * 
+	 * @return the number of vectors in the stream
+	 */
+	public int getNumberOfVectors() {
+		
+		return n_vectors;
+		
+	}
+	
+	
+	/**
+	 * Get the number of vectors read so far.
+	 * 
+	 * @return the number of vectors read
+	 */
+	public int getNumberOfVectorsRead() {
+		
+		return vectors_read;
+		
+	}
+	
+	
+	/**
+	 * Read the header of the stream and configure a space accordingly. Any
+	 * existing vectors in the space are cleared.
+	 * 
+	 * @param space	the space to be filled
+	 * 
+	 * @throws IOException	could not read from the input stream, or the stream is not a space stream
+	 */
+	public void readHeader(Space space) throws IOException {
+		
+		ByteBuffer header = read(16);
+		if (header.getInt() != SpaceStreamWriter.MAGIC) {
+			throw new IOException("The input is not a SPECCHIO space stream.");
+		}
+		dimensionality = header.getInt();
+		int n_wvls = header.getInt();
+		n_vectors = header.getInt();
+		
+		if (n_wvls > 0) {
+			ByteBuffer wvl_buffer = read(8 * n_wvls);
+			double wvls[] = new double[n_wvls];
+			wvl_buffer.asDoubleBuffer().get(wvls);
+			if (space instanceof SpectralSpace) {
+				((SpectralSpace)space).setAverageWavelengths(wvls);
+			}
+		}
+		
+		ByteBuffer id_buffer = read(4 * n_vectors);
+		ArrayList<Integer> ids = new ArrayList<Integer>(n_vectors);
+		for (int i = 0; i < n_vectors; i++) {
+			ids.add(id_buffer.getInt());
+		}
+		space.setSpectrumIds(ids);
+		space.setDimensionality(dimensionality);
+		
+		space.clearDataVectors();
+		space.allocateMatrix(n_vectors);
+		vectors_read = 0;
+		end_of_stream = false;
+		
+	}
+	
+	
+	/**
+	 * Read the next chunk of vectors into a space.
+	 * 
+	 * @param space	the space to which the vectors will be added
+	 * 
+	 * @return the number of vectors read, or 0 if the end of the stream has been reached
+	 * 
+	 * @throws IOException	could not read from the input stream
+	 */
+	public int readChunk(Space space) throws IOException {
+		
+		if (end_of_stream) {
+			return 0;
+		}
+		
+		int cnt = read(4).getInt();
+		if (cnt == 0) {
+			end_of_stream = true;
+			return 0;
+		}
+		
+		ByteBuffer chunk = read(4 * dimensionality * cnt);
+		for (int i = 0; i < cnt; i++) {
+			int offset = space.getRowOffset(space.nextRow());
+			double matrix[] = space.getMatrix();
+			for (int j = 0; j < dimensionality; j++) {
+				matrix[offset + j] = chunk.getFloat();
+			}
+		}
+		vectors_read += cnt;
+		
+		return cnt;
+		
+	}
+	
+	
+	/**
+	 * Read a complete stream into a space.
+	 * 
+	 * @param space	the space to be filled
+	 * 
+	 * @throws IOException	could not read from the input stream
+	 */
+	public void readSpace(Space space) throws IOException {
+		
+		readHeader(space);
+		while (readChunk(space) > 0) {
+			// keep reading
+		}
+		
+	}
+	
+	
+	/**
+	 * Read a block of bytes into a little-endian buffer.
+	 * 
+	 * @param size	the number of bytes to read
+	 * 
+	 * @return a ByteBuffer wrapping the bytes that were read
+	 * 
+	 * @throws IOException	could not read from the input stream
+	 */
+	private ByteBuffer read(int size) throws IOException {
+		
+		byte bytes[] = new byte[size];
+		dis.readFully(bytes);
+		
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		
+	}
+	
+}
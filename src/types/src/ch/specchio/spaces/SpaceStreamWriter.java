@@ -0,0 +1,173 @@
+package ch.specchio.spaces;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+
+/**
+ * Writer for the binary space transport format.
+ * 
+ * The stream starts with a header containing the dimensionality, the spectrum
+ * identifiers and (if known) the wavelengths of the space. The vectors follow
+ * in chunks, each chunk being a vector count followed by that many vectors of
+ * little-endian float32 values. A chunk with a count of zero ends the stream.
+ */
+public class SpaceStreamWriter {
+	
+	/** magic number at the start of every stream ("SPS1") */
+	public static final int MAGIC = 0x53505331;
+	
+	/** default number of vectors per chunk */
+	public static final int DEFAULT_CHUNK_SIZE = 256;
+	
+	/** the output stream */
+	private OutputStream os;
+	
+	/** the dimensionality of the space being written */
+	private int dimensionality = 0;
+	
+	/** the number of vectors per chunk */
+	private int chunk_size;
+	
+	/** the buffer holding the current chunk */
+	private ByteBuffer chunk = null;
+	
+	/** the number of vectors in the current chunk */
+	private int chunk_cnt = 0;
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param os	the output stream to be written to
+	 */
+	public SpaceStreamWriter(OutputStream os) {
+		
+		this(os, DEFAULT_CHUNK_SIZE);
+		
+	}
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param os			the output stream to be written to
+	 * @param chunk_size	the number of vectors per chunk
+	 */
+	public SpaceStreamWriter(OutputStream os, int chunk_size) {
+		
+		this.os = os;
+		this.chunk_size = Math.max(chunk_size, 1);
+		
+	}
+	
+	
+	/**
+	 * Write the header of the stream.
+	 * 
+	 * @param dimensionality	the number of bands in each vector
+	 * @param spectrum_ids		the identifiers of the vectors, in stream order
+	 * @param wavelengths		the wavelengths of the space, or null if they are not known
+	 * 
+	 * @throws IOException	could not write to the output stream
+	 */
+	public void writeHeader(int dimensionality, List<Integer> spectrum_ids, double[] wavelengths) throws IOException {
+		
+		this.dimensionality = dimensionality;
+		
+		int n_wvls = (wavelengths != null)? wavelengths.length : 0;
+		ByteBuffer header = allocate(16 + 8 * n_wvls + 4 * spectrum_ids.size());
+		header.putInt(MAGIC);
+		header.putInt(dimensionality);
+		header.putInt(n_wvls);
+		header.putInt(spectrum_ids.size());
+		for (int i = 0; i < n_wvls; i++) {
+			header.putDouble(wavelengths[i]);
+		}
+		for (Integer id : spectrum_ids) {
+			header.putInt(id);
+		}
+		os.write(header.array(), 0, header.position());
+		
+		chunk = allocate(4 + 4 * dimensionality * chunk_size);
+		chunk.putInt(0);
+		chunk_cnt = 0;
+		
+	}
+	
+	
+	/**
+	 * Write a vector. The vector is buffered until its chunk is full.
+	 * 
+	 * @param vector	the vector
+	 * 
+	 * @throws IOException	could not write to the output stream
+	 */
+	public void writeVector(double[] vector) throws IOException {
+		
+		for (int i = 0; i < dimensionality; i++) {
+			chunk.putFloat((float)vector[i]);
+		}
+		chunk_cnt++;
+		
+		if (chunk_cnt == chunk_size) {
+			flushChunk();
+		}
+		
+	}
+	
+	
+	/**
+	 * Write any buffered vectors followed by the end-of-stream marker.
+	 * 
+	 * @throws IOException	could not write to the output stream
+	 */
+	public void close() throws IOException {
+		
+		flushChunk();
+		
+		ByteBuffer end = allocate(4);
+		end.putInt(0);
+		os.write(end.array(), 0, 4);
+		os.flush();
+		
+	}
+	
+	
+	/**
+	 * Write the current chunk to the output stream.
+	 * 
+	 * @throws IOException	could not write to the output stream
+	 */
+	private void flushChunk() throws IOException {
+		
+		if (chunk_cnt > 0) {
+			chunk.putInt(0, chunk_cnt);
+			os.write(chunk.array(), 0, chunk.position());
+			os.flush();
+			
+			chunk.clear();
+			chunk.putInt(0);
+			chunk_cnt = 0;
+		}
+		
+	}
+	
+	
+	/**
+	 * Allocate a little-endian byte buffer.
+	 * 
+	 * @param size	the size of the buffer
+	 * 
+	 * @return a new ByteBuffer
+	 */
+	private static ByteBuffer allocate(int size) {
+		
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		
+	}
+	
+}
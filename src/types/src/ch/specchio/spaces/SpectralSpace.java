@@ -77,6 +77,11 @@ public class SpectralSpace extends Space {
 		
 		public double get_dimension_number(int dim_index)
 		{
+			if(avg_wavelengths == null)
+			{
+				// a space streamed from the server without wavelengths; number the bands instead
+				getAverageWavelengths();
+			}
 			return avg_wavelengths[dim_index]; 
 		}
 		
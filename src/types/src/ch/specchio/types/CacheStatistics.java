@@ -0,0 +1,123 @@
+package ch.specchio.types;
+
+import javax.xml.bind.annotation.*;
+
+
+/**
+ * Usage statistics of a server-side cache.
+ */
+@XmlRootElement(name="cache_statistics")
+public class CacheStatistics {
+	
+	/** the name of the cache */
+	private String name;
+	
+	/** the number of successful look-ups */
+	private long hits;
+	
+	/** the number of unsuccessful look-ups */
+	private long misses;
+	
+	/** the number of entries removed to make room for new ones */
+	private long evictions;
+	
+	/** the number of entries in the cache */
+	private int entries;
+	
+	/** the estimated size of the cache in bytes */
+	private long size;
+	
+	/** the maximum size of the cache in bytes */
+	private long capacity;
+	
+	
+	/**
+	 * Default constructor.
+	 */
+	public CacheStatistics() {
+		
+		this("", 0, 0, 0, 0, 0, 0);
+		
+	}
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name		the name of the cache
+	 * @param hits		the number of successful look-ups
+	 * @param misses	the number of unsuccessful look-ups
+	 * @param evictions	the number of evicted entries
+	 * @param entries	the number of entries in the cache
+	 * @param size		the estimated size of the cache in bytes
+	 * @param capacity	the maximum size of the cache in bytes
+	 */
+	public CacheStatistics(String name, long hits, long misses, long evictions, int entries, long size, long capacity) {
+		
+		this.name = name;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.entries = entries;
+		this.size = size;
+		this.capacity = capacity;
+		
+	}
+	
+	
+	@XmlElement(name="name")
+	public String getName() { return this.name; }
+	public void setName(String name) { this.name = name; }
+	
+	@XmlElement(name="hits")
+	public long getHits() { return this.hits; }
+	public void setHits(long hits) { this.hits = hits; }
+	
+	@XmlElement(name="misses")
+	public long getMisses() { return this.misses; }
+	public void setMisses(long misses) { this.misses = misses; }
+	
+	@XmlElement(name="evictions")
+	public long getEvictions() { return this.evictions; }
+	public void setEvictions(long evictions) { this.evictions = evictions; }
+	
+	@XmlElement(name="entries")
+	public int getEntries() { return this.entries; }
+	public void setEntries(int entries) { this.entries = entries; }
+	
+	@XmlElement(name="size")
+	public long getSize() { return this.size; }
+	public void setSize(long size) { this.size = size; }
+	
+	@XmlElement(name="capacity")
+	public long getCapacity() { return this.capacity; }
+	public void setCapacity(long capacity) { this.capacity = capacity; }
+	
+	
+	/**
+	 * Get the fraction of look-ups that were successful.
+	 * 
+	 * @return the hit ratio, or 0 if there have been no look-ups
+	 */
+	public double hitRatio() {
+		
+		long lookups = hits + misses;
+		
+		return (lookups > 0)? (double)hits / lookups : 0.0;
+		
+	}
+	
+	
+	/**
+	 * Get a one-line summary of the statistics.
+	 * 
+	 * @return a string describing the statistics
+	 */
+	public String toString() {
+		
+		return name + ": " + hits + " hits, " + misses + " misses, " + evictions + " evictions, " +
+				entries + " entries, " + size + " of " + capacity + " bytes";
+		
+	}
+	
+}
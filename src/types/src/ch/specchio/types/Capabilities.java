@@ -22,6 +22,12 @@ public class Capabilities {
 	/** capability name for the maximum object size */
 	public static final String MAX_OBJECT_SIZE = "max_object_size";
 	
+	/** capability name for accepting gzip-compressed requests */
+	public static final String COMPRESSED_REQUESTS = "compressed_requests";
+	
+	/** capability name for accepting and returning identifier lists in compact form */
+	public static final String COMPACT_ID_LISTS = "compact_id_lists";
+	
 	
 	/**
 	 * Default constructor. Constructs an empty capabilities object.
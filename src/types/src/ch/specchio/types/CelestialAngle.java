@@ -1,5 +1,9 @@
 package ch.specchio.types;
 
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
 /**
  * Class representing celestion angles.
  */
@@ -44,5 +48,75 @@ public class CelestialAngle {
 		this(other.azimuth, other.zenith);
 		
 	}
+	
+	
+	/**
+	 * Calculate the angle of the sun for a given longitude, latitude and time.
+	 * The day of the year and the time of day are taken in UTC, whatever
+	 * the default time zone, so the result depends only on the arguments.
+	 * 
+	 * @param latitude	the latitude
+	 * @param longitude	the longitude
+	 * @param date		the date and time
+	 * 
+	 * @return a new CelestialAngle object representing the position of the sun
+	 */
+	public static CelestialAngle sunAngle(double latitude, double longitude, Date date) {
+		
+		// get the time of year
+		TimeZone tz = TimeZone.getTimeZone("UTC");
+		Calendar cal = Calendar.getInstance(tz);
+		cal.setTime(date);
+		int dy = cal.get(Calendar.DAY_OF_YEAR);
+		dy--; // Java starts the count at 1 (first day of year)
+			// but this routine expects the first day as 0 (zero)
+		int hh = cal.get(Calendar.HOUR_OF_DAY);
+		int mm = cal.get(Calendar.MINUTE);
+		int ss = cal.get(Calendar.SECOND);
+		
+		double hours = hh + mm/60.0 + ss/3600.0;
+		
+		int timezone = 0; // time zone: we expect the capture time to be in GMT
+		
+		double wdy = 2*Math.PI*dy/365.0; 
+		
+		// sun declination [rad]
+		double delta = 0.006918-0.399912*Math.cos(wdy)+0.070257*Math.sin(wdy)-0.006758*Math.cos(2*wdy)+0.000908*Math.sin(2*wdy);
+		
+		// longitude correction
+		double lc = -longitude / 15;
+		
+		// time equation
+		double et = 0.0172+0.4281*Math.cos(wdy)-7.3515*Math.sin(wdy)- 3.3495*Math.cos(2*wdy)-9.3619*Math.sin(2*wdy);
+		
+		// true solar time
+		double tst = hours-timezone+lc+et/60;
+		double wtst = Math.PI*(tst-12)/12;
+		
+		if(wtst > Math.PI)
+			wtst=wtst-2*Math.PI;
+			
+		if(wtst < -Math.PI)
+			wtst=wtst+2*Math.PI;
+			
+		// sun height, sun zenith angle
+		double lat_r = Math.toRadians(latitude);
+		
+		double h = Math.asin(Math.cos(lat_r)*Math.cos(delta)*Math.cos(wtst)+Math.sin(lat_r)*Math.sin(delta));
+		
+		double thz = Math.PI/2 - h;
+		double nen = Math.sin(lat_r)*Math.cos(delta)*Math.cos(wtst)-Math.cos(lat_r)*Math.sin(delta);
+		double phi = Math.acos(nen/Math.cos(h));
+		
+		if( wtst < 0)
+			phi=-phi;
+			
+		double azimuth = phi + Math.PI;
+		if(azimuth > 2*Math.PI)
+			azimuth = azimuth - 2*Math.PI;
+			
+		return new CelestialAngle(Math.toDegrees(azimuth), Math.toDegrees(thz));
+		
+	}
 
 }
@@ -8,6 +8,7 @@ public 	class ConflictStruct
 	private int status;
 	private int no_of_sharing_records;
 	private int no_of_selected_records;	
+	private int no_of_matching_records;
 	
 	public ConflictStruct()
 	{
@@ -34,4 +35,8 @@ public 	class ConflictStruct
 	public int getNumberOfSelectedRecords() { return this.no_of_selected_records; }
 	public void setNumberOfSelectedRecords(int no_of_selected_records) { this.no_of_selected_records = no_of_selected_records; }
 	
+	@XmlElement(name="no_of_matching_records")
+	public int getNumberOfMatchingRecords() { return this.no_of_matching_records; }
+	public void setNumberOfMatchingRecords(int no_of_matching_records) { this.no_of_matching_records = no_of_matching_records; }
+	
 }
\ No newline at end of file
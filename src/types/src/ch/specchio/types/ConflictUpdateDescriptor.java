@@ -0,0 +1,72 @@
+package ch.specchio.types;
+
+import javax.xml.bind.annotation.*;
+
+
+/**
+ * This class describes a change to a selection of spectra for which EAV
+ * conflicts have already been detected, for use with the incremental
+ * conflict-detection service.
+ */
+@XmlRootElement(name="conflict_update_descriptor")
+@XmlSeeAlso(ConflictTable.class)
+public class ConflictUpdateDescriptor {
+	
+	/** the conflicts detected for the previous selection */
+	private ConflictTable conflicts;
+	
+	/** the number of spectra in the previous selection */
+	private int no_of_selected_records;
+	
+	/** the spectra added to the selection */
+	private Integer[] added_ids;
+	
+	/** the spectra removed from the selection */
+	private Integer[] removed_ids;
+	
+	
+	/**
+	 * Default constructor.
+	 */
+	public ConflictUpdateDescriptor() {
+		
+		this(new ConflictTable(), 0, new Integer[0], new Integer[0]);
+		
+	}
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param conflicts					the conflicts detected for the previous selection
+	 * @param no_of_selected_records	the number of spectra in the previous selection
+	 * @param added_ids					the spectra added to the selection
+	 * @param removed_ids				the spectra removed from the selection
+	 */
+	public ConflictUpdateDescriptor(ConflictTable conflicts, int no_of_selected_records, Integer[] added_ids, Integer[] removed_ids) {
+		
+		this.conflicts = conflicts;
+		this.no_of_selected_records = no_of_selected_records;
+		this.added_ids = added_ids;
+		this.removed_ids = removed_ids;
+		
+	}
+	
+	
+	@XmlElement(name="conflicts")
+	public ConflictTable getConflicts() { return this.conflicts; }
+	public void setConflicts(ConflictTable conflicts) { this.conflicts = conflicts; }
+	
+	@XmlElement(name="no_of_selected_records")
+	public int getNumberOfSelectedRecords() { return this.no_of_selected_records; }
+	public void setNumberOfSelectedRecords(int no_of_selected_records) { this.no_of_selected_records = no_of_selected_records; }
+	
+	@XmlElement(name="added_ids")
+	public Integer[] getAddedIds() { return this.added_ids; }
+	public void setAddedIds(Integer[] added_ids) { this.added_ids = added_ids; }
+	
+	@XmlElement(name="removed_ids")
+	public Integer[] getRemovedIds() { return this.removed_ids; }
+	public void setRemovedIds(Integer[] removed_ids) { this.removed_ids = removed_ids; }
+	
+}
@@ -0,0 +1,73 @@
+package ch.specchio.types;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * Conversion between measurement vectors and the binary form in which they
+ * are stored in the database. A stored measurement is a sequence of
+ * big-endian 32-bit floating point values, one per band.
+ * 
+ * The conversions operate on whole arrays through a FloatBuffer view of the
+ * bytes rather than on one value at a time.
+ */
+public class MeasurementCodec {
+	
+	/** the byte order of stored measurements */
+	public static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+	
+	/** the number of bytes per band */
+	public static final int BYTES_PER_VALUE = 4;
+	
+	
+	/**
+	 * Decode a stored measurement. Trailing bytes that do not make up a
+	 * complete value are ignored.
+	 * 
+	 * @param bytes	the stored measurement
+	 * 
+	 * @return a new array containing the values of the measurement
+	 */
+	public static float[] decode(byte[] bytes) {
+		
+		float[] values = new float[bytes.length / BYTES_PER_VALUE];
+		ByteBuffer.wrap(bytes).order(BYTE_ORDER).asFloatBuffer().get(values);
+		
+		return values;
+		
+	}
+	
+	
+	/**
+	 * Encode a measurement for storage.
+	 * 
+	 * @param values	the values of the measurement
+	 * @param count		the number of values to encode
+	 * 
+	 * @return the stored form of the first count values
+	 */
+	public static byte[] encode(float[] values, int count) {
+		
+		ByteBuffer buffer = ByteBuffer.allocate(count * BYTES_PER_VALUE).order(BYTE_ORDER);
+		buffer.asFloatBuffer().put(values, 0, count);
+		
+		return buffer.array();
+		
+	}
+	
+	
+	/**
+	 * Encode a measurement for storage.
+	 * 
+	 * @param values	the values of the measurement
+	 * 
+	 * @return the stored form of the values
+	 */
+	public static byte[] encode(float[] values) {
+		
+		return encode(values, values.length);
+		
+	}
+	
+}
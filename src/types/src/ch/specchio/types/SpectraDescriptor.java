@@ -0,0 +1,53 @@
+package ch.specchio.types;
+
+import java.util.ArrayList;
+
+import javax.xml.bind.annotation.*;
+
+
+/**
+ * This class describes a list of spectra to be loaded, for use with the getSpectra service.
+ */
+@XmlRootElement(name="spectra_descriptor")
+public class SpectraDescriptor {
+	
+	/** the identifiers of the spectra to be loaded */
+	private ArrayList<Integer> spectrum_ids;
+	
+	/** load the metadata of the spectra? */
+	private boolean prepare_metadata;
+	
+	
+	/**
+	 * Default constructor.
+	 */
+	public SpectraDescriptor() {
+		
+		this(new ArrayList<Integer>(), false);
+		
+	}
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param spectrum_ids		the identifiers of the spectra to be loaded
+	 * @param prepare_metadata	load the metadata of the spectra?
+	 */
+	public SpectraDescriptor(ArrayList<Integer> spectrum_ids, boolean prepare_metadata) {
+		
+		this.spectrum_ids = spectrum_ids;
+		this.prepare_metadata = prepare_metadata;
+		
+	}
+	
+	
+	@XmlElement(name="spectrum_ids")
+	public ArrayList<Integer> getSpectrumIds() { return this.spectrum_ids; }
+	public void setSpectrumIds(ArrayList<Integer> spectrum_ids) { this.spectrum_ids = spectrum_ids; }
+	
+	@XmlElement(name="prepare_metadata")
+	public boolean getPrepareMetadata() { return this.prepare_metadata; }
+	public void setPrepareMetadata(boolean prepare_metadata) { this.prepare_metadata = prepare_metadata; }
+	
+}
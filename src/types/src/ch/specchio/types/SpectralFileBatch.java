@@ -0,0 +1,65 @@
+package ch.specchio.types;
+
+import java.util.ArrayList;
+
+import javax.xml.bind.annotation.*;
+
+
+/**
+ * This class represents a batch of spectral files to be checked or inserted
+ * with a single request to the spectral file services. All of the files
+ * belong to the same campaign; each file carries the identifier of the
+ * hierarchy node into which it is to be inserted.
+ */
+@XmlRootElement(name="spectral_file_batch")
+public class SpectralFileBatch {
+	
+	/** the type of the campaign to which the files belong */
+	private String campaign_type;
+	
+	/** the identifier of the campaign to which the files belong */
+	private int campaign_id;
+	
+	/** the files */
+	private ArrayList<SpectralFile> spec_files;
+	
+	
+	/**
+	 * Default constructor.
+	 */
+	public SpectralFileBatch() {
+		
+		this(null, 0, new ArrayList<SpectralFile>());
+		
+	}
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param campaign_type	the type of the campaign to which the files belong
+	 * @param campaign_id	the identifier of the campaign to which the files belong
+	 * @param spec_files	the files
+	 */
+	public SpectralFileBatch(String campaign_type, int campaign_id, ArrayList<SpectralFile> spec_files) {
+		
+		this.campaign_type = campaign_type;
+		this.campaign_id = campaign_id;
+		this.spec_files = spec_files;
+		
+	}
+	
+	
+	@XmlElement(name="campaign_type")
+	public String getCampaignType() { return this.campaign_type; }
+	public void setCampaignType(String campaign_type) { this.campaign_type = campaign_type; }
+	
+	@XmlElement(name="campaign_id")
+	public int getCampaignId() { return this.campaign_id; }
+	public void setCampaignId(int campaign_id) { this.campaign_id = campaign_id; }
+	
+	@XmlElement(name="spectral_file")
+	public ArrayList<SpectralFile> getSpectralFiles() { return this.spec_files; }
+	public void setSpectralFiles(ArrayList<SpectralFile> spec_files) { this.spec_files = spec_files; }
+	
+}
@@ -3,6 +3,9 @@ package ch.specchio.types;
 import java.util.ArrayList;
 
 import javax.xml.bind.annotation.*;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import ch.specchio.jaxb.XmlIdListAdapter;
 
 /**
  * This class represents a pair of lists of spectrum identifiers, used for
@@ -14,6 +17,9 @@ public class SpectrumIdsDescriptor {
 	private ArrayList<Integer> spectrum_ids_1;
 	private ArrayList<Integer> spectrum_ids_2;
 	
+	/** send the lists in the compact form of XmlIdListAdapter instead of one element per identifier */
+	private boolean compact_ids = false;
+	
 	/** default constructor */
 	public SpectrumIdsDescriptor() {
 		
@@ -45,14 +51,39 @@ public class SpectrumIdsDescriptor {
 		
 	}
 	
-	@XmlElement(name="spectrum_ids_1")
+	@XmlTransient
 	public ArrayList<Integer> getSpectrumIds1() { return this.spectrum_ids_1; }
 	public void setSpectrumIds1(ArrayList<Integer> spectrum_ids) { this.spectrum_ids_1 = spectrum_ids; }
 	
-	@XmlElement(name="spectrum_ids_2")
+	@XmlTransient
 	public ArrayList<Integer> getSpectrumIds2() { return this.spectrum_ids_2; }
 	public void setSpectrumIds2(ArrayList<Integer> spectrum_ids) { this.spectrum_ids_2 = spectrum_ids; }
 	
+	@XmlTransient
+	public boolean getCompactIds() { return this.compact_ids; }
+	public void setCompactIds(boolean compact_ids) { this.compact_ids = compact_ids; }
+	
+	// each list is written either as one element per identifier, which every server
+	// understands, or as a single compact element; both forms are accepted on input
+	
+	@XmlElement(name="spectrum_ids_1")
+	public ArrayList<Integer> getSpectrumIds1Elements() { return (compact_ids)? null : this.spectrum_ids_1; }
+	public void setSpectrumIds1Elements(ArrayList<Integer> spectrum_ids) { this.spectrum_ids_1 = spectrum_ids; }
+	
+	@XmlElement(name="spectrum_ids_2")
+	public ArrayList<Integer> getSpectrumIds2Elements() { return (compact_ids)? null : this.spectrum_ids_2; }
+	public void setSpectrumIds2Elements(ArrayList<Integer> spectrum_ids) { this.spectrum_ids_2 = spectrum_ids; }
+	
+	@XmlElement(name="spectrum_id_ranges_1")
+	@XmlJavaTypeAdapter(XmlIdListAdapter.class)
+	public ArrayList<Integer> getSpectrumIdRanges1() { return (compact_ids)? this.spectrum_ids_1 : null; }
+	public void setSpectrumIdRanges1(ArrayList<Integer> spectrum_ids) { this.spectrum_ids_1 = spectrum_ids; }
+	
+	@XmlElement(name="spectrum_id_ranges_2")
+	@XmlJavaTypeAdapter(XmlIdListAdapter.class)
+	public ArrayList<Integer> getSpectrumIdRanges2() { return (compact_ids)? this.spectrum_ids_2 : null; }
+	public void setSpectrumIdRanges2(ArrayList<Integer> spectrum_ids) { this.spectrum_ids_2 = spectrum_ids; }
+	
 	
 	public ArrayList<Integer> getSpectrumIds(int i) {
 		
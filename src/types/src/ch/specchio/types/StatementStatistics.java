@@ -0,0 +1,93 @@
+package ch.specchio.types;
+
+import javax.xml.bind.annotation.*;
+
+
+/**
+ * Execution statistics of a server-side prepared statement.
+ */
+@XmlRootElement(name="statement_statistics")
+public class StatementStatistics {
+	
+	/** the SQL text of the statement */
+	private String sql;
+	
+	/** the number of times the statement has been executed */
+	private long executions;
+	
+	/** the total execution time in milliseconds */
+	private double total_time;
+	
+	/** the longest execution time in milliseconds */
+	private double max_time;
+	
+	
+	/**
+	 * Default constructor.
+	 */
+	public StatementStatistics() {
+		
+		this("", 0, 0.0, 0.0);
+		
+	}
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param sql			the SQL text of the statement
+	 * @param executions	the number of times the statement has been executed
+	 * @param total_time	the total execution time in milliseconds
+	 * @param max_time		the longest execution time in milliseconds
+	 */
+	public StatementStatistics(String sql, long executions, double total_time, double max_time) {
+		
+		this.sql = sql;
+		this.executions = executions;
+		this.total_time = total_time;
+		this.max_time = max_time;
+		
+	}
+	
+	
+	@XmlElement(name="sql")
+	public String getSql() { return this.sql; }
+	public void setSql(String sql) { this.sql = sql; }
+	
+	@XmlElement(name="executions")
+	public long getExecutions() { return this.executions; }
+	public void setExecutions(long executions) { this.executions = executions; }
+	
+	@XmlElement(name="total_time")
+	public double getTotalTime() { return this.total_time; }
+	public void setTotalTime(double total_time) { this.total_time = total_time; }
+	
+	@XmlElement(name="max_time")
+	public double getMaxTime() { return this.max_time; }
+	public void setMaxTime(double max_time) { this.max_time = max_time; }
+	
+	
+	/**
+	 * Get the mean execution time.
+	 * 
+	 * @return the mean execution time in milliseconds, or 0 if the statement has not been executed
+	 */
+	public double meanTime() {
+		
+		return (executions > 0)? total_time / executions : 0.0;
+		
+	}
+	
+	
+	/**
+	 * Get a one-line summary of the statistics.
+	 * 
+	 * @return a string describing the statistics
+	 */
+	public String toString() {
+		
+		return executions + " executions, " + total_time + " ms total, " + max_time + " ms max: " + sql;
+		
+	}
+	
+}
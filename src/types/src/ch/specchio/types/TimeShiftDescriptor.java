@@ -0,0 +1,76 @@
+package ch.specchio.types;
+
+import java.util.ArrayList;
+
+import javax.xml.bind.annotation.*;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import ch.specchio.jaxb.XmlIdListAdapter;
+
+
+/**
+ * This class describes a shift of the acquisition times of a set of spectra,
+ * for use with the metadata services.
+ */
+@XmlRootElement(name="time_shift")
+public class TimeShiftDescriptor {
+	
+	/** the identifiers of the spectra to be updated */
+	private ArrayList<Integer> ids;
+	
+	/** the number of hours East of UTC in which the times were recorded */
+	private double shift;
+	
+	/** send the identifiers in the compact form of XmlIdListAdapter instead of one element per identifier */
+	private boolean compact_ids = false;
+	
+	
+	/**
+	 * Default constructor.
+	 */
+	public TimeShiftDescriptor() {
+		
+		this(new ArrayList<Integer>(), 0.0);
+		
+	}
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param ids	the identifiers of the spectra to be updated
+	 * @param shift	the number of hours East of UTC in which the times were recorded
+	 */
+	public TimeShiftDescriptor(ArrayList<Integer> ids, double shift) {
+		
+		this.ids = ids;
+		this.shift = shift;
+		
+	}
+	
+	
+	@XmlTransient
+	public ArrayList<Integer> getIds() { return this.ids; }
+	public void setIds(ArrayList<Integer> ids) { this.ids = ids; }
+	
+	@XmlTransient
+	public boolean getCompactIds() { return this.compact_ids; }
+	public void setCompactIds(boolean compact_ids) { this.compact_ids = compact_ids; }
+	
+	// the identifiers are written either as one element each, which every server
+	// understands, or as a single compact element; both forms are accepted on input
+	
+	@XmlElement(name="ids")
+	public ArrayList<Integer> getIdElements() { return (compact_ids)? null : this.ids; }
+	public void setIdElements(ArrayList<Integer> ids) { this.ids = ids; }
+	
+	@XmlElement(name="id_ranges")
+	@XmlJavaTypeAdapter(XmlIdListAdapter.class)
+	public ArrayList<Integer> getIdRanges() { return (compact_ids)? this.ids : null; }
+	public void setIdRanges(ArrayList<Integer> ids) { this.ids = ids; }
+	
+	@XmlElement(name="shift")
+	public double getShift() { return this.shift; }
+	public void setShift(double shift) { this.shift = shift; }
+	
+}
@@ -1,8 +1,12 @@
 package ch.specchio.db_import_export;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.GZIPOutputStream;
 
 import ch.specchio.constants.FileTypes;
 import ch.specchio.eav_db.SQL_StatementBuilder;
@@ -11,13 +15,29 @@ import ch.specchio.file.writer.TableWriterFactory;
 
 
 public class CampaignExport extends DbStructure {
+	
+	/** magic number at the start of a binary export */
+	static final byte[] BINARY_MAGIC = {'S', 'C', 'B', 'X'};
+	
+	/** version of the binary format */
+	static final int BINARY_VERSION = 1;
+	
+	/** binary record types */
+	static final byte END_RECORD = 0;
+	static final byte TABLE_RECORD = 1;
+	static final byte ROW_RECORD = 2;
 		
 	DbTable campaign_dbt;
 	ArrayList<DbTable> table_list;
 	
 	TableWriter w;
+	DataOutputStream bin_out;
 	int campaign_id;
 	
+	// index and field order of each table already described in a binary export
+	HashMap<String, Integer> bin_table_index = new HashMap<String, Integer>();
+	ArrayList<TableField[]> bin_table_fields = new ArrayList<TableField[]>();
+	
 	
 	public CampaignExport(SQL_StatementBuilder SQL, String schema, int campaign_id)
 	{
@@ -30,20 +50,75 @@ public class CampaignExport extends DbStructure {
 	
 	public void export(OutputStream os) throws IOException
 	{
-		// create writer
-		TableWriterFactory factory = new TableWriterFactory();
-		w = factory.getWriter(os, FileTypes.CAMPAIGN_EXPORT_XML);
-		
-		w.write("<campaign>"); // proper xml document ....
-		w.write_nl();
+		export(os, FileTypes.CAMPAIGN_EXPORT_XML);
+	}
+	
+	public void export(OutputStream os, int file_type) throws IOException
+	{
+		if (file_type == FileTypes.CAMPAIGN_EXPORT_BINARY || file_type == FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP) {
+			
+			// create binary stream
+			OutputStream bos = os;
+			if (file_type == FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP) {
+				bos = new GZIPOutputStream(bos, 65536);
+			}
+			bin_out = new DataOutputStream(new BufferedOutputStream(bos, 65536));
+			bin_out.write(BINARY_MAGIC);
+			bin_out.writeInt(BINARY_VERSION);
+			
+			DbTable campaign_dbt = get_table("campaign");  
+			campaign_dbt.export(campaign_id, null); // start the export with the campaign, the rest is recursive
+			
+			bin_out.writeByte(END_RECORD);
+			bin_out.close();
+			
+		} else {
+			
+			// create writer
+			TableWriterFactory factory = new TableWriterFactory();
+			w = factory.getWriter(os, file_type);
+			
+			w.write("<campaign>"); // proper xml document ....
+			w.write_nl();
+			
+			DbTable campaign_dbt = get_table("campaign");  
+			campaign_dbt.export(campaign_id, null); // start the export with the campaign, the rest is recursive
+			
+			w.write("</campaign>"); // proper xml document ....
+			
+			w.close();
+			
+		}
 
-		DbTable campaign_dbt = get_table("campaign");  
-		campaign_dbt.export(campaign_id, null); // start the export with the campaign, the rest is recursive
+	}
+	
+	
+	void write_binary_row(DbTable t) throws IOException
+	{
+		Integer index = bin_table_index.get(t.name);
+		if (index == null) {
 			
-		w.write("</campaign>"); // proper xml document ....
+			// describe the table the first time it is seen
+			TableField[] fields = t.all_cols.values().toArray(new TableField[t.all_cols.size()]);
+			index = bin_table_fields.size();
+			bin_table_index.put(t.name, index);
+			bin_table_fields.add(fields);
+			
+			bin_out.writeByte(TABLE_RECORD);
+			bin_out.writeUTF(t.name);
+			bin_out.writeInt(fields.length);
+			for (TableField tf : fields) {
+				bin_out.writeUTF(tf.name);
+			}
+			
+		}
 		
-		w.close();
-
+		// write the values in the order in which the fields were described
+		bin_out.writeByte(ROW_RECORD);
+		bin_out.writeInt(index);
+		for (TableField tf : bin_table_fields.get(index)) {
+			tf.value.write_binary(bin_out);
+		}
 	}
 	
 
@@ -1,13 +1,23 @@
 package ch.specchio.db_import_export;
 
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import ch.specchio.eav_db.SQL_StatementBuilder;
 
@@ -22,6 +32,17 @@ public class CampaignImport extends DbStructure {
 	
 	public int read_table_cnt = 0;
 	
+	// number of times the loading of a table is attempted before the import fails
+	static final int MAX_LOAD_ATTEMPTS = 3;
+	
+	// tables whose batched rows have been committed during this import; retries skip them
+	HashSet<String> loaded_tables = new HashSet<String>();
+	
+	// tables still to be loaded, the number of failed attempts for each, and the first failure that ended the load
+	LinkedList<DbTable> load_queue = new LinkedList<DbTable>();
+	HashMap<String, Integer> load_attempts = new HashMap<String, Integer>();
+	SQLException load_exception = null;
+	
 	public CampaignImport(SQL_StatementBuilder SQL, String schema, int user_id)
 	{
 		super(SQL, schema);
@@ -30,6 +51,162 @@ public class CampaignImport extends DbStructure {
 	}
 	
 	public void read_input_stream(InputStream input_stream) throws IOException, SQLException
+	{
+		read_input_stream(input_stream, new ArrayList<Connection>());
+	}
+	
+	/**
+	 * Import a campaign. The rows of the x-rel link tables are inserted after all other
+	 * rows, one table at a time, over the given connections in parallel. A failed table
+	 * is retried within this import; nothing is kept for a later import to resume from.
+	 * 
+	 * @param input_stream	the exported campaign
+	 * @param loaders		connections on which to load the link tables; if empty, or if
+	 * 						the import's own connection is inside a transaction, the link
+	 * 						tables are loaded on the import's own connection
+	 */
+	public void read_input_stream(InputStream input_stream, List<Connection> loaders) throws IOException, SQLException
+	{
+		BufferedInputStream in = new BufferedInputStream(input_stream, 65536);
+		
+		// uncompress gzipped exports
+		in.mark(2);
+		int b1 = in.read();
+		int b2 = in.read();
+		in.reset();
+		if (b1 == 0x1f && b2 == 0x8b) {
+			in = new BufferedInputStream(new GZIPInputStream(in, 65536), 65536);
+		}
+		
+		// binary exports start with a magic number; anything else is xml
+		byte[] magic = new byte[CampaignExport.BINARY_MAGIC.length];
+		in.mark(magic.length);
+		int n = 0;
+		int cnt = 0;
+		while (n < magic.length && cnt >= 0) {
+			cnt = in.read(magic, n, magic.length - n);
+			if (cnt > 0) {
+				n += cnt;
+			}
+		}
+		if (n == magic.length && Arrays.equals(magic, CampaignExport.BINARY_MAGIC)) {
+			read_binary_stream(new DataInputStream(in));
+		} else {
+			in.reset();
+			read_xml_stream(in);
+		}
+		
+		// insert the rows still waiting for multi-row inserts
+		load_link_tables(loaders);
+		
+	}
+	
+	void load_link_tables(List<Connection> loaders) throws IOException, SQLException
+	{
+		// the link tables only refer to rows that are already committed, unless the
+		// import is part of a larger transaction that other connections cannot see
+		if (loaders.size() == 0 || !SQL.getAutoCommit()) {
+			loaders = new ArrayList<Connection>();
+			loaders.add(SQL.getConnection());
+		}
+		
+		for (DbTable t : table_list) {
+			if (t.has_batched_rows() && !loaded_tables.contains(t.name)) {
+				load_queue.add(t);
+			}
+		}
+		
+		// each loader takes tables from the queue until it is empty
+		ArrayList<LinkTableLoader> threads = new ArrayList<LinkTableLoader>();
+		for (Connection conn : loaders) {
+			LinkTableLoader thread = new LinkTableLoader(conn);
+			threads.add(thread);
+			thread.start();
+		}
+		try {
+			for (LinkTableLoader thread : threads) {
+				thread.join();
+			}
+		}
+		catch (InterruptedException ex) {
+			for (LinkTableLoader thread : threads) {
+				thread.interrupt();
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Campaign import interrupted.");
+		}
+		
+		if (load_exception != null) {
+			throw load_exception;
+		}
+	}
+	
+	synchronized DbTable next_table_to_load()
+	{
+		return (load_exception == null)? load_queue.poll() : null;
+	}
+	
+	synchronized void table_loaded(DbTable t)
+	{
+		loaded_tables.add(t.name);
+	}
+	
+	synchronized void table_load_failed(DbTable t, SQLException ex, boolean retry)
+	{
+		// a failed table was rolled back as a whole, so it can be loaded again from the start
+		Integer attempts = load_attempts.get(t.name);
+		attempts = (attempts == null)? 1 : attempts + 1;
+		load_attempts.put(t.name, attempts);
+		
+		if (retry && attempts < MAX_LOAD_ATTEMPTS) {
+			load_queue.add(t);
+		} else if (load_exception == null) {
+			load_exception = new SQLException("Could not load table " + t.name + ": " + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Thread that loads link tables over its own connection.
+	 */
+	private class LinkTableLoader extends Thread {
+		
+		/** the connection on which to insert the rows */
+		private Connection conn;
+		
+		public LinkTableLoader(Connection conn) {
+			
+			this.conn = conn;
+			
+		}
+		
+		public void run() {
+			
+			DbTable t = next_table_to_load();
+			while (t != null && !isInterrupted()) {
+				
+				try {
+					// the table is only rolled back on failure if it has a transaction of its own
+					boolean retry = conn.getAutoCommit();
+					try {
+						t.load_batched_rows(conn);
+						table_loaded(t);
+					}
+					catch (SQLException ex) {
+						table_load_failed(t, ex, retry);
+					}
+				}
+				catch (SQLException ex) {
+					table_load_failed(t, ex, false);
+				}
+				
+				t = next_table_to_load();
+			}
+			
+		}
+		
+	}
+	
+	void read_xml_stream(InputStream input_stream) throws IOException, SQLException
 	{
 		String line;
 		
@@ -51,56 +228,116 @@ public class CampaignImport extends DbStructure {
 			// read a table from input
 			DbTable t = read_table(tokens[1]);
 			
+			import_row(t);
 			
-			if ("specchio_user".equals(t.name)) {
+			line = d.readLine();
+			tokens = line.split(" ");
+		}
 				
-				// don't insert a new row; just map the old user id to the target user id
-				TableField user_id_field = t.all_cols.get("user_id");
-				if (user_id_field != null) {
-					int old_user_id = (Integer)(user_id_field.value.value);
-					KeyLookup kl = get_table("specchio_user").get_keylookup_list("user_id");
-					if (kl != null) {
-						kl.old_keys.add(old_user_id);
-						kl.new_keys.add(user_id);
+	}
+	
+	void read_binary_stream(DataInputStream in) throws IOException, SQLException
+	{
+		int version = in.readInt();
+		if (version != CampaignExport.BINARY_VERSION) {
+			throw new IOException("Unsupported campaign export version: " + version);
+		}
+		
+		// tables and field orders in the order in which they were described
+		ArrayList<DbTable> tables = new ArrayList<DbTable>();
+		ArrayList<TableField[]> table_fields = new ArrayList<TableField[]>();
+		
+		byte record = in.readByte();
+		while (record != CampaignExport.END_RECORD)
+		{
+			if (record == CampaignExport.TABLE_RECORD) {
+				
+				String tablename = in.readUTF();
+				DbTable t = get_table(tablename);
+				if (t == null) {
+					throw new IOException("Unrecognised table: " + tablename);
+				}
+				
+				// every field must exist in this database or its values would be lost
+				TableField[] fields = new TableField[in.readInt()];
+				for (int i = 0; i < fields.length; i++) {
+					String fieldname = in.readUTF();
+					fields[i] = t.all_cols.get(fieldname);
+					if (fields[i] == null) {
+						throw new IOException("Unrecognised table field: " + tablename + "." + fieldname);
 					}
-				} else {
-					throw new SQLException("The user_id column is missing from the specchio_user table.");
 				}
 				
-			} else {
+				tables.add(t);
+				table_fields.add(fields);
 				
-				// insert the new row into the target table
-				int row_id = t.insert_as_new_row();
+			} else if (record == CampaignExport.ROW_RECORD) {
 				
-				// tidy up tables that refer to the importing user
-				if ("campaign".equals(t.name)) {
-					
-					// change the owner of the campaign to the importing user
-					TableField user_id_field = t.all_cols.get("user_id");
-					if (user_id_field != null) {
-						user_id_field.setValueFromString(Integer.toString(user_id));
-						t.update_row(row_id, user_id_field);
-					} else {
-						throw new SQLException("The user_id column is missing from the campaign table.");
-					}
-					
-				} else if ("research_group".equals(t.name) && row_id != 0) {
-					
-					// add the importing user to the campaign's research group
-					Statement stmt = SQL.createStatement();
-					String query = "insert into research_group_members(research_group_id, member_id) " +
-							"values(" + Integer.toString(row_id) + "," + Integer.toString(user_id) + ")";
-					stmt.executeUpdate(query);
-					stmt.close();
-					
+				int index = in.readInt();
+				if (index < 0 || index >= tables.size()) {
+					throw new IOException("Row refers to an undescribed table.");
 				}
 				
+				for (TableField field : table_fields.get(index)) {
+					field.value.read_binary(in);
+				}
+				
+				import_row(tables.get(index));
+				
+			} else {
+				throw new IOException("Unrecognised record type: " + record);
 			}
 			
-			line = d.readLine();
-			tokens = line.split(" ");
+			record = in.readByte();
 		}
+		
+	}
+	
+	void import_row(DbTable t) throws SQLException
+	{
+		if ("specchio_user".equals(t.name)) {
+			
+			// don't insert a new row; just map the old user id to the target user id
+			TableField user_id_field = t.all_cols.get("user_id");
+			if (user_id_field != null) {
+				int old_user_id = (Integer)(user_id_field.value.value);
+				KeyLookup kl = get_table("specchio_user").get_keylookup_list("user_id");
+				if (kl != null) {
+					kl.add(old_user_id, user_id);
+				}
+			} else {
+				throw new SQLException("The user_id column is missing from the specchio_user table.");
+			}
+			
+		} else {
+			
+			// insert the new row into the target table
+			int row_id = t.insert_as_new_row();
+			
+			// tidy up tables that refer to the importing user
+			if ("campaign".equals(t.name)) {
 				
+				// change the owner of the campaign to the importing user
+				TableField user_id_field = t.all_cols.get("user_id");
+				if (user_id_field != null) {
+					user_id_field.setValueFromString(Integer.toString(user_id));
+					t.update_row(row_id, user_id_field);
+				} else {
+					throw new SQLException("The user_id column is missing from the campaign table.");
+				}
+				
+			} else if ("research_group".equals(t.name) && row_id != 0) {
+				
+				// add the importing user to the campaign's research group
+				Statement stmt = SQL.createStatement();
+				String query = "insert into research_group_members(research_group_id, member_id) " +
+						"values(" + Integer.toString(row_id) + "," + Integer.toString(user_id) + ")";
+				stmt.executeUpdate(query);
+				stmt.close();
+				
+			}
+			
+		}
 	}
 	
 	DbTable read_table(String tablename) throws IOException
@@ -2,15 +2,19 @@ package ch.specchio.db_import_export;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Blob;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.ListIterator;
 
@@ -35,6 +39,44 @@ abstract class FieldValue
 	abstract public void fromString(String str);
 	public String insertable_string(){return toString();}; // default is the same as toString
 	
+	void write_binary(DataOutputStream out) throws IOException
+	{
+		// default is the same text as toString
+		write_bytes(out, isNull()? null : toString().getBytes("UTF-8"));
+	}
+	
+	void read_binary(DataInputStream in) throws IOException
+	{
+		byte[] bytes = read_bytes(in);
+		fromString((bytes == null)? "" : new String(bytes, "UTF-8"));
+	}
+	
+	// every value is length-prefixed; a length of -1 means null
+	static void write_bytes(DataOutputStream out, byte[] bytes) throws IOException
+	{
+		if(bytes == null)
+		{
+			out.writeInt(-1);
+		}
+		else
+		{
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+	
+	static byte[] read_bytes(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if(length < 0)
+			return null;
+			
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		
+		return bytes;
+	}
+	
 	public void is_key_field(boolean is_key)
 	{
 		is_key_field = is_key;
@@ -288,6 +330,19 @@ class BlobFieldValue extends FieldValue
 		return null;
 	}
 	
+	
+	void write_binary(DataOutputStream out) throws IOException
+	{
+		// raw bytes rather than hex
+		write_bytes(out, value);
+	}
+	
+	
+	void read_binary(DataInputStream in) throws IOException
+	{
+		value = read_bytes(in);
+	}
+	
 }
 
 class MediumBlobFieldValue extends BlobFieldValue{}
@@ -642,13 +697,24 @@ class FkTableField extends TableField
 class KeyLookup
 {
 	String keyname;
-	ArrayList<Integer> old_keys = new ArrayList<Integer>();
-	ArrayList<Integer> new_keys = new ArrayList<Integer>();
+	HashMap<Integer, Integer> new_keys = new HashMap<Integer, Integer>(); // new keys by old key
 	
 	public KeyLookup(String keyname)
 	{
 		this.keyname = keyname;
 	}
+	
+	void add(int old_key, int new_key)
+	{
+		// the first mapping of an old key wins
+		if(!new_keys.containsKey(old_key))
+			new_keys.put(old_key, new_key);
+	}
+	
+	Integer get(int old_key)
+	{
+		return new_keys.get(old_key);
+	}
 }
 
 class ExportedRows
@@ -687,6 +753,15 @@ public class DbTable
 	ArrayList<ExportedRows> exported_rows = new ArrayList<ExportedRows>();
 	ArrayList<KeyLookup> key_lookup = new ArrayList<KeyLookup>();
 	
+	// rows waiting to be inserted by a single multi-row insert
+	static final int MAX_BATCHED_ROWS = 1000;
+	static final int MAX_BATCHED_CHARS = 512 * 1024;
+	StringBuffer batched_rows = new StringBuffer();
+	int batched_row_cnt = 0;
+	
+	// multi-row inserts waiting for the table to be loaded
+	ArrayList<String> batched_inserts = new ArrayList<String>();
+	
 	DbStructure cex;
 	
 	
@@ -1525,11 +1600,15 @@ public class DbTable
 		cex.log_time(this.all_cols.size());
 		
 		try {
-			Hashtable<String, String> table = new Hashtable<String, String>();
-			for (TableField tf : all_cols.values()) {
-				table.put(tf.name, tf.toString());
+			if (cex.bin_out != null) {
+				cex.write_binary_row(this);
+			} else {
+				Hashtable<String, String> table = new Hashtable<String, String>();
+				for (TableField tf : all_cols.values()) {
+					table.put(tf.name, tf.toString());
+				}
+				cex.w.write_table(name, table);
 			}
-			cex.w.write_table(name, table);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -1617,30 +1696,35 @@ public class DbTable
 //			if(this.name.equals("picture"))
 //				System.out.println("picture");
 				
+			// rows without a single primary key are never referenced by other rows, so nothing
+			// needs their new keys and they can wait for a multi-row insert (system table rows
+			// are not batched as later rows must be able to find them with exists())
+			if(PK.size() != 1 && !system_table && !contains_blobs())
+			{
+				batch_row(col_str, get_values_str());
+				return row_id;
+			}
+			
 			query = "insert into " + name + " (" + col_str + ") values (" + get_values_str() + ")";
 			
-			System.out.println(query);
+			//System.out.println(query);
 			
 			Statement stmt = SQL.createStatement();
-			stmt.executeUpdate(query);
+			stmt.executeUpdate(query, Statement.RETURN_GENERATED_KEYS);
 			
 			// selection of the last insert id: this only works for tables with single primary keys
 			// i.e. not for the x-rel tables that have a composite primary key
 			// Thus, the criterion is: only one PK			
 			if(PK.size() == 1)
 			{
-				rs = stmt.executeQuery("SELECT LAST_INSERT_ID()");
+				rs = stmt.getGeneratedKeys();
 				
 				while (rs.next())
 					row_id = rs.getInt(1);
 				
-				// insert the old PK and the new PK into the lookup tables
-				// insert filebased PK into old list
+				// insert the old PK and the new PK into the lookup table
 				int old_pk = (Integer) PK.get(0).value.value;
-				key_lookup.get(0).old_keys.add(old_pk); 
-				
-				// insert current db PK into new list
-				key_lookup.get(0).new_keys.add(row_id);		
+				key_lookup.get(0).add(old_pk, row_id);
 				
 				rs.close();
 
@@ -1662,9 +1746,9 @@ public class DbTable
 					}
 				}
 				
-				stmt.close();
-				
 			}	
+			
+			stmt.close();
 		}
 		
 		return row_id;
@@ -1672,6 +1756,84 @@ public class DbTable
 	}
 	
 	
+	void batch_row(String col_str, String values)
+	{
+		if(batched_row_cnt == 0)
+		{
+			batched_rows.append("insert into " + name + " (" + col_str + ") values ");
+		}
+		else
+		{
+			batched_rows.append(",");
+		}
+		batched_rows.append("(" + values + ")");
+		batched_row_cnt++;
+		
+		if(batched_row_cnt >= MAX_BATCHED_ROWS || batched_rows.length() >= MAX_BATCHED_CHARS)
+		{
+			close_batch();
+		}
+	}
+	
+	
+	void close_batch()
+	{
+		if(batched_row_cnt > 0)
+		{
+			batched_inserts.add(batched_rows.toString());
+			
+			batched_rows.setLength(0);
+			batched_row_cnt = 0;
+		}
+	}
+	
+	
+	boolean has_batched_rows()
+	{
+		return batched_row_cnt > 0 || batched_inserts.size() > 0;
+	}
+	
+	
+	// inserts all batched rows as one transaction, so that the table is either loaded completely or not at all
+	void load_batched_rows(Connection conn) throws SQLException
+	{
+		close_batch();
+		
+		boolean auto_commit = conn.getAutoCommit();
+		if(auto_commit)
+			conn.setAutoCommit(false);
+			
+		boolean committed = false;
+		try {
+			Statement stmt = conn.createStatement();
+			try {
+				for (String insert : batched_inserts) {
+					stmt.executeUpdate(insert);
+				}
+			}
+			finally {
+				stmt.close();
+			}
+			
+			if(auto_commit)
+			{
+				conn.commit();
+				committed = true;
+			}
+		}
+		finally {
+			if(auto_commit)
+			{
+				if(!committed)
+					conn.rollback();
+				conn.setAutoCommit(true);
+			}
+		}
+		
+		batched_inserts.clear();
+	}
+	
+	
 	void update_row(int row_id, TableField ... fields) throws SQLException
 	{
 		for (TableField tf : fields) {
@@ -1694,6 +1856,7 @@ public class DbTable
 			}
 			
 			statement.executeUpdate();
+			statement.close();
 		}
 	}
 	
@@ -1733,7 +1896,6 @@ public class DbTable
 	int get_new_key(String keyname, int old_key) throws SQLException
 	{
 		int new_key = 0;
-		int ind = -1;
 		
 		// get correct lookup table
 		KeyLookup kl = get_keylookup_list(keyname);
@@ -1742,11 +1904,11 @@ public class DbTable
 			throw new SQLException("key lookup table not found!");
 		
 		// search key in old key list
-		ind = kl.old_keys.indexOf(old_key);
+		Integer key = kl.get(old_key);
 		
-		if(ind != -1)
+		if(key != null)
 		{
-			new_key = kl.new_keys.get(ind);	
+			new_key = key;	
 			//System.out.println("Key change for " + keyname + " " + Integer.toString(old_key) + " -> " + Integer.toString(new_key));
 		}
 		else
@@ -1860,13 +2022,10 @@ public class DbTable
 		{
 			for(int i = 0; i < this.key_lookup.size(); i++)
 			{
-				// insert filebased PK into old list
+				// map the filebased PK to the current db PK
 				int old_pk = (Integer) PK.get(i).value.value;
-				key_lookup.get(i).old_keys.add(old_pk); 
-				
-				// insert current db PK into new list
 				int new_pk = rs.getInt(i+1); // result indices start at 1 ...
-				key_lookup.get(i).new_keys.add(new_pk);				
+				key_lookup.get(i).add(old_pk, new_pk);				
 			}
 			
 			cnt++; 
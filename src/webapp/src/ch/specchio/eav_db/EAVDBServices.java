@@ -14,8 +14,11 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import ch.specchio.types.MetaDate;
 import ch.specchio.types.MetaParameterFormatException;
@@ -31,7 +34,12 @@ public class EAVDBServices extends Thread {
 	public ArrayList<String> aliases = new ArrayList<String>();
 	
 	//ArrayList<MetaParameter> known_metaparameters = new ArrayList<MetaParameter>();
-	private static Hashtable<String, ArrayList<MetaParameter>> known_metaparameters_hash = new Hashtable<String, ArrayList<MetaParameter>>();
+	// redundancy indexes shared by all service objects of the same user; each index is guarded by its own
+	// monitor, so that users do not contend with each other and the query methods need no lock at all
+	private static ConcurrentHashMap<String, MetaParameterIndex> known_metaparameters_hash = new ConcurrentHashMap<String, MetaParameterIndex>();
+	
+	// metaparameters inserted by the open transaction of this object's connection; other connections cannot see them yet
+	private MetaParameterIndex uncommitted_metaparameters = null;
 	
 	private String primary_x_eav_tablename = "frame_x_eav";
 	private String primary_x_eav_viewname = "frame_x_eav_view";
@@ -58,72 +66,172 @@ public class EAVDBServices extends Thread {
 	 */
 	public ArrayList<Integer> insert_metadata_into_db(int campaign_id, Metadata md) throws SQLException, IOException {
 		
-		// prepare insert statement
-		String query = "insert into eav_view (campaign_id, attribute_id, int_val, double_val, string_val, binary_val, datetime_val, taxonomy_id, unit_id) values";
-		ArrayList<String> value_strings = new ArrayList<String>();
+		// each eav_id once, even if the metadata contains the same value twice
+		return new ArrayList<Integer>(new LinkedHashSet<Integer>(insert_metaparameters_into_db(campaign_id, md.getEntries())));
+		
+	}	
+	
+	
+	/**
+	 * Insert a list of metaparameters into the database. Metaparameters that
+	 * are already known are re-used; the others are inserted with a single
+	 * multi-row insert wherever possible.
+	 * 
+	 * Outside a transaction, the new metaparameters are looked up and claimed
+	 * in the user's redundancy index while holding its monitor, but are
+	 * inserted after the monitor has been released. A concurrent call for the
+	 * same user that needs a claimed value waits for its eav_id once it has
+	 * inserted its own values, so that the same value is not inserted twice.
+	 * Inside a transaction nothing is claimed, because the rows cannot be seen
+	 * by other connections until the transaction commits; concurrent
+	 * transactions may therefore insert the same value twice, but never link
+	 * to each other's uncommitted rows.
+	 * 
+	 * @param campaign_id	the identifier of the campaign to which the metaparameters belong
+	 * @param mps			the metaparameters to be inserted
+	 * 
+	 * @return the eav_id of each metaparameter, in the same order as the input list
+	 */
+	public ArrayList<Integer> insert_metaparameters_into_db(int campaign_id, List<MetaParameter> mps) throws SQLException, IOException {
 		
+		boolean autocommit = SQL.getAutoCommit();
+		MetaParameterIndex index = get_known_metaparameters();
 		
-		ArrayList<Integer> eav_ids = new ArrayList<Integer>();
-		ArrayList<MetaParameter> multi_insert_eavs = new ArrayList<MetaParameter>();
-			// loop through all entries
-			ListIterator<MetaParameter> li = md.getEntries().listIterator();
+		// the eav_id of each metaparameter that is already known, or else the metaparameter that supplies it
+		int eav_ids[] = new int[mps.size()];
+		MetaParameter sources[] = new MetaParameter[mps.size()];
 		
-			while(li.hasNext())
-			{
-				MetaParameter e =  li.next();
+		// the metaparameters to be inserted by this call, and their claims in the index
+		ArrayList<MetaParameter> new_mps = new ArrayList<MetaParameter>();
+		ArrayList<MetaParameterIndex.Insert> new_inserts = new ArrayList<MetaParameterIndex.Insert>();
+		
+		// the metaparameters being inserted by other calls, and their claims in the index
+		ArrayList<MetaParameter> awaited_mps = new ArrayList<MetaParameter>();
+		ArrayList<MetaParameterIndex.Insert> awaited_inserts = new ArrayList<MetaParameterIndex.Insert>();
+		
+		// the new metaparameters of this call, so that a value that occurs several times is inserted once
+		HashMap<Object, MetaParameter> pending = new HashMap<Object, MetaParameter>();
+		
+		for (MetaParameter mp : mps) {
+			get_metaparameter_attribute_and_unit_ids(mp);
+		}
+		
+		synchronized (index) {
+			for (int i = 0; i < mps.size(); i++) {
 				
-				e = this.reduce_redundancy(e);
+				MetaParameter mp = mps.get(i);
+				eav_ids[i] = find_known_metaparameter(mp);
+				if (eav_ids[i] == 0) {
+					eav_ids[i] = mp.getEavId();
+				}
 				
-				if(e.getEavId() == 0)
-				{
-					
-					// check if multi insert is possible
-					if(e.allows_multi_insert())
-					{
-						value_strings.add(get_metaparameter_value_string(campaign_id, e));			
-						multi_insert_eavs.add(e);
-					}
-					else
-					{
-						int id = insert_metaparameter_into_db(campaign_id, e);
-						eav_ids.add(id);
+				if (eav_ids[i] == 0) {
+					Object key = MetaParameterIndex.keyOf(mp);
+					sources[i] = (key != null)? pending.get(key) : null;
+					if (sources[i] == null) {
+						sources[i] = mp;
+						if (key != null) {
+							pending.put(key, mp);
+						}
+						MetaParameterIndex.Insert insert = (autocommit)? index.findInsert(mp) : null;
+						if (insert != null) {
+							awaited_mps.add(mp);
+							awaited_inserts.add(insert);
+						} else {
+							new_mps.add(mp);
+							new_inserts.add((autocommit)? index.startInsert(mp) : null);
+						}
 					}
 				}
-				else
-				{
-					eav_ids.add(e.getEavId());
+				
+			}
+		}
+		
+		// insert outside the monitor; every claim must be ended, even if the insert fails
+		try {
+			insert_new_metaparameters(campaign_id, new_mps);
+		}
+		finally {
+			for (int i = 0; i < new_mps.size(); i++) {
+				if (new_inserts.get(i) != null) {
+					index.endInsert(new_inserts.get(i), new_mps.get(i).getEavId());
 				}
 			}
+		}
+		if (!autocommit) {
+			for (MetaParameter mp : new_mps) {
+				add_inserted_metaparameter(mp);
+			}
+		}
+		
+		// pick up the values inserted by other calls, inserting any whose insert failed
+		for (int i = 0; i < awaited_mps.size(); i++) {
+			MetaParameter mp = awaited_mps.get(i);
+			int eav_id = 0;
+			try {
+				eav_id = index.awaitInsert(awaited_inserts.get(i));
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			if (eav_id != 0) {
+				mp.setEavId(eav_id);
+			} else {
+				insert_metaparameter_into_db(campaign_id, mp);
+			}
+		}
+		
+		ArrayList<Integer> result = new ArrayList<Integer>(mps.size());
+		for (int i = 0; i < mps.size(); i++) {
+			result.add((eav_ids[i] != 0)? eav_ids[i] : sources[i].getEavId());
+		}
+		
+		return result;
+		
+	}
+	
+	
+	/**
+	 * Insert metaparameters that are not yet in the database, setting the
+	 * eav_id of each one as it is inserted. The metaparameters are not added
+	 * to any redundancy index.
+	 * 
+	 * @param campaign_id	the identifier of the campaign to which the metaparameters belong
+	 * @param mps			the metaparameters, with their attribute and unit identifiers set
+	 */
+	private void insert_new_metaparameters(int campaign_id, List<MetaParameter> mps) throws SQLException, IOException {
+		
+		String query = "insert into eav_view (campaign_id, attribute_id, int_val, double_val, string_val, binary_val, datetime_val, taxonomy_id, unit_id) values";
+		ArrayList<String> value_strings = new ArrayList<String>();
+		ArrayList<MetaParameter> multi_insert_eavs = new ArrayList<MetaParameter>();
+		
+		for (MetaParameter e : mps) {
+			if (e.allows_multi_insert()) {
+				value_strings.add(get_metaparameter_value_string(campaign_id, e));
+				multi_insert_eavs.add(e);
+			} else {
+				e.setEavId(insert_eav(campaign_id, e.getDefaultStorageField(), e.getValue(), e.getAttributeId(), e.getUnitId()));
+			}
+		}
+		
+		if (value_strings.size() > 0) {
 			
-			if(value_strings.size() > 0)
-			{
-			
-				// carry out the multi insert statement
-				query = query + SQL.conc_cols(value_strings);
-				
-				PreparedStatement ps = SQL.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
-
-				//now update
-				ps.executeUpdate();		
-
-				ResultSet rs = ps.getGeneratedKeys();
-								
-			    int _eav_id = -1;
-			    int cnt = 0;
-			    while (rs.next()) {
-			    	_eav_id = rs.getInt(1);
-			    	multi_insert_eavs.get(cnt++).setEavId(_eav_id);
-			    	eav_ids.add(_eav_id);
-			    }		
-				
-			    
-			    rs.close();
+			// carry out the multi insert statement
+			query = query + SQL.conc_cols(value_strings);
+			PreparedStatement ps = SQL.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+			ps.executeUpdate();
 			
+			ResultSet rs = ps.getGeneratedKeys();
+			int cnt = 0;
+			while (rs.next()) {
+				multi_insert_eavs.get(cnt++).setEavId(rs.getInt(1));
 			}
+			rs.close();
+			ps.close();
+			
+		}
 		
-		
-		return eav_ids;
-	}	
+	}
 	
 	
 	public int insert_metaparameter_into_db(int campaign_id, MetaParameter mp) throws SQLException, IOException
@@ -133,6 +241,7 @@ public class EAVDBServices extends Thread {
 			get_metaparameter_attribute_and_unit_ids(mp);
 			int eav_id = insert_eav(campaign_id, mp.getDefaultStorageField(), mp.getValue(), mp.getAttributeId(), mp.getUnitId());
 			mp.setEavId(eav_id);
+			add_inserted_metaparameter(mp);
 		}
 		return mp.getEavId();
 		
@@ -149,23 +258,21 @@ public class EAVDBServices extends Thread {
 			int eav_id = 0;
 			
 			String query = "insert into " + this.eav_view_name + " (campaign_id, attribute_id, " + field_name + ", unit_id) " +
-					"values(" +
-						String.valueOf(campaign_id) + "," +
-						String.valueOf(attribute_id) + "," +
-						SQL.quote_value(value) + "," +
-						Integer.toString(unit_id) +
-					")";
-		
-			Statement stmt = SQL.createStatement();
-			stmt.executeUpdate(query);
+					"values(?, ?, ?, ?)";
+		
+			PreparedStatement ps = SQL.prepareCachedStatement(query, Statement.RETURN_GENERATED_KEYS);
+			ps.setInt(1, campaign_id);
+			ps.setInt(2, attribute_id);
+			SQL.setValue(ps, 3, value);
+			ps.setInt(4, unit_id);
+			SQL.executeUpdate(ps);
 				
-			ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()");
+			ResultSet rs = ps.getGeneratedKeys();
 				
 			while (rs.next())
 				eav_id = rs.getInt(1);
 				
 			rs.close();
-			stmt.close();
 			
 			return eav_id;
 		}
@@ -176,34 +283,27 @@ public class EAVDBServices extends Thread {
 		
 		int eav_id = 0;
 		
-		String query = "insert into " + this.eav_view_name + " (campaign_id, attribute_id, unit_id) " + 
-				"values(" + campaign_id + "," + attribute_id + "," + unit_id + ")";
-		
-		Statement stmt = SQL.createStatement();
-		stmt.executeUpdate(query);
-			
-		ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()");
-			
-		while (rs.next())
-			eav_id = rs.getInt(1);
-			
-		rs.close();
-		stmt.close();
-			
-		String update_stm = "UPDATE " + this.eav_view_name + " set " + field + " = ? where eav_id = " + eav_id;
-		PreparedStatement statement = SQL.prepareStatement(update_stm);
-			
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		ObjectOutputStream out = new ObjectOutputStream(baos);
 		out.writeObject(value);
 		out.close();
+		
+		// insert the row and its serialised value in a single statement
+		String query = "insert into " + this.eav_view_name + " (campaign_id, attribute_id, unit_id, " + field + ") " + 
+				"values(?, ?, ?, ?)";
+		PreparedStatement statement = SQL.prepareCachedStatement(query, Statement.RETURN_GENERATED_KEYS);
+		statement.setInt(1, campaign_id);
+		statement.setInt(2, attribute_id);
+		statement.setInt(3, unit_id);
+		statement.setBinaryStream(4, new ByteArrayInputStream(baos.toByteArray()), baos.size());
+		SQL.executeUpdate(statement);
 			
-		statement.setBinaryStream(1, new ByteArrayInputStream(baos.toByteArray()), baos.size());
-		statement.executeUpdate();			
+		ResultSet rs = statement.getGeneratedKeys();
 			
-		rs.close();
-		statement.close();
+		while (rs.next())
+			eav_id = rs.getInt(1);
 			
+		rs.close();
 		
 		return eav_id;
 
@@ -321,7 +421,7 @@ public class EAVDBServices extends Thread {
 		
 	}
 	
-	synchronized public int get_campaign_id_for_eav(int eav_id)
+	public int get_campaign_id_for_eav(int eav_id)
 	{
 		int campaign_id = 0;
 		
@@ -343,9 +443,9 @@ public class EAVDBServices extends Thread {
 	}
 	
 	
-	synchronized public void clear_redundancy_list()
+	public void clear_redundancy_list()
 	{
-		ArrayList<MetaParameter> known_metaparameters = known_metaparameters_hash.get(this.databaseUserName);
+		MetaParameterIndex known_metaparameters = known_metaparameters_hash.get(this.databaseUserName);
 		
 		if(known_metaparameters != null)
 		{
@@ -354,54 +454,93 @@ public class EAVDBServices extends Thread {
 	}
 	
 	
-	synchronized public MetaParameter reduce_redundancy(MetaParameter mp) throws SQLException {
-		
-		get_metaparameter_attribute_and_unit_ids(mp);
-		
-		MetaParameter curr_mp = null;
-		boolean matches = false;
-		
-		ArrayList<MetaParameter> known_metaparameters = known_metaparameters_hash.get(this.databaseUserName);
+	private MetaParameterIndex get_known_metaparameters()
+	{
+		MetaParameterIndex known_metaparameters = known_metaparameters_hash.get(this.databaseUserName);
 		
 		if(known_metaparameters == null)
 		{
-			known_metaparameters = new ArrayList<MetaParameter>();
-			known_metaparameters_hash.put(databaseUserName, known_metaparameters);
+			// another thread may be creating the index at the same time; use whichever index got in first
+			MetaParameterIndex new_index = new MetaParameterIndex();
+			known_metaparameters = known_metaparameters_hash.putIfAbsent(databaseUserName, new_index);
+			if(known_metaparameters == null)
+				known_metaparameters = new_index;
 		}
 		
-		// check if it is already contained in the list
-		ListIterator<MetaParameter> li = known_metaparameters.listIterator();
+		return known_metaparameters;
+	}
+	
+	
+	public MetaParameter reduce_redundancy(MetaParameter mp) throws SQLException {
 		
-		while(li.hasNext() && matches == false)
-		{
-			curr_mp = li.next();
+		get_metaparameter_attribute_and_unit_ids(mp);
+		
+		// link to the known metaparameter with the same attribute, unit and value, if any
+		int eav_id = find_known_metaparameter(mp);
+		if (eav_id != 0)
+			mp.setEavId(eav_id);
 			
-			boolean equalValues = (mp.getValue() == null && curr_mp.getValue() == null) || (mp.getValue() != null && mp.getValue().equals(curr_mp.getValue()));
-			if(mp.getUnitId() == 0) // catches the case where the unit was not set by the user or program (it is later enforced as RAW during insert)
-			{
-				matches = mp.getAttributeId().equals(curr_mp.getAttributeId()) && equalValues;
-			}
-			else
-			{
-				matches = mp.getAttributeId().equals(curr_mp.getAttributeId()) && mp.getUnitId().equals(curr_mp.getUnitId()) && equalValues;
-			}
-
-		}
+		return mp;
+	}
+	
+	
+	// finds the eav_id of a known metaparameter; the metaparameters inserted by this connection's
+	// open transaction are only known to this object
+	private int find_known_metaparameter(MetaParameter mp)
+	{
+		int eav_id = 0;
+		if (uncommitted_metaparameters != null)
+			eav_id = uncommitted_metaparameters.find(mp);
+		if (eav_id == 0)
+			eav_id = get_known_metaparameters().find(mp);
 		
-		if(matches)
+		return eav_id;
+	}
+	
+	
+	// makes a newly-inserted metaparameter known to the redundancy reduction, but only to this object
+	// until the transaction that inserted it commits
+	private void add_inserted_metaparameter(MetaParameter mp) throws SQLException
+	{
+		if (SQL.getAutoCommit())
 		{
-			return curr_mp;
+			get_known_metaparameters().add(mp);
 		}
 		else
 		{
-			known_metaparameters.add(mp);
-			return mp;
+			if (uncommitted_metaparameters == null)
+				uncommitted_metaparameters = new MetaParameterIndex(Integer.MAX_VALUE);
+			uncommitted_metaparameters.add(mp);
 		}
-	}	
+	}
+	
+	
+	/**
+	 * Share the metaparameters inserted by a transaction with the other
+	 * service objects of the user. Call after the transaction has committed.
+	 */
+	public void publish_uncommitted_metaparameters()
+	{
+		if (uncommitted_metaparameters != null)
+		{
+			get_known_metaparameters().addAll(uncommitted_metaparameters);
+			uncommitted_metaparameters = null;
+		}
+	}
 	
 	
+	/**
+	 * Forget the metaparameters inserted by a transaction. Call after the
+	 * transaction has been rolled back.
+	 */
+	public void discard_uncommitted_metaparameters()
+	{
+		uncommitted_metaparameters = null;
+	}
 	
-	synchronized public void insert_hierarchy_links(PrimaryData pd) throws SQLException
+	
+	
+	public void insert_hierarchy_links(PrimaryData pd) throws SQLException
 	{	
 		Statement stmt = SQL.createStatement();
 		String query = "insert into frame_x_eav (frame_id, eav_id) values (" + String.valueOf(pd.get_id()) + ", " + String.valueOf(pd.get_metadata().get_hierarchy_id()) +")";
@@ -434,7 +573,7 @@ public class EAVDBServices extends Thread {
 		return this.eav_view_name;
 	}
 	
-	synchronized public void insert_primary_x_eav(int frame_id, int eav_id)
+	public void insert_primary_x_eav(int frame_id, int eav_id)
 	{
 		Integer[] eav_ids = new Integer[1];
 		eav_ids[0] = eav_id;
@@ -442,7 +581,7 @@ public class EAVDBServices extends Thread {
 		insert_primary_x_eav(frame_id, eav_ids);
 	}
 	
-	synchronized public void insert_primary_x_eav(Integer[] frame_ids, int eav_id) throws SQLException
+	public void insert_primary_x_eav(Integer[] frame_ids, int eav_id) throws SQLException
 	{
 		Integer[] eav_ids = new Integer[1];
 		eav_ids[0] = eav_id;
@@ -450,14 +589,14 @@ public class EAVDBServices extends Thread {
 		insert_primary_x_eav(frame_ids, eav_ids);
 	}
 	
-	synchronized public void insert_primary_x_eav(int frame_id, ArrayList<Integer> eav_ids) {
+	public void insert_primary_x_eav(int frame_id, ArrayList<Integer> eav_ids) {
 		
 		insert_primary_x_eav(frame_id, eav_ids.toArray(new Integer[1]));
 		
 	}
 	
 	
-	synchronized public void insert_primary_x_eav(int frame_id, Integer[] eav_ids)
+	public void insert_primary_x_eav(int frame_id, Integer[] eav_ids)
 	{	
 		String query = "insert into " + primary_x_eav_viewname + " (" + primary_id_name + ", eav_id) values ";
 		ArrayList<String> value_strings = new ArrayList<String>();
@@ -483,8 +622,29 @@ public class EAVDBServices extends Thread {
 		
 	}
 	
+	// this function links each frame_id to the eav_id at the same position
+	public void insert_primary_x_eav_pairs(ArrayList<Integer> frame_ids, ArrayList<Integer> eav_ids) throws SQLException
+	{
+		
+		String query = "insert into " + primary_x_eav_viewname + " (" + primary_id_name + ", eav_id) values ";
+		ArrayList<String> value_strings = new ArrayList<String>();
+		
+		// build multi insert string
+		for (int i = 0; i < frame_ids.size(); i++) {
+			value_strings.add("(" + String.valueOf(frame_ids.get(i)) + ", " + String.valueOf(eav_ids.get(i)) +")");
+		}
+		
+		// carry out the multi insert statement
+		query = query + SQL.conc_cols(value_strings);
+		Statement stmt = SQL.createStatement();
+		stmt.executeUpdate(query);
+		stmt.close();
+		
+	}
+	
+	
 	// this function expects that the eav_ids apply to each frame_id entry
-	synchronized public void insert_primary_x_eav(Integer[] frame_ids, Integer[] eav_ids) throws SQLException
+	public void insert_primary_x_eav(Integer[] frame_ids, Integer[] eav_ids) throws SQLException
 	{			
 
 		String query = "insert into " + primary_x_eav_viewname + " (" + primary_id_name + ", eav_id) values ";
@@ -506,7 +666,7 @@ public class EAVDBServices extends Thread {
 	}
 	
 	
-	synchronized public ArrayList<Integer> get_list_of_processing_levels()
+	public ArrayList<Integer> get_list_of_processing_levels()
 	{
 		ArrayList<Integer> list = new ArrayList<Integer>();
 		
@@ -544,7 +704,7 @@ public class EAVDBServices extends Thread {
 	
 	
 	// for speed reasons
-	synchronized public boolean metafile_exists(String filename, int directory_id)
+	public boolean metafile_exists(String filename, int directory_id)
 	{
 		String[] file_tokens = filename.split("/");	
 
@@ -575,7 +735,7 @@ public class EAVDBServices extends Thread {
 	
 	
 	// return hashtable with a boolean if existing or not for all metafiles in the specified directory
-	synchronized public ArrayList<String> metafiles_exist(int directory_id)
+	public ArrayList<String> metafiles_exist(int directory_id)
 	{
 		ArrayList<String> existing = new ArrayList<String>();
 		
@@ -604,13 +764,13 @@ public class EAVDBServices extends Thread {
 	
 	
 	// return all eav_ids of this frame
-	synchronized public ArrayList<Integer> get_eav_ids(int frame_id)
+	public ArrayList<Integer> get_eav_ids(int frame_id)
 	{
 		return get_exclusive_eav_ids(frame_id, new ArrayList<Integer>());	
 	}
 	
 	
-	synchronized public ArrayList<Integer> get_exclusive_eav_ids(Integer frame_id, ArrayList<Integer> exclusive_attribute_ids)
+	public ArrayList<Integer> get_exclusive_eav_ids(Integer frame_id, ArrayList<Integer> exclusive_attribute_ids)
 	{
 		
 		ArrayList<Integer> list = new ArrayList<Integer>();
@@ -644,7 +804,7 @@ public class EAVDBServices extends Thread {
 	}
 	
 
-	synchronized public ArrayList<Integer> get_exclusive_eav_ids(Integer frame_id, int ... exclusive_attribute_ids) 
+	public ArrayList<Integer> get_exclusive_eav_ids(Integer frame_id, int ... exclusive_attribute_ids) 
 	{
 		ArrayList<Integer> attr_id_list = new ArrayList<Integer>();
 		
@@ -657,7 +817,7 @@ public class EAVDBServices extends Thread {
 	}	
 	
 	
-	synchronized public ArrayList<Integer> get_eav_ids(int frame_id, boolean distinct, String ... attribute_names)
+	public ArrayList<Integer> get_eav_ids(int frame_id, boolean distinct, String ... attribute_names)
 	{
 		ArrayList<Integer> attr_id_list = new ArrayList<Integer>();
 		
@@ -669,12 +829,12 @@ public class EAVDBServices extends Thread {
 		return get_eav_ids(Integer.toString(frame_id), distinct, SQL.conc_ids(attr_id_list));
 	}	
 	
-	synchronized public ArrayList<Integer> get_eav_ids(int frame_id, String ... attribute_names)
+	public ArrayList<Integer> get_eav_ids(int frame_id, String ... attribute_names)
 	{
 		return get_eav_ids(frame_id, false, attribute_names);
 	}		
 	
-	synchronized public ArrayList<Integer> get_eav_ids(int frame_id, boolean distinct, int ... attribute_ids)
+	public ArrayList<Integer> get_eav_ids(int frame_id, boolean distinct, int ... attribute_ids)
 	{
 		ArrayList<Integer> attr_id_list = new ArrayList<Integer>();
 		
@@ -686,23 +846,23 @@ public class EAVDBServices extends Thread {
 		return get_eav_ids(Integer.toString(frame_id), distinct, SQL.conc_ids(attr_id_list));
 	}
 	
-	synchronized public ArrayList<Integer> get_eav_ids(int frame_id, ArrayList<Integer> attribute_ids)
+	public ArrayList<Integer> get_eav_ids(int frame_id, ArrayList<Integer> attribute_ids)
 	{		
 		return get_eav_ids(Integer.toString(frame_id), false, SQL.conc_ids(attribute_ids));
 	}		
 	
-	synchronized public ArrayList<Integer> get_eav_ids(int frame_id, boolean distinct, ArrayList<Integer> attribute_ids)
+	public ArrayList<Integer> get_eav_ids(int frame_id, boolean distinct, ArrayList<Integer> attribute_ids)
 	{		
 		return get_eav_ids(Integer.toString(frame_id), distinct, SQL.conc_ids(attribute_ids));
 	}	
 	
 	
-	synchronized public ArrayList<Integer> get_eav_ids(int frame_id, int ... attribute_ids)
+	public ArrayList<Integer> get_eav_ids(int frame_id, int ... attribute_ids)
 	{
 		return get_eav_ids(frame_id, false, attribute_ids);
 	}
 	
-	synchronized public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, boolean distinct, int ... attribute_ids)
+	public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, boolean distinct, int ... attribute_ids)
 	{
 		ArrayList<Integer> attr_id_list = new ArrayList<Integer>();
 		
@@ -714,24 +874,24 @@ public class EAVDBServices extends Thread {
 		return get_eav_ids(SQL.conc_ids(frame_ids), distinct, SQL.conc_ids(attr_id_list));	
 	}
 	
-	synchronized public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, int ... attribute_ids)
+	public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, int ... attribute_ids)
 	{
 		return get_eav_ids(frame_ids, false, attribute_ids);
 	}	
 
 	
-	synchronized public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, boolean distinct, ArrayList<Integer> attribute_ids)
+	public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, boolean distinct, ArrayList<Integer> attribute_ids)
 	{		
 		return get_eav_ids(SQL.conc_ids(frame_ids), distinct, SQL.conc_ids(attribute_ids));
 	}
 	
-	synchronized public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, ArrayList<Integer> attribute_ids)
+	public ArrayList<Integer> get_eav_ids(ArrayList<Integer> frame_ids, ArrayList<Integer> attribute_ids)
 	{		
 		return get_eav_ids(SQL.conc_ids(frame_ids), false, SQL.conc_ids(attribute_ids));
 	}	
 
 	
-	synchronized ArrayList<Integer> get_eav_ids(String frame_ids, boolean distinct, String attribute_ids)
+	ArrayList<Integer> get_eav_ids(String frame_ids, boolean distinct, String attribute_ids)
 	{
 		
 		ArrayList<Integer> list = new ArrayList<Integer>();
@@ -802,13 +962,13 @@ public class EAVDBServices extends Thread {
 //		}		
 	}
 	
-	synchronized public SingularFrameEAVStructure get_eav_ids_(ArrayList<Integer> frame_ids, ArrayList<Integer> attribute_ids)
+	public SingularFrameEAVStructure get_eav_ids_(ArrayList<Integer> frame_ids, ArrayList<Integer> attribute_ids)
 	{		
 		return get_eav_ids_(frame_ids, false, SQL.conc_ids(attribute_ids));
 	}	
 
 	
-	synchronized SingularFrameEAVStructure get_eav_ids_(ArrayList<Integer> frame_ids, boolean distinct, String attribute_ids)
+	SingularFrameEAVStructure get_eav_ids_(ArrayList<Integer> frame_ids, boolean distinct, String attribute_ids)
 	{
 		String frame_ids_str = SQL.conc_ids(frame_ids);
 
@@ -865,7 +1025,7 @@ public class EAVDBServices extends Thread {
 	}
 		
 	
-	synchronized public ArrayList<Integer> get_statistic_frame_ids(int frame_id)
+	public ArrayList<Integer> get_statistic_frame_ids(int frame_id)
 	{	
 		ArrayList<Integer> ids = new ArrayList<Integer>();
 		ids.add(frame_id);
@@ -873,7 +1033,7 @@ public class EAVDBServices extends Thread {
 	}
 
 	
-	synchronized public ArrayList<Integer> get_statistic_frame_ids(ArrayList<Integer> frame_ids)
+	public ArrayList<Integer> get_statistic_frame_ids(ArrayList<Integer> frame_ids)
 	{
 		ArrayList<Integer> stat_ids = new ArrayList<Integer>();
 		
@@ -909,7 +1069,7 @@ public class EAVDBServices extends Thread {
 	}
 	
 	
-	synchronized public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id, String field, Object value, ProgressListener pr)
+	public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id, String field, Object value, ProgressListener pr)
 	{
 		if (pr != null)
 		{
@@ -966,12 +1126,12 @@ public class EAVDBServices extends Thread {
 	
 	
 	
-	synchronized public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id, String field, Object value)
+	public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id, String field, Object value)
 	{
 		return filter_by_eav(frame_ids, attribute_id, field, value, null);
 	}
 
-	synchronized public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id)
+	public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id)
 	{	
 		ArrayList<Integer> filtered = new ArrayList<Integer>();
 		
@@ -1000,7 +1160,7 @@ public class EAVDBServices extends Thread {
 	}
 	
 	
-	synchronized public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id, int unit_id)
+	public ArrayList<Integer> filter_by_eav(ArrayList<Integer> frame_ids, int attribute_id, int unit_id)
 	{
 		ArrayList<Integer> filtered = new ArrayList<Integer>();
 		
@@ -1029,7 +1189,7 @@ public class EAVDBServices extends Thread {
 	}	
 	
 	
-	synchronized public ArrayList<Integer> filter_by_attribute_NOT(ArrayList<Integer> frame_ids, int attribute_id)
+	public ArrayList<Integer> filter_by_attribute_NOT(ArrayList<Integer> frame_ids, int attribute_id)
 	{		
 		
 		ArrayList<Integer> positive_finds = filter_by_eav(frame_ids, attribute_id);
@@ -1047,7 +1207,7 @@ public class EAVDBServices extends Thread {
 	
 	
 	
-	synchronized public ArrayList<FrameMetaparameterStructure> load_metaparameters(ArrayList<Integer> frame_ids, int ... attribute_ids)
+	public ArrayList<FrameMetaparameterStructure> load_metaparameters(ArrayList<Integer> frame_ids, int ... attribute_ids)
 	{
 		ArrayList<FrameMetaparameterStructure> fmps_list = new ArrayList<FrameMetaparameterStructure>();
 		
@@ -0,0 +1,422 @@
+package ch.specchio.eav_db;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ch.specchio.types.MetaParameter;
+
+
+/**
+ * Bounded index of metaparameters that are already known to be in the
+ * database, used to avoid inserting the same value twice. The eav_id of each
+ * metaparameter is indexed by attribute, unit and value, and is only added
+ * once the metaparameter has been inserted and committed. When the index is
+ * full, the least recently used metaparameter is evicted; an evicted
+ * metaparameter is simply inserted again if it turns up later.
+ * 
+ * The capacity can be set with the system property
+ * "specchio.metaparameter_index_size"; a capacity of zero disables the index.
+ * 
+ * The index keeps its own copy of each value, so later changes to a
+ * metaparameter do not affect it. Only strings, numbers, booleans and dates
+ * are indexed; metaparameters with values of other types are always
+ * inserted again.
+ * 
+ * The index also records the inserts that are in progress, so that a
+ * caller that finds another caller inserting the same value can wait for
+ * its eav_id instead of inserting the value a second time.
+ */
+public class MetaParameterIndex {
+	
+	/** the name of the system property that sets the capacity */
+	public static final String CAPACITY_PROPERTY = "specchio.metaparameter_index_size";
+	
+	/** the default capacity in metaparameters */
+	public static final int DEFAULT_CAPACITY = 100000;
+	
+	/** eav_ids by attribute, unit and value, in access order */
+	private LinkedHashMap<Key, Integer> by_unit;
+	
+	/** the key of the first-known metaparameter for each attribute and value regardless of unit */
+	private HashMap<Key, Key> by_value;
+	
+	/** the inserts in progress, by attribute, unit and value */
+	private HashMap<Key, Insert> inserts;
+	
+	/** the maximum number of metaparameters in the index */
+	private int capacity;
+	
+	
+	/**
+	 * Construct an index with the capacity given by the system property, or
+	 * the default capacity if the property is not set.
+	 */
+	public MetaParameterIndex() {
+		
+		this(getConfiguredCapacity());
+		
+	}
+	
+	
+	/**
+	 * Construct an index with a given capacity.
+	 * 
+	 * @param capacity	the maximum number of metaparameters in the index
+	 */
+	public MetaParameterIndex(int capacity) {
+		
+		this.by_unit = new LinkedHashMap<Key, Integer>(16, 0.75f, true);
+		this.by_value = new HashMap<Key, Key>();
+		this.inserts = new HashMap<Key, Insert>();
+		this.capacity = capacity;
+		
+	}
+	
+	
+	/**
+	 * Remove all metaparameters from the index. Inserts in progress are not
+	 * affected.
+	 */
+	public synchronized void clear() {
+		
+		by_unit.clear();
+		by_value.clear();
+		
+	}
+	
+	
+	/**
+	 * Find the eav_id of a known metaparameter with the same attribute, unit
+	 * and value as a given one. A metaparameter with a unit identifier of zero
+	 * matches a known metaparameter with the same attribute and value in any
+	 * unit.
+	 * 
+	 * @param mp	the metaparameter
+	 * 
+	 * @return the eav_id of the known metaparameter, or 0 if there is none
+	 */
+	public synchronized int find(MetaParameter mp) {
+		
+		Key key = key(mp);
+		if (capacity <= 0 || key == null) {
+			return 0;
+		}
+		
+		Integer unit_id = mp.getUnitId();
+		if (unit_id == null || unit_id == 0) {
+			// the unit was not set by the user or program (it is later enforced as RAW during insert)
+			key = by_value.get(new Key(key.attribute_id, null, key.value));
+			if (key == null) {
+				return 0;
+			}
+		}
+		Integer eav_id = by_unit.get(key);
+		
+		return (eav_id != null)? eav_id : 0;
+		
+	}
+	
+	
+	/**
+	 * Add a metaparameter to the index. If the index is shared between
+	 * connections, the row holding the metaparameter must already be
+	 * committed, because any of them may link to it.
+	 * 
+	 * @param mp	the metaparameter, with its eav_id set
+	 */
+	public synchronized void add(MetaParameter mp) {
+		
+		Key key = key(mp);
+		if (key != null && mp.getEavId() != 0) {
+			add(key, mp.getEavId());
+		}
+		
+	}
+	
+	
+	/**
+	 * Add all of the metaparameters of another index to this one.
+	 * 
+	 * @param other	the other index
+	 */
+	public void addAll(MetaParameterIndex other) {
+		
+		ArrayList<Map.Entry<Key, Integer>> entries;
+		synchronized (other) {
+			entries = new ArrayList<Map.Entry<Key, Integer>>(other.by_unit.entrySet());
+		}
+		synchronized (this) {
+			for (Map.Entry<Key, Integer> entry : entries) {
+				add(entry.getKey(), entry.getValue());
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * Wait for an insert started by another caller to end.
+	 * 
+	 * @param insert	the insert
+	 * 
+	 * @return the eav_id of the inserted metaparameter, or 0 if the insert failed
+	 * 
+	 * @throws InterruptedException	interrupted while waiting
+	 */
+	public synchronized int awaitInsert(Insert insert) throws InterruptedException {
+		
+		while (!insert.done) {
+			wait();
+		}
+		
+		return insert.eav_id;
+		
+	}
+	
+	
+	/**
+	 * End an insert started with startInsert(). The metaparameter is added to
+	 * the index if the insert succeeded, and any callers waiting for the
+	 * insert are woken up.
+	 * 
+	 * @param insert	the insert
+	 * @param eav_id	the eav_id of the inserted metaparameter, or 0 if the insert failed
+	 */
+	public synchronized void endInsert(Insert insert, int eav_id) {
+		
+		if (inserts.get(insert.key) == insert) {
+			inserts.remove(insert.key);
+		}
+		if (eav_id != 0) {
+			add(insert.key, eav_id);
+		}
+		insert.eav_id = eav_id;
+		insert.done = true;
+		notifyAll();
+		
+	}
+	
+	
+	/**
+	 * Find an insert of a metaparameter with the same attribute, unit and
+	 * value as a given one that is in progress.
+	 * 
+	 * @param mp	the metaparameter, with its unit identifier set
+	 * 
+	 * @return the insert, or null if there is none
+	 */
+	public synchronized Insert findInsert(MetaParameter mp) {
+		
+		Key key = key(mp);
+		
+		return (key != null)? inserts.get(key) : null;
+		
+	}
+	
+	
+	/**
+	 * Get the number of metaparameters in the index.
+	 * 
+	 * @return the number of metaparameters
+	 */
+	public synchronized int size() {
+		
+		return by_unit.size();
+		
+	}
+	
+	
+	/**
+	 * Record that a metaparameter is about to be inserted. Every insert
+	 * started must be ended with endInsert(), even if it fails.
+	 * 
+	 * @param mp	the metaparameter, with its unit identifier set
+	 * 
+	 * @return the new insert, or null if the metaparameter cannot be indexed
+	 */
+	public synchronized Insert startInsert(MetaParameter mp) {
+		
+		Key key = key(mp);
+		if (key == null) {
+			return null;
+		}
+		Insert insert = new Insert(key);
+		inserts.put(key, insert);
+		
+		return insert;
+		
+	}
+	
+	
+	/**
+	 * Get the attribute, unit and value of a metaparameter in a form that
+	 * can be used as a hash key, and that does not change when the
+	 * metaparameter changes.
+	 * 
+	 * @param mp	the metaparameter
+	 * 
+	 * @return the key, or null if the value of the metaparameter cannot be indexed
+	 */
+	public static Object keyOf(MetaParameter mp) {
+		
+		return key(mp);
+		
+	}
+	
+	
+	/**
+	 * Add an eav_id to the index, evicting the least recently used entries if
+	 * the index is full. The caller must hold the index's monitor.
+	 * 
+	 * @param key		the attribute, unit and value
+	 * @param eav_id	the eav_id
+	 */
+	private void add(Key key, int eav_id) {
+		
+		if (capacity <= 0) {
+			return;
+		}
+		
+		by_unit.put(key, eav_id);
+		Key value_key = new Key(key.attribute_id, null, key.value);
+		if (!by_value.containsKey(value_key)) {
+			by_value.put(value_key, key);
+		}
+		
+		// evict least recently used metaparameters
+		while (by_unit.size() > capacity) {
+			Key evicted = by_unit.keySet().iterator().next();
+			by_unit.remove(evicted);
+			Key evicted_value_key = new Key(evicted.attribute_id, null, evicted.value);
+			if (evicted.equals(by_value.get(evicted_value_key))) {
+				by_value.remove(evicted_value_key);
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * Get the capacity configured by the system property.
+	 * 
+	 * @return the capacity in metaparameters
+	 */
+	private static int getConfiguredCapacity() {
+		
+		int capacity = DEFAULT_CAPACITY;
+		String property = System.getProperty(CAPACITY_PROPERTY);
+		if (property != null) {
+			try {
+				capacity = Integer.parseInt(property.trim());
+			}
+			catch (NumberFormatException ex) {
+				// ignore malformed values and use the default
+			}
+		}
+		
+		return Math.max(capacity, 0);
+		
+	}
+	
+	
+	/**
+	 * Build the key of a metaparameter.
+	 * 
+	 * @param mp	the metaparameter
+	 * 
+	 * @return the key, or null if the value of the metaparameter cannot be indexed
+	 */
+	private static Key key(MetaParameter mp) {
+		
+		Object value = mp.getValue();
+		if (value instanceof Date) {
+			// a private copy, since dates can be changed
+			value = new Date(((Date)value).getTime());
+		} else if (value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+			return null;
+		}
+		Integer unit_id = mp.getUnitId();
+		
+		return new Key(mp.getAttributeId(), (unit_id != null && unit_id != 0)? unit_id : null, value);
+		
+	}
+	
+	
+	/**
+	 * An insert of a metaparameter that is in progress.
+	 */
+	public static class Insert {
+		
+		/** the attribute, unit and value being inserted */
+		private Key key;
+		
+		/** the eav_id of the inserted metaparameter, or 0 if the insert failed */
+		private int eav_id = 0;
+		
+		/** has the insert ended? */
+		private boolean done = false;
+		
+		private Insert(Key key) {
+			
+			this.key = key;
+			
+		}
+		
+	}
+	
+	
+	/**
+	 * Immutable index key made up of an attribute, an optional unit and a value.
+	 */
+	private static class Key {
+		
+		private final Integer attribute_id;
+		private final Integer unit_id;
+		private final Object value;
+		private final int hash;
+		
+		public Key(Integer attribute_id, Integer unit_id, Object value) {
+			
+			this.attribute_id = attribute_id;
+			this.unit_id = unit_id;
+			this.value = value;
+			this.hash = 31 * (31 * hashOf(attribute_id) + hashOf(unit_id)) + hashOf(value);
+			
+		}
+		
+		public boolean equals(Object obj) {
+			
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)obj;
+			
+			return hash == other.hash && equal(attribute_id, other.attribute_id) &&
+					equal(unit_id, other.unit_id) && equal(value, other.value);
+					
+		}
+		
+		public int hashCode() {
+			
+			return hash;
+			
+		}
+		
+		private static boolean equal(Object a, Object b) {
+			
+			return (a == null)? b == null : a.equals(b);
+			
+		}
+		
+		private static int hashOf(Object obj) {
+			
+			return (obj == null)? 0 : obj.hashCode();
+			
+		}
+		
+	}
+	
+}
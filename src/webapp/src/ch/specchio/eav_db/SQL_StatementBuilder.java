@@ -8,14 +8,20 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.TreeSet;
 
 
 // uses the Singleton Pattern
@@ -24,7 +30,21 @@ public class SQL_StatementBuilder {
 	private Connection conn;
 	private DatabaseMetaData dbm;
 	private Statement stmt;
-	private Hashtable<Character, String> escapeSequences;
+	
+	/** escape sequences for quoting strings; never modified after construction */
+	private final HashMap<Character, String> escapeSequences;
+	
+	/** prepared statements that are kept open for re-use by this builder until closeCachedStatements(), by SQL text */
+	private HashMap<String, PreparedStatement> cached_statements = new HashMap<String, PreparedStatement>();
+	
+	/** the SQL text of each cached statement */
+	private IdentityHashMap<PreparedStatement, String> cached_sql = new IdentityHashMap<PreparedStatement, String>();
+	
+	/** the smallest run of consecutive ids that conc_id_cond() turns into a range predicate */
+	private static final int MIN_ID_RANGE = 4;
+	
+	/** the expected number of characters per id in a list, used to size buffers */
+	private static final int ID_LENGTH_ESTIMATE = 8;
 
    public SQL_StatementBuilder(Connection conn) {
 	   
@@ -40,7 +60,7 @@ public class SQL_StatementBuilder {
 	   }
 	   
 	   // define escape sequences for quoting strings
-	   escapeSequences = new Hashtable<Character, String>();
+	   escapeSequences = new HashMap<Character, String>();
 	   escapeSequences.put('\000', "\\0");
 	   escapeSequences.put('\'', "\'\'");
 	   escapeSequences.put('\"', "\\\"");
@@ -67,6 +87,20 @@ public class SQL_StatementBuilder {
    }
    
    
+   public Connection getConnection() {
+	   
+	   return this.conn;
+	   
+   }
+   
+   
+   public boolean getAutoCommit() throws SQLException {
+	   
+	   return this.conn.getAutoCommit();
+	   
+   }
+   
+   
    public PreparedStatement prepareStatement(String statement) throws SQLException {
 	   
 	   return conn.prepareStatement(statement);
@@ -81,29 +115,214 @@ public class SQL_StatementBuilder {
    }
    
    
-   public synchronized String conc_cond(String conds, String new_cond)
+   /**
+    * Get a prepared statement from this builder's statement cache,
+    * preparing it if it is not already in the cache. The statement's
+    * parameters are cleared. Cached statements must not be closed by the
+    * caller; they are closed by closeCachedStatements(), which the owning
+    * factory calls when it is disposed at the end of a request. Statements
+    * are therefore only re-used within a request. The statement cache must
+    * only be used by one thread at a time.
+    * 
+    * @param statement	the SQL text of the statement, with a '?' for each parameter
+    * 
+    * @return the prepared statement
+    * 
+    * @throws SQLException	the statement could not be prepared
+    */
+   public PreparedStatement prepareCachedStatement(String statement) throws SQLException {
+	   
+	   return prepareCachedStatement(statement, Statement.NO_GENERATED_KEYS);
+	   
+   }
+   
+   
+   /**
+    * Get a prepared statement from this builder's statement cache,
+    * preparing it if it is not already in the cache.
+    * 
+    * @param statement			the SQL text of the statement, with a '?' for each parameter
+    * @param autoGeneratedKeys	Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+    * 
+    * @return the prepared statement
+    * 
+    * @throws SQLException	the statement could not be prepared
+    */
+   public PreparedStatement prepareCachedStatement(String statement, int autoGeneratedKeys) throws SQLException {
+	   
+	   String key = (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS)? "+keys " + statement : statement;
+	   PreparedStatement ps = cached_statements.get(key);
+	   StatementProfiler.recordLookup(ps != null);
+	   if (ps == null) {
+		   ps = conn.prepareStatement(statement, autoGeneratedKeys);
+		   cached_statements.put(key, ps);
+		   cached_sql.put(ps, statement);
+	   } else {
+		   ps.clearParameters();
+	   }
+	   
+	   return ps;
+	   
+   }
+   
+   
+   /**
+    * Execute a cached query, recording its execution time.
+    * 
+    * @param ps	a statement returned by prepareCachedStatement(), with its parameters set
+    * 
+    * @return the result set
+    * 
+    * @throws SQLException	the query failed
+    */
+   public ResultSet executeQuery(PreparedStatement ps) throws SQLException {
+	   
+	   long start = System.nanoTime();
+	   ResultSet rs = ps.executeQuery();
+	   StatementProfiler.recordExecution(cached_sql.get(ps), System.nanoTime() - start);
+	   
+	   return rs;
+	   
+   }
+   
+   
+   /**
+    * Execute a cached update, recording its execution time.
+    * 
+    * @param ps	a statement returned by prepareCachedStatement(), with its parameters set
+    * 
+    * @return the number of rows affected
+    * 
+    * @throws SQLException	the update failed
+    */
+   public int executeUpdate(PreparedStatement ps) throws SQLException {
+	   
+	   long start = System.nanoTime();
+	   int count = ps.executeUpdate();
+	   StatementProfiler.recordExecution(cached_sql.get(ps), System.nanoTime() - start);
+	   
+	   return count;
+	   
+   }
+   
+   
+   /**
+    * Set a parameter of a prepared statement to a foreign key, or to null if
+    * the key is null or zero.
+    * 
+    * @param ps		the statement
+    * @param index	the index of the parameter
+    * @param id		the key
+    * 
+    * @throws SQLException	the parameter could not be set
+    */
+   public void setNullableId(PreparedStatement ps, int index, Integer id) throws SQLException {
+	   
+	   if (id == null || id == 0) {
+		   ps.setNull(index, Types.INTEGER);
+	   } else {
+		   ps.setInt(index, id);
+	   }
+	   
+   }
+   
+   
+   /**
+    * Set a parameter of a prepared statement to a foreign key given as a
+    * string, or to null if the string is "null".
+    * 
+    * @param ps		the statement
+    * @param index	the index of the parameter
+    * @param id		the key, as returned by is_null_key_get_val_and_op()
+    * 
+    * @throws SQLException	the parameter could not be set
+    */
+   public void setNullableId(PreparedStatement ps, int index, String id) throws SQLException {
+	   
+	   setNullableId(ps, index, (id == null || id.equals("null"))? null : Integer.valueOf(id));
+	   
+   }
+   
+   
+   /**
+    * Set a parameter of a prepared statement to a metaparameter value, using
+    * the same representation as quote_value().
+    * 
+    * @param ps		the statement
+    * @param index	the index of the parameter
+    * @param value	the value
+    * 
+    * @throws SQLException	the value cannot be represented as an SQL parameter
+    */
+   public void setValue(PreparedStatement ps, int index, Object value) throws SQLException {
+	   
+	   if (value == null) {
+		   ps.setNull(index, Types.NULL);
+	   } else if (value instanceof String) {
+		   ps.setString(index, (String)value);
+	   } else if (value instanceof Integer || value instanceof Long) {
+		   ps.setLong(index, ((Number)value).longValue());
+	   } else if (value instanceof Double || value instanceof Float) {
+		   // go through the decimal string so that floats are stored exactly as they are written
+		   ps.setDouble(index, Double.parseDouble(value.toString()));
+	   } else if (value instanceof Date) {
+		   ps.setString(index, DateAsString((Date)value));
+	   } else {
+		   throw new SQLException("Cannot represent object of type " + value.getClass() + " as an SQL parameter.");
+	   }
+	   
+   }
+   
+   
+   /**
+    * Close all of the statements in this builder's statement cache.
+    */
+   public void closeCachedStatements() {
+	   
+	   for (PreparedStatement ps : cached_statements.values()) {
+		   try {
+			   ps.close();
+		   }
+		   catch (SQLException ex) {
+			   // the connection has probably been closed already
+		   }
+	   }
+	   StatementProfiler.recordClose(cached_statements.size());
+	   cached_statements.clear();
+	   cached_sql.clear();
+	   
+   }
+   
+   
+   // The string helpers below use no state of the builder other than the
+   // escape sequences, which are fixed at construction, so they need no
+   // locking; only the methods that use the connection are synchronized.
+   
+   public String conc_cond(String conds, String new_cond)
    {
 	   return conc_cond(conds, new_cond, "AND");	   
    }
    
-   public synchronized String conc_cond(String conds, String new_cond, String op)
+   public String conc_cond(String conds, String new_cond, String op)
    {
 	   if(conds.equals(""))
 		   return new_cond;
 	   
 	   if(new_cond.equals(""))
 		   return conds;
-	   else
-		   return conds.concat(" " + op + " " + new_cond);   
+	   
+	   StringBuilder sb = new StringBuilder(conds.length() + op.length() + new_cond.length() + 2);
+	   sb.append(conds).append(' ').append(op).append(' ').append(new_cond);
+	   return sb.toString();
    }
    
-   public synchronized String conc_attributes(String[] attr)
+   public String conc_attributes(String[] attr)
    {
 	   // actually exactly the same like concatenating tables
 	   return conc_tables(attr);
    }
    
-   public synchronized String conc_attributes(ArrayList<String> attr)
+   public String conc_attributes(ArrayList<String> attr)
    {
 	   // actually exactly the same like concatenating tables
 	   return conc_tables(attr);
@@ -111,90 +330,138 @@ public class SQL_StatementBuilder {
    
    // returns a concatenated string with all values quotes 
    // useful for insert statements
-   synchronized public String conc_values(String... vals)
+   public String conc_values(String... vals)
    {
-	   String res = quote_string(vals[0]);
-	   
-	   for(int i=1; i < vals.length; i++)
-		   res = res.concat(", "+quote_string(vals[i]));
-	   return res;
+	   StringBuilder sb = new StringBuilder();
+	   for(int i=0; i < vals.length; i++)
+	   {
+		   if(i > 0)
+			   sb.append(", ");
+		   append_string(sb, vals[i]);
+	   }
+	   return sb.toString();
    }
    
-   synchronized public String conc_values(ArrayList<String> vals)
+   public String conc_values(ArrayList<String> vals)
    {
-	   
-	   String res;
-	   if(vals.size() == 0)
-	   {
-		   res = "";
-	   }
-	   else
+	   StringBuilder sb = new StringBuilder();
+	   for(int i=0; i < vals.size(); i++)
 	   {
-		   res = quote_string(vals.get(0));
+		   if(i > 0)
+			   sb.append(", ");
+		   append_string(sb, vals.get(i));
 	   }
-	   
-	   
-	   for(int i=1; i < vals.size(); i++)
-		   res = res.concat(", "+quote_string(vals.get(i)));
-	   return res;	    
+	   return sb.toString();
    }
    
    
-   public synchronized String conc_ids(ArrayList<Integer> ids)
+   public String conc_ids(Collection<Integer> ids)
    {
-	   String res;
-	   if(ids.size() == 0)
-	   {
-		   res = "null";
-	   }
-	   else
-	   {
-		   res = Integer.toString(ids.get(0));
-	   }
-	   
-	   
-	   for(int i=1; i < ids.size(); i++)
-		   res = res.concat(", "+Integer.toString(ids.get(i)));
-	   return res;	  
+	   return append_ids(new StringBuilder(ids.size() * ID_LENGTH_ESTIMATE), ids).toString();
    }   
    
    
-   public synchronized String conc_ids(int... ids)
+   public String conc_ids(int... ids)
    {
-	   String res = Integer.toString(ids[0]);
-	   //System.out.println("deprecated conc_ids call");
+	   ArrayList<Integer> list = new ArrayList<Integer>(ids.length);
+	   for(int id : ids)
+		   list.add(id);
+	   return conc_ids(list);
+   }
+   
+   
+   public String conc_ids(Integer[] ids)
+   {
+	   return conc_ids(Arrays.asList(ids));
+   }
+   
+   
+   // appends the comma-separated ids to a statement under construction, so that
+   // long lists are not first built as a string of their own; an empty list
+   // is written as "null" so that "in (...)" stays valid and matches nothing
+   public StringBuilder append_ids(StringBuilder sb, Collection<Integer> ids)
+   {
+	   if(ids.size() == 0)
+		   return sb.append("null");
 	   
-	   for(int i=1; i < ids.length; i++)
-		   res = res.concat(", "+Integer.toString(ids[i]));
-	   return res;	   
+	   boolean first = true;
+	   for(Integer id : ids)
+	   {
+		   if(!first)
+			   sb.append(", ");
+		   sb.append(id.intValue());
+		   first = false;
+	   }
+	   return sb;
    }
    
    
-   public synchronized String conc_ids(Integer[] ids)
+   // condition selecting the rows whose column is one of the given ids; runs of
+   // consecutive ids become range predicates instead of literal lists
+   public String conc_id_cond(String column, Collection<Integer> ids)
    {
-	   String res = Integer.toString(ids[0]);
+	   if(ids.size() == 0)
+		   return column + " in (null)";
+		   
+	   TreeSet<Integer> sorted = new TreeSet<Integer>(ids);
+	   StringBuilder ranges = new StringBuilder();
+	   ArrayList<Integer> singles = new ArrayList<Integer>();
+	   
+	   Iterator<Integer> iter = sorted.iterator();
+	   int start = iter.next();
+	   int end = start;
+	   while(true)
+	   {
+		   Integer next = iter.hasNext()? iter.next() : null;
+		   if(next != null && next == end + 1)
+		   {
+			   end = next;
+			   continue;
+		   }
+		   
+		   if(end - start + 1 >= MIN_ID_RANGE)
+		   {
+			   if(ranges.length() > 0)
+				   ranges.append(" or ");
+			   ranges.append(column).append(" between ").append(start).append(" and ").append(end);
+		   }
+		   else
+		   {
+			   for(int id = start; id <= end; id++)
+				   singles.add(id);
+		   }
+		   
+		   if(next == null)
+			   break;
+		   start = end = next;
+	   }
 	   
-	   for(int i=1; i < ids.length; i++)
-		   res = res.concat(", "+Integer.toString(ids[i]));
-	   return res;	   
+	   if(singles.size() > 0)
+	   {
+		   if(ranges.length() > 0)
+			   ranges.append(" or ");
+		   ranges.append(column).append(" in (");
+		   append_ids(ranges, singles).append(')');
+	   }
+	   
+	   return ranges.insert(0, '(').append(')').toString();
    }
    
    // join the two strings with a comma separation, but only if first string is not empty
-   public synchronized String comma_conc_strings(String str1, String str2)
+   public String comma_conc_strings(String str1, String str2)
    {
 		if(str1.length() > 0)
-			str1+=", ";
-		str1+=str2;
+			return str1 + ", " + str2;
 		
-		return str1;
+		return str2;
    }
    
-   public synchronized String quote_identifier(String id)
+   public String quote_identifier(String id)
    {
 	   return "`" + id + "`";
    }
    
-   public synchronized String quote_value(Object value) throws SQLException
+   public String quote_value(Object value) throws SQLException
    {
 	   if (value == null) {
 		   return "null";
@@ -215,9 +482,9 @@ public class SQL_StatementBuilder {
 	   }   
    }
    
-   public synchronized String quote_array(Object[] values) throws SQLException
+   public String quote_array(Object[] values) throws SQLException
    {
-	   StringBuffer sbuf = new StringBuffer();
+	   StringBuilder sbuf = new StringBuilder();
 	   sbuf.append("(");
 	   for (Object value : values) {
 		   if (sbuf.length() > 1) {
@@ -230,9 +497,9 @@ public class SQL_StatementBuilder {
 	   return sbuf.toString();
    }
    
-   public synchronized String quote_list(List<?> values) throws SQLException
+   public String quote_list(List<?> values) throws SQLException
    {
-	   StringBuffer sbuf = new StringBuffer();
+	   StringBuilder sbuf = new StringBuilder();
 	   sbuf.append("(");
 	   for (Object value : values) {
 		   if (sbuf.length() > 1) {
@@ -245,23 +512,11 @@ public class SQL_StatementBuilder {
 	   return sbuf.toString();
    }   
    
-   public synchronized String quote_string(String in)
+   public String quote_string(String in)
    {
 	   if (in != null) {
 		   
-		   StringBuffer sbuf = new StringBuffer();
-		   sbuf.append("'");
-		   for (int i = 0; i < in.length(); i++) {
-			   Character c = in.charAt(i);
-			   if (escapeSequences.containsKey(c)) {
-				   sbuf.append(escapeSequences.get(c));
-			   } else {
-				   sbuf.append(c);
-			   }
-		   }
-		   sbuf.append("'");
-	   
-		   return sbuf.toString();
+		   return append_string(new StringBuilder(in.length() + 2), in).toString();
 		   
 	   } else {
 		   
@@ -270,15 +525,37 @@ public class SQL_StatementBuilder {
 	   }
    }
    
-   public synchronized String conc_attr_and_vals(String table, String[] attr_and_vals) throws SQLException
+   // appends the quoted and escaped string to a statement under construction
+   public StringBuilder append_string(StringBuilder sbuf, String in)
+   {
+	   if (in == null) {
+		   return sbuf.append("null");
+	   }
+	   
+	   sbuf.append('\'');
+	   for (int i = 0; i < in.length(); i++) {
+		   char c = in.charAt(i);
+		   String escape = escapeSequences.get(c);
+		   if (escape != null) {
+			   sbuf.append(escape);
+		   } else {
+			   sbuf.append(c);
+		   }
+	   }
+	   sbuf.append('\'');
+	   
+	   return sbuf;
+   }
+   
+   public String conc_attr_and_vals(String table, String[] attr_and_vals) throws SQLException
    {
-	   String str = "";
+	   StringBuilder str = new StringBuilder();
 	   String val;
 	   
 	   for(int i = 0; i < attr_and_vals.length;i++)
 	   {
-		   if(str != "")
-			   str = str + ", ";
+		   if(str.length() > 0)
+			   str.append(", ");
 		   
 		   // check if this field is a foreign_key
 		   // if so, no single quotes are needed
@@ -301,47 +578,47 @@ public class SQL_StatementBuilder {
 			   val = quote_string(attr_and_vals[i+1]);
 		   }
 		   
-		   str = str + attr_and_vals[i++] + " = " + val;
+		   str.append(attr_and_vals[i++]).append(" = ").append(val);
 	   }
 	   
-	   return str;
+	   return str.toString();
    }
    
-   public synchronized String conc_tables(String[] tables)
+   public String conc_tables(String[] tables)
    {
-	   String res = tables[0];
+	   StringBuilder sb = new StringBuilder(tables[0]);
 	   
 	   for(int i=1; i < tables.length; i++)
-		   res = res.concat(", "+tables[i]);
-	   return res;
+		   sb.append(", ").append(tables[i]);
+	   return sb.toString();
    }
    
    
-   public synchronized String conc_tables(ArrayList<String> tables)
+   public String conc_tables(ArrayList<String> tables)
    {
-	   String res = tables.get(0);
+	   StringBuilder sb = new StringBuilder(tables.get(0));
 	   
 	   for(int i=1; i < tables.size(); i++)
-		   res = res.concat(", "+tables.get(i));
-	   return res;
+		   sb.append(", ").append(tables.get(i));
+	   return sb.toString();
    }   
    
-   public synchronized String conc_cols(ArrayList<String> cols)
+   public String conc_cols(ArrayList<String> cols)
    {
 	   return conc_cols(cols.toArray(new String[cols.size()]));
    }
    
-   public synchronized String conc_cols(String cols[])
+   public String conc_cols(String cols[])
    {
-	   String res;
-	   if(cols.length == 0)
-		   res = "";
-	   else
-		   res = cols[0];	   
+	   StringBuilder sb = new StringBuilder();
 	   
-	   for(int i=1; i < cols.length; i++)
-		   res = res.concat(", "+cols[i]);
-	   return res;	  
+	   for(int i=0; i < cols.length; i++)
+	   {
+		   if(i > 0)
+			   sb.append(", ");
+		   sb.append(cols[i]);
+	   }
+	   return sb.toString();	  
    }   
    
    
@@ -530,12 +807,12 @@ public class SQL_StatementBuilder {
 	   return prefix(table, get_primary_key_name(table));
    }
    
-   public synchronized String prefix(String table, String in)
+   public String prefix(String table, String in)
    {
 	   return table + "." + in;
    }
    
-   public synchronized String[] prefix(String table, String[] in)
+   public String[] prefix(String table, String[] in)
    {
 	   for(int i=0; i < in.length; i++)
 	   {
@@ -544,7 +821,7 @@ public class SQL_StatementBuilder {
 	   return in;
    }
    
-   public synchronized ArrayList<String> prefix(String table, ArrayList<String> in)
+   public ArrayList<String> prefix(String table, ArrayList<String> in)
    {
 	   for(int i=0; i < in.size(); i++)
 	   {
@@ -603,24 +880,24 @@ public class SQL_StatementBuilder {
 	   return is_numeric;
    }
    
-   public synchronized String assemble_sql_select_query(String attributes, String tables, String conditions)
+   public String assemble_sql_select_query(String attributes, String tables, String conditions)
    {
 	   return assemble_sql_query("SELECT", attributes, tables, conditions, "");	   
    }
    
-   public synchronized String assemble_sql_select_distinct_query(String attributes, String tables, String conditions)
+   public String assemble_sql_select_distinct_query(String attributes, String tables, String conditions)
    {
 	   return assemble_sql_query("SELECT DISTINCT", attributes, tables, conditions, "");
    }
    
-   public synchronized String assemble_sql_select_query(String attributes, String tables, String conditions, String options)
+   public String assemble_sql_select_query(String attributes, String tables, String conditions, String options)
    {
 	   return assemble_sql_query("SELECT", attributes, tables, conditions, options);
    }
    
-   private synchronized String assemble_sql_query(String select, String attributes, String tables, String conditions, String options)
+   private String assemble_sql_query(String select, String attributes, String tables, String conditions, String options)
    {
-	   StringBuffer query = new StringBuffer();
+	   StringBuilder query = new StringBuilder();
 	   query.append(select);
 	   query.append(" ");
 	   query.append(attributes);
@@ -638,31 +915,32 @@ public class SQL_StatementBuilder {
 	   
    }
    
-   public synchronized String assemble_sql_update_query(String attributes_and_values, String table, String conditions)
+   public String assemble_sql_update_query(String attributes_and_values, String table, String conditions)
    {
 	   return assemble_sql_update_query(attributes_and_values, table, conditions, "");	   
    }
    
-   synchronized String assemble_sql_update_query(String attributes_and_values, String table, String conditions, String options)
+   String assemble_sql_update_query(String attributes_and_values, String table, String conditions, String options)
    {
-	   String query = new String ("UPDATE " + table + " SET " + attributes_and_values);
+	   StringBuilder query = new StringBuilder();
+	   query.append("UPDATE ").append(table).append(" SET ").append(attributes_and_values);
 	   if (!conditions.equals(""))
 	   {
-		   query = query.concat(" WHERE ");
-		   query = query.concat(conditions);
+		   query.append(" WHERE ");
+		   query.append(conditions);
 	   }
 	   
-	   query = query.concat(options);
+	   query.append(options);
 
 			
-	   return query;
+	   return query.toString();
 	   
    }
    
    
    // if id is null: return {is, null}
    // if id is not null returns {id_value, =}
-   public synchronized id_and_op_struct is_null_key_get_val_and_op(Integer id)
+   public id_and_op_struct is_null_key_get_val_and_op(Integer id)
    {
 	   return new id_and_op_struct(id);
    }
@@ -680,7 +958,7 @@ public class SQL_StatementBuilder {
     * java date.
     */
 
-	public synchronized java.util.Date get_java_date(String datetime) throws SQLException
+	public java.util.Date get_java_date(String datetime) throws SQLException
 	{
 		
 		TimeZone tz = TimeZone.getTimeZone("UTC");
@@ -711,7 +989,7 @@ public class SQL_StatementBuilder {
 		}		
 	}
 	
-	public synchronized java.util.Date get_java_date_time(String datetime) throws SQLException
+	public java.util.Date get_java_date_time(String datetime) throws SQLException
 	{
 		
 		TimeZone tz = TimeZone.getTimeZone("UTC");
@@ -744,7 +1022,7 @@ public class SQL_StatementBuilder {
 	}
 	
 	
-	public synchronized java.util.Date get_java_date_time(Timestamp datetime) throws SQLException
+	public java.util.Date get_java_date_time(Timestamp datetime) throws SQLException
 	{
 		
 		TimeZone tz = TimeZone.getTimeZone("UTC");
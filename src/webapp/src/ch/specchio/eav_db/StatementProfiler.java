@@ -0,0 +1,171 @@
+package ch.specchio.eav_db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.specchio.types.CacheStatistics;
+import ch.specchio.types.StatementStatistics;
+
+
+/**
+ * Server-wide record of the use of cached prepared statements. The execution
+ * counts and times of each statement are accumulated under the statement's
+ * SQL text, along with the number of times a statement was found in, or
+ * added to, the statement cache of a request's statement builder.
+ * 
+ * Recording takes no locks, so that the threads of concurrent requests do
+ * not wait for each other. At most MAX_STATEMENTS different statements are
+ * recorded separately; any others are accumulated together.
+ */
+public class StatementProfiler {
+	
+	/** the largest number of different statements recorded separately */
+	public static final int MAX_STATEMENTS = 1000;
+	
+	/** the SQL text under which statements beyond MAX_STATEMENTS are recorded */
+	public static final String OTHER_STATEMENTS = "(other statements)";
+	
+	/** the accumulated statistics, by SQL text */
+	private static ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	
+	/** the statistics of the statements beyond MAX_STATEMENTS */
+	private static Entry other_entry = new Entry();
+	
+	/** the number of statements found in a statement cache */
+	private static AtomicLong hits = new AtomicLong();
+	
+	/** the number of statements added to a statement cache */
+	private static AtomicLong misses = new AtomicLong();
+	
+	/** the number of statements currently held in statement caches */
+	private static AtomicLong open_statements = new AtomicLong();
+	
+	
+	/**
+	 * Record a look-up in a statement cache.
+	 * 
+	 * @param hit	true if the statement was found in the cache, false if it had to be prepared
+	 */
+	public static void recordLookup(boolean hit) {
+		
+		if (hit) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			open_statements.incrementAndGet();
+		}
+		
+	}
+	
+	
+	/**
+	 * Record the closing of statements held in a statement cache.
+	 * 
+	 * @param count	the number of statements closed
+	 */
+	public static void recordClose(int count) {
+		
+		open_statements.addAndGet(-count);
+		
+	}
+	
+	
+	/**
+	 * Record an execution of a statement.
+	 * 
+	 * @param sql	the SQL text of the statement
+	 * @param nanos	the execution time in nanoseconds
+	 */
+	public static void recordExecution(String sql, long nanos) {
+		
+		Entry entry = entries.get(sql);
+		if (entry == null) {
+			if (entries.size() < MAX_STATEMENTS) {
+				// another thread may have added the same statement in the meantime
+				Entry new_entry = new Entry();
+				entry = entries.putIfAbsent(sql, new_entry);
+				if (entry == null) {
+					entry = new_entry;
+				}
+			} else {
+				entry = other_entry;
+			}
+		}
+		entry.record(nanos);
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the statement caches.
+	 * 
+	 * @return a new CacheStatistics object
+	 */
+	public static CacheStatistics getCacheStatistics() {
+		
+		return new CacheStatistics("prepared statements", hits.get(), misses.get(), 0, (int)open_statements.get(), 0, 0);
+		
+	}
+	
+	
+	/**
+	 * Get the execution statistics of every statement executed so far, in
+	 * descending order of total execution time.
+	 * 
+	 * @return a new list of StatementStatistics objects
+	 */
+	public static ArrayList<StatementStatistics> getStatementStatistics() {
+		
+		ArrayList<StatementStatistics> statistics = new ArrayList<StatementStatistics>(entries.size() + 1);
+		for (Map.Entry<String, Entry> e : entries.entrySet()) {
+			statistics.add(e.getValue().toStatistics(e.getKey()));
+		}
+		if (other_entry.executions.get() > 0) {
+			statistics.add(other_entry.toStatistics(OTHER_STATEMENTS));
+		}
+		Collections.sort(statistics, new Comparator<StatementStatistics>() {
+			public int compare(StatementStatistics a, StatementStatistics b) {
+				return Double.compare(b.getTotalTime(), a.getTotalTime());
+			}
+		});
+		
+		return statistics;
+		
+	}
+	
+	
+	/**
+	 * Accumulated statistics of a single statement. The counters are updated
+	 * without locking, so a snapshot may be taken between the updates of one
+	 * execution.
+	 */
+	private static class Entry {
+		
+		public AtomicLong executions = new AtomicLong();
+		public AtomicLong total_nanos = new AtomicLong();
+		public AtomicLong max_nanos = new AtomicLong();
+		
+		public void record(long nanos) {
+			
+			executions.incrementAndGet();
+			total_nanos.addAndGet(nanos);
+			long max = max_nanos.get();
+			while (nanos > max && !max_nanos.compareAndSet(max, nanos)) {
+				max = max_nanos.get();
+			}
+			
+		}
+		
+		public StatementStatistics toStatistics(String sql) {
+			
+			return new StatementStatistics(sql, executions.get(), total_nanos.get() / 1e6, max_nanos.get() / 1e6);
+			
+		}
+		
+	}
+	
+}
@@ -55,6 +55,20 @@ public abstract class CampaignFactory extends SPECCHIOFactory {
 	public abstract void exportCampaign(int campaign_id, OutputStream os) throws SPECCHIOFactoryException, IOException;
 	
 	
+	/**
+	 * Export a campaign to an output stream in a given format.
+	 * 
+	 * @param campaign_id	the identifier of the campaign to be exported
+	 * @param os			the output stream to export to
+	 * @param file_type		FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY or FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	 * 
+	 * @throws SPECCHIOFactoryException	no such campaign
+	 * @throws IOException				could not write to the output stream
+	 * @throws IllegalArgumentException	unsupported file type
+	 */
+	public abstract void exportCampaign(int campaign_id, OutputStream os, int file_type) throws SPECCHIOFactoryException, IOException;
+	
+	
 	/**
 	 * Get the campaign object for a given identifier.
 	 * 
@@ -131,13 +145,15 @@ public abstract class CampaignFactory extends SPECCHIOFactory {
 	/**
 	 * Import a campaign from an input stream.
 	 * 
-	 * @param userId	the identifier of the user who will own the imported campaign
-	 * @param is		the input stream
+	 * @param userId		the identifier of the user who will own the imported campaign
+	 * @param is			the input stream
+	 * @param db_user		database account user name, for any further connections the import opens
+	 * @param db_password	database account password
 	 *
 	 * @throws SPECCHIOFactoryException	the input stream is not in a recognised format
 	 * @throws IOException				the stream could not be read
 	 */
-	public abstract void importCampaign(int userId, InputStream is) throws SPECCHIOFactoryException, IOException;
+	public abstract void importCampaign(int userId, InputStream is, String db_user, String db_password) throws SPECCHIOFactoryException, IOException;
 	
 	
 	/**
@@ -4,7 +4,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import ch.specchio.constants.SensorType;
 import ch.specchio.eav_db.SQL_StatementBuilder;
@@ -30,6 +35,39 @@ public class DataCache {
 	ArrayList<BeamGeometryStruct> beam_geometries;
 	ArrayList<ReferenceBrand> reference_brands;
 	
+	// hash indexes over the lists above; these must be updated whenever an
+	// element is added to or removed from a list
+	HashMap<Integer, Institute> institutes_by_id;
+	HashMap<String, Institute> institutes_by_name;
+	HashMap<Integer, Instrument> instruments_by_id;
+	HashMap<String, ArrayList<Instrument>> instruments_by_serial_id;
+	HashMap<Integer, Sensor> sensors_by_id;
+	HashMap<String, Sensor> sensors_by_name;
+	HashMap<Integer, Sensor> sensors_by_no_of_channels;
+	HashMap<String, Sensor> sensors_by_type_number;
+	
+	// sensors keyed by number of channels and manufacturer, then sorted by the
+	// wavelength of their first band
+	HashMap<String, TreeMap<Double, ArrayList<Sensor>>> sensors_by_wvl_signature;
+	
+	// maximum difference between the wavelengths of a file and a sensor
+	private static final double NM_DIFF_THRESHOLD = 3.0;
+	
+	// the cache is shared by all request threads: look-ups hold the read lock
+	// and changes hold the write lock
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	// locks by instrument serial number and sensor, held while an unknown instrument
+	// is inserted and removed once the insert has ended
+	private final ConcurrentHashMap<String, Object> instrument_insert_locks = new ConcurrentHashMap<String, Object>();
+	
+	// number of changes made to the cache, used to detect changes made while
+	// a new copy is being loaded by reload()
+	private volatile long modifications = 0;
+	
+	// number of times reload() tries to load without locking out readers
+	private static final int MAX_RELOAD_ATTEMPTS = 3;
+	
 	
 	
 	public DataCache(SQL_StatementBuilder SQL) throws SQLException
@@ -38,6 +76,69 @@ public class DataCache {
 		load_cache();
 	}
 	
+	
+	// reloads the cache from the database and replaces the contents of this
+	// cache in one step, so that readers see either the old or the new contents
+	public void reload(SQL_StatementBuilder SQL) throws SQLException
+	{
+		// load a new copy without blocking readers, and try again if this
+		// cache was changed in the meantime
+		for (int attempt = 0; attempt < MAX_RELOAD_ATTEMPTS; attempt++)
+		{
+			long count = modifications;
+			DataCache fresh = new DataCache(SQL);
+			
+			lock.writeLock().lock();
+			try {
+				if (modifications == count)
+				{
+					replace_contents(fresh);
+					return;
+				}
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+		}
+		
+		// the cache keeps changing, so load it with the write lock held
+		lock.writeLock().lock();
+		try {
+			replace_contents(new DataCache(SQL));
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	// must be called with the write lock held
+	private void replace_contents(DataCache fresh)
+	{
+		SQL = fresh.SQL;
+		
+		institutes = fresh.institutes;
+		instruments = fresh.instruments;
+		sensors = fresh.sensors;
+		measurement_units = fresh.measurement_units;
+		goniometers = fresh.goniometers;
+		sampling_environments = fresh.sampling_environments;
+		beam_geometries = fresh.beam_geometries;
+		reference_brands = fresh.reference_brands;
+		
+		institutes_by_id = fresh.institutes_by_id;
+		institutes_by_name = fresh.institutes_by_name;
+		instruments_by_id = fresh.instruments_by_id;
+		instruments_by_serial_id = fresh.instruments_by_serial_id;
+		sensors_by_id = fresh.sensors_by_id;
+		sensors_by_name = fresh.sensors_by_name;
+		sensors_by_no_of_channels = fresh.sensors_by_no_of_channels;
+		sensors_by_type_number = fresh.sensors_by_type_number;
+		sensors_by_wvl_signature = fresh.sensors_by_wvl_signature;
+		
+		modifications++;
+	}
+	
 	private void load_cache()
 	{
 		load_institutes();
@@ -53,55 +154,67 @@ public class DataCache {
 	
 	public void add_institute(Institute institute)
 	{
-		if (get_institute_by_id(institute.getInstituteId()) == null)
-			institutes.add(institute);
+		lock.writeLock().lock();
+		try {
+			modifications++;
+			if (get_institute_by_id(institute.getInstituteId()) == null)
+			{
+				institutes.add(institute);
+				index_institute(institute);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	private void index_institute(Institute institute)
+	{
+		if (!institutes_by_id.containsKey(institute.getInstituteId()))
+			institutes_by_id.put(institute.getInstituteId(), institute);
+			
+		String name = institute.toString();
+		if (!institutes_by_name.containsKey(name))
+			institutes_by_name.put(name, institute);
 	}
 	
 	
+	// returns a copy of the list, which is safe to iterate while the cache is being changed
 	public ArrayList<Institute> get_institutes()
 	{
-		return institutes;
+		lock.readLock().lock();
+		try {
+			return new ArrayList<Institute>(institutes);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 	}
 		
 	
 	
 	public Institute get_institute_by_id(int institutes_id)
 	{
-		Institute inst = null;
-		
-		ListIterator<Institute> li = institutes.listIterator();
-		
-		boolean found = false;
-		
-		while(li.hasNext() && !found)
-		{
-			inst = li.next();
-			
-			if (inst.getInstituteId() == institutes_id) found = true;			
+		lock.readLock().lock();
+		try {
+			return institutes_by_id.get(institutes_id);		
+		}
+		finally {
+			lock.readLock().unlock();
 		}
-		
-		return (found)? inst : null;		
-		
 	}
 	
 	
 	public Institute get_institute_by_name(String institute_name)
 	{
-		Institute inst = null;
-		
-		ListIterator<Institute> li = institutes.listIterator();
-		
-		boolean found = false;
-		
-		while(li.hasNext() && !found)
-		{
-			inst = li.next();
-			
-			if (inst.toString().equals(institute_name)) found = true;			
+		lock.readLock().lock();
+		try {
+			return institutes_by_name.get(institute_name);
+		}
+		finally {
+			lock.readLock().unlock();
 		}
-		
-		return found ? inst : null;		
-		
 	}
 
 
@@ -110,6 +223,8 @@ public class DataCache {
 	private void load_institutes() {
 		
 		institutes = new ArrayList<Institute>();
+		institutes_by_id = new HashMap<Integer, Institute>();
+		institutes_by_name = new HashMap<String, Institute>();
 		
 		try {
 			
@@ -137,6 +252,7 @@ public class DataCache {
 				}
 				
 				this.institutes.add(inst);
+				index_institute(inst);
 			}
 			rs.close();
 			
@@ -160,42 +276,48 @@ public class DataCache {
 	
 	public Instrument get_instrument(int instrument_id, int calibration_id) throws SQLException
 	{	
-		Instrument instrument = null;
-		Instrument s;
-		// search 
-		ListIterator<Instrument> li = instruments.listIterator();
-
-		if(instrument_id != 0)
-		{
-			while(li.hasNext() && instrument == null)
+		lock.readLock().lock();
+		try {
+			Instrument instrument = null;
+			
+			if(instrument_id != 0)
 			{
-				s = li.next();
-				if(s.getInstrumentId() == instrument_id && s.getCalibrationId() == calibration_id)
-					instrument = s;			
+				Instrument s = instruments_by_id.get(instrument_id);
+				if(s != null && s.getCalibrationId() == calibration_id)
+					instrument = s;
 			}
+			
+			return instrument;
+		}
+		finally {
+			lock.readLock().unlock();
 		}
-				
-		return instrument;
 	}
 	
 	public Instrument get_instrument_by_serial_id(String serial_id, int sensor_id) throws SQLException
 	{
-		Instrument instrument = null;
-		Instrument s;
-		// search 
-		ListIterator<Instrument> li = instruments.listIterator();
-
-		
-			while(li.hasNext() && instrument == null)
+		lock.readLock().lock();
+		try {
+			Instrument instrument = null;
+			
+			ArrayList<Instrument> candidates = instruments_by_serial_id.get(serial_id);
+			if(candidates != null)
 			{
-				s = li.next();
-				if(s.getInstrumentNumber().get_value() != null && s.getInstrumentNumber().get_value().equals(serial_id) && s.getSensorId() == sensor_id)
-					instrument = s;			
+				for(Instrument s : candidates)
+				{
+					if(s.getSensorId() == sensor_id)
+					{
+						instrument = s;
+						break;
+					}
+				}
 			}
-
-				
-		return instrument;		
-		
+			
+			return instrument;		
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 		
 	}	
 	
@@ -203,21 +325,28 @@ public class DataCache {
 	
 	public Instrument get_instrument(String instrument_number, String company) 
 	{		
-		Instrument instrument = null;
-		Instrument s;
-		// search through instrument list
-		ListIterator<Instrument> li = instruments.listIterator();
-
-		
-			while(li.hasNext() && instrument == null)
+		lock.readLock().lock();
+		try {
+			Instrument instrument = null;
+			
+			ArrayList<Instrument> candidates = instruments_by_serial_id.get(instrument_number);
+			if(candidates != null)
 			{
-				s = li.next();
-				if(s.getInstrumentNumber().get_value() != null && s.getInstrumentNumber().get_value().equals(instrument_number) && s.getSensor().getManufacturerShortName().get_value().equals(company))
-					instrument = s;			
+				for(Instrument s : candidates)
+				{
+					if(s.getSensor() != null && company != null && company.equals(s.getSensor().getManufacturerShortName().get_value()))
+					{
+						instrument = s;
+						break;
+					}
+				}
 			}
-
-				
-		return instrument;		
+			
+			return instrument;		
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 
 	}
 	
@@ -248,7 +377,6 @@ public class DataCache {
 		Instrument instrument = null;
 		Instrument i;
 
-		ListIterator<Instrument> li = instruments.listIterator();
 		boolean wvls_match = true;
 		boolean serial_no_match = true;
 		
@@ -272,44 +400,54 @@ public class DataCache {
 			return null;
 		}
 		
-		while(li.hasNext() && instrument == null)
-		{
-			i = li.next();
+		// the read lock must be released before a new instrument can be inserted
+		lock.readLock().lock();
+		try {
+			ListIterator<Instrument> li = instruments.listIterator();
+			
+			while(li.hasNext() && instrument == null)
+			{
+				i = li.next();
 
 
-			// quick check: first and last band				
-			boolean possible_match = (d_wvls.length == i.getNoOfBands()) & (d_wvls[0] == i.getCentreWavelengths()[0]) & (d_wvls[d_wvls.length-1] == i.getCentreWavelengths()[i.getNoOfBands()-1]);
+				// quick check: first and last band				
+				boolean possible_match = (d_wvls.length == i.getNoOfBands()) & (d_wvls[0] == i.getCentreWavelengths()[0]) & (d_wvls[d_wvls.length-1] == i.getCentreWavelengths()[i.getNoOfBands()-1]);
 
-			if(possible_match) // do a full check
-			{
-				// check of the centre wavelengths match
-				int band = 0;
-				for(Double wvl : d_wvls)
+				if(possible_match) // do a full check
 				{
-					wvls_match = wvls_match & (wvl == i.getCentreWavelengths()[band++]);
+					// check of the centre wavelengths match
+					int band = 0;
+					for(Double wvl : d_wvls)
+					{
+						wvls_match = wvls_match & (wvl == i.getCentreWavelengths()[band++]);
 
-					if (wvls_match == false) break;
-				}				
-			}
-			
-			if(possible_match && spec_file.getInstrumentNumber() != null &&
-					!spec_file.getInstrumentNumber().equals("")) // check the serial number
-			{
-				if(spec_file.getInstrumentNumber().equals(i.getInstrumentNumber())) 
-				{
-					serial_no_match = true;
+						if (wvls_match == false) break;
+					}				
 				}
-				else
+				
+				if(possible_match && spec_file.getInstrumentNumber() != null &&
+						!spec_file.getInstrumentNumber().equals("")) // check the serial number
 				{
-					serial_no_match = false;
+					if(spec_file.getInstrumentNumber().equals(i.getInstrumentNumber())) 
+					{
+						serial_no_match = true;
+					}
+					else
+					{
+						serial_no_match = false;
+					}
 				}
-			}
 
-			if(possible_match && wvls_match && serial_no_match) instrument = i;
+				if(possible_match && wvls_match && serial_no_match) instrument = i;
 
 
+			}
+		}
+		finally {
+			lock.readLock().unlock();
 		}
 
+		
 		// insert as new instrument only if we have an instrument number
 		if(instrument == null && spec_file.getInstrumentNumber() != null)
 		{
@@ -319,26 +457,7 @@ public class DataCache {
 
 				if(sensor_id != 0)
 				{					
-
-					// connect to DB as admin to insert a new instrument
-
-					InstrumentationFactory factory = new InstrumentationFactory();
-
-					Instrument instr = new Instrument();
-
-					Sensor s = this.get_sensor(sensor_id);
-
-					instr.setInstrumentName(s.getName().get_value() + " #" + spec_file.getInstrumentNumber() + " instrument");
-					instr.setSensorId(sensor_id);
-					instr.setInstrumentNumber(spec_file.getInstrumentNumber());
-					instr.setSensor(s);
-					instr.setAverageWavelengths(d_wvls);
-
-					factory.insertInstrument(instr);
-					factory.updateInstrument(instr);
-					factory.dispose();
-					
-					instrument = get_instrument_by_serial_id(spec_file.getInstrumentNumber(), sensor_id);
+					instrument = insert_instrument(spec_file.getInstrumentNumber(), sensor_id, d_wvls);
 				}
 
 
@@ -358,26 +477,144 @@ public class DataCache {
 	}
 	
 	
+	// inserts a new instrument for a serial number and sensor; uploads of the same
+	// instrument are serialised so that only the first one inserts it, and the
+	// others find it in the cache
+	private Instrument insert_instrument(String serial_id, int sensor_id, double[] d_wvls) throws SQLException, SPECCHIOFactoryException
+	{
+		String key = serial_id + "/" + sensor_id;
+		while (true)
+		{
+			Object new_lock = new Object();
+			Object key_lock = instrument_insert_locks.putIfAbsent(key, new_lock);
+			if (key_lock == null)
+				key_lock = new_lock;
+				
+			synchronized (key_lock)
+			{
+				// the lock is removed once its insert has ended, so a thread that
+				// waited for a removed lock must take the current one instead
+				if (instrument_insert_locks.get(key) != key_lock)
+					continue;
+					
+				try {
+					// a concurrent upload may have inserted the instrument while we were waiting
+					Instrument instrument = get_instrument_by_serial_id(serial_id, sensor_id);
+					if (instrument != null)
+						return instrument;
+						
+					// connect to DB as admin to insert a new instrument
+					InstrumentationFactory factory = new InstrumentationFactory();
+					try {
+						Instrument instr = new Instrument();
+						
+						Sensor s = this.get_sensor(sensor_id);
+						
+						instr.setInstrumentName(s.getName().get_value() + " #" + serial_id + " instrument");
+						instr.setSensorId(sensor_id);
+						instr.setInstrumentNumber(serial_id);
+						instr.setSensor(s);
+						instr.setAverageWavelengths(d_wvls);
+						
+						factory.insertInstrument(instr);
+						factory.updateInstrument(instr);
+						
+						// publish the instrument before the next upload of it can look for it
+						add_instrument(instr);
+						
+						return instr;
+					}
+					finally {
+						factory.dispose();
+					}
+				}
+				finally {
+					instrument_insert_locks.remove(key, key_lock);
+				}
+			}
+		}
+	}
+	
+	
 	public void add_instrument(Instrument instr) throws SQLException
 	{
-		if (get_instrument(instr.getInstrumentId()) == null)
-			instruments.add(instr);
+		lock.writeLock().lock();
+		try {
+			modifications++;
+			if (get_instrument(instr.getInstrumentId()) == null)
+			{
+				instruments.add(instr);
+				index_instrument(instr);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 	
 	public void delete_instrument(int instrument_id) throws SQLException {
 		
-		ListIterator<Instrument> iter = instruments.listIterator();
-		while (iter.hasNext()) {
-			if (iter.next().getInstrumentId() == instrument_id) {
-				iter.remove();
+		lock.writeLock().lock();
+		try {
+			modifications++;
+			ListIterator<Instrument> iter = instruments.listIterator();
+			while (iter.hasNext()) {
+				Instrument instr = iter.next();
+				if (instr.getInstrumentId() == instrument_id) {
+					iter.remove();
+					unindex_instrument(instr);
+				}
 			}
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 		
 	}
+	
+	
+	private void index_instrument(Instrument instr)
+	{
+		if (!instruments_by_id.containsKey(instr.getInstrumentId()))
+			instruments_by_id.put(instr.getInstrumentId(), instr);
+			
+		String serial_id = instr.getInstrumentNumber().get_value();
+		if (serial_id != null)
+		{
+			ArrayList<Instrument> candidates = instruments_by_serial_id.get(serial_id);
+			if (candidates == null)
+			{
+				candidates = new ArrayList<Instrument>(1);
+				instruments_by_serial_id.put(serial_id, candidates);
+			}
+			candidates.add(instr);
+		}
+	}
+	
+	
+	private void unindex_instrument(Instrument instr)
+	{
+		if (instruments_by_id.get(instr.getInstrumentId()) == instr)
+			instruments_by_id.remove(instr.getInstrumentId());
+			
+		String serial_id = instr.getInstrumentNumber().get_value();
+		if (serial_id != null)
+		{
+			ArrayList<Instrument> candidates = instruments_by_serial_id.get(serial_id);
+			if (candidates != null)
+			{
+				candidates.remove(instr);
+				if (candidates.isEmpty())
+					instruments_by_serial_id.remove(serial_id);
+			}
+		}
+	}
 
 	private void load_instruments() {
 		
 		instruments = new ArrayList<Instrument>();
+		instruments_by_id = new HashMap<Integer, Instrument>();
+		instruments_by_serial_id = new HashMap<String, ArrayList<Instrument>>();
 		
 		try {
 			
@@ -405,6 +642,7 @@ public class DataCache {
 				
 				Instrument instr = load_instrument(instrument_id, name, institute_id, instr_no, sensor_id);
 				this.instruments.add(instr);
+				index_instrument(instr);
 				
 			}
 			rs.close();		
@@ -442,88 +680,100 @@ public class DataCache {
 	}
 	
 	
+	// returns a copy of the list, which is safe to iterate while the cache is being changed
 	public ArrayList<Sensor> get_sensors()
 	{	
-		return this.sensors;
+		lock.readLock().lock();
+		try {
+			return new ArrayList<Sensor>(this.sensors);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 	}
 	
 	public Sensor get_sensor(int sensor_id)
 	{	
-		Sensor sensor = null;
-		Sensor s;
-		
-		if(sensor_id != 0)
-		{
-		
-			// search through sensor list
-			ListIterator<Sensor> li = sensors.listIterator();
-
-			while(li.hasNext() && sensor == null)
-			{
-				s = li.next();
-				if(s.getSensorId() == sensor_id)
-					sensor = s;			
-			}
+		lock.readLock().lock();
+		try {
+			return (sensor_id != 0)? sensors_by_id.get(sensor_id) : null;
+		}
+		finally {
+			lock.readLock().unlock();
 		}
-				
-		return sensor;
 	}
 	
 	
 	public Sensor get_sensor_by_name(String sensor_name)
 	{	
-		Sensor sensor = null;
-		Sensor s;
-		
-		if(sensor_name != null)
-		{
-		
-			// search through sensor list
-			ListIterator<Sensor> li = sensors.listIterator();
-
-			while(li.hasNext() && sensor == null)
-			{
-				s = li.next();
-				if(s.getName().value.equals(sensor_name))
-					sensor = s;			
-			}
+		lock.readLock().lock();
+		try {
+			return (sensor_name != null)? sensors_by_name.get(sensor_name) : null;
+		}
+		finally {
+			lock.readLock().unlock();
 		}
-				
-		return sensor;
 	}	
 	
 	
+	// returns a sensor of the given manufacturer whose band centres all lie within
+	// the threshold of the given wavelengths; null wavelengths are not checked
 	public Sensor get_sensor(Float[] wvls, String company)
 	{
-		float nm_diff_threshold = 3.0f;
-		Sensor sensor = null;
-		Sensor s;
-		boolean wvls_match = true;
-			// search through sensor list
-			ListIterator<Sensor> li = sensors.listIterator();
+		lock.readLock().lock();
+		try {
+			Sensor sensor = null;
 			
-			while(li.hasNext() && sensor == null)
+			TreeMap<Double, ArrayList<Sensor>> candidates = sensors_by_wvl_signature.get(get_wvl_signature_key(wvls.length, company));
+			if(candidates != null)
 			{
-				s = li.next();
-				if(s.getNumberOfChannels().value == wvls.length && s.getManufacturerShortName().get_value().equals(company))
-				{
-					// check of the centre wavelengths match
-//					int band = 0;
-//					for(Float wvl : wvls)
-//					{
-//						wvls_match = wvls_match & ((wvl - s.getAverageWavelengths()[band++]) < nm_diff_threshold);
-//						
-//						if (wvls_match == false) break;
-//					}
+				// quick check: only sensors whose first band is close enough need a full check
+				Map<Double, ArrayList<Sensor>> range = candidates;
+				if(wvls.length > 0 && wvls[0] != null)
+					range = candidates.subMap(wvls[0] - NM_DIFF_THRESHOLD, false, wvls[0] + NM_DIFF_THRESHOLD, false);
 					
-					// quick check: first and last band					
-					wvls_match = (wvls[0] - s.getAverageWavelengths()[0]) < nm_diff_threshold & (wvls[wvls.length-1] - s.getAverageWavelengths()[s.getNumberOfChannels().get_value()-1]) < nm_diff_threshold;
+				for(ArrayList<Sensor> list : range.values())
+				{
+					for(Sensor s : list)
+					{
+						if(wvls_match(wvls, s.getAverageWavelengths()))
+						{
+							sensor = s;
+							break;
+						}
+					}
 					
-					if(wvls_match) sensor = s;		
+					if(sensor != null) break;
 				}
 			}
-				
-		return sensor;		
+			
+			return sensor;		
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	
+	private boolean wvls_match(Float[] wvls, double[] sensor_wvls)
+	{
+		if(sensor_wvls == null || sensor_wvls.length != wvls.length)
+			return false;
+			
+		// check all of the centre wavelengths
+		for(int band = 0; band < wvls.length; band++)
+		{
+			if(wvls[band] != null && Math.abs(wvls[band] - sensor_wvls[band]) >= NM_DIFF_THRESHOLD)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	
+	private String get_wvl_signature_key(int no_of_channels, String company)
+	{
+		return Integer.toString(no_of_channels) + ":" + company;
 	}
 	
 	
@@ -531,40 +781,25 @@ public class DataCache {
 	// should also check if the wvls are matching!
 	public Sensor get_sensor(Float[] wvls)
 	{
-		Sensor sensor = null;
-		Sensor s;
-			// search through sensor list
-			ListIterator<Sensor> li = sensors.listIterator();
-
-			while(li.hasNext() && sensor == null)
-			{
-				s = li.next();
-				int no_of_sensor_bands = s.getNumberOfChannels().value;
-				if(no_of_sensor_bands == wvls.length)
-					sensor = s;			
-			}
-				
-		return sensor;		
+		lock.readLock().lock();
+		try {
+			return sensors_by_no_of_channels.get(wvls.length);		
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 	}
 	
 	
 	public Sensor get_sensor(String company, int instrument_type_number)
 	{
-		Sensor sensor = null;
-		Sensor s;
-		
-		// search through sensor list
-		ListIterator<Sensor> li = sensors.listIterator();
-
-		while(li.hasNext() && sensor == null)
-		{
-			s = li.next();
-			if(s.getManufacturerShortName().get_value().equals(company) && s.getSensorTypeNumber() == instrument_type_number)
-				sensor = s;			
+		lock.readLock().lock();
+		try {
+			return sensors_by_type_number.get(company + ":" + Integer.toString(instrument_type_number));		
+		}
+		finally {
+			lock.readLock().unlock();
 		}
-
-		return sensor;		
-
 	}
 	
 	// returns the sensor_id based on information read from the input file
@@ -627,16 +862,69 @@ public class DataCache {
 	
 	public void add_sensor(Sensor s) {
 		
-		if (get_sensor(s.getSensorId()) == null) {
-			this.sensors.add(s);
+		lock.writeLock().lock();
+		try {
+			modifications++;
+			if (get_sensor(s.getSensorId()) == null) {
+				this.sensors.add(s);
+				index_sensor(s);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
 		}
 		
 	}
 	
 	
+	private void index_sensor(Sensor s) {
+		
+		if (!sensors_by_id.containsKey(s.getSensorId())) {
+			sensors_by_id.put(s.getSensorId(), s);
+		}
+		
+		String name = s.getName().get_value();
+		if (name != null && !sensors_by_name.containsKey(name)) {
+			sensors_by_name.put(name, s);
+		}
+		
+		int no_of_channels = s.getNumberOfChannels().get_value();
+		if (!sensors_by_no_of_channels.containsKey(no_of_channels)) {
+			sensors_by_no_of_channels.put(no_of_channels, s);
+		}
+		
+		String company = s.getManufacturerShortName().get_value();
+		String type_key = company + ":" + Integer.toString(s.getSensorTypeNumber());
+		if (!sensors_by_type_number.containsKey(type_key)) {
+			sensors_by_type_number.put(type_key, s);
+		}
+		
+		String signature_key = get_wvl_signature_key(no_of_channels, company);
+		TreeMap<Double, ArrayList<Sensor>> signatures = sensors_by_wvl_signature.get(signature_key);
+		if (signatures == null) {
+			signatures = new TreeMap<Double, ArrayList<Sensor>>();
+			sensors_by_wvl_signature.put(signature_key, signatures);
+		}
+		double[] wvls = s.getAverageWavelengths();
+		Double first_wvl = (wvls != null && wvls.length > 0)? wvls[0] : 0.0;
+		ArrayList<Sensor> list = signatures.get(first_wvl);
+		if (list == null) {
+			list = new ArrayList<Sensor>(1);
+			signatures.put(first_wvl, list);
+		}
+		list.add(s);
+		
+	}
+	
+	
 	private void load_sensors() {
 		
 		sensors = new ArrayList<Sensor>();
+		sensors_by_id = new HashMap<Integer, Sensor>();
+		sensors_by_name = new HashMap<String, Sensor>();
+		sensors_by_no_of_channels = new HashMap<Integer, Sensor>();
+		sensors_by_type_number = new HashMap<String, Sensor>();
+		sensors_by_wvl_signature = new HashMap<String, TreeMap<Double, ArrayList<Sensor>>>();
 		
 		try {
 			
@@ -666,6 +954,7 @@ public class DataCache {
 				
 				Sensor sensor = load_sensor(sensor_id, name, no_of_channels, description, manufacturer_id, sensor_type_no);
 				this.sensors.add(sensor);
+				index_sensor(sensor);
 				
 			}
 			rs.close();
@@ -770,18 +1059,24 @@ public class DataCache {
 	
 	public MeasurementUnit get_measurement_unit(int ASD_coding)
 	{	
-		MeasurementUnit s = null;
-			// search through sensor list
-			ListIterator<MeasurementUnit> li = measurement_units.listIterator();
+		lock.readLock().lock();
+		try {
+			MeasurementUnit s = null;
+				// search through sensor list
+				ListIterator<MeasurementUnit> li = measurement_units.listIterator();
 
-			while(li.hasNext())
-			{
-				s = li.next();
-				if(s.getUnitNumber() == ASD_coding)
-					break;			
-			}
-		
-		return s;
+				while(li.hasNext())
+				{
+					s = li.next();
+					if(s.getUnitNumber() == ASD_coding)
+						break;			
+				}
+				
+			return s;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	public Integer get_measurement_unit_id_for_file(SpectralFile spec_file, int index) throws SQLException {
@@ -843,19 +1138,25 @@ public class DataCache {
 	
 	public int get_goniometer_id(String name)
 	{
-		GoniometerStruct o = null;
-			// search through sensor list
-			ListIterator<GoniometerStruct> li = goniometers.listIterator();
+		lock.readLock().lock();
+		try {
+			GoniometerStruct o = null;
+				// search through sensor list
+				ListIterator<GoniometerStruct> li = goniometers.listIterator();
 
-			while(li.hasNext())
-			{
-				o = li.next();
-				if(o.name.equals(name))
-					break;			
-			}
-			
+				while(li.hasNext())
+				{
+					o = li.next();
+					if(o.name.equals(name))
+						break;			
+				}
 				
-		return o.goniometer_id;				
+				
+			return o.goniometer_id;				
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 		
 	}	
 	
@@ -898,19 +1199,25 @@ public class DataCache {
 	
 	public int get_sampling_environment_id(String name)
 	{
-		SamplingEnvironmentStruct o = null;
-			// search through sensor list
-			ListIterator<SamplingEnvironmentStruct> li = sampling_environments.listIterator();
+		lock.readLock().lock();
+		try {
+			SamplingEnvironmentStruct o = null;
+				// search through sensor list
+				ListIterator<SamplingEnvironmentStruct> li = sampling_environments.listIterator();
 
-			while(li.hasNext())
-			{
-				o = li.next();
-				if(o.name.equals(name))
-					break;			
-			}
-			
+				while(li.hasNext())
+				{
+					o = li.next();
+					if(o.name.equals(name))
+						break;			
+				}
 				
-		return o.sampling_environment_id;				
+				
+			return o.sampling_environment_id;				
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 		
 	}	
 	
@@ -952,21 +1259,27 @@ public class DataCache {
 	
 	public int get_measurement_type_id(String beam_geometry)
 	{
-		if (beam_geometry.equals("0")) return 0;
-		
-		BeamGeometryStruct s = null;
-			// search through sensor list
-			ListIterator<BeamGeometryStruct> li = beam_geometries.listIterator();
-
-			while(li.hasNext())
-			{
-				s = li.next();
-				if(s.name.contains(beam_geometry))
-					break;			
-			}
+		lock.readLock().lock();
+		try {
+			if (beam_geometry.equals("0")) return 0;
 			
+			BeamGeometryStruct s = null;
+				// search through sensor list
+				ListIterator<BeamGeometryStruct> li = beam_geometries.listIterator();
+				
+				while(li.hasNext())
+				{
+					s = li.next();
+					if(s.name.contains(beam_geometry))
+						break;			
+				}
+				
 				
-		return s.measurement_type_id;				
+			return s.measurement_type_id;				
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 		
 	}
 	
@@ -1008,20 +1321,26 @@ public class DataCache {
 	
 	public ReferenceBrand get_reference_brand_by_name(String reference_brand_name)
 	{
-		ReferenceBrand brand = null;
-		
-		ListIterator<ReferenceBrand> li = reference_brands.listIterator();
-		
-		boolean found = false;
-		
-		while(li.hasNext() && !found)
-		{
-			brand = li.next();
+		lock.readLock().lock();
+		try {
+			ReferenceBrand brand = null;
+			
+			ListIterator<ReferenceBrand> li = reference_brands.listIterator();
+			
+			boolean found = false;
 			
-			if (brand.toString().equals(reference_brand_name)) found = true;			
+			while(li.hasNext() && !found)
+			{
+				brand = li.next();
+				
+				if (brand.toString().equals(reference_brand_name)) found = true;			
+			}
+			
+			return brand;		
+		}
+		finally {
+			lock.readLock().unlock();
 		}
-		
-		return brand;		
 		
 	}
 	
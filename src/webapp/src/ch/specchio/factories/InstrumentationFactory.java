@@ -78,6 +78,9 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 			String query = "delete from calibration where calibration_id = " + Integer.toString(calibration_id);
 			stmt.executeUpdate(query);
 			stmt.close();
+			
+			// the calibration may be read by the conditions of cached queries
+			getQueryCache().invalidateAll();
 		} catch (SQLException ex) {
 			// database error
 			throw new SPECCHIOFactoryException(ex);
@@ -110,8 +113,9 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 			// clean up
 			stmt.close();
 			
-			// delete the instrument from the cache
+			// delete the instrument from the caches
 			getDataCache().delete_instrument(instrument_id);
+			getQueryCache().invalidateAll();
 		}
 		catch (SQLException ex) {
 			// bad SQL
@@ -177,6 +181,8 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 			query = "delete from reference where reference_id = " + Integer.toString(reference_id);
 			stmt.executeUpdate(query);
 			stmt.close();
+			
+			getQueryCache().invalidateAll();
 		}
 		catch (SQLException ex) {
 			// bad SQL
@@ -657,6 +663,8 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 					"values (" + Integer.toString(cal.getReferenceId()) + "," + cal_factor.id + "," + cal_uncert.id + ")";
 			stmt.executeUpdate(query);
 			
+			getQueryCache().invalidateAll();
+			
 		}
 		catch (SQLException ex) {
 			// database error
@@ -1059,6 +1067,7 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 			 s.setAverageWavelengths(wavelengths);
 			 s.setElementTypes(sensor_element_types);
 			 getDataCache().add_sensor(s);
+			 getQueryCache().invalidateAll();
 			 
 		}
 		catch (SQLException ex) {
@@ -1106,6 +1115,8 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 			
 			// clean up
 			stmt.close();
+			
+			getQueryCache().invalidateAll();
 		}
 		catch (SQLException ex) {
 			// database error
@@ -1167,6 +1178,8 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 				);
 			stmt.executeUpdate(query);
 			stmt.close();
+			
+			getQueryCache().invalidateAll();
 		}
 		catch (SQLException ex) {
 			throw new SPECCHIOFactoryException(ex);
@@ -1252,6 +1265,8 @@ public class InstrumentationFactory extends SPECCHIOFactory {
 				);
 			stmt.executeUpdate(query);
 			stmt.close();
+			
+			getQueryCache().invalidateAll();
 		}
 		catch (SQLException ex) {
 			throw new SPECCHIOFactoryException(ex);
@@ -0,0 +1,218 @@
+package ch.specchio.factories;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ch.specchio.types.CacheStatistics;
+
+
+/**
+ * Bounded least-recently-used cache of decoded measurement vectors, keyed by
+ * spectrum identifier. The size of the cache is limited by the estimated
+ * number of bytes used by the cached vectors rather than by the number of
+ * entries, so that the cache can be sized against the available heap.
+ * 
+ * The capacity in megabytes can be set with the system property
+ * "specchio.measurement_cache_size"; a capacity of zero disables the cache.
+ * 
+ * Cached vectors are shared between requests and must not be modified.
+ */
+public class MeasurementCache {
+	
+	/** the name of the system property that sets the capacity in megabytes */
+	public static final String CAPACITY_PROPERTY = "specchio.measurement_cache_size";
+	
+	/** the default capacity in megabytes */
+	public static final long DEFAULT_CAPACITY_MB = 64;
+	
+	/** estimated overhead of an entry in bytes (map entry, key and array header) */
+	private static final long ENTRY_OVERHEAD = 80;
+	
+	/** the cached vectors, in access order */
+	private LinkedHashMap<Integer, float[]> vectors;
+	
+	/** the maximum size of the cache in bytes */
+	private long capacity;
+	
+	/** the estimated size of the cache in bytes */
+	private long size = 0;
+	
+	/** the number of successful look-ups */
+	private long hits = 0;
+	
+	/** the number of unsuccessful look-ups */
+	private long misses = 0;
+	
+	/** the number of evicted entries */
+	private long evictions = 0;
+	
+	
+	/**
+	 * Construct a cache with the capacity given by the system property, or the
+	 * default capacity if the property is not set.
+	 */
+	public MeasurementCache() {
+		
+		this(getConfiguredCapacity());
+		
+	}
+	
+	
+	/**
+	 * Construct a cache with a given capacity.
+	 * 
+	 * @param capacity	the maximum size of the cache in bytes
+	 */
+	public MeasurementCache(long capacity) {
+		
+		this.vectors = new LinkedHashMap<Integer, float[]>(16, 0.75f, true);
+		this.capacity = capacity;
+		
+	}
+	
+	
+	/**
+	 * Remove all vectors from the cache. The statistics are not reset.
+	 */
+	public synchronized void clear() {
+		
+		vectors.clear();
+		size = 0;
+		
+	}
+	
+	
+	/**
+	 * Look up a vector.
+	 * 
+	 * @param spectrum_id	the spectrum identifier
+	 * 
+	 * @return the cached vector, or null if the spectrum is not in the cache
+	 */
+	public synchronized float[] get(int spectrum_id) {
+		
+		float[] vector = vectors.get(spectrum_id);
+		if (vector != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		
+		return vector;
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the cache.
+	 * 
+	 * @return a new CacheStatistics object
+	 */
+	public synchronized CacheStatistics getStatistics() {
+		
+		return new CacheStatistics("measurement vectors", hits, misses, evictions, vectors.size(), size, capacity);
+		
+	}
+	
+	
+	/**
+	 * Add a vector to the cache, evicting the least recently used vectors if
+	 * the cache would otherwise exceed its capacity.
+	 * 
+	 * @param spectrum_id	the spectrum identifier
+	 * @param vector		the decoded measurement
+	 */
+	public synchronized void put(int spectrum_id, float[] vector) {
+		
+		long entry_size = sizeOf(vector);
+		if (entry_size > capacity) {
+			// would never fit
+			return;
+		}
+		
+		float[] old = vectors.put(spectrum_id, vector);
+		if (old != null) {
+			size -= sizeOf(old);
+		}
+		size += entry_size;
+		
+		// evict least recently used entries
+		Iterator<Map.Entry<Integer, float[]>> iter = vectors.entrySet().iterator();
+		while (size > capacity && iter.hasNext()) {
+			Map.Entry<Integer, float[]> eldest = iter.next();
+			size -= sizeOf(eldest.getValue());
+			iter.remove();
+			evictions++;
+		}
+		
+	}
+	
+	
+	/**
+	 * Remove a vector from the cache.
+	 * 
+	 * @param spectrum_id	the spectrum identifier
+	 */
+	public synchronized void remove(int spectrum_id) {
+		
+		float[] old = vectors.remove(spectrum_id);
+		if (old != null) {
+			size -= sizeOf(old);
+		}
+		
+	}
+	
+	
+	/**
+	 * Remove several vectors from the cache.
+	 * 
+	 * @param spectrum_ids	the spectrum identifiers
+	 */
+	public synchronized void remove(Collection<Integer> spectrum_ids) {
+		
+		for (Integer spectrum_id : spectrum_ids) {
+			remove(spectrum_id);
+		}
+		
+	}
+	
+	
+	/**
+	 * Get the capacity configured by the system property.
+	 * 
+	 * @return the capacity in bytes
+	 */
+	private static long getConfiguredCapacity() {
+		
+		long capacity_mb = DEFAULT_CAPACITY_MB;
+		String property = System.getProperty(CAPACITY_PROPERTY);
+		if (property != null) {
+			try {
+				capacity_mb = Long.parseLong(property.trim());
+			}
+			catch (NumberFormatException ex) {
+				// ignore malformed values and use the default
+			}
+		}
+		
+		return Math.max(capacity_mb, 0) * 1024 * 1024;
+		
+	}
+	
+	
+	/**
+	 * Estimate the number of bytes occupied by a cache entry.
+	 * 
+	 * @param vector	the vector
+	 * 
+	 * @return the estimated size in bytes
+	 */
+	private static long sizeOf(float[] vector) {
+		
+		return ENTRY_OVERHEAD + 4L * vector.length;
+		
+	}
+	
+}
@@ -1,16 +1,27 @@
 package ch.specchio.factories;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.TimeZone;
 
 import ch.specchio.eav_db.EAVDBServices;
 import ch.specchio.eav_db.SQL_StatementBuilder;
 import ch.specchio.spaces.Space;
 import ch.specchio.types.CategoryTable;
+import ch.specchio.types.CelestialAngle;
 import ch.specchio.types.ConflictInfo;
 import ch.specchio.types.ConflictStruct;
 import ch.specchio.types.ConflictTable;
@@ -27,6 +38,13 @@ import ch.specchio.types.Units;
  */
 public class MetadataFactory extends SPECCHIOFactory {
 	
+	/** the name of the temporary table used to stage selections for conflict detection */
+	private static final String CONFLICT_SELECTION_TABLE = "conflict_selection";
+	
+	/** the number of identifiers inserted into a temporary table per statement */
+	private static final int TEMP_TABLE_INSERT_BLOCK_SIZE = 1000;
+	
+	
 	/**
 	 * Constructor. 
 	 * 
@@ -57,6 +75,209 @@ public class MetadataFactory extends SPECCHIOFactory {
 	}
 	
 	
+	/**
+	 * Calculate the illumination azimuth and zenith of a set of spectra from
+	 * their latitude, longitude and acquisition time, replacing any existing
+	 * illumination angles. The positions and times of all of the spectra are
+	 * read with a single query and the new angles are written with one
+	 * multi-row insert per campaign, all in a single transaction.
+	 * 
+	 * @param ids	the identifiers of the spectra
+	 * 
+	 * @return the number of spectra for which angles could be calculated
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	public int calculateSunAngles(ArrayList<Integer> ids) throws SPECCHIOFactoryException {
+		
+		if (ids.size() == 0) {
+			return 0;
+		}
+		
+		Connection conn = getConnection();
+		EAVDBServices eav = getEavServices();
+		boolean committed = false;
+		
+		try {
+			conn.setAutoCommit(false);
+			try {
+				ArrayList<Integer> deleted_eav_ids = new ArrayList<Integer>();
+				ArrayList<Integer> updated_ids = calculateSunAnglesInTransaction(ids, deleted_eav_ids);
+				conn.commit();
+				committed = true;
+				
+				// the deleted metaparameters may still be known to the redundancy reduction
+				if (deleted_eav_ids.size() > 0) {
+					eav.clear_redundancy_list();
+				}
+				eav.publish_uncommitted_metaparameters();
+				invalidateQueryCache(updated_ids);
+				
+				return updated_ids.size();
+			}
+			finally {
+				if (!committed) {
+					conn.rollback();
+					eav.discard_uncommitted_metaparameters();
+				}
+				conn.setAutoCommit(true);
+			}
+		}
+		catch (SQLException ex) {
+			// database error
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+	}
+	
+	
+	/**
+	 * Calculate the illumination angles of a set of spectra inside a
+	 * transaction that has already been started.
+	 * 
+	 * @param ids				the identifiers of the spectra
+	 * @param deleted_eav_ids	a list to which the identifiers of the deleted angles are added
+	 * 
+	 * @return the identifiers of the spectra for which angles could be calculated
+	 * 
+	 * @throws SPECCHIOFactoryException	the illumination attributes do not hold numbers
+	 * @throws SQLException				database error
+	 */
+	private ArrayList<Integer> calculateSunAnglesInTransaction(ArrayList<Integer> ids, ArrayList<Integer> deleted_eav_ids) throws SPECCHIOFactoryException, SQLException {
+		
+		try {
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			EAVDBServices eav = getEavServices();
+			String primary_id_name = eav.get_primary_id_name();
+			String primary_x_eav_tablename = eav.get_primary_x_eav_tablename();
+			int latitude_id = getAttributes().get_attribute_id("Latitude");
+			int longitude_id = getAttributes().get_attribute_id("Longitude");
+			int acquisition_time_id = getAttributes().get_attribute_id("Acquisition Time");
+			attribute azimuth_attr = getAttributes().get_attribute_info("Illumination Azimuth", "Sampling Geometry");
+			attribute zenith_attr = getAttributes().get_attribute_info("Illumination Zenith", "Sampling Geometry");
+			
+			// read the position and acquisition time of every spectrum, keeping the first value of each
+			HashMap<Integer, Integer> campaign_ids = new HashMap<Integer, Integer>();
+			HashMap<Integer, Double> latitudes = new HashMap<Integer, Double>();
+			HashMap<Integer, Double> longitudes = new HashMap<Integer, Double>();
+			HashMap<Integer, Date> acquisition_times = new HashMap<Integer, Date>();
+			Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+			String query = "select s.spectrum_id, s.campaign_id, e.attribute_id, e.double_val, e.datetime_val" +
+					" from spectrum s, " + primary_x_eav_tablename + " sx, eav e" +
+					" where " + SQL.conc_id_cond("s.spectrum_id", ids) +
+					" and sx." + primary_id_name + " = s.spectrum_id and e.eav_id = sx.eav_id" +
+					" and e.attribute_id in (" + SQL.conc_ids(latitude_id, longitude_id, acquisition_time_id) + ")";
+			Statement stmt = SQL.createStatement();
+			ResultSet rs = stmt.executeQuery(query);
+			while (rs.next()) {
+				Integer spectrum_id = rs.getInt(1);
+				campaign_ids.put(spectrum_id, rs.getInt(2));
+				int attribute_id = rs.getInt(3);
+				if (attribute_id == acquisition_time_id) {
+					// acquisition times are stored in UTC
+					Timestamp time = rs.getTimestamp(5, utc);
+					if (time != null && !acquisition_times.containsKey(spectrum_id)) {
+						acquisition_times.put(spectrum_id, time);
+					}
+				} else {
+					double value = rs.getDouble(4);
+					HashMap<Integer, Double> values = (attribute_id == latitude_id)? latitudes : longitudes;
+					if (!rs.wasNull() && !values.containsKey(spectrum_id)) {
+						values.put(spectrum_id, value);
+					}
+				}
+			}
+			rs.close();
+			
+			// calculate the angles, grouping the new metaparameters by campaign
+			ArrayList<Integer> updated_ids = new ArrayList<Integer>();
+			HashSet<Integer> updated_id_set = new HashSet<Integer>();
+			HashMap<Integer, ArrayList<Integer>> frame_ids_by_campaign = new HashMap<Integer, ArrayList<Integer>>();
+			HashMap<Integer, ArrayList<MetaParameter>> mps_by_campaign = new HashMap<Integer, ArrayList<MetaParameter>>();
+			for (Integer spectrum_id : ids) {
+				
+				Double latitude = latitudes.get(spectrum_id);
+				Double longitude = longitudes.get(spectrum_id);
+				Date acquisition_time = acquisition_times.get(spectrum_id);
+				if (latitude == null || longitude == null || acquisition_time == null || !updated_id_set.add(spectrum_id)) {
+					continue;
+				}
+				CelestialAngle angle = CelestialAngle.sunAngle(latitude, longitude, acquisition_time);
+				
+				MetaParameter azimuth = MetaParameter.newInstance(azimuth_attr);
+				azimuth.setValue(new Double(angle.azimuth));
+				MetaParameter zenith = MetaParameter.newInstance(zenith_attr);
+				zenith.setValue(new Double(angle.zenith));
+				
+				Integer campaign_id = campaign_ids.get(spectrum_id);
+				ArrayList<Integer> frame_ids = frame_ids_by_campaign.get(campaign_id);
+				ArrayList<MetaParameter> mps = mps_by_campaign.get(campaign_id);
+				if (frame_ids == null) {
+					frame_ids = new ArrayList<Integer>();
+					frame_ids_by_campaign.put(campaign_id, frame_ids);
+					mps = new ArrayList<MetaParameter>();
+					mps_by_campaign.put(campaign_id, mps);
+				}
+				frame_ids.add(spectrum_id);
+				mps.add(azimuth);
+				frame_ids.add(spectrum_id);
+				mps.add(zenith);
+				updated_ids.add(spectrum_id);
+				
+			}
+			
+			if (updated_ids.size() == 0) {
+				stmt.close();
+				return updated_ids;
+			}
+			
+			// unlink the existing angles
+			ArrayList<Integer> old_eav_ids = eav.get_eav_ids(updated_ids, azimuth_attr.getId(), zenith_attr.getId());
+			if (old_eav_ids.size() > 0) {
+				eav.delete_primary_x_eav(updated_ids, old_eav_ids);
+			}
+			
+			// insert and link the new angles
+			HashSet<Integer> new_eav_ids = new HashSet<Integer>();
+			for (Integer campaign_id : mps_by_campaign.keySet()) {
+				ArrayList<Integer> eav_ids = eav.insert_metaparameters_into_db(campaign_id, mps_by_campaign.get(campaign_id));
+				eav.insert_primary_x_eav_pairs(frame_ids_by_campaign.get(campaign_id), eav_ids);
+				new_eav_ids.addAll(eav_ids);
+			}
+			
+			// delete the replaced angles that are no longer used by any spectrum
+			HashSet<Integer> unused_eav_ids = new HashSet<Integer>(old_eav_ids);
+			unused_eav_ids.removeAll(new_eav_ids);
+			if (unused_eav_ids.size() > 0) {
+				rs = stmt.executeQuery(
+						"select distinct eav_id from " + primary_x_eav_tablename +
+						" where eav_id in (" + SQL.conc_ids(unused_eav_ids) + ")"
+					);
+				while (rs.next()) {
+					unused_eav_ids.remove(rs.getInt(1));
+				}
+				rs.close();
+				if (unused_eav_ids.size() > 0) {
+					eav.delete_eavs(new ArrayList<Integer>(unused_eav_ids));
+					deleted_eav_ids.addAll(unused_eav_ids);
+				}
+			}
+			stmt.close();
+			
+			return updated_ids;
+		}
+		catch (MetaParameterFormatException ex) {
+			// the illumination attributes do not hold numbers
+			throw new SPECCHIOFactoryException(ex);
+		}
+		catch (IOException ex) {
+			// database error
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+	}
+	
+	
 	/**
 	 * Check for metadata conflicts.
 	 * 
@@ -83,9 +304,8 @@ public class MetadataFactory extends SPECCHIOFactory {
 			}
 			
 			
-			String query = getStatementBuilder().assemble_sql_select_query(getStatementBuilder().conc_cols(field_cnt_strings), "spectrum", "spectrum_id in (" + 
-					getStatementBuilder().conc_ids(ids) +
-					")");
+			String query = getStatementBuilder().assemble_sql_select_query(getStatementBuilder().conc_cols(field_cnt_strings), "spectrum",
+					getStatementBuilder().conc_id_cond("spectrum_id", Arrays.asList(ids)));
 
 	
 			Statement stmt = getStatementBuilder().createStatement();
@@ -128,9 +348,11 @@ public class MetadataFactory extends SPECCHIOFactory {
 	
 	
 	/**
-	 * Check for conflicts in EAV metadata.
+	 * Check for conflicts in EAV metadata. The selection is staged in a temporary
+	 * table so that the statements sent to the database do not grow with the
+	 * number of selected spectra.
 	 * 
-	 * @param ids	the attribute identifiers to be checked
+	 * @param ids	the spectrum identifiers to be checked
 	 * 
 	 * @return a hash mapping attribute id to conflict information structures
 	 * 
@@ -141,106 +363,250 @@ public class MetadataFactory extends SPECCHIOFactory {
 		ConflictTable stati = new ConflictTable();
 
 		try {
-			Statement stmt = getStatementBuilder().createStatement();
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			Statement stmt = SQL.createStatement();
+			String temp_tablename = SQL.prefix(getTempDatabaseName(), CONFLICT_SELECTION_TABLE);
 			
-	
-			boolean double_check = false;
-			int distinct_spectrum_id_cnt;
-			int distinct_eav_id_cnt;
-			double multi_value_cnt;
-			Integer attribute_id;
-			Integer eav_id;
-			ConflictStruct conflict;
-			ArrayList<Integer> eav_ids_to_double_check = new ArrayList<Integer>();
-		
-			String query = "SELECT count(distinct sxe.spectrum_id), count(distinct eav.eav_id), count(eav.eav_id)/count(distinct sxe.spectrum_id), attribute_id, eav.eav_id from spectrum_x_eav sxe, eav eav where sxe.spectrum_id in (" +
-			getStatementBuilder().conc_ids(ids) +
-				") and sxe.eav_id = eav.eav_id group by eav_id order by attribute_id";	
+			int no_of_selected_records = stageSpectrumIds(stmt, temp_tablename, ids);
 			
+			// count the selected spectra referring to each eav entry; the total number of spectra
+			// referring to an entry is only needed for entries common to the whole selection
+			String query = "select eav.attribute_id, eav.eav_id, count(distinct sel.spectrum_id), " +
+					"if(count(distinct sel.spectrum_id) = " + Integer.toString(no_of_selected_records) + ", " +
+						"(select count(shared.spectrum_id) from spectrum_x_eav shared where shared.eav_id = eav.eav_id), 1) " +
+					"from " + temp_tablename + " sel, spectrum_x_eav sxe, eav eav " +
+					"where sxe.spectrum_id = sel.spectrum_id and sxe.eav_id = eav.eav_id " +
+					"group by eav.eav_id order by eav.attribute_id";
 			ResultSet rs = stmt.executeQuery(query);
-			
 			while (rs.next()) {
+				addEavConflict(stati, rs.getInt(1), rs.getInt(2), rs.getInt(3), no_of_selected_records, rs.getInt(4));
+			}
+			rs.close();
 			
-				distinct_spectrum_id_cnt = rs.getInt(1);		
-				distinct_eav_id_cnt = rs.getInt(2);	
-				multi_value_cnt = rs.getDouble(3);	
-				attribute_id  = rs.getInt(4);	
-				eav_id = rs.getInt(5);		
-				
-				conflict = new ConflictStruct();
-				if (distinct_eav_id_cnt == 1 && distinct_spectrum_id_cnt == ids.length)
-				{
-						conflict.setStatus(1); // unique
-						double_check = true;
+			// clear temporary table
+			query = "delete from " + temp_tablename;
+			stmt.executeUpdate(query);
+			
+			stmt.close();
+			
+		} catch (SQLException ex) {
+			// bad SQL
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+		
+		return stati;
+		
+	}
+	
+	
+	/**
+	 * Update the EAV conflicts of a selection after spectra have been added to
+	 * or removed from it. Only the added and removed spectra are read from the
+	 * database, so this is much cheaper than detectEavConflicts() when the
+	 * selection changes by a few spectra.
+	 * 
+	 * @param conflicts					the conflicts of the previous selection, as returned by detectEavConflicts() or this method
+	 * @param no_of_selected_records	the number of spectra in the previous selection
+	 * @param added_ids					spectra added to the selection; these must not be in the previous selection
+	 * @param removed_ids				spectra removed from the selection; these must be in the previous selection
+	 * 
+	 * @return a hash mapping attribute id to conflict information structures for the new selection
+	 * 
+	 * @throws SPECCHIOFactoryException	could not connect to the database
+	 */
+	public ConflictTable updateEavConflicts(ConflictTable conflicts, int no_of_selected_records, Integer[] added_ids, Integer[] removed_ids) throws SPECCHIOFactoryException
+	{
+		ConflictTable stati = new ConflictTable();
+		
+		// start from the counts of the previous selection
+		HashMap<Integer, Integer> matching_cnts = new HashMap<Integer, Integer>();
+		HashMap<Integer, Integer> sharing_cnts = new HashMap<Integer, Integer>();
+		HashMap<Integer, Integer> attribute_ids = new HashMap<Integer, Integer>();
+		Enumeration<String> attributes = conflicts.conflicts();
+		while (attributes.hasMoreElements()) {
+			String attribute_id = attributes.nextElement();
+			ConflictInfo conflict_info = conflicts.get(attribute_id);
+			Enumeration<Integer> eav_ids = conflict_info.eavIds();
+			while (eav_ids.hasMoreElements()) {
+				Integer eav_id = eav_ids.nextElement();
+				ConflictStruct conflict = conflict_info.getConflictData(eav_id);
+				matching_cnts.put(eav_id, conflict.getNumberOfMatchingRecords());
+				attribute_ids.put(eav_id, Integer.parseInt(attribute_id));
+				if (conflict.getStatus() == 1 || conflict.getStatus() == 3) {
+					// the total number of referring spectra is known
+					sharing_cnts.put(eav_id, conflict.getNumberOfSharingRecords());
 				}
-				else if (distinct_eav_id_cnt== 1 && distinct_spectrum_id_cnt != ids.length)
-				{
-					conflict.setStatus(2); // ambiguous
-					double_check = false;
+			}
+		}
+		
+		try {
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			Statement stmt = SQL.createStatement();
+			
+			// apply the changes to the selection
+			countEavReferences(stmt, added_ids, 1, matching_cnts, attribute_ids);
+			countEavReferences(stmt, removed_ids, -1, matching_cnts, attribute_ids);
+			no_of_selected_records += added_ids.length - removed_ids.length;
+			
+			// get the total number of referring spectra for entries that are now common to the whole selection
+			ArrayList<Integer> unknown_eav_ids = new ArrayList<Integer>();
+			for (Integer eav_id : matching_cnts.keySet()) {
+				if (matching_cnts.get(eav_id) == no_of_selected_records && !sharing_cnts.containsKey(eav_id)) {
+					unknown_eav_ids.add(eav_id);
 				}
-				else
-				{
-					System.out.println("unexpected case in conflict detection !!!!");
+			}
+			if (unknown_eav_ids.size() > 0) {
+				String query = "select eav_id, count(spectrum_id) from spectrum_x_eav where eav_id in (" +
+						SQL.conc_ids(unknown_eav_ids) +
+						") group by eav_id";
+				ResultSet rs = stmt.executeQuery(query);
+				while (rs.next()) {
+					sharing_cnts.put(rs.getInt(1), rs.getInt(2));
 				}
-				conflict.setNumberOfSelectedRecords(ids.length);
-				conflict.setNumberOfSharingRecords(1);					
-										
-				ConflictInfo conflict_info = stati.get(attribute_id);	
-				if(conflict_info == null)
-					conflict_info = new ConflictInfo();
-				
-				conflict_info.addConflict(eav_id, conflict);
-				
-				stati.put(attribute_id, conflict_info);
-					
-				if(double_check)
-					eav_ids_to_double_check.add(eav_id);
-				
-
+				rs.close();
 			}
-				
-				
-			// second query to figure out the number of total spectra referring to the eav entries (number of shared records)
-			query = "SELECT count(sxe.spectrum_id), attribute_id, eav.eav_id from spectrum_x_eav sxe, eav eav where sxe.eav_id in (" +
-			getStatementBuilder().conc_ids(eav_ids_to_double_check) +
-				") and sxe.eav_id = eav.eav_id group by eav.eav_id order by attribute_id";			
 			
-			rs = stmt.executeQuery(query);
-
-			while (rs.next()) {
-				
-				multi_value_cnt = rs.getDouble(1);	
-				attribute_id  = rs.getInt(2);				
-				eav_id = rs.getInt(3);		
-				
-				if(multi_value_cnt > 1)
-				{
-					// update existing conflict data
-					ConflictInfo conflict_info = stati.get(attribute_id);
-					
-					conflict = conflict_info.getConflictData(eav_id);
-					conflict.setStatus(3);
-					conflict.setNumberOfSharingRecords((int) multi_value_cnt);
-
-				}					
-					
-			}				
-				
-			rs.close();						
 			stmt.close();
 			
-			
 		} catch (SQLException ex) {
 			// bad SQL
 			throw new SPECCHIOFactoryException(ex);
 		}
 		
+		// build the new conflict table
+		for (Integer eav_id : matching_cnts.keySet()) {
+			int matching_cnt = matching_cnts.get(eav_id);
+			if (matching_cnt > 0) {
+				Integer sharing_cnt = sharing_cnts.get(eav_id);
+				addEavConflict(stati, attribute_ids.get(eav_id), eav_id, matching_cnt, no_of_selected_records, (sharing_cnt != null)? sharing_cnt : 1);
+			}
+		}
 		
 		return stati;
 		
 	}
 	
 	
+	/**
+	 * Add the conflict status of an eav entry to a conflict table.
+	 * 
+	 * @param stati						the conflict table
+	 * @param attribute_id				the attribute identifier of the entry
+	 * @param eav_id					the eav identifier of the entry
+	 * @param no_of_matching_records	the number of selected spectra referring to the entry
+	 * @param no_of_selected_records	the number of selected spectra
+	 * @param no_of_sharing_records		the total number of spectra referring to the entry
+	 */
+	private void addEavConflict(ConflictTable stati, int attribute_id, int eav_id, int no_of_matching_records, int no_of_selected_records, int no_of_sharing_records) {
+		
+		ConflictStruct conflict = new ConflictStruct();
+		if (no_of_matching_records == no_of_selected_records)
+		{
+			if (no_of_sharing_records > 1)
+			{
+				conflict.setStatus(3); // unique, but shared with other records
+				conflict.setNumberOfSharingRecords(no_of_sharing_records);
+			}
+			else
+			{
+				conflict.setStatus(1); // unique
+				conflict.setNumberOfSharingRecords(1);
+			}
+		}
+		else
+		{
+			conflict.setStatus(2); // ambiguous
+			conflict.setNumberOfSharingRecords(1);
+		}
+		conflict.setNumberOfSelectedRecords(no_of_selected_records);
+		conflict.setNumberOfMatchingRecords(no_of_matching_records);
+		
+		ConflictInfo conflict_info = stati.get(attribute_id);	
+		if(conflict_info == null)
+			conflict_info = new ConflictInfo();
+			
+		conflict_info.addConflict(eav_id, conflict);
+		
+		stati.put(attribute_id, conflict_info);
+		
+	}
+	
+	
+	/**
+	 * Count the references from a set of spectra to each eav entry, and add
+	 * them to a running count.
+	 * 
+	 * @param stmt			the statement to use
+	 * @param ids			the spectrum identifiers
+	 * @param sign			1 to add the counts, -1 to subtract them
+	 * @param cnts			the running count for each eav identifier
+	 * @param attribute_ids	the attribute identifier of each eav identifier
+	 * 
+	 * @throws SQLException	database error
+	 */
+	private void countEavReferences(Statement stmt, Integer[] ids, int sign, HashMap<Integer, Integer> cnts, HashMap<Integer, Integer> attribute_ids) throws SQLException {
+		
+		if (ids.length == 0) {
+			return;
+		}
+		
+		String query = "select eav.eav_id, eav.attribute_id, count(distinct sxe.spectrum_id) from spectrum_x_eav sxe, eav eav where sxe.spectrum_id in (" +
+				getStatementBuilder().conc_ids(ids) +
+				") and sxe.eav_id = eav.eav_id group by eav.eav_id";
+		ResultSet rs = stmt.executeQuery(query);
+		while (rs.next()) {
+			int eav_id = rs.getInt(1);
+			Integer cnt = cnts.get(eav_id);
+			cnts.put(eav_id, ((cnt != null)? cnt : 0) + sign * rs.getInt(3));
+			attribute_ids.put(eav_id, rs.getInt(2));
+		}
+		rs.close();
+		
+	}
+	
+	
+	/**
+	 * Copy a set of spectrum identifiers into a temporary table with a single
+	 * column called "spectrum_id". The table is created if it does not exist
+	 * and emptied if it does.
+	 * 
+	 * @param stmt				the statement to use
+	 * @param temp_tablename	the name of the temporary table
+	 * @param ids				the spectrum identifiers
+	 * 
+	 * @return the number of distinct identifiers
+	 * 
+	 * @throws SQLException	database error
+	 */
+	private int stageSpectrumIds(Statement stmt, String temp_tablename, Integer[] ids) throws SQLException {
+		
+		String ddl_string = "CREATE TEMPORARY TABLE IF NOT EXISTS " + temp_tablename + " " +
+				"(spectrum_id INT NOT NULL, PRIMARY KEY (spectrum_id))";
+		stmt.executeUpdate(ddl_string);
+		stmt.executeUpdate("delete from " + temp_tablename);
+		
+		// insert the identifiers in blocks so that no statement exceeds the maximum packet size
+		HashSet<Integer> distinct_ids = new HashSet<Integer>(Arrays.asList(ids));
+		StringBuilder values = new StringBuilder();
+		int cnt = 0;
+		for (Integer id : distinct_ids) {
+			if (values.length() > 0) {
+				values.append(",");
+			}
+			values.append("(").append(id).append(")");
+			cnt++;
+			if (cnt % TEMP_TABLE_INSERT_BLOCK_SIZE == 0 || cnt == distinct_ids.size()) {
+				stmt.executeUpdate("insert into " + temp_tablename + " (spectrum_id) values " + values.toString());
+				values.setLength(0);
+			}
+		}
+		
+		return distinct_ids.size();
+		
+	}
+	
+	
 	/**
 	 * Get the list of attributes in a given category.
 	 * 
@@ -338,6 +704,80 @@ public class MetadataFactory extends SPECCHIOFactory {
 	}
 	
 	
+	/**
+	 * Get the metadata for a list of spectra. The metadata of all spectra is
+	 * read using one query for the metaparameter identifiers and one bulk load
+	 * of the metaparameters themselves.
+	 * 
+	 * @param spectrum_ids	the spectrum identifiers
+	 * 
+	 * @return a map of spectrum identifiers to Metadata objects; every input identifier has an entry
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	public HashMap<Integer, Metadata> getMetadataForSpectra(ArrayList<Integer> spectrum_ids) throws SPECCHIOFactoryException {
+		
+		HashMap<Integer, Metadata> md_map = new HashMap<Integer, Metadata>();
+		for (Integer spectrum_id : spectrum_ids) {
+			Metadata md = new Metadata();
+			md.setFrameId(spectrum_id);
+			md_map.put(spectrum_id, md);
+		}
+		
+		if (spectrum_ids.size() == 0) {
+			return md_map;
+		}
+		
+		try {
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			String primary_id_name = getEavServices().get_primary_id_name();
+			String primary_x_eav_tablename = getEavServices().get_primary_x_eav_tablename();
+			
+			// find the metaparameters of every spectrum; a metaparameter may be shared between spectra
+			HashMap<Integer, ArrayList<Integer>> eav_to_spectra = new HashMap<Integer, ArrayList<Integer>>();
+			ArrayList<Integer> eav_ids = new ArrayList<Integer>();
+			String query = "select " + primary_id_name + ", eav_id from " + primary_x_eav_tablename +
+					" where " + SQL.conc_id_cond(primary_id_name, spectrum_ids);
+			Statement stmt = SQL.createStatement();
+			ResultSet rs = stmt.executeQuery(query);
+			while (rs.next()) {
+				int spectrum_id = rs.getInt(1);
+				int eav_id = rs.getInt(2);
+				ArrayList<Integer> owners = eav_to_spectra.get(eav_id);
+				if (owners == null) {
+					owners = new ArrayList<Integer>();
+					eav_to_spectra.put(eav_id, owners);
+					eav_ids.add(eav_id);
+				}
+				owners.add(spectrum_id);
+			}
+			rs.close();
+			stmt.close();
+			
+			if (eav_ids.size() > 0) {
+				// bulk reading of metaparameters
+				Metadata all_md = new Metadata();
+				getEavServices().metadata_bulk_loader(all_md, eav_ids);
+				
+				// distribute the metaparameters in the order in which they were loaded
+				for (MetaParameter mp : all_md.getEntries()) {
+					for (Integer spectrum_id : eav_to_spectra.get(mp.getEavId())) {
+						Metadata md = md_map.get(spectrum_id);
+						md.addEntry(mp);
+						md.addEntryId(mp.getEavId());
+					}
+				}
+			}
+		} catch (SQLException ex) {
+			// database error
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+		return md_map;
+		
+	}
+	
+	
 	/**
 	 * Get the values of a given meta-parameter for a list of spectrum identifiers.
 	 * 
@@ -635,6 +1075,12 @@ public class MetadataFactory extends SPECCHIOFactory {
 		
 		getEavServices().delete_primary_x_eav(ids, mp.getEavId());
 		
+		if (ids != null) {
+			invalidateQueryCache(Arrays.asList(ids));
+		} else {
+			invalidateQueryCacheForEav(mp.getEavId());
+		}
+		
 	}
 	
 	/**
@@ -653,6 +1099,12 @@ public class MetadataFactory extends SPECCHIOFactory {
 			getEavServices().delete_primary_x_eav(ids, eav_id);
 		}
 		
+		if (ids != null) {
+			invalidateQueryCache(ids);
+		} else {
+			getQueryCache().invalidateAll();
+		}
+		
 	}
 	
 	
@@ -671,6 +1123,63 @@ public class MetadataFactory extends SPECCHIOFactory {
 			ArrayList<Integer> spectrum_ids = eav.getPrimaryIds(mp.getEavId());
 			eav.delete_primary_x_eav(spectrum_ids, mp.getEavId());
 			eav.delete_eav(mp.getEavId());
+			invalidateQueryCache(spectrum_ids);
+		}
+		catch (SQLException ex) {
+			// database error
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+	}
+	
+	
+	/**
+	 * Convert the acquisition times of a set of spectra to UTC and note the
+	 * shift in their "Time Shift" metadata. Acquisition times used only by the
+	 * selected spectra are shifted in place with a single update; those shared
+	 * with other spectra are copied first so that the other spectra keep
+	 * their times. Every acquisition time of each spectrum is shifted, not
+	 * only the first. The whole shift is made in a single transaction, so
+	 * a failed shift leaves all of the times as they were.
+	 * 
+	 * @param ids	the identifiers of the spectra
+	 * @param shift	the number of hours East of UTC in which the times were recorded
+	 * 
+	 * @return the number of spectra whose acquisition time was shifted
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	public int shiftAcquisitionTimes(ArrayList<Integer> ids, double shift) throws SPECCHIOFactoryException {
+		
+		if (ids.size() == 0) {
+			return 0;
+		}
+		
+		Connection conn = getConnection();
+		EAVDBServices eav = getEavServices();
+		boolean committed = false;
+		
+		try {
+			conn.setAutoCommit(false);
+			try {
+				int cnt = shiftAcquisitionTimesInTransaction(ids, shift);
+				conn.commit();
+				committed = true;
+				
+				// the known metaparameters still hold the old times
+				eav.clear_redundancy_list();
+				eav.publish_uncommitted_metaparameters();
+				invalidateQueryCache(ids);
+				
+				return cnt;
+			}
+			finally {
+				if (!committed) {
+					conn.rollback();
+					eav.discard_uncommitted_metaparameters();
+				}
+				conn.setAutoCommit(true);
+			}
 		}
 		catch (SQLException ex) {
 			// database error
@@ -680,6 +1189,128 @@ public class MetadataFactory extends SPECCHIOFactory {
 	}
 	
 	
+	/**
+	 * Shift the acquisition times of a set of spectra inside a transaction
+	 * that has already been started.
+	 * 
+	 * @param ids	the identifiers of the spectra
+	 * @param shift	the number of hours East of UTC in which the times were recorded
+	 * 
+	 * @return the number of spectra whose acquisition time was shifted
+	 * 
+	 * @throws SPECCHIOFactoryException	the time shift attribute does not hold strings
+	 * @throws SQLException				database error
+	 */
+	private int shiftAcquisitionTimesInTransaction(ArrayList<Integer> ids, double shift) throws SPECCHIOFactoryException, SQLException {
+		
+		try {
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			EAVDBServices eav = getEavServices();
+			String primary_id_name = eav.get_primary_id_name();
+			String primary_x_eav_tablename = eav.get_primary_x_eav_tablename();
+			String eav_view_name = eav.get_eav_view_name();
+			int acquisition_time_id = getAttributes().get_attribute_id("Acquisition Time");
+			
+			// find the acquisition times of the selected spectra
+			HashMap<Integer, ArrayList<Integer>> eav_to_spectra = new HashMap<Integer, ArrayList<Integer>>();
+			ArrayList<Integer> eav_ids = new ArrayList<Integer>();
+			HashMap<Integer, Integer> eav_positions = new HashMap<Integer, Integer>();
+			ArrayList<Integer> updated_ids = new ArrayList<Integer>();
+			HashSet<Integer> updated_id_set = new HashSet<Integer>();
+			String query = "select sx." + primary_id_name + ", sx.eav_id from " + primary_x_eav_tablename + " sx, eav e" +
+					" where " + SQL.conc_id_cond("sx." + primary_id_name, ids) +
+					" and e.eav_id = sx.eav_id and e.attribute_id = " + acquisition_time_id;
+			Statement stmt = SQL.createStatement();
+			ResultSet rs = stmt.executeQuery(query);
+			while (rs.next()) {
+				int spectrum_id = rs.getInt(1);
+				int eav_id = rs.getInt(2);
+				ArrayList<Integer> owners = eav_to_spectra.get(eav_id);
+				if (owners == null) {
+					owners = new ArrayList<Integer>();
+					eav_to_spectra.put(eav_id, owners);
+					eav_positions.put(eav_id, eav_ids.size());
+					eav_ids.add(eav_id);
+				}
+				owners.add(spectrum_id);
+				if (updated_id_set.add(spectrum_id)) {
+					updated_ids.add(spectrum_id);
+				}
+			}
+			rs.close();
+			
+			if (eav_ids.size() == 0) {
+				stmt.close();
+				return 0;
+			}
+			
+			// find the acquisition times that are shared with spectra outside the selection
+			ArrayList<Integer> shared_eav_ids = new ArrayList<Integer>();
+			query = "select distinct eav_id from " + primary_x_eav_tablename +
+					" where eav_id in (" + SQL.conc_ids(eav_ids) + ")" +
+					" and " + primary_id_name + " not in (" + SQL.conc_ids(updated_ids) + ")";
+			rs = stmt.executeQuery(query);
+			while (rs.next()) {
+				shared_eav_ids.add(rs.getInt(1));
+			}
+			rs.close();
+			
+			if (shared_eav_ids.size() > 0) {
+				
+				// give the selected spectra their own copy of each shared time
+				query = "select eav_id, campaign_id, attribute_id, datetime_val, unit_id from eav" +
+						" where eav_id in (" + SQL.conc_ids(shared_eav_ids) + ")";
+				PreparedStatement ps = SQL.prepareStatement(
+						"insert into " + eav_view_name + " (campaign_id, attribute_id, datetime_val, unit_id) values (?, ?, ?, ?)",
+						Statement.RETURN_GENERATED_KEYS
+					);
+				rs = stmt.executeQuery(query);
+				while (rs.next()) {
+					int eav_id = rs.getInt(1);
+					ps.setInt(1, rs.getInt(2));
+					ps.setInt(2, rs.getInt(3));
+					ps.setTimestamp(3, rs.getTimestamp(4));
+					ps.setObject(4, rs.getObject(5));
+					ps.executeUpdate();
+					
+					ResultSet keys = ps.getGeneratedKeys();
+					keys.next();
+					int copy_id = keys.getInt(1);
+					keys.close();
+					
+					ArrayList<Integer> owners = eav_to_spectra.get(eav_id);
+					eav.delete_primary_x_eav(owners, eav_id);
+					eav.insert_primary_x_eav(owners.toArray(new Integer[owners.size()]), copy_id);
+					eav_ids.set(eav_positions.get(eav_id), copy_id);
+				}
+				rs.close();
+				ps.close();
+				
+			}
+			
+			// shift all of the times with a single statement
+			long seconds = Math.round(shift * 3600);
+			stmt.executeUpdate(
+					"update " + eav_view_name + " set datetime_val = datetime_val - interval " + seconds + " second" +
+					" where eav_id in (" + SQL.conc_ids(eav_ids) + ")"
+				);
+			stmt.close();
+			
+			// note the shift in the metadata of every updated spectrum
+			MetaParameter mp_shift = MetaParameter.newInstance(getAttributes().get_attribute_info("Time Shift", "Processing"));
+			mp_shift.setValue("Capture time was shifted by " + shift + " hours East using the SPECCHIO timeshift function.");
+			updateMetadata(mp_shift, updated_ids.toArray(new Integer[updated_ids.size()]));
+			
+			return updated_ids.size();
+		}
+		catch (MetaParameterFormatException ex) {
+			// the time shift attribute does not hold strings
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+	}
+	
+	
 	/**
 	 * Update an item of metadata for a given set of identifiers.
 	 * 
@@ -710,11 +1341,13 @@ public class MetadataFactory extends SPECCHIOFactory {
 				mp = eav.reduce_redundancy(mp);
 				eav_id = eav.insert_metaparameter_into_db(campaign_id, mp);
 				eav.insert_primary_x_eav(ids, eav_id);
+				invalidateQueryCache(Arrays.asList(ids));
 			}
 			else
 			{
 				eav.update_metaparameter(mp);
 				eav_id = mp.getEavId();
+				invalidateQueryCacheForEav(eav_id);
 			}
 		}
 		catch (IOException ex) {
@@ -759,6 +1392,7 @@ public class MetadataFactory extends SPECCHIOFactory {
 			// insert the new id and remove the old one
 			eav.insert_primary_x_eav(ids, mp.getEavId());			
 			eav.delete_primary_x_eav(ids, old_eav_id);
+			getQueryCache().invalidateCampaign(old_campaign_id);
 		}
 		catch (IOException ex) {
 			// database error
@@ -772,8 +1406,24 @@ public class MetadataFactory extends SPECCHIOFactory {
 		return eav_id;
 		
 	}
-
-
+	
+	
+	/**
+	 * Invalidate the cached query results that depend on the campaign to
+	 * which an item of metadata belongs.
+	 * 
+	 * @param eav_id	the identifier of the changed metadata
+	 */
+	private void invalidateQueryCacheForEav(int eav_id) {
+		
+		int campaign_id = getEavServices().get_campaign_id_for_eav(eav_id);
+		if (campaign_id != 0) {
+			getQueryCache().invalidateCampaign(campaign_id);
+		} else {
+			getQueryCache().invalidateAll();
+		}
+		
+	}
 
 
 }
@@ -0,0 +1,363 @@
+package ch.specchio.factories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.specchio.queries.EAVQueryConditionObject;
+import ch.specchio.queries.Query;
+import ch.specchio.queries.QueryCondition;
+import ch.specchio.types.CacheStatistics;
+
+
+/**
+ * Bounded least-recently-used cache of query results, keyed by a normalised
+ * form of the query and the name of the database user that ran it, so that
+ * each user only sees results computed through their own views. The size of
+ * the cache is limited by the estimated number of bytes used by the cached
+ * results.
+ * 
+ * Each result records the campaigns on which it depends: the campaigns named
+ * by the query's campaign conditions, or all campaigns if the query does not
+ * restrict the campaign. Changing a campaign invalidates the results that
+ * depend on it. Changes to instruments, calibrations, references and
+ * sensors, which conditions may also read, invalidate all results.
+ * 
+ * The capacity in megabytes can be set with the system property
+ * "specchio.query_cache_size"; a capacity of zero disables the cache.
+ */
+public class QueryCache {
+	
+	/** the name of the system property that sets the capacity in megabytes */
+	public static final String CAPACITY_PROPERTY = "specchio.query_cache_size";
+	
+	/** the default capacity in megabytes */
+	public static final long DEFAULT_CAPACITY_MB = 16;
+	
+	/** estimated overhead of an entry in bytes (map entry, key and result object) */
+	private static final long ENTRY_OVERHEAD = 200;
+	
+	/** the cached results, in access order */
+	private LinkedHashMap<String, Result> results;
+	
+	/** the maximum size of the cache in bytes */
+	private long capacity;
+	
+	/** the estimated size of the cache in bytes */
+	private long size = 0;
+	
+	/** incremented on every invalidation */
+	private long generation = 0;
+	
+	/** the number of successful look-ups */
+	private long hits = 0;
+	
+	/** the number of unsuccessful look-ups */
+	private long misses = 0;
+	
+	/** the number of evicted entries */
+	private long evictions = 0;
+	
+	
+	/**
+	 * Construct a cache with the capacity given by the system property, or the
+	 * default capacity if the property is not set.
+	 */
+	public QueryCache() {
+		
+		this(getConfiguredCapacity());
+		
+	}
+	
+	
+	/**
+	 * Construct a cache with a given capacity.
+	 * 
+	 * @param capacity	the maximum size of the cache in bytes
+	 */
+	public QueryCache(long capacity) {
+		
+		this.results = new LinkedHashMap<String, Result>(16, 0.75f, true);
+		this.capacity = capacity;
+		
+	}
+	
+	
+	/**
+	 * Build the key under which the result of a query is cached. Conditions
+	 * on EAV attributes are sorted, since they are combined with "and" and so
+	 * their order does not matter.
+	 * 
+	 * @param user	the name of the database user running the query
+	 * @param query	the query
+	 * 
+	 * @return the key
+	 */
+	public static String buildKey(String user, Query query) {
+		
+		StringBuffer key = new StringBuffer();
+		key.append(user).append('\n');
+		key.append(query.getQueryType()).append('\n');
+		key.append(query.getTableName()).append(' ').append(query.getTableAlias()).append('\n');
+		key.append(query.getColumns()).append('\n');
+		key.append(query.getOrderBy()).append('\n');
+		
+		for (QueryCondition cond : query.getStandardConditionFields()) {
+			key.append(describeCondition(cond)).append('\n');
+		}
+		
+		ArrayList<String> eav_conds = new ArrayList<String>();
+		for (QueryCondition cond : query.getEAVConditionFields()) {
+			eav_conds.add(describeCondition(cond));
+		}
+		Collections.sort(eav_conds);
+		for (String eav_cond : eav_conds) {
+			key.append(eav_cond).append('\n');
+		}
+		
+		return key.toString();
+		
+	}
+	
+	
+	/**
+	 * Get the campaigns on which the result of a query depends.
+	 * 
+	 * @param query	the query
+	 * 
+	 * @return the identifiers of the campaigns, or null if the result could depend on any campaign
+	 */
+	public static Collection<Integer> getCampaignDependencies(Query query) {
+		
+		for (QueryCondition cond : query.getStandardConditionFields()) {
+			String op = cond.getOperator();
+			if ("campaign_id".equals(cond.getFieldName()) && (op == null || op.trim().equals("="))) {
+				try {
+					return Collections.singleton(Integer.parseInt(String.valueOf(cond.getValue()).trim()));
+				}
+				catch (NumberFormatException ex) {
+					// not a single campaign
+				}
+			}
+		}
+		
+		return null;
+		
+	}
+	
+	
+	/**
+	 * Get the current generation of the cache. Results computed before a
+	 * change to the database must not be stored after it; callers should
+	 * read the generation before running a query and pass it to put().
+	 * 
+	 * @return the generation
+	 */
+	public synchronized long getGeneration() {
+		
+		return generation;
+		
+	}
+	
+	
+	/**
+	 * Look up the result of a query.
+	 * 
+	 * @param key	the key returned by buildKey()
+	 * 
+	 * @return a new list containing the cached result, or null if the query is not in the cache
+	 */
+	public synchronized ArrayList<Integer> get(String key) {
+		
+		Result result = results.get(key);
+		if (result == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		
+		ArrayList<Integer> values = new ArrayList<Integer>(result.values.length);
+		for (int value : result.values) {
+			values.add(value);
+		}
+		
+		return values;
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the cache.
+	 * 
+	 * @return a new CacheStatistics object
+	 */
+	public synchronized CacheStatistics getStatistics() {
+		
+		return new CacheStatistics("query results", hits, misses, evictions, results.size(), size, capacity);
+		
+	}
+	
+	
+	/**
+	 * Remove all results from the cache.
+	 */
+	public synchronized void invalidateAll() {
+		
+		results.clear();
+		size = 0;
+		generation++;
+		
+	}
+	
+	
+	/**
+	 * Remove the results that depend on any of a set of campaigns.
+	 * 
+	 * @param campaign_ids	the identifiers of the changed campaigns
+	 */
+	public synchronized void invalidateCampaigns(Collection<Integer> campaign_ids) {
+		
+		Iterator<Result> iter = results.values().iterator();
+		while (iter.hasNext()) {
+			Result result = iter.next();
+			if (result.campaign_ids == null || !Collections.disjoint(result.campaign_ids, campaign_ids)) {
+				size -= result.size;
+				iter.remove();
+			}
+		}
+		generation++;
+		
+	}
+	
+	
+	/**
+	 * Remove the results that depend on a campaign.
+	 * 
+	 * @param campaign_id	the identifier of the changed campaign
+	 */
+	public void invalidateCampaign(int campaign_id) {
+		
+		invalidateCampaigns(Collections.singleton(campaign_id));
+		
+	}
+	
+	
+	/**
+	 * Add the result of a query to the cache, evicting the least recently
+	 * used results if the cache would otherwise exceed its capacity. Nothing
+	 * is added if the cache has been invalidated since the given generation.
+	 * 
+	 * @param key			the key returned by buildKey()
+	 * @param values		the result
+	 * @param campaign_ids	the campaigns on which the result depends, or null for all campaigns
+	 * @param generation	the generation of the cache when the query was started
+	 */
+	public synchronized void put(String key, List<Integer> values, Collection<Integer> campaign_ids, long generation) {
+		
+		if (generation != this.generation) {
+			// the database has changed since the query was run
+			return;
+		}
+		
+		Result result = new Result(key, values, campaign_ids);
+		if (result.size > capacity) {
+			// would never fit
+			return;
+		}
+		
+		Result old = results.put(key, result);
+		if (old != null) {
+			size -= old.size;
+		}
+		size += result.size;
+		
+		// evict least recently used entries
+		Iterator<Map.Entry<String, Result>> iter = results.entrySet().iterator();
+		while (size > capacity && iter.hasNext()) {
+			Map.Entry<String, Result> eldest = iter.next();
+			size -= eldest.getValue().size;
+			iter.remove();
+			evictions++;
+		}
+		
+	}
+	
+	
+	/**
+	 * Describe a condition for use in a key. Only the methods common to all
+	 * conditions are used, except that the referenced table of an EAV
+	 * condition is included as well.
+	 * 
+	 * @param cond	the condition
+	 * 
+	 * @return a string uniquely describing the condition
+	 */
+	private static String describeCondition(QueryCondition cond) {
+		
+		Object value = cond.getValue();
+		String value_string = (value instanceof Object[])? Arrays.toString((Object[])value) : String.valueOf(value);
+		String ref_table = (cond instanceof EAVQueryConditionObject)? ((EAVQueryConditionObject)cond).getRefTableName() : null;
+		
+		return cond.getClass().getName() + " " + cond.getTableName() + " " + ref_table + " " +
+				cond.getAttributeName() + " " + cond.getFieldName() + " " + cond.getOperator() + " " + value_string;
+				
+	}
+	
+	
+	/**
+	 * Get the capacity configured by the system property.
+	 * 
+	 * @return the capacity in bytes
+	 */
+	private static long getConfiguredCapacity() {
+		
+		long capacity_mb = DEFAULT_CAPACITY_MB;
+		String property = System.getProperty(CAPACITY_PROPERTY);
+		if (property != null) {
+			try {
+				capacity_mb = Long.parseLong(property.trim());
+			}
+			catch (NumberFormatException ex) {
+				// ignore malformed values and use the default
+			}
+		}
+		
+		return Math.max(capacity_mb, 0) * 1024 * 1024;
+		
+	}
+	
+	
+	/**
+	 * A cached query result.
+	 */
+	private static class Result {
+		
+		/** the values of the result */
+		public int values[];
+		
+		/** the campaigns on which the result depends, or null for all campaigns */
+		public HashSet<Integer> campaign_ids;
+		
+		/** the estimated size of the entry in bytes */
+		public long size;
+		
+		public Result(String key, List<Integer> values, Collection<Integer> campaign_ids) {
+			
+			this.values = new int[values.size()];
+			for (int i = 0; i < this.values.length; i++) {
+				this.values[i] = values.get(i);
+			}
+			this.campaign_ids = (campaign_ids != null)? new HashSet<Integer>(campaign_ids) : null;
+			this.size = ENTRY_OVERHEAD + 2L * key.length() + 4L * this.values.length;
+			
+		}
+		
+	}
+	
+}
@@ -4,6 +4,8 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 
 import javax.naming.Context;
 import javax.naming.InitialContext;
@@ -34,10 +36,16 @@ public class SPECCHIOFactory {
 	private boolean my_conn = false;
 	
 	/** the data cache */
-	private static DataCache cache = null;
+	private static volatile DataCache cache = null;
 	
 	/** attributes server */
-	private static Attributes attr = null;
+	private static volatile Attributes attr = null;
+	
+	/** cache of decoded measurement vectors */
+	private static MeasurementCache measurement_cache = new MeasurementCache();
+	
+	/** cache of query results */
+	private static QueryCache query_cache = new QueryCache();
 	
 	/** eav services */
 	private EAVDBServices eav = null;
@@ -119,7 +127,7 @@ public class SPECCHIOFactory {
 	 * 
 	 * @throws SPECCHIOFactoryException	database error
 	 */
-	private synchronized void configureCaches() throws SPECCHIOFactoryException {
+	private static synchronized void configureCaches() throws SPECCHIOFactoryException {
 		
 		if (SPECCHIOFactory.attr == null || SPECCHIOFactory.cache == null) {
 			// need to populate at least one cache
@@ -211,6 +219,9 @@ public class SPECCHIOFactory {
 	 */
 	public void dispose() {
 		
+		// release the statements cached by this factory
+		this.sql.closeCachedStatements();
+		
 		try {
 			// release the database connection
 			if (this.my_conn) {
@@ -270,6 +281,58 @@ public class SPECCHIOFactory {
 	}
 	
 	
+	/**
+	 * Reload the data cache from the database. Readers of the cache see either
+	 * the old or the new contents, never a mixture of the two.
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	public void refreshDataCache() throws SPECCHIOFactoryException {
+		
+		try {
+			// get an SQL statement builder using the default connection to the database
+			Connection conn = getDataSource().getConnection();
+			SQL_StatementBuilder sql = new SQL_StatementBuilder(conn);
+			
+			try {
+				getDataCache().reload(sql);
+			}
+			finally {
+				conn.close();
+			}
+		}
+		catch (SQLException ex) {
+			// database error
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+	}
+	
+	
+	/**
+	 * Get a reference to the cache of decoded measurement vectors.
+	 * 
+	 * @return a reference to the unique instance of the measurement cache
+	 */
+	public static MeasurementCache getMeasurementCache() {
+		
+		return measurement_cache;
+		
+	}
+	
+	
+	/**
+	 * Get a reference to the cache of query results.
+	 * 
+	 * @return a reference to the unique instance of the query cache
+	 */
+	public static QueryCache getQueryCache() {
+		
+		return query_cache;
+		
+	}
+	
+	
 	/**
 	 * Get a reference to the data source.
 	 * 
@@ -431,5 +494,54 @@ public class SPECCHIOFactory {
 		return getDatabaseName() + TEMP_DATABASE_SUFFIX;
 		
 	}
+	
+	
+	/**
+	 * Get the campaigns containing a set of spectra.
+	 * 
+	 * @param spectrum_ids	the spectrum identifiers
+	 * 
+	 * @return the identifiers of the campaigns
+	 * 
+	 * @throws SQLException	database error
+	 */
+	public ArrayList<Integer> getCampaignIdsOfSpectra(Collection<Integer> spectrum_ids) throws SQLException {
+		
+		ArrayList<Integer> campaign_ids = new ArrayList<Integer>();
+		
+		if (spectrum_ids.size() > 0) {
+			Statement stmt = getStatementBuilder().createStatement();
+			String query = "select distinct campaign_id from spectrum where " +
+					getStatementBuilder().conc_id_cond("spectrum_id", spectrum_ids);
+			ResultSet rs = stmt.executeQuery(query);
+			while (rs.next()) {
+				campaign_ids.add(rs.getInt(1));
+			}
+			rs.close();
+			stmt.close();
+		}
+		
+		return campaign_ids;
+		
+	}
+	
+	
+	/**
+	 * Invalidate the cached query results that depend on the campaigns
+	 * containing a set of spectra.
+	 * 
+	 * @param spectrum_ids	the identifiers of the changed spectra
+	 */
+	public void invalidateQueryCache(Collection<Integer> spectrum_ids) {
+		
+		try {
+			getQueryCache().invalidateCampaigns(getCampaignIdsOfSpectra(spectrum_ids));
+		}
+		catch (SQLException ex) {
+			// could not find the campaigns; invalidate everything instead
+			getQueryCache().invalidateAll();
+		}
+		
+	}
 
 }
@@ -1,15 +1,15 @@
 package ch.specchio.factories;
 
-import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Blob;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.ListIterator;
 
 import ch.specchio.eav_db.SQL_StatementBuilder;
@@ -20,8 +20,10 @@ import ch.specchio.spaces.RefPanelCalSpace;
 import ch.specchio.spaces.ReferenceSpaceStruct;
 import ch.specchio.spaces.SensorAndInstrumentSpace;
 import ch.specchio.spaces.Space;
+import ch.specchio.spaces.SpaceStreamWriter;
 import ch.specchio.spaces.SpectralSpace;
 import ch.specchio.types.Instrument;
+import ch.specchio.types.MeasurementCodec;
 
 /**
  * Class for creating and manipulating Space objects.
@@ -34,6 +36,9 @@ public class SpaceFactory extends SPECCHIOFactory {
 	/** field by which to order lists of spaces */
 	private String order_by = "date";
 	
+	/** number of measurements read per query when loading a space */
+	private static final int LOAD_BLOCK_SIZE = 500;
+	
 	
 	/**
 	 * Constructor. 
@@ -215,7 +220,7 @@ public class SpaceFactory extends SPECCHIOFactory {
 		}
 		
 		// add id restriction
-		query.append(" where " + getStatementBuilder().prefix(table, id_column) + " in (" + getStatementBuilder().conc_ids(ids) + ")");
+		query.append(" where " + getStatementBuilder().conc_id_cond(getStatementBuilder().prefix(table, id_column), ids));
 		
 		if (order_by != null) {
 			// add order-by clause
@@ -354,7 +359,7 @@ public class SpaceFactory extends SPECCHIOFactory {
 							"a.attribute_id = eav.attribute_id and " + 
 							"a.name = " + SQL.quote_string("Acquisition Time") + " and " +
 							"eav.datetime_val >= c.calibration_date and " +
-							"s.spectrum_id in (" + SQL.conc_ids(ids) + ") " +
+							SQL.conc_id_cond("s.spectrum_id", ids) + " " +
 						"order by (TIMEDIFF(eav.datetime_val, c.calibration_date)) asc " +
 					") as closest_cal group by spectrum_id";
 
@@ -771,6 +776,178 @@ public class SpaceFactory extends SPECCHIOFactory {
 	}
 	
 	
+	/**
+	 * Get the identifiers of the vectors of a space in the order in which
+	 * the vectors are to be loaded.
+	 * 
+	 * @param space	the space
+	 * 
+	 * @return the identifiers in vector order
+	 * 
+	 * @throws SQLException	database error
+	 */
+	private ArrayList<Integer> getVectorOrder(Space space) throws SQLException {
+		
+		String order_by = (space instanceof RefPanelCalSpace)? null : space.getOrderBy();
+		String id_column = getMeasurementIdColumn(space);
+		String columns[] = new String[] { id_column };
+		String query = buildSpaceQuery(getMeasurementTable(space), id_column, columns, space.getSpectrumIds(), order_by);
+		
+		ArrayList<Integer> ids = new ArrayList<Integer>(space.getSpectrumIds().size());
+		Statement stmt = getStatementBuilder().createStatement();
+		ResultSet rs = stmt.executeQuery(query);
+		while (rs.next()) {
+			ids.add(rs.getInt(1));
+		}
+		rs.close();
+		stmt.close();
+		
+		return ids;
+		
+	}
+	
+	
+	/**
+	 * Get the name of the table holding the measurements of a space.
+	 * 
+	 * @param space	the space
+	 * 
+	 * @return "instrumentation_factors" for calibration spaces and "spectrum" otherwise
+	 */
+	private String getMeasurementTable(Space space) {
+		
+		return (space instanceof RefPanelCalSpace)? "instrumentation_factors" : "spectrum";
+		
+	}
+	
+	
+	/**
+	 * Get the name of the primary key of the table holding the measurements of a space.
+	 * 
+	 * @param space	the space
+	 * 
+	 * @return the name of the identifier column
+	 */
+	private String getMeasurementIdColumn(Space space) {
+		
+		return getMeasurementTable(space) + "_id";
+		
+	}
+	
+	
+	/**
+	 * Load the measurements for a block of identifiers. Spectral measurements
+	 * are taken from the measurement cache where possible; the remaining ones
+	 * are read in a single query and added to the cache.
+	 * 
+	 * @param space	the space to which the measurements belong
+	 * @param ids	the identifiers of the measurements, no more than LOAD_BLOCK_SIZE of them
+	 * 
+	 * @return a map of identifiers to decoded measurements
+	 * 
+	 * @throws SQLException	database error
+	 */
+	private HashMap<Integer, float[]> loadMeasurements(Space space, List<Integer> ids) throws SQLException {
+		
+		HashMap<Integer, float[]> measurements = new HashMap<Integer, float[]>();
+		boolean use_cache = !(space instanceof RefPanelCalSpace);
+		MeasurementCache cache = getMeasurementCache();
+		
+		ArrayList<Integer> missing = new ArrayList<Integer>();
+		for (Integer id : ids) {
+			float[] measurement = (use_cache)? cache.get(id) : null;
+			if (measurement != null) {
+				measurements.put(id, measurement);
+			} else {
+				missing.add(id);
+			}
+		}
+		
+		if (missing.size() > 0) {
+			String table = getMeasurementTable(space);
+			String id_column = getMeasurementIdColumn(space);
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			
+			// one placeholder per identifier; full blocks all share the same cached statement
+			StringBuffer placeholders = new StringBuffer("?");
+			for (int i = 1; i < missing.size(); i++) {
+				placeholders.append(", ?");
+			}
+			String query = "select " + id_column + ", measurement from " + table +
+					" where " + id_column + " in (" + placeholders + ")";
+			PreparedStatement pstmt = SQL.prepareCachedStatement(query);
+			for (int i = 0; i < missing.size(); i++) {
+				pstmt.setInt(i + 1, missing.get(i));
+			}
+			ResultSet rs = SQL.executeQuery(pstmt);
+			while (rs.next()) {
+				int id = rs.getInt(1);
+				float[] measurement = readMeasurement(rs.getBlob(2));
+				measurements.put(id, measurement);
+				if (use_cache) {
+					cache.put(id, measurement);
+				}
+			}
+			rs.close();
+		}
+		
+		return measurements;
+		
+	}
+	
+	
+	/**
+	 * Decode a measurement blob.
+	 * 
+	 * @param measurement	the blob, or null
+	 * 
+	 * @return the values stored in the blob
+	 * 
+	 * @throws SQLException	database error
+	 */
+	private float[] readMeasurement(Blob measurement) throws SQLException {
+		
+		if (measurement == null) {
+			return new float[0];
+		}
+		
+		return MeasurementCodec.decode(measurement.getBytes(1, (int)measurement.length()));
+		
+	}
+	
+	
+	/**
+	 * Convert a decoded measurement into a vector of a space. If the
+	 * dimensionality of the space is not yet known, it is taken from the
+	 * measurement.
+	 * 
+	 * @param measurement	the decoded measurement, or null if there is none
+	 * @param space			the space to which the vector belongs
+	 * 
+	 * @return a new vector
+	 */
+	private double[] toVector(float[] measurement, Space space) {
+		
+		if (measurement == null) {
+			measurement = new float[0];
+		}
+		
+		if(!space.getWvlsAreKnown() && space.getDimensionalityIsSet() == false)
+		{
+			space.setDimensionality(measurement.length);
+		}
+		
+		double[] vector = new double[space.getDimensionality()];
+		int n = Math.min(vector.length, measurement.length);
+		for (int i = 0; i < n; i++) {
+			vector[i] = measurement[i];
+		}
+		
+		return vector;
+		
+	}
+	
+	
 	/**
 	 * Load a Space object from the database.
 	 * 
@@ -784,71 +961,14 @@ public class SpaceFactory extends SPECCHIOFactory {
 			space.clearDataVectors();
 	
 			try {
-				// create SQL-building objects
-				SQL_StatementBuilder SQL = getStatementBuilder();
-				Statement stmt = SQL.createStatement();
-				
-				// build query
-				String table;
-				String id_column;
-				String order_by;
-				if (space instanceof RefPanelCalSpace) {
-					// load instrumentation calibration factors
-					table = "instrumentation_factors";
-					id_column = "instrumentation_factors_id";
-					order_by = null;
-				} else {
-					// load spectral data
-					table = "spectrum";
-					id_column = "spectrum_id";
-					order_by = space.getOrderBy();
-				}
-				String columns[] = new String[] { "measurement" };
-				String query = buildSpaceQuery(table, id_column, columns, space.getSpectrumIds(), order_by); 
-				
-				ResultSet rs = stmt.executeQuery(query);
-				while (rs.next()) 
-				{
-					Blob measurement = rs.getBlob(1);
-					InputStream binstream = measurement.getBinaryStream();
-					DataInput dis = new DataInputStream(binstream);
-					
-					if(!space.getWvlsAreKnown() && space.getDimensionalityIsSet() == false)
-					{
-						try {
-							space.setDimensionality(binstream.available() / 4);
-						} catch (IOException e) {
-							// dont't know what would cause this
-							e.printStackTrace();
-						}
+				ArrayList<Integer> ids = getVectorOrder(space);
+				for (int start = 0; start < ids.size(); start += LOAD_BLOCK_SIZE) {
+					List<Integer> block = ids.subList(start, Math.min(start + LOAD_BLOCK_SIZE, ids.size()));
+					HashMap<Integer, float[]> measurements = loadMeasurements(space, block);
+					for (Integer id : block) {
+						space.addVector(toVector(measurements.get(id), space));
 					}
-					
-					double[] vector = new double[space.getDimensionality()];
-					
-					for(int i = 0; i < space.getDimensionality(); i++)
-					{
-						try {
-							Float f = dis.readFloat();
-							vector[i] = f.doubleValue();
-						} catch (IOException e) {
-							// don't know what would cause this
-							e.printStackTrace();
-						}				
-					}
-					
-					try {
-						binstream.close();
-					} catch (IOException e) {
-						// don't know what woudl cause this
-						e.printStackTrace();
-					}
-					
-					space.addVector(vector);
-		
 				}
-				
-				rs.close();	
-				stmt.close();
 			} catch (SQLException ex) {
 				// database error
 				throw new SPECCHIOFactoryException(ex);
@@ -856,6 +976,67 @@ public class SpaceFactory extends SPECCHIOFactory {
 	}
 	
 	
+	/**
+	 * Load the vectors of a Space object from the database and write them to
+	 * an output stream in the binary space transport format. The vectors are
+	 * written as they are read and are not stored in the space.
+	 * 
+	 * @param space	a partially-filled Space object
+	 * @param os	the output stream
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 * @throws IOException				could not write to the output stream
+	 */
+	public void loadSpace(Space space, OutputStream os) throws SPECCHIOFactoryException, IOException {
+		
+		try {
+			SpaceStreamWriter writer = new SpaceStreamWriter(os);
+			boolean header_written = false;
+			
+			ArrayList<Integer> ids = getVectorOrder(space);
+			for (int start = 0; start < ids.size(); start += LOAD_BLOCK_SIZE) {
+				List<Integer> block = ids.subList(start, Math.min(start + LOAD_BLOCK_SIZE, ids.size()));
+				HashMap<Integer, float[]> measurements = loadMeasurements(space, block);
+				for (Integer id : block) {
+					double[] vector = toVector(measurements.get(id), space);
+					if (!header_written) {
+						// the dimensionality may only be known after reading the first vector
+						writer.writeHeader(space.getDimensionality(), space.getSpectrumIds(), getWavelengths(space));
+						header_written = true;
+					}
+					writer.writeVector(vector);
+				}
+			}
+			if (!header_written) {
+				writer.writeHeader((space.getDimensionality() != null)? space.getDimensionality() : 0, space.getSpectrumIds(), getWavelengths(space));
+			}
+			writer.close();
+		} catch (SQLException ex) {
+			// database error
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+	}
+	
+	
+	/**
+	 * Get the wavelengths of a space for the binary space transport format.
+	 * 
+	 * @param space	the space
+	 * 
+	 * @return the space's wavelengths, or null if they are not known
+	 */
+	private double[] getWavelengths(Space space) {
+		
+		if (space instanceof SpectralSpace && space.getWvlsAreKnown()) {
+			return ((SpectralSpace)space).getAverageWavelengths();
+		} else {
+			return null;
+		}
+		
+	}
+	
+	
 	public void setMatchOnlySensor(boolean match_only_sensor) {
 		
 		this.match_only_sensor = match_only_sensor;
@@ -3,6 +3,7 @@ package ch.specchio.factories;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -11,6 +12,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import ch.specchio.constants.FileTypes;
 import ch.specchio.db_import_export.CampaignExport;
 import ch.specchio.db_import_export.CampaignImport;
 import ch.specchio.eav_db.SQL_StatementBuilder;
@@ -22,6 +24,9 @@ import ch.specchio.types.User;
 
 public class SpecchioCampaignFactory extends CampaignFactory {
 	
+	/** the number of connections over which the link tables of an imported campaign are loaded */
+	private static final int LINK_TABLE_LOADERS = 4;
+	
 	
 	/**
 	 * Constructor.
@@ -115,8 +120,26 @@ public class SpecchioCampaignFactory extends CampaignFactory {
 	 */
 	public void exportCampaign(int campaign_id, OutputStream os) throws SPECCHIOFactoryException, IOException {
 		
+		exportCampaign(campaign_id, os, FileTypes.CAMPAIGN_EXPORT_XML);
+		
+	}
+	
+	
+	/**
+	 * Export a campaign to an output stream in a given format.
+	 * 
+	 * @param campaign_id	the identifier of the campaign to be exported
+	 * @param os			the output stream to export to
+	 * @param file_type		FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY or FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	 * 
+	 * @throws SPECCHIOFactoryException	no such campaign
+	 * @throws IOException				could not write to the output stream
+	 * @throws IllegalArgumentException	unsupported file type
+	 */
+	public void exportCampaign(int campaign_id, OutputStream os, int file_type) throws SPECCHIOFactoryException, IOException {
+		
 		CampaignExport cex = new CampaignExport(getStatementBuilder(), getDatabaseName(), campaign_id);
-		cex.export(os);
+		cex.export(os, file_type);
 		
 	}
 	
@@ -288,22 +311,41 @@ public class SpecchioCampaignFactory extends CampaignFactory {
 	/**
 	 * Import a campaign from an input stream.
 	 * 
-	 * @param userId	the identifier of the user who will own the campaign
-	 * @param is		the input stream
+	 * @param userId		the identifier of the user who will own the campaign
+	 * @param is			the input stream
+	 * @param db_user		database account user name, for the link table loaders
+	 * @param db_password	database account password
 	 *
 	 * @throws IOException				the stream could not be read
 	 * @throws SPECCHIOFactoryException	database error
 	 */
-	public void importCampaign(int userId, InputStream is) throws IOException, SPECCHIOFactoryException {
+	public void importCampaign(int userId, InputStream is, String db_user, String db_password) throws IOException, SPECCHIOFactoryException {
 		
+		// the link tables are loaded in parallel over connections of their own, opened as the same database user
+		ArrayList<SPECCHIOFactory> loaders = new ArrayList<SPECCHIOFactory>();
 		try {
+			ArrayList<Connection> loader_connections = new ArrayList<Connection>();
+			for (int i = 0; i < LINK_TABLE_LOADERS; i++) {
+				SPECCHIOFactory loader = new SPECCHIOFactory(db_user, db_password);
+				loaders.add(loader);
+				loader_connections.add(loader.getConnection());
+			}
+			
 			CampaignImport cim = new CampaignImport(getStatementBuilder(), getDatabaseName(), userId);
-			cim.read_input_stream(is);
+			cim.read_input_stream(is, loader_connections);
+			
+			// queries over all campaigns may now match the imported spectra
+			getQueryCache().invalidateAll();
 		}
 		catch (SQLException ex) {
 			// database error
 			throw new SPECCHIOFactoryException(ex);
 		}
+		finally {
+			for (SPECCHIOFactory loader : loaders) {
+				loader.dispose();
+			}
+		}
 		
 	}
 	
@@ -509,6 +551,8 @@ public class SpecchioCampaignFactory extends CampaignFactory {
 			
 			stmt.close();
 			
+			getQueryCache().invalidateCampaign(campaign_id);
+			
 		}
 		catch (SQLException ex) {
 			// bad SQL
@@ -532,35 +576,48 @@ public class SpecchioCampaignFactory extends CampaignFactory {
 		
 		try {
 			
-			Statement stmt = getStatementBuilder().createStatement();
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			Statement stmt = SQL.createStatement();
 			String table_name;
-			String cmd;
+			String query;
+			ResultSet rs;
 			
-			// remove all spectrum nodes under this hierarchy
-			SpectrumFactory sf = new SpectrumFactory(this);
-			String query = "select spectrum_id from spectrum where hierarchy_level_id = " + Integer.toString(hierarchy_id);
-			ResultSet rs = stmt.executeQuery(query);	
-			while (rs.next()) {	
-				int spectrum_id = rs.getInt(1);
-				sf.removeSpectrum(spectrum_id, is_admin);
+			// find the whole sub-hierarchy, one level at a time
+			ArrayList<ArrayList<Integer>> levels = new ArrayList<ArrayList<Integer>>();
+			ArrayList<Integer> level = new ArrayList<Integer>();
+			level.add(hierarchy_id);
+			while (level.size() > 0) {
+				levels.add(level);
+				ArrayList<Integer> sub_level = new ArrayList<Integer>();
+				query = "select hierarchy_level_id from hierarchy_level where " + SQL.conc_id_cond("parent_level_id", level);
+				rs = stmt.executeQuery(query);
+				while (rs.next()) {
+					sub_level.add(rs.getInt(1));
+				}
+				rs.close();
+				level = sub_level;
 			}
-			rs.close();
 			
-			// remove all sub-hierarchies
-			query = "select hierarchy_level_id, name from hierarchy_level where parent_level_id = " + Integer.toString(hierarchy_id);
-			rs = stmt.executeQuery(query);
-			while (rs.next()) {
-				int hierarchy_level_id = rs.getInt(1);		
-				String sub_name = rs.getString(2);
-				removeHierarchyNode(hierarchy_level_id, name+"/"+sub_name, is_admin);
-			}	
-			rs.close();		
+			// remove all spectrum nodes under this hierarchy in one go
+			ArrayList<Integer> spectrum_ids = new ArrayList<Integer>();
+			for (ArrayList<Integer> hierarchy_ids : levels) {
+				query = "select spectrum_id from spectrum where " + SQL.conc_id_cond("hierarchy_level_id", hierarchy_ids);
+				rs = stmt.executeQuery(query);	
+				while (rs.next()) {	
+					spectrum_ids.add(rs.getInt(1));
+				}
+				rs.close();
+			}
+			SpectrumFactory sf = new SpectrumFactory(this);
+			sf.removeSpectra(spectrum_ids, is_admin);
 			
 			table_name = (is_admin)? "hierarchy_level" : "hierarchy_level_view";
 	
-			// remove hierarchy itself
-			cmd = "delete from "+table_name+" where hierarchy_level_id = " + Integer.toString(hierarchy_id);
-			stmt.executeUpdate(cmd); 
+			// remove the hierarchies themselves, deepest first
+			for (int i = levels.size() - 1; i >= 0; i--) {
+				String cmd = "delete from " + table_name + " where " + SQL.conc_id_cond("hierarchy_level_id", levels.get(i));
+				stmt.executeUpdate(cmd);
+			}
 			
 			stmt.close();
 			
@@ -680,6 +737,9 @@ public class SpecchioCampaignFactory extends CampaignFactory {
 				// update research group tables
 				updateResearchGroup(campaign.getResearchGroup());
 			}
+			
+			// conditions may refer to the campaign's name or path
+			getQueryCache().invalidateCampaign(campaign.getId());
 		}
 		catch (SQLException ex) {
 			// database error
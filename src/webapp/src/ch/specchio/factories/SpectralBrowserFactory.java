@@ -1,5 +1,6 @@
 package ch.specchio.factories;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -164,21 +165,22 @@ public class SpectralBrowserFactory extends SPECCHIOFactory {
 			try {
 				
 				// build a query that will return the node's internal children
-				String query = null;
+				SQL_StatementBuilder SQL = getStatementBuilder();
+				PreparedStatement pstmt = null;
 				if (node instanceof campaign_node) {
-					query = "select hierarchy_level_id, name from " + getChildViewName((campaign_node)node) +
-							" where campaign_id = " + node.getId() + " and parent_level_id is null";
+					pstmt = SQL.prepareCachedStatement("select hierarchy_level_id, name from " + getChildViewName((campaign_node)node) +
+							" where campaign_id = ? and parent_level_id is null");
+					pstmt.setInt(1, node.getId());
 				} else if (node instanceof database_node) {
-					query = "select campaign_id, name from " + getChildViewName((database_node)node);
+					pstmt = SQL.prepareCachedStatement("select campaign_id, name from " + getChildViewName((database_node)node));
 				} else if (node instanceof hierarchy_node) {
-					query = "select hierarchy_level_id, name from hierarchy_level where parent_level_id = " + node.getId() + " order by name";
+					pstmt = SQL.prepareCachedStatement("select hierarchy_level_id, name from hierarchy_level where parent_level_id = ? order by name");
+					pstmt.setInt(1, node.getId());
 				}
 				
-				Statement stmt = getStatementBuilder().createStatement();
-				
 				// get a list of nodes that match the query
-				if (query != null) {
-					ResultSet rs = stmt.executeQuery(query);
+				if (pstmt != null) {
+					ResultSet rs = SQL.executeQuery(pstmt);
 					while (rs.next()) {
 						Integer child_id = rs.getInt(1);
 						String child_name = rs.getString(2);
@@ -191,27 +193,30 @@ public class SpectralBrowserFactory extends SPECCHIOFactory {
 				if (node instanceof hierarchy_node) {
 					int order_by_attribute_id = getAttributes().get_attribute_id(node.getOrderBy());
 					String order_by_storage_field = getAttributes().get_default_storage_field(order_by_attribute_id);
-					query = "select t1.spectrum_id, t1.string_val from " +
+					String query = "select t1.spectrum_id, t1.string_val from " +
 						"(" +
 							"select spectrum.spectrum_id, eav.string_val " +
 							"from spectrum, spectrum_x_eav, eav " +
-							"where spectrum.hierarchy_level_id = " + node.getId() + " " +
+							"where spectrum.hierarchy_level_id = ? " +
 								"and spectrum_x_eav.spectrum_id = spectrum.spectrum_id " +
 								"and spectrum_x_eav.eav_id = eav.eav_id " +
-								"and eav.attribute_id = " + getAttributes().get_attribute_id("File Name") +
+								"and eav.attribute_id = ?" +
 						") t1 " +
 						"left join " +
 						"(" +
 							"select spectrum_x_eav.spectrum_id, eav.eav_id, eav." + order_by_storage_field + " " +
 							"from spectrum_x_eav, eav " +
 							"where spectrum_x_eav.eav_id = eav.eav_id " +
-								"and eav.attribute_id = " + order_by_attribute_id +
+								"and eav.attribute_id = ?" +
 						") t2 " +
 						"on t2.spectrum_id = t1.spectrum_id " +
 						"order by t2." + order_by_storage_field;
+					pstmt = SQL.prepareCachedStatement(query);
+					pstmt.setInt(1, node.getId());
+					pstmt.setInt(2, getAttributes().get_attribute_id("File Name"));
+					pstmt.setInt(3, order_by_attribute_id);
 					
-					
-					ResultSet rs = stmt.executeQuery(query);
+					ResultSet rs = SQL.executeQuery(pstmt);
 					while (rs.next()) {
 						Integer child_id = rs.getInt(1);
 						String child_name = rs.getString(2);
@@ -220,8 +225,6 @@ public class SpectralBrowserFactory extends SPECCHIOFactory {
 					rs.close();
 				}
 				
-				stmt.close();
-				
 				
 			} catch (SQLException ex) {
 				// bad SQL
@@ -1,7 +1,7 @@
 package ch.specchio.factories;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -10,9 +10,12 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.TimeZone;
 
 import ch.specchio.types.Campaign;
@@ -23,7 +26,6 @@ import ch.specchio.types.Metadata;
 import ch.specchio.types.SpectralFile;
 import ch.specchio.types.SpectrumDataLink;
 import ch.specchio.eav_db.SQL_StatementBuilder;
-import ch.specchio.eav_db.id_and_op_struct;
 
 
 /**
@@ -37,6 +39,15 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 	/** campaign factory for inserting hierarchy nodes */
 	private CampaignFactory campaign_factory = null;
 	
+	/** file format identifiers that have already been looked up, by name */
+	private Hashtable<String, Integer> file_format_ids = new Hashtable<String, Integer>();
+	
+	/** illumination source identifiers that have already been looked up, by name */
+	private Hashtable<String, Integer> illumination_source_ids = new Hashtable<String, Integer>();
+	
+	/** hierarchy links waiting to be inserted at the end of a batch, or null if links are inserted immediately */
+	private ArrayList<HierarchyLinks> pending_hierarchy_links = null;
+	
 	/**
 	 * Constructor. This constructor builds a spectral file factory that is not associated with
 	 * a particular campaign. Some factory methods cannot be used without a campaign.
@@ -86,6 +97,10 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 	 */
 	public int getIdForFileFormat(String file_format_name) throws SPECCHIOFactoryException {
 		
+		if (file_format_name != null && file_format_ids.containsKey(file_format_name)) {
+			return file_format_ids.get(file_format_name);
+		}
+		
 		// initialise to "not found"
 		int file_format_id = -1;
 		
@@ -107,6 +122,10 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 			throw new SPECCHIOFactoryException(ex);
 		}
 		
+		if (file_format_name != null) {
+			file_format_ids.put(file_format_name, file_format_id);
+		}
+		
 		return file_format_id;
 	
 	}
@@ -273,6 +292,12 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 	void insertHierarchySpectrumReferences(int hierarchy_id, ArrayList<Integer> spectrum_ids, int recursion_break_at_hierarchy_id) throws SPECCHIOFactoryException {
 		if (spectrum_ids.size() == 0)
 			return; // catch empty list
+		
+		if (pending_hierarchy_links != null) {
+			// inserting a batch; the links are inserted by insertPendingHierarchyLinks()
+			pending_hierarchy_links.add(new HierarchyLinks(hierarchy_id, spectrum_ids, recursion_break_at_hierarchy_id));
+			return;
+		}
 
 		try {
 			
@@ -293,16 +318,19 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 
 			// check if there is a parent of this hierarchy
 			if (hierarchy_id != recursion_break_at_hierarchy_id) {
-				query = "select parent_level_id from hierarchy_level where hierarchy_level_id = " + hierarchy_id;
-				ResultSet rs = stmt.executeQuery(query);
+				PreparedStatement pstmt = SQL.prepareCachedStatement("select parent_level_id from hierarchy_level where hierarchy_level_id = ?");
+				pstmt.setInt(1, hierarchy_id);
+				ResultSet rs = SQL.executeQuery(pstmt);
+				int parent_id = 0;
 				if (rs.next()) {
-					int parent_id = rs.getInt(1);
-	
-					if (parent_id != 0) {
-						insertHierarchySpectrumReferences(parent_id, spectrum_ids, recursion_break_at_hierarchy_id);
-					}
+					parent_id = rs.getInt(1);
 				}
 				rs.close();
+				
+				// the cached statement is re-used by the recursive call, so the result set must be closed first
+				if (parent_id != 0) {
+					insertHierarchySpectrumReferences(parent_id, spectrum_ids, recursion_break_at_hierarchy_id);
+				}
 			}
 
 			stmt.close();
@@ -314,6 +342,64 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 	}
 	
 
+	/**
+	 * Insert the hierarchy links collected while inserting a batch. Each
+	 * hierarchy node gets a single multi-row insert holding the spectra of
+	 * all of the files in the batch that are linked to it, and the parent of
+	 * each node is only looked up once.
+	 * 
+	 * @param links	the links collected while inserting the batch
+	 * 
+	 * @throws SPECCHIOFactoryException	could not access the database
+	 */
+	private void insertPendingHierarchyLinks(ArrayList<HierarchyLinks> links) throws SPECCHIOFactoryException {
+		
+		LinkedHashMap<Integer, ArrayList<Integer>> spectrum_ids = new LinkedHashMap<Integer, ArrayList<Integer>>();
+		HashMap<Integer, Integer> parent_ids = new HashMap<Integer, Integer>();
+		
+		try {
+			
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			PreparedStatement pstmt = SQL.prepareCachedStatement("select parent_level_id from hierarchy_level where hierarchy_level_id = ?");
+			
+			// walk up from each node, stopping where insertHierarchySpectrumReferences() would stop
+			for (HierarchyLinks link : links) {
+				int hierarchy_id = link.hierarchy_id;
+				while (hierarchy_id != 0) {
+					ArrayList<Integer> ids = spectrum_ids.get(hierarchy_id);
+					if (ids == null) {
+						ids = new ArrayList<Integer>();
+						spectrum_ids.put(hierarchy_id, ids);
+					}
+					ids.addAll(link.spectrum_ids);
+					
+					if (hierarchy_id == link.recursion_break_at_hierarchy_id) {
+						break;
+					}
+					Integer parent_id = parent_ids.get(hierarchy_id);
+					if (parent_id == null) {
+						pstmt.setInt(1, hierarchy_id);
+						ResultSet rs = SQL.executeQuery(pstmt);
+						parent_id = (rs.next())? rs.getInt(1) : 0;
+						rs.close();
+						parent_ids.put(hierarchy_id, parent_id);
+					}
+					hierarchy_id = parent_id;
+				}
+			}
+			
+		} catch (SQLException ex) {
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+		// breaking the recursion at the node itself inserts the links of that node only
+		for (Map.Entry<Integer, ArrayList<Integer>> entry : spectrum_ids.entrySet()) {
+			insertHierarchySpectrumReferences(entry.getKey(), entry.getValue(), entry.getKey());
+		}
+		
+	}
+	
+
 	/**
 	 * Insert a link between two spectra.
 	 * 
@@ -575,6 +661,73 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 	}
 	
 	
+	/**
+	 * Insert a batch of spectral files into the database in a single
+	 * transaction. Each file is inserted under the hierarchy node given by
+	 * its hierarchy identifier. If any file cannot be inserted, none of the
+	 * files in the batch are inserted.
+	 * 
+	 * @param spec_files	the files to be inserted
+	 * 
+	 * @return a list containing the list of spectrum identifiers created for each file
+	 * 
+	 * @throws SPECCHIOFactoryException	the files could not be inserted
+	 */
+	public List<List<Integer>> insertSpectralFiles(List<SpectralFile> spec_files) throws SPECCHIOFactoryException {
+		
+		List<List<Integer>> ids = new ArrayList<List<Integer>>(spec_files.size());
+		Connection conn = getConnection();
+		boolean committed = false;
+		
+		try {
+			
+			conn.setAutoCommit(false);
+			try {
+				
+				// collect the hierarchy links of all of the files and insert them together
+				ArrayList<HierarchyLinks> links = new ArrayList<HierarchyLinks>();
+				pending_hierarchy_links = links;
+				try {
+					for (SpectralFile spec_file : spec_files) {
+						ids.add(insertSpectralFile(spec_file, spec_file.getHierarchyId()));
+					}
+				}
+				finally {
+					pending_hierarchy_links = null;
+				}
+				insertPendingHierarchyLinks(links);
+				
+				conn.commit();
+				committed = true;
+				
+				// only now may other connections link to the metaparameters inserted by this batch
+				getEavServices().publish_uncommitted_metaparameters();
+				
+			}
+			finally {
+				
+				if (!committed) {
+					conn.rollback();
+					getEavServices().discard_uncommitted_metaparameters();
+				}
+				conn.setAutoCommit(true);
+				
+			}
+			
+		}
+		catch (SQLException ex) {
+			// database error
+			throw new SPECCHIOFactoryException(ex);
+		}
+		
+		// queries run while the transaction was open could not see the new spectra
+		getQueryCache().invalidateCampaign(campaign.getId());
+		
+		return ids;
+		
+	}
+	
+	
 	/**
 	 * Insert a spectrum into the database.
 	 * 
@@ -608,13 +761,9 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 				Integer illumination_source_id = 0;
 				Integer gonio_id = 0;
 				Integer sampling_environment_id = 0;
-				id_and_op_struct hierarchy_id_and_op, campaign_id_and_op, illumination_source_id_and_op, gonio_id_and_op, sampling_environment_id_and_op;
 				String query;
 				ResultSet rs;
-				SQL_StatementBuilder SQL = new SQL_StatementBuilder(getConnection());
-		
-				campaign_id_and_op = SQL.is_null_key_get_val_and_op(campaign.getId());
-				hierarchy_id_and_op = SQL.is_null_key_get_val_and_op(hierarchy_id);
+				SQL_StatementBuilder SQL = getStatementBuilder();
 				
 				Metadata md = spec_file.getEavMetadata(spec_no);
 		
@@ -649,21 +798,27 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 				// illum
 				if (spec_file.getLightSource() != null) {
 		
-					query = "select illumination_source_id from illumination_source where name = '"
-							+ spec_file.getLightSource() + "'";
-					Statement stmt = getStatementBuilder().createStatement();
-					rs = stmt.executeQuery(query);
-		
-					while (rs.next()) {
-						illumination_source_id = rs.getInt(1);
+					illumination_source_id = illumination_source_ids.get(spec_file.getLightSource());
+					if (illumination_source_id == null) {
+						
+						illumination_source_id = 0;
+						query = "select illumination_source_id from illumination_source where name = '"
+								+ spec_file.getLightSource() + "'";
+						Statement stmt = getStatementBuilder().createStatement();
+						rs = stmt.executeQuery(query);
+						
+						while (rs.next()) {
+							illumination_source_id = rs.getInt(1);
+						}
+						
+						rs.close();
+						stmt.close();
+						
+						illumination_source_ids.put(spec_file.getLightSource(), illumination_source_id);
+						
 					}
 		
-					rs.close();
-					stmt.close();
-		
 				}
-				illumination_source_id_and_op = SQL
-						.is_null_key_get_val_and_op(illumination_source_id);
 		
 				// gonio
 				if (spec_file.getInstrumentName() != null) {
@@ -671,14 +826,11 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 					gonio_id = getDataCache().get_goniometer_id(spec_file.getInstrumentName());
 		
 				}
-				gonio_id_and_op = SQL.is_null_key_get_val_and_op(gonio_id);
 		
 				// sampling environment
 				if (spec_file.getSamplingEnvironment() != null) {			
 					sampling_environment_id = getDataCache().get_sampling_environment_id(spec_file.getSamplingEnvironment());			
 				}
-				sampling_environment_id_and_op = SQL
-						.is_null_key_get_val_and_op(sampling_environment_id);
 				
 				
 				// geometry via EAV: SPECCHIO V3.0
@@ -724,52 +876,36 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 						+ "("
 						+ " hierarchy_level_id, sensor_id, campaign_id, "
 						+ "file_format_id, instrument_id, "
-						+ "measurement_unit_id, measurement_type_id, illumination_source_id, goniometer_id, sampling_environment_id) "
-						+ "VALUES (" 
-						+ hierarchy_id_and_op.id
-						+ ", "
-						+ SQL.is_null_key_get_val_and_op(getDataCache().get_sensor_id_for_file(spec_file, spec_no)).id
-						+ ", "
-						+ campaign_id_and_op.id
-						+ ", "
-						+ (file_format_id == -1 ? "null" : Integer.toString(file_format_id))
-						+ ", "
-						+ getDataCache().get_instrument_id_for_file(spec_file, spec_no)
-						+ ", "
-						+ SQL.is_null_key_get_val_and_op(getDataCache().get_measurement_unit_id_for_file(spec_file, spec_no)).id
-						+ ", "
-						+ getDataCache().get_measurement_type_id_for_file(spec_file, spec_no)
-						+ ", "
-						+ illumination_source_id_and_op.id
-						+ ", "
-						+ gonio_id_and_op.id
-						+ ", "
-						+ sampling_environment_id_and_op.id + ")";
-				
-				Statement stmt = getStatementBuilder().createStatement();
-				stmt.executeUpdate(query);
-				
-				rs = stmt.executeQuery("SELECT LAST_INSERT_ID()");
+						+ "measurement_unit_id, measurement_type_id, illumination_source_id, goniometer_id, sampling_environment_id, measurement) "
+						+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+				
+				// insert the spectrum and its measurement blob in a single statement
+				PreparedStatement statement = SQL.prepareCachedStatement(query, Statement.RETURN_GENERATED_KEYS);
+				SQL.setNullableId(statement, 1, hierarchy_id);
+				SQL.setNullableId(statement, 2, getDataCache().get_sensor_id_for_file(spec_file, spec_no));
+				SQL.setNullableId(statement, 3, campaign.getId());
+				SQL.setNullableId(statement, 4, (file_format_id == -1)? null : file_format_id);
+				SQL.setNullableId(statement, 5, getDataCache().get_instrument_id_for_file(spec_file, spec_no));
+				SQL.setNullableId(statement, 6, getDataCache().get_measurement_unit_id_for_file(spec_file, spec_no));
+				SQL.setNullableId(statement, 7, getDataCache().get_measurement_type_id_for_file(spec_file, spec_no));
+				SQL.setNullableId(statement, 8, illumination_source_id);
+				SQL.setNullableId(statement, 9, gonio_id);
+				SQL.setNullableId(statement, 10, sampling_environment_id);
+				statement.setBytes(11, spec_file.getMeasurementBytes(spec_no));
+				SQL.executeUpdate(statement);
+				
+				rs = statement.getGeneratedKeys();
 				while (rs.next())
 					id = rs.getInt(1);
 				rs.close();
 				
-				stmt.close();
-		
-				// insert the measurement blob
-				String update_stm = "UPDATE spectrum_view set measurement = ? where spectrum_id = "
-						+ id.toString();
-				PreparedStatement statement = SQL.prepareStatement(update_stm);
-		
-				InputStream refl = spec_file.getInputStream(spec_no);
-				statement.setBinaryStream(1, refl, spec_file.getNumberOfChannels(0) * 4);
-				statement.executeUpdate();
-		
-				try {
-					refl.close();
-				} catch (IOException e) {
-					// should never happen
-					e.printStackTrace();
+				// make sure that no stale vector is cached under a re-used identifier
+				getMeasurementCache().remove(id);
+				
+				// cached query results for this campaign may now be incomplete; a batch
+				// invalidates them itself once its transaction has committed
+				if (getConnection().getAutoCommit()) {
+					getQueryCache().invalidateCampaign(spec_file.getCampaignId());
 				}
 				
 				// filename
@@ -959,24 +1095,25 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 		try {
 			// build a query that will return "1" if the file exists
 			SQL_StatementBuilder SQL = getStatementBuilder();
-			Statement stmt = SQL.createStatement();
-			id_and_op_struct p_id_and_op = new id_and_op_struct(hierarchy_id);
 			String query = "select count(spectrum.spectrum_id) from spectrum, spectrum_x_eav, eav, hierarchy_level_x_spectrum" +
 					" where spectrum.spectrum_id=spectrum_x_eav.spectrum_id" +
 					" and spectrum_x_eav.eav_id=eav.eav_id" +
-					" and eav.attribute_id=" + getAttributes().get_attribute_id("File Name") +
-					" and eav.string_val=" + SQL.quote_string(filename) +
+					" and eav.attribute_id=?" +
+					" and eav.string_val=?" +
 					" and hierarchy_level_x_spectrum.spectrum_id=spectrum.spectrum_id" +
-					" and hierarchy_level_x_spectrum.hierarchy_level_id " + p_id_and_op.op + " " + p_id_and_op.id;
+					" and hierarchy_level_x_spectrum.hierarchy_level_id <=> ?";
+			PreparedStatement pstmt = SQL.prepareCachedStatement(query);
+			pstmt.setInt(1, getAttributes().get_attribute_id("File Name"));
+			pstmt.setString(2, filename);
+			SQL.setNullableId(pstmt, 3, hierarchy_id);
 
 			// execute the statement
-			ResultSet rs = stmt.executeQuery(query);
+			ResultSet rs = SQL.executeQuery(pstmt);
 			int exists = 0;
 			while (rs.next()) {
 				exists = rs.getInt(1);
 			}
 			rs.close();
-			stmt.close();
 			
 			return exists > 0;
 			
@@ -988,5 +1125,30 @@ public class SpectralFileFactory extends SPECCHIOFactory {
 		
 	}	
 	
-
+	
+	/**
+	 * The links between a hierarchy node and a list of spectra that are
+	 * waiting to be inserted.
+	 */
+	private static class HierarchyLinks {
+		
+		/** the hierarchy node */
+		public int hierarchy_id;
+		
+		/** the spectra */
+		public ArrayList<Integer> spectrum_ids;
+		
+		/** the last ancestor to which the spectra are linked, or 0 for all ancestors */
+		public int recursion_break_at_hierarchy_id;
+		
+		public HierarchyLinks(int hierarchy_id, ArrayList<Integer> spectrum_ids, int recursion_break_at_hierarchy_id) {
+			
+			this.hierarchy_id = hierarchy_id;
+			this.spectrum_ids = spectrum_ids;
+			this.recursion_break_at_hierarchy_id = recursion_break_at_hierarchy_id;
+			
+		}
+		
+	}
+	
 }
@@ -5,7 +5,14 @@ import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
 
 import ch.specchio.eav_db.SQL_StatementBuilder;
 import ch.specchio.queries.EAVQueryConditionObject;
@@ -14,6 +21,7 @@ import ch.specchio.queries.QueryCondition;
 import ch.specchio.types.Instrument;
 import ch.specchio.types.MetaDatatype;
 import ch.specchio.types.MetaParameter;
+import ch.specchio.types.Metadata;
 import ch.specchio.types.Picture;
 import ch.specchio.types.PictureTable;
 import ch.specchio.types.Sensor;
@@ -27,6 +35,9 @@ import ch.specchio.types.SpectrumFactorTable;
  */
 public class SpectrumFactory extends SPECCHIOFactory {
 	
+	/** the number of spectra or metaparameters removed by each statement of removeSpectra() */
+	private static final int REMOVE_BLOCK_SIZE = 1000;
+	
 	/** metadata factory for loading spectrum metadata */
 	private MetadataFactory MF;
 	
@@ -217,136 +228,35 @@ public class SpectrumFactory extends SPECCHIOFactory {
 		int count = 0;
 		ArrayList<Integer> ids = new ArrayList<Integer>();	
 		
+		// re-use the result of an identical query if it is still valid
+		QueryCache query_cache = getQueryCache();
+		String cache_key = QueryCache.buildKey(getDatabaseUserName(), query);
+		ArrayList<Integer> cached_result = query_cache.get(cache_key);
+		if (cached_result != null) {
+			return cached_result;
+		}
+		long cache_generation = query_cache.getGeneration();
+		
 		try {
 			SQL_StatementBuilder SB = getStatementBuilder();
 			Statement stmt = getStatementBuilder().createStatement();
-			
-			// iterative querying
-			// ==================
-			Integer current_collection_table_no = 0;
-			String current_current_collection_target_table = SB.prefix(getTempDatabaseName(), "spectrum_collection" + current_collection_table_no.toString());
-			String current_current_collection_source_table = "";	
-			
-			// create temporary tables
 			String primary_key_name = SB.get_primary_key_name(query.getTableName()); 
-			String ddl_string = "CREATE TEMPORARY TABLE IF NOT EXISTS " +
-					SB.prefix(getTempDatabaseName(), "spectrum_collection0") +
-					"(" + primary_key_name + " INT NOT NULL, PRIMARY KEY (" + primary_key_name + "))";
-			stmt.executeUpdate(ddl_string);
 			
-			ddl_string = "CREATE TEMPORARY TABLE IF NOT EXISTS " +
-					SB.prefix(getTempDatabaseName(), "spectrum_collection1") +
-					"(" + primary_key_name + " INT NOT NULL, PRIMARY KEY (" + primary_key_name + "))";
-			stmt.executeUpdate(ddl_string);
-			
-			// clear temporary tables (in case they already existed)
-			String delete_string = "delete from " + SB.prefix(getTempDatabaseName(), "spectrum_collection0");
-			stmt.executeUpdate(delete_string);
-			delete_string = "delete from " + SB.prefix(getTempDatabaseName(), "spectrum_collection1");
-			stmt.executeUpdate(delete_string);			
-			
-			Boolean iteration_result_exists = true;
-
-			
-			// step 1: use standard field query, if there are any standard conditions at all
-			if(query.getStandardConditionFields().size() > 0)
-			{
-				String org_query_type = query.getQueryType();
-				query.setQueryType(Query.SELECT_QUERY); // we want to get ids!
-				String standardQueryString = buildNonEAVQuery(query);
-				
-				if(!standardQueryString.equals(""))
-				{
-					standardQueryString = "insert into " + current_current_collection_target_table + "("+ primary_key_name + ") " + standardQueryString;
-					stmt.executeUpdate(standardQueryString);
-					
-					// count ids for that standard query
-					ResultSet rs = stmt.executeQuery("select count(*) from " + current_current_collection_target_table);
-					while (rs.next()) {
-					count = rs.getInt(1);
-					}
-					rs.close();	
-				
-				}
-				else
-				{
-					iteration_result_exists = false;
-				}
-				
-				query.setQueryType(org_query_type);
-				
-			}
-			else
-			{
-				iteration_result_exists = false;
-			}
-			
-			// step 2: EAV iterations over all conditions
-			
-			for (QueryCondition cond : query.getEAVConditionFields())
-			{
-				// switch between source and target temp tables
-				current_collection_table_no = (current_collection_table_no + 1) % 2;
-				current_current_collection_source_table = current_current_collection_target_table;
-				current_current_collection_target_table = SB.prefix(getTempDatabaseName(), "spectrum_collection" + current_collection_table_no.toString());
-				
-				
-				EAVQueryConditionObject co = (EAVQueryConditionObject)cond;
-				
-				// build query for current cond
-				ArrayList<String> tables = co.get_tablenames();
-				if (!tables.contains(query.getTableName())) {
-					tables.add(query.getTableName());
-				}
-				
-				String eav_table_name = "eav";
-				String spectrum_x_eav_table_name = "spectrum_x_eav";
-				if (!tables.contains(eav_table_name)) {
-					tables.add(eav_table_name);
-				}
-				if (!tables.contains(spectrum_x_eav_table_name)) {
-					tables.add(spectrum_x_eav_table_name);
-				}
-				
-				
-				String curr_cond;
-				
-				curr_cond = SB.prefix(eav_table_name, "attribute_id") + " = " + getAttributes().get_attribute_id(co.getAttributeName()) +
-						" and " + SB.prefix(eav_table_name, co.getFieldName()) + " " + co.getOperator() + " " + SB.quote_string(co.getStringValue()) +
-						" and " + eav_table_name + ".eav_id = " + spectrum_x_eav_table_name + ".eav_id" +
-						" and " + SB.prefix(query.getTableName(), primary_key_name) + " = " + spectrum_x_eav_table_name + "." + primary_key_name
-						;
-
-				if(iteration_result_exists)
-				{
-					curr_cond = curr_cond + " and " + SB.prefix(query.getTableName(), primary_key_name) + " = " + current_current_collection_source_table + "." + primary_key_name;
-					
-					tables.add(current_current_collection_source_table);
-					
-				}
-				
-				iteration_result_exists = true; // true for all further queries
-				
-				String queryString = getStatementBuilder().assemble_sql_select_distinct_query(
-						SB.prefix(query.getTableName(), primary_key_name),
-						getStatementBuilder().conc_tables(tables),
-						curr_cond);
-				
-				
-				// clear target temp table
-				delete_string = "delete from " + current_current_collection_target_table;
-				stmt.executeUpdate(delete_string);				
-				
-				
-				// put results into current target table
-				queryString = "insert into " + current_current_collection_target_table + "("+ primary_key_name + ") " + queryString;
-				stmt.executeUpdate(queryString);
-
+			// compile the query into a single statement if possible, otherwise query iteratively
+			String result_table;
+			String result_source;
+			String compiled_query = compileQueryForIds(query);
+			if (compiled_query != null) {
+				result_table = "matches";
+				result_source = "(" + compiled_query + ") " + result_table;
+			} else {
+				result_table = runIterativeQuery(query, stmt);
+				result_source = result_table;
 			}
 			
 			if(query.getQueryType().equals(Query.COUNT_QUERY))
 			{				
-				ResultSet rs = stmt.executeQuery("select count(*) from " + current_current_collection_target_table);
+				ResultSet rs = stmt.executeQuery("select count(*) from " + result_source);
 				while (rs.next()) {
 					count = rs.getInt(1);
 				}
@@ -358,9 +268,9 @@ public class SpectrumFactory extends SPECCHIOFactory {
 				StringBuffer queryBuffer = new StringBuffer();
 				queryBuffer.append(
 					"select " +
-					SB.prefix(current_current_collection_target_table, primary_key_name) +
+					SB.prefix(result_table, primary_key_name) +
 					" from " +
-					current_current_collection_target_table
+					result_source
 				);
 				
 				if (query.getOrderBy() != null) {
@@ -377,7 +287,7 @@ public class SpectrumFactory extends SPECCHIOFactory {
 						"on " +
 							SB.prefix("t", primary_key_name) +
 							"=" +
-							SB.prefix(current_current_collection_target_table, primary_key_name)
+							SB.prefix(result_table, primary_key_name)
 					);
 					
 					// add "order by" clause
@@ -404,15 +314,273 @@ public class SpectrumFactory extends SPECCHIOFactory {
 		{
 			ArrayList<Integer> counts = new ArrayList<Integer>(1);
 			counts.add(count);
+			query_cache.put(cache_key, counts, QueryCache.getCampaignDependencies(query), cache_generation);
 			return counts;
 		}
 		else
 		{
+			query_cache.put(cache_key, ids, QueryCache.getCampaignDependencies(query), cache_generation);
 			return ids;			
 		}
 	
 	
 	}
+	
+	
+	/**
+	 * Compile a query into a single statement that selects the identifiers
+	 * of the matching records. The standard conditions are evaluated as a
+	 * derived table, the most selective EAV condition is joined and the
+	 * remaining EAV conditions are applied as semi-joins in order of
+	 * estimated selectivity.
+	 * 
+	 * @param query	the query
+	 * 
+	 * @return an SQL query selecting distinct identifiers, or null if the query cannot be compiled into a single statement
+	 * 
+	 * @throws SQLException	database error
+	 */
+	private String compileQueryForIds(Query query) throws SQLException {
+		
+		SQL_StatementBuilder SB = getStatementBuilder();
+		String primary_key_name = SB.get_primary_key_name(query.getTableName());
+		String id_field = SB.prefix(query.getTableName(), primary_key_name);
+		
+		// only conditions on the EAV tables themselves can be compiled
+		ArrayList<EAVQueryConditionObject> eav_conds = new ArrayList<EAVQueryConditionObject>();
+		for (QueryCondition cond : query.getEAVConditionFields()) {
+			EAVQueryConditionObject co = (EAVQueryConditionObject)cond;
+			ArrayList<String> cond_tables = co.get_tablenames();
+			if (cond_tables == null) {
+				return null;
+			}
+			for (String table : cond_tables) {
+				if (!table.equals(query.getTableName()) && !table.equals("eav") && !table.equals("spectrum_x_eav")) {
+					return null;
+				}
+			}
+			eav_conds.add(co);
+		}
+		
+		// most selective conditions first
+		Collections.sort(eav_conds, new Comparator<EAVQueryConditionObject>() {
+			public int compare(EAVQueryConditionObject co1, EAVQueryConditionObject co2) {
+				return estimateSelectivityRank(co1) - estimateSelectivityRank(co2);
+			}
+		});
+		
+		ArrayList<String> tables = new ArrayList<String>();
+		tables.add(query.getTableName());
+		String conds = "";
+		
+		// standard conditions
+		if (query.getStandardConditionFields().size() > 0) {
+			String org_query_type = query.getQueryType();
+			query.setQueryType(Query.SELECT_QUERY); // we want to get ids!
+			String standardQueryString = buildNonEAVQuery(query);
+			query.setQueryType(org_query_type);
+			
+			if (!standardQueryString.equals("")) {
+				tables.add("(" + standardQueryString + ") std");
+				conds = SB.conc_cond(conds, id_field + " = " + SB.prefix("std", primary_key_name));
+			}
+		}
+		
+		if (conds.equals("") && eav_conds.size() == 0) {
+			// create default condition, as otherwise all spectra would be selected due to missing restrictions
+			return SB.assemble_sql_select_distinct_query(id_field, query.getTableName(), id_field + " = 0");
+		}
+		
+		// EAV conditions
+		for (int i = 0; i < eav_conds.size(); i++) {
+			EAVQueryConditionObject co = eav_conds.get(i);
+			String eav_alias = "eav" + i;
+			String spectrum_x_eav_alias = "spectrum_x_eav" + i;
+			
+			String curr_cond = SB.prefix(eav_alias, "attribute_id") + " = " + getAttributes().get_attribute_id(co.getAttributeName()) +
+					" and " + SB.prefix(eav_alias, co.getFieldName()) + " " + co.getOperator() + " " + SB.quote_string(co.getStringValue()) +
+					" and " + SB.prefix(eav_alias, "eav_id") + " = " + SB.prefix(spectrum_x_eav_alias, "eav_id") +
+					" and " + SB.prefix(spectrum_x_eav_alias, primary_key_name) + " = " + id_field
+					;
+			
+			if (i == 0) {
+				// join the most selective condition so that the database can start from it
+				tables.add("spectrum_x_eav " + spectrum_x_eav_alias);
+				tables.add("eav " + eav_alias);
+				conds = SB.conc_cond(conds, curr_cond);
+			} else {
+				conds = SB.conc_cond(conds, "exists (" +
+						SB.assemble_sql_select_query("1", "spectrum_x_eav " + spectrum_x_eav_alias + ", eav " + eav_alias, curr_cond, "") +
+						")");
+			}
+		}
+		
+		return SB.assemble_sql_select_distinct_query(id_field, SB.conc_tables(tables), conds);
+		
+	}
+	
+	
+	/**
+	 * Estimate how selective an EAV condition is from its operator. Equality
+	 * tests usually match few records, ranges more and negations most.
+	 * 
+	 * @param co	the condition
+	 * 
+	 * @return a rank that is lower for more selective conditions
+	 */
+	private static int estimateSelectivityRank(EAVQueryConditionObject co) {
+		
+		String op = (co.getOperator() != null)? co.getOperator().trim().toLowerCase() : "";
+		
+		if (op.equals("=")) {
+			return 0;
+		} else if (op.equals("in")) {
+			return 1;
+		} else if (op.equals("<") || op.equals(">") || op.equals("<=") || op.equals(">=") || op.equals("between")) {
+			return 2;
+		} else if (op.equals("like")) {
+			return 3;
+		} else {
+			return 4;
+		}
+		
+	}
+	
+	
+	/**
+	 * Evaluate a query iteratively, applying one condition at a time and
+	 * passing the matching identifiers between two temporary tables.
+	 * 
+	 * @param query	the query
+	 * @param stmt	the statement with which to run the queries
+	 * 
+	 * @return the name of the temporary table holding the matching identifiers
+	 * 
+	 * @throws SQLException				database error
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	private String runIterativeQuery(Query query, Statement stmt) throws SQLException, SPECCHIOFactoryException {
+		
+		SQL_StatementBuilder SB = getStatementBuilder();
+			
+		// iterative querying
+		// ==================
+		Integer current_collection_table_no = 0;
+		String current_current_collection_target_table = SB.prefix(getTempDatabaseName(), "spectrum_collection" + current_collection_table_no.toString());
+		String current_current_collection_source_table = "";	
+		
+		// create temporary tables
+		String primary_key_name = SB.get_primary_key_name(query.getTableName()); 
+		String ddl_string = "CREATE TEMPORARY TABLE IF NOT EXISTS " +
+				SB.prefix(getTempDatabaseName(), "spectrum_collection0") +
+				"(" + primary_key_name + " INT NOT NULL, PRIMARY KEY (" + primary_key_name + "))";
+		stmt.executeUpdate(ddl_string);
+		
+		ddl_string = "CREATE TEMPORARY TABLE IF NOT EXISTS " +
+				SB.prefix(getTempDatabaseName(), "spectrum_collection1") +
+				"(" + primary_key_name + " INT NOT NULL, PRIMARY KEY (" + primary_key_name + "))";
+		stmt.executeUpdate(ddl_string);
+		
+		// clear temporary tables (in case they already existed)
+		String delete_string = "delete from " + SB.prefix(getTempDatabaseName(), "spectrum_collection0");
+		stmt.executeUpdate(delete_string);
+		delete_string = "delete from " + SB.prefix(getTempDatabaseName(), "spectrum_collection1");
+		stmt.executeUpdate(delete_string);			
+		
+		Boolean iteration_result_exists = true;
+
+		
+		// step 1: use standard field query, if there are any standard conditions at all
+		if(query.getStandardConditionFields().size() > 0)
+		{
+			String org_query_type = query.getQueryType();
+			query.setQueryType(Query.SELECT_QUERY); // we want to get ids!
+			String standardQueryString = buildNonEAVQuery(query);
+			
+			if(!standardQueryString.equals(""))
+			{
+				standardQueryString = "insert into " + current_current_collection_target_table + "("+ primary_key_name + ") " + standardQueryString;
+				stmt.executeUpdate(standardQueryString);
+			}
+			else
+			{
+				iteration_result_exists = false;
+			}
+			
+			query.setQueryType(org_query_type);
+			
+		}
+		else
+		{
+			iteration_result_exists = false;
+		}
+		
+		// step 2: EAV iterations over all conditions
+		
+		for (QueryCondition cond : query.getEAVConditionFields())
+		{
+			// switch between source and target temp tables
+			current_collection_table_no = (current_collection_table_no + 1) % 2;
+			current_current_collection_source_table = current_current_collection_target_table;
+			current_current_collection_target_table = SB.prefix(getTempDatabaseName(), "spectrum_collection" + current_collection_table_no.toString());
+			
+			
+			EAVQueryConditionObject co = (EAVQueryConditionObject)cond;
+			
+			// build query for current cond
+			ArrayList<String> tables = co.get_tablenames();
+			if (!tables.contains(query.getTableName())) {
+				tables.add(query.getTableName());
+			}
+			
+			String eav_table_name = "eav";
+			String spectrum_x_eav_table_name = "spectrum_x_eav";
+			if (!tables.contains(eav_table_name)) {
+				tables.add(eav_table_name);
+			}
+			if (!tables.contains(spectrum_x_eav_table_name)) {
+				tables.add(spectrum_x_eav_table_name);
+			}
+			
+			
+			String curr_cond;
+			
+			curr_cond = SB.prefix(eav_table_name, "attribute_id") + " = " + getAttributes().get_attribute_id(co.getAttributeName()) +
+					" and " + SB.prefix(eav_table_name, co.getFieldName()) + " " + co.getOperator() + " " + SB.quote_string(co.getStringValue()) +
+					" and " + eav_table_name + ".eav_id = " + spectrum_x_eav_table_name + ".eav_id" +
+					" and " + SB.prefix(query.getTableName(), primary_key_name) + " = " + spectrum_x_eav_table_name + "." + primary_key_name
+					;
+
+			if(iteration_result_exists)
+			{
+				curr_cond = curr_cond + " and " + SB.prefix(query.getTableName(), primary_key_name) + " = " + current_current_collection_source_table + "." + primary_key_name;
+				
+				tables.add(current_current_collection_source_table);
+				
+			}
+			
+			iteration_result_exists = true; // true for all further queries
+			
+			String queryString = getStatementBuilder().assemble_sql_select_distinct_query(
+					SB.prefix(query.getTableName(), primary_key_name),
+					getStatementBuilder().conc_tables(tables),
+					curr_cond);
+			
+			
+			// clear target temp table
+			delete_string = "delete from " + current_current_collection_target_table;
+			stmt.executeUpdate(delete_string);				
+			
+			
+			// put results into current target table
+			queryString = "insert into " + current_current_collection_target_table + "("+ primary_key_name + ") " + queryString;
+			stmt.executeUpdate(queryString);
+
+		}
+		
+		return current_current_collection_target_table;
+		
+	}
 		
 	/**
 	 * Get the identifiers of all spectra that match a given query.
@@ -487,304 +655,199 @@ public class SpectrumFactory extends SPECCHIOFactory {
 	 */
 	public Spectrum getSpectrum(int spectrum_id, boolean prepare_metadata) throws SPECCHIOFactoryException {
 		
-		Spectrum s = new Spectrum(spectrum_id);
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		ids.add(spectrum_id);
+		
+		return getSpectra(ids, prepare_metadata).get(0);
+		
+	}
+	
+	
+	/**
+	 * Get spectrum objects for a list of spectra. The number of database
+	 * queries does not depend on the number of spectra.
+	 * 
+	 * @param spectrum_ids		the identifiers of the desired spectra
+	 * @param prepare_metadata	load the spectra's metadata?
+	 * 
+	 * @return a list of Spectrum objects in the same order as the input identifiers
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	public ArrayList<Spectrum> getSpectra(ArrayList<Integer> spectrum_ids, boolean prepare_metadata) throws SPECCHIOFactoryException {
+		
+		ArrayList<Spectrum> spectra = new ArrayList<Spectrum>(spectrum_ids.size());
+		HashMap<Integer, Spectrum> spectrum_map = new HashMap<Integer, Spectrum>();
+		for (Integer spectrum_id : spectrum_ids) {
+			Spectrum s = spectrum_map.get(spectrum_id);
+			if (s == null) {
+				s = new Spectrum(spectrum_id);
+				spectrum_map.put(spectrum_id, s);
+			}
+			spectra.add(s);
+		}
+		
+		if (spectrum_ids.size() == 0) {
+			return spectra;
+		}
 		
 		try {
 			
 			SQL_StatementBuilder SQL = getStatementBuilder();
-			SpectrumQueryBank SQB = new SpectrumQueryBank(SQL);
-			Statement stmt = getConnection().createStatement();
+			Statement stmt = SQL.createStatement();
 			String query;
 			ResultSet rs;
 			
-			query = "select is_reference, campaign_id, hierarchy_level_id from spectrum where spectrum_id = " + Integer.toString(spectrum_id);
-			rs = stmt.executeQuery(query);
-			while (rs.next()) {
-				s.setIsReference(new MetaDatatype<Boolean>("Is reference", rs.getBoolean(1)));
-				s.setCampaignId(rs.getInt(2));
-				s.setHierarchyLevelId(rs.getInt(2));
-			}
-			rs.close();
-			
+			// spectrum table fields
 			String id_fieldnames[] = new String[Spectrum.METADATA_FIELDS.length];
 			for (int i = 0; i < Spectrum.METADATA_FIELDS.length; i++) {
 				id_fieldnames[i] = Spectrum.METADATA_FIELDS[i] + "_id";
 			}
-			query = "select "  + SQL.conc_cols(id_fieldnames) + " from spectrum where spectrum_id = " + Integer.toString(spectrum_id);
+			query = "select spectrum_id, is_reference, campaign_id, hierarchy_level_id, " + SQL.conc_cols(id_fieldnames) +
+					" from spectrum where " + SQL.conc_id_cond("spectrum_id", spectrum_ids);
 			rs = stmt.executeQuery(query);
-			int row_cnt = 1;
 			while (rs.next()) {
+				Spectrum s = spectrum_map.get(rs.getInt("spectrum_id"));
+				s.setIsReference(new MetaDatatype<Boolean>("Is reference", rs.getBoolean("is_reference")));
+				s.setCampaignId(rs.getInt("campaign_id"));
+				s.setHierarchyLevelId(rs.getInt("hierarchy_level_id"));
 				for (String fieldname : Spectrum.METADATA_FIELDS) {
 					s.setMetadataId(fieldname, rs.getInt(fieldname + "_id"));
 				}
-				
-			}	
-			rs.close();	
+			}
+			rs.close();
+			stmt.close();
 			
 			// get EAV
-			s.setMetadata(MF.getMetadataForSpectrum(spectrum_id));	
+			HashMap<Integer, Metadata> md_map = MF.getMetadataForSpectra(new ArrayList<Integer>(spectrum_map.keySet()));
+			for (Spectrum s : spectrum_map.values()) {
+				s.setMetadata(md_map.get(s.getSpectrumId()));
+			}
 			
 			if(prepare_metadata)
 			{
-				// set file name and comments from metadata
-				MetaParameter mp;
-				mp = s.getMetadata().get_first_entry("File Name");
-				if (mp != null) {
-					MetaDatatype<String> mds = new MetaDatatype<String>("File Name");
-					mds.set_value((String)mp.getValue());
-					s.setFileName(mds);
-				}
-				mp = s.getMetadata().get_first_entry("File Comments");
-				if (mp != null) {
-					MetaDatatype<String> mds = new MetaDatatype<String>("File Comments");
-					mds.set_value((String)mp.getValue());
-					s.setFileComment(mds);
-				}
-			
-				// get the capture date from date and time
-				s.setCaptureDate(new MetaDatatype<Date>("Capture Date", SQL.get_java_date_time(s.getCaptureDateTime())));		
-					
-				// get the loading date from date and time
-				s.setLoadingDate(new MetaDatatype<Date>("Loading Date", SQL.get_java_date_time(s.getLoadDateTime())));
-				
-				
-				ArrayList<Integer> id = new ArrayList<Integer>();
-				id.add(spectrum_id);
-				
-				// file format
-				s.setFileFormat(new MetaDatatype<String>("File Format"));
-				if (s.getFileFormatId() != 0)
-				{
-					query = SQB.get_file_format_query(id);
-					rs = stmt.executeQuery(query);
-					while (rs.next()) {
-						s.getFileFormat().set_value(rs.getString(1));
+				// collect the referenced identifiers so that each lookup table is read only once
+				ArrayList<Integer> file_format_ids = new ArrayList<Integer>();
+				ArrayList<Integer> campaign_ids = new ArrayList<Integer>();
+				ArrayList<Integer> measurement_unit_ids = new ArrayList<Integer>();
+				ArrayList<Integer> instrument_spectrum_ids = new ArrayList<Integer>();
+				ArrayList<space_sorting_ident_struct> ssi_list = new ArrayList<space_sorting_ident_struct>();
+				for (Spectrum s : spectrum_map.values()) {
+					if (s.getFileFormatId() != 0 && !file_format_ids.contains(s.getFileFormatId()))
+						file_format_ids.add(s.getFileFormatId());
+					if (s.getCampaignId() != 0 && !campaign_ids.contains(s.getCampaignId()))
+						campaign_ids.add(s.getCampaignId());
+					if (s.getMeasurementUnitId() != 0 && !measurement_unit_ids.contains(s.getMeasurementUnitId()))
+						measurement_unit_ids.add(s.getMeasurementUnitId());
+					if (s.getInstrumentId() != 0) {
+						space_sorting_ident_struct ssi = new space_sorting_ident_struct();
+						ssi.spectrum_id = s.getSpectrumId();
+						ssi_list.add(ssi);
+						instrument_spectrum_ids.add(s.getSpectrumId());
 					}
-					rs.close();
 				}
-
 				
+				HashMap<Integer, String[]> file_formats = getLookupValues(SQL, "file_format", new String[]{"name"}, file_format_ids);
+				HashMap<Integer, String[]> campaigns = getLookupValues(SQL, "campaign", new String[]{"name", "description"}, campaign_ids);
+				HashMap<Integer, String[]> measurement_units = getLookupValues(SQL, "measurement_unit", new String[]{"name"}, measurement_unit_ids);
 				
-				// quality levels
-				s.setRequiredQualityLevel(new MetaDatatype<String>("Required quality level"));
-				s.setAttainedQualityLevel(new MetaDatatype<String>("Attained quality level"));
-				if(s.getQualityLevelId() != 0)
-				{
-					query = SQB.get_quality_query(id);
-					
-					rs = stmt.executeQuery(query);
-					
-					while (rs.next()) {
-						s.getAttainedQualityLevel().set_value(rs.getString(1));
+				// calibrations of all instruments in one query
+				HashMap<Integer, Integer> calibration_ids = new HashMap<Integer, Integer>();
+				if (ssi_list.size() > 0) {
+					SpaceFactory sf = new SpaceFactory(this);
+					ssi_list = sf.getCalibrationIds(ssi_list, instrument_spectrum_ids);
+					for (space_sorting_ident_struct ssi : ssi_list) {
+						calibration_ids.put(ssi.spectrum_id, ssi.calibration_id);
 					}
-					rs.close();						
 				}
 				
-				if(s.getRequiredQualityLevelId() != 0)
-				{
-					query = SQB.get_required_quality_query(id);
+				for (Spectrum s : spectrum_map.values()) {
 					
-					rs = stmt.executeQuery(query);
-					
-					while (rs.next()) {
-						s.getRequiredQualityLevel().set_value(rs.getString(1));
+					// set file name and comments from metadata
+					MetaParameter mp;
+					mp = s.getMetadata().get_first_entry("File Name");
+					if (mp != null) {
+						MetaDatatype<String> mds = new MetaDatatype<String>("File Name");
+						mds.set_value((String)mp.getValue());
+						s.setFileName(mds);
 					}
-					rs.close();						
-				}
-				
-				
-				// create position attributes
-				s.setLatitude(new MetaDatatype<Double>("Latitude"));
-				s.setLongitude(new MetaDatatype<Double>("Longitude"));
-				s.setAltitude(new MetaDatatype<Double>("Altitude"));	
-				s.setLocationName(new MetaDatatype<String>("Location"));
-				
-				if(s.getPositionId() != 0)
-				{
-					query = SQB.get_position_query(id);				
-					rs = stmt.executeQuery(query);
-					
-					while (rs.next()) {
-						s.getLatitude().value = rs.getDouble(1);
-						s.getLongitude().value = rs.getDouble(2);
-						s.getAltitude().value = rs.getDouble(3);
-						s.getLocationName().value = rs.getString(4);
+					mp = s.getMetadata().get_first_entry("File Comments");
+					if (mp != null) {
+						MetaDatatype<String> mds = new MetaDatatype<String>("File Comments");
+						mds.set_value((String)mp.getValue());
+						s.setFileComment(mds);
 					}
-					rs.close();						
-				}
 				
-				
-				if(s.getSensorId() != 0)
-					s.setSensor(getDataCache().get_sensor(s.getSensorId()));
-				else
-					s.setSensor(new Sensor()); // dummy sensor
+					// get the capture date from date and time
+					s.setCaptureDate(new MetaDatatype<Date>("Capture Date", SQL.get_java_date_time(s.getCaptureDateTime())));		
 					
-				
-				// campaign
-				s.setCampaignName(new MetaDatatype<String>("Campaign name"));
-				s.setCampaignDescription(new MetaDatatype<String>("Campaign desc"));
-				
-				if(s.getCampaignId() != 0)
-				{
-					query = SQB.get_campaign_query(id);				
-					rs = stmt.executeQuery(query);
+					// get the loading date from date and time
+					s.setLoadingDate(new MetaDatatype<Date>("Loading Date", SQL.get_java_date_time(s.getLoadDateTime())));
 					
-					while (rs.next()) {
-						s.getCampaignName().value = rs.getString(1);
-						s.getCampaignDescription().value = rs.getString(2);
+					// file format
+					s.setFileFormat(new MetaDatatype<String>("File Format"));
+					if (file_formats.containsKey(s.getFileFormatId())) {
+						s.getFileFormat().set_value(file_formats.get(s.getFileFormatId())[0]);
 					}
-					rs.close();						
-				}		
-				
-				// landcover
-				s.setLandcover(new MetaDatatype<String>("Landcover"));
-				if(s.getLandcoverId() != 0)
-				{
-					query = SQB.get_landcover_query(id);				
-					rs = stmt.executeQuery(query);
 					
-					while (rs.next()) {
-						s.getLandcover().value = rs.getString(1);
-					}
-					rs.close();						
-				}		
-				
-				// environ conds
-				s.setCloudCover(new MetaDatatype<String>("Cloud cover [octas]"));
-				s.setAmbientTemperature(new MetaDatatype<String>("Ambient temp. [C]"));
-				s.setAirPressure(new MetaDatatype<String>("Air pressure"));
-				s.setRelativeHumidity(new MetaDatatype<String>("Rel. humidity"));
-				s.setWindDirection(new MetaDatatype<String>("Wind direction"));
-				s.setWindSpeed(new MetaDatatype<String>("Wind speed"));
-				if(s.getEnvironmentalConditionId() != 0)
-				{
-					query = SQB.get_env_cond_query(spectrum_id);				
-					rs = stmt.executeQuery(query);
-					row_cnt = 1;
-					while (rs.next()) {				
-						s.getAmbientTemperature().value = rs.getString(row_cnt++);
-						s.getAirPressure().value = rs.getString(row_cnt++);
-						s.getRelativeHumidity().value = rs.getString(row_cnt++);
-						s.getCloudCover().value = rs.getString(row_cnt++);
-						s.getWindDirection().value = rs.getString(row_cnt++);
-						s.getWindSpeed().value = rs.getString(row_cnt++);
-					}
-					rs.close();						
-				}		
-				
-				
-				// geometry
-				s.setSensorZenith(new MetaDatatype<String>("Sensor zenith"));
-				s.setSensorAzimuth(new MetaDatatype<String>("Sensor azimuth"));
-				s.setIlluminationZenith(new MetaDatatype<String>("Illumination zenith"));
-				s.setIlluminationAzimuth(new MetaDatatype<String>("Illumination azimuth"));
-				s.setSensorDistance(new MetaDatatype<String>("Sensor distance"));
-				s.setIlluminationDistance(new MetaDatatype<String>("Illumination distance"));		
-				if(s.getSamplingGeometryId() != 0)
-				{
-					query = SQB.get_geometry_query(id);				
-					rs = stmt.executeQuery(query);
-					row_cnt = 1;
-					while (rs.next()) {
-						s.getSensorZenith().value = rs.getString(row_cnt++);
-						s.getSensorAzimuth().value = rs.getString(row_cnt++);
-						s.getIlluminationZenith().value = rs.getString(row_cnt++);
-						s.getIlluminationAzimuth().value = rs.getString(row_cnt++);
-						s.getSensorDistance().value = rs.getString(row_cnt++);
-						s.getIlluminationDistance().value = rs.getString(row_cnt++);
-					}
-					rs.close();						
-				}		
-				
-				// measurement_unit
-				s.setMeasurementUnit(new MetaDatatype<String>("Measurement unit"));		
-				if(s.getMeasurementUnitId() != 0)
-				{
-					query = SQB.get_measurement_unit_query(id);				
-					rs = stmt.executeQuery(query);
-					row_cnt = 1;
-					while (rs.next()) {
-						s.getMeasurementUnit().value = rs.getString(row_cnt++);
-					}
-					rs.close();						
-				}		
-				
-				// measurement_type
-				s.setMeasurementType(new MetaDatatype<String>("Beam geometry"));		
-				if(s.getMeasurementTypeId() != 0)
-				{
-					query = SQB.get_measurement_type_query(id);				
-					rs = stmt.executeQuery(query);
-					row_cnt = 1;
-					while (rs.next()) {
-						s.getMeasurementType().value = rs.getString(row_cnt++);
-					}
-					rs.close();						
-				}				
-		
-				// illumination_source
-				s.setIlluminationSource(new MetaDatatype<String>("Illumination source"));		
-				if(s.getIlluminationSourceId() != 0)
-				{
-					query = SQB.get_illumination_source_query(id);				
-					rs = stmt.executeQuery(query);
-					row_cnt = 1;
-					while (rs.next()) {
-						s.getIlluminationSource().value = rs.getString(row_cnt++);
-					}
-					rs.close();						
-				}				
-		
-				// sampling_environment
-				s.setSamplingEnvironment(new MetaDatatype<String>("Sampling environment"));		
-				if(s.getSamplingEnvironmentId() != 0)
-				{
-					query = SQB.get_sampling_environment_query(id);				
-					rs = stmt.executeQuery(query);
-					row_cnt = 1;
-					while (rs.next()) {
-						s.getSamplingEnvironment().value = rs.getString(row_cnt++);
+					// campaign
+					s.setCampaignName(new MetaDatatype<String>("Campaign name"));
+					s.setCampaignDescription(new MetaDatatype<String>("Campaign desc"));
+					if (campaigns.containsKey(s.getCampaignId())) {
+						s.getCampaignName().value = campaigns.get(s.getCampaignId())[0];
+						s.getCampaignDescription().value = campaigns.get(s.getCampaignId())[1];
 					}
-					rs.close();						
-				}
-				
-				
-				// foreoptic
-				s.setForeoptic(new MetaDatatype<String>("FOV [degrees]"));		
-				if(s.getForeopticId() != 0)
-				{
-					query = SQB.get_foreoptic_query(id);				
-					rs = stmt.executeQuery(query);
-					row_cnt = 1;
-					while (rs.next()) {
-						s.getForeoptic().value = rs.getString(row_cnt++);
-					}
-					rs.close();						
-				}	
-				
-				if(s.getInstrumentId() != 0)
-				{
-					SpaceFactory sf = new SpaceFactory(this);
 					
-					space_sorting_ident_struct ssi = new space_sorting_ident_struct();
-					ssi.spectrum_id = spectrum_id;
-					ArrayList<space_sorting_ident_struct> ssi_list = new ArrayList<space_sorting_ident_struct>();
-					ssi_list.add(ssi);
+					// measurement_unit
+					s.setMeasurementUnit(new MetaDatatype<String>("Measurement unit"));
+					if (measurement_units.containsKey(s.getMeasurementUnitId())) {
+						s.getMeasurementUnit().value = measurement_units.get(s.getMeasurementUnitId())[0];
+					}
 					
-					ArrayList<Integer> ids = new ArrayList<Integer>();
-					ids.add(spectrum_id);
+					// the identifiers of the following attributes are not part of Spectrum.METADATA_FIELDS,
+					// so they are never loaded and the attributes are always empty
+					s.setRequiredQualityLevel(new MetaDatatype<String>("Required quality level"));
+					s.setAttainedQualityLevel(new MetaDatatype<String>("Attained quality level"));
+					s.setLatitude(new MetaDatatype<Double>("Latitude"));
+					s.setLongitude(new MetaDatatype<Double>("Longitude"));
+					s.setAltitude(new MetaDatatype<Double>("Altitude"));	
+					s.setLocationName(new MetaDatatype<String>("Location"));
+					s.setLandcover(new MetaDatatype<String>("Landcover"));
+					s.setCloudCover(new MetaDatatype<String>("Cloud cover [octas]"));
+					s.setAmbientTemperature(new MetaDatatype<String>("Ambient temp. [C]"));
+					s.setAirPressure(new MetaDatatype<String>("Air pressure"));
+					s.setRelativeHumidity(new MetaDatatype<String>("Rel. humidity"));
+					s.setWindDirection(new MetaDatatype<String>("Wind direction"));
+					s.setWindSpeed(new MetaDatatype<String>("Wind speed"));
+					s.setSensorZenith(new MetaDatatype<String>("Sensor zenith"));
+					s.setSensorAzimuth(new MetaDatatype<String>("Sensor azimuth"));
+					s.setIlluminationZenith(new MetaDatatype<String>("Illumination zenith"));
+					s.setIlluminationAzimuth(new MetaDatatype<String>("Illumination azimuth"));
+					s.setSensorDistance(new MetaDatatype<String>("Sensor distance"));
+					s.setIlluminationDistance(new MetaDatatype<String>("Illumination distance"));
+					s.setMeasurementType(new MetaDatatype<String>("Beam geometry"));
+					s.setIlluminationSource(new MetaDatatype<String>("Illumination source"));
+					s.setSamplingEnvironment(new MetaDatatype<String>("Sampling environment"));
+					s.setForeoptic(new MetaDatatype<String>("FOV [degrees]"));
 					
-					ssi_list = sf.getCalibrationIds(ssi_list, ids);
+					if(s.getSensorId() != 0)
+						s.setSensor(getDataCache().get_sensor(s.getSensorId()));
+					else
+						s.setSensor(new Sensor()); // dummy sensor
 					
+					if(s.getInstrumentId() != 0)
+					{
+						Integer calibration_id = calibration_ids.get(s.getSpectrumId());
+						s.setInstrument(getDataCache().get_instrument(s.getInstrumentId(), (calibration_id != null)? calibration_id : 0));
+					}
+					else
+					{
+						s.setInstrument(new Instrument()); // dummy instrument, only existing to provide empty attributes
+														// for reports
+						s.getInstrument().setSensor(s.getSensor()); // set sensor so we can have a uniform call during the get_channels
+															// when plotting
+					}
 					
-					s.setInstrument(getDataCache().get_instrument(s.getInstrumentId(), ssi_list.get(0).calibration_id));
-				}
-				else
-				{
-					s.setInstrument(new Instrument()); // dummy instrument, only existing to provide empty attributes
-													// for reports
-					s.getInstrument().setSensor(s.getSensor()); // set sensor so we can have a uniform call during the get_channels
-														// when plotting
 				}
 			
 			}
@@ -798,11 +861,48 @@ public class SpectrumFactory extends SPECCHIOFactory {
 			throw new SPECCHIOFactoryException(ex);
 		}
 			
-		return s;
+		return spectra;
 			
 	}
 	
 	
+	/**
+	 * Read some columns of a lookup table for a set of its rows.
+	 * 
+	 * @param SQL		the statement builder to use
+	 * @param tablename	the name of the lookup table; its primary key must be named tablename_id
+	 * @param columns	the columns to be read
+	 * @param ids		the primary keys of the rows to be read
+	 * 
+	 * @return a map of primary keys to column values
+	 * 
+	 * @throws SQLException	database error
+	 */
+	private HashMap<Integer, String[]> getLookupValues(SQL_StatementBuilder SQL, String tablename, String[] columns, ArrayList<Integer> ids) throws SQLException {
+		
+		HashMap<Integer, String[]> values = new HashMap<Integer, String[]>();
+		
+		if (ids.size() > 0) {
+			String query = "select " + tablename + "_id, " + SQL.conc_cols(columns) + " from " + tablename +
+					" where " + tablename + "_id in (" + SQL.conc_ids(ids) + ")";
+			Statement stmt = SQL.createStatement();
+			ResultSet rs = stmt.executeQuery(query);
+			while (rs.next()) {
+				String row[] = new String[columns.length];
+				for (int i = 0; i < columns.length; i++) {
+					row[i] = rs.getString(i + 2);
+				}
+				values.put(rs.getInt(1), row);
+			}
+			rs.close();
+			stmt.close();
+		}
+		
+		return values;
+		
+	}
+	
+	
 	/**
 	 * Get the spectrum factor table.
 	 * 
@@ -1002,50 +1102,101 @@ public class SpectrumFactory extends SPECCHIOFactory {
 	 */
 	public void removeSpectrum(int spectrum_id, boolean is_admin) throws SPECCHIOFactoryException {
 		
+		removeSpectra(Collections.singletonList(spectrum_id), is_admin);
+		
+	}
+	
+	
+	/**
+	 * Remove a set of spectra from the database. The spectra are removed in
+	 * blocks of consecutive identifiers, and metaparameters that are no longer
+	 * linked to any spectrum are removed once all of the spectra have gone.
+	 * 
+	 * @param spectrum_ids	the identifiers of the spectra to be removed
+	 * @param is_admin		is the requesting user an administator?
+	 * 
+	 * @return the number of spectra removed
+	 * 
+	 * @throws SPECCHIOFactoryException	the spectra could not be removed
+	 */
+	public int removeSpectra(List<Integer> spectrum_ids, boolean is_admin) throws SPECCHIOFactoryException {
+		
+		int num = 0;
+		
 		try {
 			
-			Statement stmt = getStatementBuilder().createStatement();
-			String table_name;
+			SQL_StatementBuilder SQL = getStatementBuilder();
+			Statement stmt = SQL.createStatement();
+			String spectrum_x_eav_table_or_view = (is_admin)? "spectrum_x_eav" : "spectrum_x_eav_view";
 			String cmd;
 			
-			// remove datalinks
-			table_name = (is_admin)? "spectrum_datalink" : "spectrum_datalink_view";
-			cmd = "delete from "+table_name+" where " +
-			"spectrum_id = " + Integer.toString(spectrum_id) + " OR linked_spectrum_id = " + Integer.toString(spectrum_id);	
-			stmt.executeUpdate(cmd); 
-			
-			// EAV
-			// remove entries from eav x table
-			table_name = (is_admin)? "spectrum_x_eav" : "spectrum_x_eav_view";
-			cmd = "delete from "+table_name+" where " +
-			"spectrum_id = " + Integer.toString(spectrum_id);		
-			stmt.executeUpdate(cmd); 	
-			
-			String spectrum_x_eav_table_or_view = table_name;
-	
-			// remove zombie eav
-			table_name = (is_admin)? "eav" : "eav_view";
-			
-			cmd = "delete from "+table_name+" where eav_id not in (select eav_id from " +spectrum_x_eav_table_or_view+");";
-			stmt.executeUpdate(cmd);					
+			// sorted blocks keep the id conditions down to a few ranges
+			ArrayList<Integer> ids = new ArrayList<Integer>(new TreeSet<Integer>(spectrum_ids));
+			HashSet<Integer> campaign_ids = new HashSet<Integer>();
+			HashSet<Integer> unlinked_eav_ids = new HashSet<Integer>();
+			for (int start = 0; start < ids.size(); start += REMOVE_BLOCK_SIZE) {
+				
+				List<Integer> block = ids.subList(start, Math.min(start + REMOVE_BLOCK_SIZE, ids.size()));
+				String spectrum_cond = SQL.conc_id_cond("spectrum_id", block);
+				
+				// find the campaigns and metaparameters before the spectra disappear
+				campaign_ids.addAll(getCampaignIdsOfSpectra(block));
+				ResultSet rs = stmt.executeQuery("select distinct eav_id from " + spectrum_x_eav_table_or_view + " where " + spectrum_cond);
+				while (rs.next()) {
+					unlinked_eav_ids.add(rs.getInt(1));
+				}
+				rs.close();
+				
+				// remove datalinks
+				cmd = "delete from " + ((is_admin)? "spectrum_datalink" : "spectrum_datalink_view") + " where " +
+						spectrum_cond + " or " + SQL.conc_id_cond("linked_spectrum_id", block);
+				stmt.executeUpdate(cmd);
+				
+				// remove entries from eav x table
+				cmd = "delete from " + spectrum_x_eav_table_or_view + " where " + spectrum_cond;
+				stmt.executeUpdate(cmd);
+				
+				// remove entries from hierarchy_level_x_spectrum
+				cmd = "delete from " + ((is_admin)? "hierarchy_level_x_spectrum" : "hierarchy_level_x_spectrum_view") + " where " + spectrum_cond;
+				stmt.executeUpdate(cmd);
+				
+				// remove spectra themselves
+				cmd = "delete from " + ((is_admin)? "spectrum" : "spectrum_view") + " where " + spectrum_cond;
+				num += stmt.executeUpdate(cmd);
+				
+				// the cached measurements are no longer valid
+				for (Integer spectrum_id : block) {
+					getMeasurementCache().remove(spectrum_id);
+				}
+				
+			}
 			
-			// remove entries from hierarchy_level_x_spectrum
-			table_name = (is_admin)? "hierarchy_level_x_spectrum" : "hierarchy_level_x_spectrum_view";
-			cmd = "delete from "+table_name+" where " +
-			"spectrum_id = " + Integer.toString(spectrum_id);		
-			stmt.executeUpdate(cmd); 				
-					
-			// remove spectrum itself
-			table_name = (is_admin)? "spectrum" : "spectrum_view";
-			cmd = "delete from "+table_name+" where spectrum_id = " + Integer.toString(spectrum_id);
-			stmt.executeUpdate(cmd);
+			// remove the zombie eav left behind by these spectra
+			ArrayList<Integer> eav_ids = new ArrayList<Integer>(new TreeSet<Integer>(unlinked_eav_ids));
+			for (int start = 0; start < eav_ids.size(); start += REMOVE_BLOCK_SIZE) {
+				
+				List<Integer> block = eav_ids.subList(start, Math.min(start + REMOVE_BLOCK_SIZE, eav_ids.size()));
+				String eav_cond = SQL.conc_id_cond("eav_id", block);
+				cmd = "delete from " + ((is_admin)? "eav" : "eav_view") + " where " + eav_cond +
+						" and eav_id not in (select eav_id from " + spectrum_x_eav_table_or_view + " where " + eav_cond + ")";
+				stmt.executeUpdate(cmd);
+				
+			}
 			
 			stmt.close();
+			
+			if (eav_ids.size() > 0) {
+				// the redundancy list may refer to removed eav
+				getEavServices().clear_redundancy_list();
+			}
+			getQueryCache().invalidateCampaigns(campaign_ids);
 		}
 		catch (SQLException ex) {
 			// bad SQL
 			throw new SPECCHIOFactoryException(ex);
 		}
+		
+		return num;
 					
 	}
 	
@@ -1064,6 +1215,9 @@ public class SpectrumFactory extends SPECCHIOFactory {
 		
 		try {
 			
+			// the spectra may move to another campaign, so the results of both campaigns are invalidated
+			HashSet<Integer> campaign_ids = new HashSet<Integer>(getCampaignIdsOfSpectra(Arrays.asList(ids)));
+			
 			Statement stmt = getStatementBuilder().createStatement();
 			String valueString = (value != 0)? value.toString() : "null";
 			String query = getStatementBuilder().assemble_sql_update_query(
@@ -1074,6 +1228,9 @@ public class SpectrumFactory extends SPECCHIOFactory {
 			stmt.executeUpdate(query);
 			stmt.close();
 			
+			campaign_ids.addAll(getCampaignIdsOfSpectra(Arrays.asList(ids)));
+			getQueryCache().invalidateCampaigns(campaign_ids);
+			
 		} catch (SQLException ex) {
 			// bad SQL
 			throw new SPECCHIOFactoryException(ex);
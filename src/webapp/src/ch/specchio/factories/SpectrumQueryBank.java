@@ -47,7 +47,12 @@ public class SpectrumQueryBank {
 	protected String add_ids_to_query(String query, ArrayList<Integer> ids)
 	{
 		
-		return query + "(" + SQL.conc_ids(ids) + ")";
+		// the id list can be very long, so write it straight into the query
+		StringBuilder sb = new StringBuilder(query.length() + ids.size() * 8 + 2);
+		sb.append(query).append('(');
+		SQL.append_ids(sb, ids).append(')');
+		
+		return sb.toString();
 		
 	}
 	
@@ -1,6 +1,7 @@
 package ch.specchio.services;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 import javax.ws.rs.*;
@@ -9,6 +10,7 @@ import javax.annotation.security.*;
 
 import com.sun.jersey.api.client.ClientResponse;
 
+import ch.specchio.constants.FileTypes;
 import ch.specchio.constants.UserRoles;
 import ch.specchio.factories.CampaignFactory;
 import ch.specchio.factories.SPECCHIOFactoryException;
@@ -39,15 +41,42 @@ public class CampaignService extends SPECCHIOService {
 			@PathParam("campaign_id") int campaign_id
 		) throws SPECCHIOFactoryException {
 
+		return exportCampaign(campaign_type, campaign_id, FileTypes.CAMPAIGN_EXPORT_XML);
+		
+	}
+	
+	
+	/**
+	 * Export a campaign in a given format.
+	 * 
+	 * @param campaign_type	the type of campaign to be exported
+	 * @param campaign_id	the identifier of the campaign to be exported
+	 * @param file_type		FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY or FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	 * 
+	 * @throws SPECCHIOFactoryException	the campaign does not exist
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_OCTET_STREAM)
+	@Path("export/{campaign_type}/{campaign_id: [0-9]+}/{file_type: [0-9]+}")
+	public Response exportCampaign(
+			@PathParam("campaign_type") String campaign_type,
+			@PathParam("campaign_id") int campaign_id,
+			@PathParam("file_type") int file_type
+		) throws SPECCHIOFactoryException {
+			
 		Response response;
 
 		CampaignFactory factory = CampaignFactory.getInstance(getClientUsername(), getClientPassword(), campaign_type);
 		try {
 			OutputStream os = getResponse().getOutputStream();
-			factory.exportCampaign(campaign_id, os);
+			factory.exportCampaign(campaign_id, os, file_type);
 			os.close();
 			response = Response.ok().build();
 		}
+		catch (IllegalArgumentException ex) {
+			// unsupported file type
+			response = Response.status(ClientResponse.Status.BAD_REQUEST).build();
+		}
 		catch (IOException ex) {
 			// not sure what might cause this
 			response = Response.status(ClientResponse.Status.INTERNAL_SERVER_ERROR).build();
@@ -121,6 +150,8 @@ public class CampaignService extends SPECCHIOService {
 	 * Import a campaign.
 	 * 
 	 * @param campaign_type	the type of campaign to be import
+	 * @param user_id		the identifier of the user who will own the campaign
+	 * @param input			the exported campaign
 	 * 
 	 * @throws SecurityException		a non-admin user tried to import a campaign
 	 * @throws SPECCHIOFactoryException	the request body is not in the correct format
@@ -130,7 +161,8 @@ public class CampaignService extends SPECCHIOService {
 	@Path("import/{campaign_type}/{user_id: [0-9]+}")
 	public Response importCampaign(
 			@PathParam("campaign_type") String campaign_type,
-			@PathParam("user_id") int user_id
+			@PathParam("user_id") int user_id,
+			InputStream input
 		) throws SPECCHIOFactoryException {
 		
 		Response response;
@@ -141,7 +173,7 @@ public class CampaignService extends SPECCHIOService {
 		
 			CampaignFactory factory = CampaignFactory.getInstance(getClientUsername(), getClientPassword(), campaign_type);
 			try {
-				factory.importCampaign(user_id, getRequest().getInputStream());
+				factory.importCampaign(user_id, input, getClientUsername(), getClientPassword());
 				response = Response.ok().build();
 			}
 			catch (IOException ex) {
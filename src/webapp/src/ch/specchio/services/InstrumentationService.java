@@ -1,6 +1,7 @@
 package ch.specchio.services;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import javax.annotation.security.*;
 import javax.ws.rs.*;
@@ -476,6 +477,8 @@ public class InstrumentationService extends SPECCHIOService {
 	/**
 	 * Load a sensor definition into the database.
 	 * 
+	 * @param input	the sensor definition file
+	 * 
 	 * @return the identifier of the new sensor
 	 * 
 	 * @throws SPECCHIOFactoryException	the input file was not formatted correctly
@@ -485,13 +488,13 @@ public class InstrumentationService extends SPECCHIOService {
 	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
 	@Produces(MediaType.APPLICATION_XML)
 	@RolesAllowed({UserRoles.ADMIN})
-	public XmlInteger loadSensor() throws SPECCHIOFactoryException {
+	public XmlInteger loadSensor(InputStream input) throws SPECCHIOFactoryException {
 		
 		int sensor_id;
 		
 		InstrumentationFactory factory = new InstrumentationFactory(getClientUsername(), getClientPassword());
 		try {
-			sensor_id = factory.loadSensorDefinition(getRequest().getInputStream());
+			sensor_id = factory.loadSensorDefinition(input);
 		}
 		catch (IOException ex) {
 			// not sure what might cause this
@@ -506,6 +509,32 @@ public class InstrumentationService extends SPECCHIOService {
 	}
 	
 	
+	/**
+	 * Reload the cache of instruments, sensors and institutes from the database.
+	 * 
+	 * @return an empty string
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	@GET
+	@Path("refreshDataCache")
+	@Produces(MediaType.APPLICATION_XML)
+	@RolesAllowed({UserRoles.ADMIN})
+	public String refreshDataCache() throws SPECCHIOFactoryException {
+		
+		InstrumentationFactory factory = new InstrumentationFactory(getClientUsername(), getClientPassword());
+		try {
+			factory.refreshDataCache();
+		}
+		finally {
+			factory.dispose();
+		}
+		
+		return "";
+		
+	}
+	
+	
 	/**
 	 * Update an instrument.
 	 * 
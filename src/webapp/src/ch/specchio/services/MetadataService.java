@@ -19,10 +19,13 @@ import ch.specchio.types.Category;
 import ch.specchio.types.CategoryTable;
 import ch.specchio.types.ConflictDetectionDescriptor;
 import ch.specchio.types.ConflictTable;
+import ch.specchio.types.ConflictUpdateDescriptor;
 import ch.specchio.types.MetaParameter;
 import ch.specchio.types.MetadataSelectionDescriptor;
 import ch.specchio.types.MetadataUpdateDescriptor;
+import ch.specchio.types.SpectrumIdsDescriptor;
 import ch.specchio.types.TaxonomyNodeObject;
+import ch.specchio.types.TimeShiftDescriptor;
 import ch.specchio.types.attribute;
 import ch.specchio.types.Units;
 
@@ -122,6 +125,31 @@ public class MetadataService extends SPECCHIOService {
 	}
 	
 	
+	/**
+	 * Calculate the illumination azimuth and zenith of a set of spectra from
+	 * their latitude, longitude and acquisition time.
+	 * 
+	 * @param ids_d	the identifiers of the spectra
+	 * 
+	 * @return the number of spectra for which angles could be calculated
+	 * 
+	 * @throws SPECCHIOFactoryException	could not perform the calculation
+	 */
+	@POST
+	@Path("calculate_sun_angles")
+	@Consumes(MediaType.APPLICATION_XML)
+	@Produces(MediaType.APPLICATION_XML)
+	public XmlInteger calculate_sun_angles(SpectrumIdsDescriptor ids_d) throws SPECCHIOFactoryException {
+		
+		MetadataFactory factory = new MetadataFactory(getClientUsername(), getClientPassword());
+		int cnt = factory.calculateSunAngles(ids_d.getSpectrumIds1());
+		factory.dispose();
+		
+		return new XmlInteger(cnt);
+		
+	}
+	
+	
 	/**
 	 * Get the list of all known categories.
 	 * 
@@ -256,6 +284,31 @@ public class MetadataService extends SPECCHIOService {
 	}
 	
 	
+	/**
+	 * Update the conflicts in EAV metadata after spectra have been added to or
+	 * removed from a selection.
+	 * 
+	 * @param cu_d	the conflict update descriptor
+	 * 
+	 * @return a hash mapping attribute id to conflict information structures
+	 * 
+	 * @throws SPECCHIOFactoryException	could not connect to the database
+	 */
+	@POST
+	@Path("conflicts_eav_update")
+	@Consumes(MediaType.APPLICATION_XML)
+	@Produces(MediaType.APPLICATION_XML)
+	public ConflictTable conflicts_eav_update(ConflictUpdateDescriptor cu_d) throws SPECCHIOFactoryException {
+		
+		MetadataFactory factory = new MetadataFactory(getClientUsername(), getClientPassword());
+		ConflictTable conflicts = factory.updateEavConflicts(cu_d.getConflicts(), cu_d.getNumberOfSelectedRecords(), cu_d.getAddedIds(), cu_d.getRemovedIds());
+		factory.dispose();
+		
+		return conflicts;
+		
+	}
+	
+	
 	/**
 	 * Get the data policies for a collection of space.
 	 * 
@@ -441,6 +494,30 @@ public class MetadataService extends SPECCHIOService {
 	}
 
 
+	/**
+	 * Convert the acquisition times of a set of spectra to UTC.
+	 * 
+	 * @param shift_d	the time shift descriptor
+	 * 
+	 * @return the number of spectra whose acquisition time was shifted
+	 * 
+	 * @throws SPECCHIOFactoryException	could not perform the update
+	 */
+	@POST
+	@Path("shift_acquisition_times")
+	@Consumes(MediaType.APPLICATION_XML)
+	@Produces(MediaType.APPLICATION_XML)
+	public XmlInteger shift_acquisition_times(TimeShiftDescriptor shift_d) throws SPECCHIOFactoryException {
+		
+		MetadataFactory factory = new MetadataFactory(getClientUsername(), getClientPassword());
+		int cnt = factory.shiftAcquisitionTimes(shift_d.getIds(), shift_d.getShift());
+		factory.dispose();
+		
+		return new XmlInteger(cnt);
+		
+	}
+	
+	
 	/**
 	 * Get the units for an attribute.
 	 * 
@@ -23,6 +23,12 @@ public class SPECCHIOService {
 	/** service version number */
 	private static final String VERSION = "3.0.2";
 	
+	/** the servlet parameter that lists the container request filters */
+	private static final String REQUEST_FILTERS_INIT_PARAM_NAME = "com.sun.jersey.spi.container.ContainerRequestFilters";
+	
+	/** the name of the filter that decodes gzip-compressed requests */
+	private static final String GZIP_FILTER_NAME = "GZIPContentEncodingFilter";
+	
 	/** server capabilities */
 	private Capabilities capabilities = null;
 	
@@ -91,6 +97,15 @@ public class SPECCHIOService {
 			capabilities.setCapability(ResearchDataAustralia.ANDS_SERVER_CAPABILITY, "enabled");
 		}
 		
+		// advertise support for compressed requests if the gzip filter is installed
+		String requestFilters = config.getInitParameter(REQUEST_FILTERS_INIT_PARAM_NAME);
+		if (requestFilters != null && requestFilters.contains(GZIP_FILTER_NAME)) {
+			capabilities.setCapability(Capabilities.COMPRESSED_REQUESTS, "enabled");
+		}
+		
+		// identifier lists may be sent and received in compact form
+		capabilities.setCapability(Capabilities.COMPACT_ID_LISTS, "enabled");
+		
 		// set database capabilities
 		SPECCHIOFactory factory = new SPECCHIOFactory();
 		Long maxObjectSize = factory.getMaximumQuerySize() - 1024;
@@ -9,6 +9,7 @@ import javax.ws.rs.core.*;
 import ch.specchio.constants.UserRoles;
 import ch.specchio.factories.SPECCHIOFactoryException;
 import ch.specchio.factories.SpectralBrowserFactory;
+import ch.specchio.jaxb.XmlIdList;
 import ch.specchio.jaxb.XmlInteger;
 import ch.specchio.jaxb.XmlIntegerAdapter;
 import ch.specchio.types.campaign_node;
@@ -137,5 +138,32 @@ public class SpectralBrowserService extends SPECCHIOService {
 		XmlIntegerAdapter adapter = new XmlIntegerAdapter();
 		return adapter.marshalArray(ids);
 	}
+	
+	
+	/**
+	 * Get the identifiers of all the spectra that descend from a given node,
+	 * in the compact form advertised by the COMPACT_ID_LISTS capability.
+	 * 
+	 * @param node	the node
+	 * 
+	 * @returns the list of identifiers of every spectrum that descends from the given node
+	 * 
+	 * @throws SPECCHIOFactoryException invalid node
+	 */
+	@POST
+	@Path("spectrum_id_list")
+	@Consumes(MediaType.APPLICATION_XML)
+	@Produces(MediaType.APPLICATION_XML)
+	public XmlIdList spectrum_id_list(spectral_node_object node) throws SPECCHIOFactoryException {
+		
+		SpectralBrowserFactory factory = new SpectralBrowserFactory(
+				getClientUsername(),
+				getClientPassword()
+			);
+		List<Integer> ids = factory.getDescendentSpectrumIds(node);
+		factory.dispose();
+		
+		return new XmlIdList(ids);
+	}
 
 }
@@ -1,5 +1,6 @@
 package ch.specchio.services;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.ws.rs.*;
@@ -10,9 +11,11 @@ import ch.specchio.constants.UserRoles;
 import ch.specchio.factories.SPECCHIOFactoryException;
 import ch.specchio.factories.SpectralFileFactory;
 import ch.specchio.jaxb.XmlBoolean;
+import ch.specchio.jaxb.XmlIdList;
 import ch.specchio.jaxb.XmlInteger;
 import ch.specchio.jaxb.XmlIntegerAdapter;
 import ch.specchio.types.SpectralFile;
+import ch.specchio.types.SpectralFileBatch;
 
 
 /**
@@ -52,6 +55,43 @@ public class SpectralFileService extends SPECCHIOService {
 	}	
 	
 	
+	/**
+	 * Test whether or not each of a batch of spectral files exists in the database.
+	 * 
+	 * @param batch	the files to test
+	 * 
+	 * @return an array containing true for each file that exists, and false for each file that does not
+	 * 
+	 * @throws SPECCHIOFactoryException	could not access the database
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_XML)
+	@Consumes(MediaType.APPLICATION_XML)
+	@Path("exists_batch")
+	public XmlBoolean[] exists_batch(SpectralFileBatch batch) throws SPECCHIOFactoryException {
+		
+		SpectralFileFactory factory = new SpectralFileFactory(
+				getClientUsername(),
+				getClientPassword(),
+				batch.getCampaignType(),
+				batch.getCampaignId()
+			);
+			
+		ArrayList<XmlBoolean> exists = new ArrayList<XmlBoolean>();
+		try {
+			for (SpectralFile spec_file : batch.getSpectralFiles()) {
+				exists.add(new XmlBoolean(factory.spectrumExists(spec_file, spec_file.getHierarchyId())));
+			}
+		}
+		finally {
+			factory.dispose();
+		}
+		
+		return exists.toArray(new XmlBoolean[exists.size()]);
+		
+	}
+	
+	
 	/**
 	 * Get the identifier for a given file format.
 	 * 
@@ -105,5 +145,44 @@ public class SpectralFileService extends SPECCHIOService {
 		XmlIntegerAdapter adapter = new XmlIntegerAdapter();
 		return adapter.marshalArray(ids);
 	}
+	
+	
+	/**
+	 * Insert a batch of spectral files into the database in a single transaction.
+	 * 
+	 * @param batch	the files to be inserted
+	 * 
+	 * @return an array containing the spectrum identifiers created for each file
+	 * 
+	 * @throws SPECCHIOFactoryException	could not access the database
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_XML)
+	@Consumes(MediaType.APPLICATION_XML)
+	@Path("insert_batch")
+	public XmlIdList[] insert_batch(SpectralFileBatch batch) throws SPECCHIOFactoryException {
+		
+		SpectralFileFactory factory = new SpectralFileFactory(
+				getClientUsername(),
+				getClientPassword(),
+				batch.getCampaignType(),
+				batch.getCampaignId()
+			);
+		List<List<Integer>> ids;
+		try {
+			ids = factory.insertSpectralFiles(batch.getSpectralFiles());
+		}
+		finally {
+			factory.dispose();
+		}
+		
+		XmlIdList[] id_lists = new XmlIdList[ids.size()];
+		for (int i = 0; i < id_lists.length; i++) {
+			id_lists[i] = new XmlIdList(ids.get(i));
+		}
+		
+		return id_lists;
+		
+	}
 
 }
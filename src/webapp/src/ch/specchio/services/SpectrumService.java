@@ -1,5 +1,7 @@
 package ch.specchio.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,9 +10,12 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 
 import ch.specchio.constants.UserRoles;
+import ch.specchio.eav_db.StatementProfiler;
+import ch.specchio.factories.SPECCHIOFactory;
 import ch.specchio.factories.SPECCHIOFactoryException;
 import ch.specchio.factories.SpaceFactory;
 import ch.specchio.factories.SpectrumFactory;
+import ch.specchio.jaxb.XmlIdList;
 import ch.specchio.jaxb.XmlInteger;
 import ch.specchio.jaxb.XmlIntegerAdapter;
 import ch.specchio.plots.GonioSamplingPoints;
@@ -19,12 +24,15 @@ import ch.specchio.spaces.ReferenceSpaceStruct;
 import ch.specchio.spaces.Space;
 import ch.specchio.spaces.SpaceQueryDescriptor;
 import ch.specchio.spaces.SpectralSpace;
+import ch.specchio.types.CacheStatistics;
 import ch.specchio.types.PictureTable;
+import ch.specchio.types.SpectraDescriptor;
 import ch.specchio.types.SpectraMetadataUpdateDescriptor;
 import ch.specchio.types.Spectrum;
 import ch.specchio.types.SpectrumDataLink;
 import ch.specchio.types.SpectrumIdsDescriptor;
 import ch.specchio.types.SpectrumFactorTable;
+import ch.specchio.types.StatementStatistics;
 
 
 /**
@@ -85,6 +93,95 @@ public class SpectrumService extends SPECCHIOService {
 	}
 	
 	
+	/**
+	 * Get spectrum objects for a list of spectra.
+	 * 
+	 * @param spectra_d	the identifiers of the desired spectra and whether or not to load their metadata
+	 * 
+	 * @return an array of Spectrum objects in the same order as the input identifiers
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	@POST
+	@Path("getSpectra")
+	@Produces(MediaType.APPLICATION_XML)
+	public Spectrum[] getSpectra(SpectraDescriptor spectra_d) throws SPECCHIOFactoryException {
+		
+		SpectrumFactory factory = new SpectrumFactory(getClientUsername(), getClientPassword());
+		ArrayList<Spectrum> spectra = factory.getSpectra(spectra_d.getSpectrumIds(), spectra_d.getPrepareMetadata());
+		factory.dispose();
+		
+		return spectra.toArray(new Spectrum[spectra.size()]);
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the measurement cache.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	@GET
+	@Path("getMeasurementCacheStatistics")
+	@Produces(MediaType.APPLICATION_XML)
+	@RolesAllowed({UserRoles.ADMIN})
+	public CacheStatistics getMeasurementCacheStatistics() {
+		
+		return SPECCHIOFactory.getMeasurementCache().getStatistics();
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the query result cache.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	@GET
+	@Path("getQueryCacheStatistics")
+	@Produces(MediaType.APPLICATION_XML)
+	@RolesAllowed({UserRoles.ADMIN})
+	public CacheStatistics getQueryCacheStatistics() {
+		
+		return SPECCHIOFactory.getQueryCache().getStatistics();
+		
+	}
+	
+	
+	/**
+	 * Get the usage statistics of the prepared statement caches.
+	 * 
+	 * @return a CacheStatistics object
+	 */
+	@GET
+	@Path("getStatementCacheStatistics")
+	@Produces(MediaType.APPLICATION_XML)
+	@RolesAllowed({UserRoles.ADMIN})
+	public CacheStatistics getStatementCacheStatistics() {
+		
+		return StatementProfiler.getCacheStatistics();
+		
+	}
+	
+	
+	/**
+	 * Get the execution counts and times of the cached prepared statements.
+	 * 
+	 * @return an array of StatementStatistics objects, in descending order of total execution time
+	 */
+	@GET
+	@Path("getStatementStatistics")
+	@Produces(MediaType.APPLICATION_XML)
+	@RolesAllowed({UserRoles.ADMIN})
+	public StatementStatistics[] getStatementStatistics() {
+		
+		ArrayList<StatementStatistics> statistics = StatementProfiler.getStatementStatistics();
+		
+		return statistics.toArray(new StatementStatistics[statistics.size()]);
+		
+	}
+	
+	
 	/**
 	 * Get Space objects that represent calibration factors
 	 * 
@@ -286,6 +383,44 @@ public class SpectrumService extends SPECCHIOService {
 	}
 	
 	
+	/**
+	 * Load the vectors of a Space object from the database as a binary stream.
+	 * 
+	 * @param space	a partially-filled Space object
+	 * 
+	 * @return an empty response; the vectors are written to the response body
+	 *         in the format defined by SpaceStreamWriter
+	 * 
+	 * @throws SPECCHIOFactoryException	database error
+	 */
+	@POST
+	@Path("loadSpaceStream")
+	@Consumes(MediaType.APPLICATION_XML)
+	@Produces(MediaType.APPLICATION_OCTET_STREAM)
+	public Response loadSpaceStream(Space space) throws SPECCHIOFactoryException {
+		
+		Response response;
+		
+		SpaceFactory factory = new SpaceFactory(getClientUsername(), getClientPassword());
+		try {
+			OutputStream os = getResponse().getOutputStream();
+			factory.loadSpace(space, os);
+			os.close();
+			response = Response.ok().build();
+		}
+		catch (IOException ex) {
+			// client went away or network error
+			response = Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+		}
+		finally {
+			factory.dispose();
+		}
+		
+		return response;
+		
+	}
+	
+	
 	/**
 	 * Remove a spectrum from the database.
 	 * 
@@ -309,6 +444,30 @@ public class SpectrumService extends SPECCHIOService {
 	}
 	
 	
+	/**
+	 * Remove a set of spectra from the database.
+	 * 
+	 * @param ids_d	a spectrum identifier descriptor with the spectra to be removed in the first list
+	 * 
+	 * @return the number of spectra removed
+	 * 
+	 * @throws SPECCHIOFactoryException	the spectra could not be removed
+	 */
+	@POST
+	@Path("remove_spectra")
+	@Consumes(MediaType.APPLICATION_XML)
+	@Produces(MediaType.APPLICATION_XML)
+	public XmlInteger remove_spectra(SpectrumIdsDescriptor ids_d) throws SPECCHIOFactoryException {
+		
+		SpectrumFactory factory = new SpectrumFactory(getClientUsername(), getClientPassword());
+		int num = factory.removeSpectra(ids_d.getSpectrumIds1(), getSecurityContext().isUserInRole(UserRoles.ADMIN));
+		factory.dispose();
+		
+		return new XmlInteger(num);
+		
+	}
+	
+	
 	/**
 	 * Get the pictures associated with a given spectrum.
 	 * 
@@ -357,6 +516,31 @@ public class SpectrumService extends SPECCHIOService {
 	}
 	
 	
+	/**
+	 * Get the identifiers of all spectra that match a given query, in the
+	 * compact form advertised by the COMPACT_ID_LISTS capability.
+	 * 
+	 * @param query		the query
+	 * 
+	 * @return the list of identifiers
+	 * 
+	 * @throws SPECCHIOFactoryException	could not access the database
+	 */
+	@POST
+	@Path("query_id_list")
+	@Consumes(MediaType.APPLICATION_XML)
+	@Produces(MediaType.APPLICATION_XML)
+	public XmlIdList query_id_list(Query query) throws SPECCHIOFactoryException {
+		
+		SpectrumFactory factory = new SpectrumFactory(getClientUsername(), getClientPassword());
+		List<Integer> ids = factory.getIdsMatchingQuery(query);
+		factory.dispose();
+		
+		return new XmlIdList(ids);
+		
+	}
+	
+	
 	/**
 	 * Get the number of spectra that match a given query.
 	 * 
@@ -0,0 +1,149 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import ch.specchio.constants.FileTypes;
+import ch.specchio.constants.HeaderBody;
+import ch.specchio.file.writer.CsvColumnSpool;
+import ch.specchio.file.writer.SpectrumWriter;
+import ch.specchio.file.writer.SpectrumWriterFactory;
+import ch.specchio.spaces.Space;
+import ch.specchio.spaces.SpectralSpace;
+import ch.specchio.types.Spectrum;
+
+
+public class CsvColumnSpoolTest {
+	
+	private static final int SPECTRA = 1000;
+	
+	private static final int BANDS = 5;
+	
+	
+	@Test
+	public void testOnlyOnePageOfColumnsIsHeld() throws Exception {
+		
+		CsvColumnSpool spool = new CsvColumnSpool(",", 64, null);
+		String rows[] = { "a", "b", "c", "d" };
+		StringBuffer expected[] = new StringBuffer[rows.length];
+		for (int r = 0; r < rows.length; r++) {
+			expected[r] = new StringBuffer();
+		}
+		
+		int peak = 0;
+		for (int column = 0; column < SPECTRA; column++) {
+			
+			// each row is missing from some of the columns
+			HashMap<String, String> values = new HashMap<String, String>();
+			for (int r = 0; r < rows.length; r++) {
+				expected[r].append(',');
+				if (column % (r + 2) != 0) {
+					values.put(rows[r], rows[r] + column);
+					expected[r].append(rows[r] + column);
+				}
+			}
+			spool.addColumn(values);
+			peak = Math.max(peak, spool.getColumnsInMemory());
+			
+		}
+		assertTrue(peak < spool.getPageSize());
+		
+		// row "b" is never written out and must be skipped
+		for (int r = 0; r < rows.length; r++) {
+			if (r != 1) {
+				StringWriter out = new StringWriter();
+				spool.writeRow(rows[r], out);
+				assertEquals(expected[r].toString(), out.toString());
+			}
+		}
+		spool.close();
+		
+	}
+	
+	
+	@Test
+	public void testBodyNeedsOnlyTheCurrentVectors() throws Exception {
+		
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < SPECTRA; i++) {
+			ids.add(i + 1);
+		}
+		
+		// all vectors in the space at once
+		SpectralSpace space = newSpace();
+		space.setSpectrumIds(ids);
+		for (Integer id : ids) {
+			space.addVector(vector(id));
+		}
+		String whole = writeBody(space, ids, 0);
+		
+		// only one block of vectors in the space at a time, as when exporting
+		String blocks = writeBody(newSpace(), ids, 100);
+		
+		assertEquals(BANDS, whole.split("\n").length);
+		assertEquals(whole, blocks);
+		
+	}
+	
+	
+	private static SpectralSpace newSpace() {
+		
+		SpectralSpace space = new SpectralSpace();
+		double wvls[] = new double[BANDS];
+		for (int i = 0; i < BANDS; i++) {
+			wvls[i] = 400 + 10 * i;
+		}
+		space.setAverageWavelengths(wvls);
+		
+		return space;
+		
+	}
+	
+	
+	private static double[] vector(int id) {
+		
+		double vector[] = new double[BANDS];
+		for (int i = 0; i < BANDS; i++) {
+			vector[i] = id + i / 10.0;
+		}
+		
+		return vector;
+		
+	}
+	
+	
+	private static String writeBody(Space space, ArrayList<Integer> ids, int block_size) throws Exception {
+		
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		SpectrumWriter writer = new SpectrumWriterFactory().getWriter(os, FileTypes.CSV, HeaderBody.Body);
+		writer.startSpace(space);
+		for (int start = 0; start < ids.size(); ) {
+			int end = (block_size > 0)? Math.min(start + block_size, ids.size()) : ids.size();
+			if (block_size > 0) {
+				// replace the vectors of the previous block
+				space.setSpectrumIds(new ArrayList<Integer>(ids.subList(start, end)));
+				ArrayList<double[]> vectors = new ArrayList<double[]>();
+				for (int i = start; i < end; i++) {
+					vectors.add(vector(ids.get(i)));
+				}
+				space.setVectors(vectors);
+			}
+			for (int i = start; i < end; i++) {
+				writer.writeSpectrum(new Spectrum(ids.get(i)));
+			}
+			start = end;
+		}
+		writer.endSpace();
+		
+		return os.toString("UTF-8");
+		
+	}
+	
+}
@@ -0,0 +1,134 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ch.specchio.eav_db.SQL_StatementBuilder;
+
+
+/**
+ * Tests of the id list builders. The builders are used for every "in (...)"
+ * condition, so every empty list must give valid SQL, and their cost must grow
+ * linearly with the length of the list. Their timings are reported by
+ * IdListBenchmark.
+ */
+public class IdListTest {
+	
+	/** the number of timed runs for each list; the fastest is reported */
+	private static final int RUNS = 5;
+	
+	/** the statement builder under test; it never touches its connection */
+	private static SQL_StatementBuilder SQL;
+	
+	
+	@BeforeClass
+	public static void createStatementBuilder() {
+		
+		// a connection whose every method returns null
+		Connection conn = (Connection)Proxy.newProxyInstance(
+				Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						return null;
+					}
+				}
+			);
+		SQL = new SQL_StatementBuilder(conn);
+		
+	}
+	
+	
+	private static ArrayList<Integer> ids(int n) {
+		
+		// every other id, so that the list has no runs
+		ArrayList<Integer> ids = new ArrayList<Integer>(n);
+		for (int i = 0; i < n; i++) {
+			ids.add(1000000 + 2 * i);
+		}
+		
+		return ids;
+		
+	}
+	
+	
+	private static long time_conc_ids(ArrayList<Integer> ids) {
+		
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			String str = SQL.conc_ids(ids);
+			best = Math.min(best, System.nanoTime() - start);
+			assertEquals(ids.size() * 9 - 2, str.length());
+		}
+		
+		return best;
+		
+	}
+	
+	
+	private static long time_append_ids(ArrayList<Integer> ids) {
+		
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			StringBuilder sb = SQL.append_ids(new StringBuilder("select spectrum_id from spectrum where spectrum_id in ("), ids).append(")");
+			best = Math.min(best, System.nanoTime() - start);
+			assertTrue(sb.length() > ids.size() * 9);
+		}
+		
+		return best;
+		
+	}
+	
+	
+	@Test
+	public void testEmptyListsMatchNothing() {
+		
+		assertEquals("null", SQL.conc_ids(new ArrayList<Integer>()));
+		assertEquals("null", SQL.conc_ids(new int[0]));
+		assertEquals("null", SQL.conc_ids(new Integer[0]));
+		assertEquals("null", SQL.append_ids(new StringBuilder(), new ArrayList<Integer>()).toString());
+		
+	}
+	
+	
+	@Test
+	public void testAllListTypesGiveTheSameString() {
+		
+		assertEquals("3, 1, 2", SQL.conc_ids(3, 1, 2));
+		assertEquals("3, 1, 2", SQL.conc_ids(new Integer[] { 3, 1, 2 }));
+		assertEquals("3, 1, 2", SQL.conc_ids(Arrays.asList(3, 1, 2)));
+		
+	}
+	
+	
+	@Test
+	public void testFiftyThousandIdsAreNotQuadratic() {
+		
+		// warm up
+		time_conc_ids(ids(50000));
+		time_append_ids(ids(50000));
+		
+		// ten times the ids would take a hundred times as long if the cost were quadratic
+		long conc_small = time_conc_ids(ids(5000));
+		long conc_large = time_conc_ids(ids(50000));
+		long append_small = time_append_ids(ids(5000));
+		long append_large = time_append_ids(ids(50000));
+		
+		assertTrue("conc_ids: 5000 ids in " + conc_small + " ns, 50000 in " + conc_large + " ns", conc_large < 40 * Math.max(conc_small, 100000));
+		assertTrue("append_ids: 5000 ids in " + append_small + " ns, 50000 in " + append_large + " ns", append_large < 40 * Math.max(append_small, 100000));
+		
+	}
+	
+}
@@ -0,0 +1,259 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ch.specchio.eav_db.Attributes;
+import ch.specchio.eav_db.EAVDBServices;
+import ch.specchio.eav_db.SQL_StatementBuilder;
+import ch.specchio.types.MetaParameter;
+import ch.specchio.types.Metadata;
+import ch.specchio.types.attribute;
+
+
+/**
+ * Concurrent metadata inserts by the same user. Every thread inserts
+ * overlapping metadata at the same time over a connection of its own, and
+ * each value must still end up in exactly one eav row.
+ * 
+ * The database is simulated by JDBC proxies that keep the eav rows in
+ * memory, so the test runs without a database server.
+ */
+public class MetadataInsertContentionTest {
+	
+	/** the number of threads inserting at the same time */
+	private static final int THREADS = 8;
+	
+	/** the number of metadata inserts made by each thread */
+	private static final int ROUNDS = 20;
+	
+	/** the number of values in each metadata insert */
+	private static final int VALUES_PER_ROUND = 40;
+	
+	/** the attribute of all of the test values */
+	private static final int ATTRIBUTE_ID = 1;
+	
+	/** the simulated eav table: values by eav_id, in order of insertion */
+	private static List<String> eav_rows = Collections.synchronizedList(new ArrayList<String>());
+	
+	/** the attribute service shared by all threads */
+	private static Attributes ATR;
+	
+	
+	@BeforeClass
+	public static void createAttributes() throws Exception {
+		
+		ATR = new Attributes(new SQL_StatementBuilder(connection()));
+		
+	}
+	
+	
+	@Test
+	public void testSameUserInsertsInParallelCreateNoDuplicates() throws Exception {
+		
+		final String user = "contention_test_user";
+		final CyclicBarrier start = new CyclicBarrier(THREADS);
+		final ArrayList<HashMap<Integer, Integer>> ids_by_value = new ArrayList<HashMap<Integer, Integer>>();
+		final ArrayList<Throwable> failures = new ArrayList<Throwable>();
+		
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			final int thread_no = t;
+			final HashMap<Integer, Integer> ids = new HashMap<Integer, Integer>();
+			ids_by_value.add(ids);
+			Thread thread = new Thread() {
+				public void run() {
+					try {
+						EAVDBServices eav = new EAVDBServices(new SQL_StatementBuilder(connection()), ATR, user);
+						start.await();
+						for (int round = 0; round < ROUNDS; round++) {
+							
+							// neighbouring threads and rounds share most of their values
+							Metadata md = new Metadata();
+							int first = (thread_no + round) * VALUES_PER_ROUND / 4;
+							for (int value = first; value < first + VALUES_PER_ROUND; value++) {
+								md.addEntry(metaparameter(value));
+							}
+							
+							ArrayList<Integer> eav_ids = eav.insert_metadata_into_db(1, md);
+							assertEquals(VALUES_PER_ROUND, eav_ids.size());
+							for (int i = 0; i < eav_ids.size(); i++) {
+								ids.put(first + i, eav_ids.get(i));
+							}
+							
+						}
+					}
+					catch (Throwable ex) {
+						synchronized (failures) {
+							failures.add(ex);
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals("failures: " + failures, 0, failures.size());
+		
+		// no value was inserted twice
+		ArrayList<String> rows = new ArrayList<String>(eav_rows);
+		assertEquals("duplicate eav rows", rows.size(), new HashSet<String>(rows).size());
+		
+		// every thread got the row that holds the value
+		for (HashMap<Integer, Integer> ids : ids_by_value) {
+			for (Integer value : ids.keySet()) {
+				int eav_id = ids.get(value);
+				assertTrue("eav_id " + eav_id + " for value " + value, eav_id >= 1 && eav_id <= rows.size());
+				assertEquals("eav_id " + eav_id + " for value " + value, value.toString(), rows.get(eav_id - 1).split(",")[2]);
+			}
+		}
+		
+	}
+	
+	
+	private static MetaParameter metaparameter(int value) throws Exception {
+		
+		attribute attr = new attribute();
+		attr.id = ATTRIBUTE_ID;
+		attr.name = "Contention Test";
+		attr.cat_name = "General";
+		attr.default_unit_id = 1;
+		attr.default_storage_field = attribute.INT_VAL;
+		
+		MetaParameter mp = MetaParameter.newInstance(attr);
+		mp.setValue(value);
+		
+		return mp;
+		
+	}
+	
+	
+	/**
+	 * Create a simulated connection in autocommit mode.
+	 */
+	private static Connection connection() {
+		
+		return (Connection)proxy(Connection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("createStatement")) {
+					return statement(null);
+				} else if (name.equals("prepareStatement")) {
+					return statement((String)args[0]);
+				} else if (name.equals("getAutoCommit")) {
+					return true;
+				}
+				return null;
+			}
+		});
+		
+	}
+	
+	
+	/**
+	 * Create a simulated statement. The attribute service's queries return a
+	 * single attribute and unit; inserts into the eav view add rows to the
+	 * simulated eav table.
+	 */
+	private static PreparedStatement statement(final String prepared_sql) {
+		
+		return (PreparedStatement)proxy(PreparedStatement.class, new InvocationHandler() {
+			
+			private ArrayList<Object[]> generated_keys = new ArrayList<Object[]>();
+			
+			public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+				String name = method.getName();
+				if (name.equals("executeQuery")) {
+					String query = (String)args[0];
+					ArrayList<Object[]> rows = new ArrayList<Object[]>();
+					if (query.startsWith("select a.attribute_id")) {
+						rows.add(new Object[] { ATTRIBUTE_ID, "Contention Test", 1, "General", null, 1, attribute.INT_VAL, null, 1 });
+					} else if (query.startsWith("select unit_id")) {
+						rows.add(new Object[] { 1, "RAW", null, "RAW" });
+					}
+					return result_set(rows);
+				} else if (name.equals("executeUpdate")) {
+					// give other threads the chance to run while the insert is under way
+					Thread.sleep(1);
+					Matcher tuples = Pattern.compile("\\(([^()]*)\\)").matcher(prepared_sql.substring(prepared_sql.indexOf(" values")));
+					int cnt = 0;
+					while (tuples.find()) {
+						synchronized (eav_rows) {
+							eav_rows.add(tuples.group(1));
+							generated_keys.add(new Object[] { eav_rows.size() });
+						}
+						cnt++;
+					}
+					return cnt;
+				} else if (name.equals("getGeneratedKeys")) {
+					return result_set(generated_keys);
+				} else if (name.equals("getAutoCommit")) {
+					return true;
+				} else if (method.getReturnType() == boolean.class) {
+					return false;
+				} else if (method.getReturnType() == int.class) {
+					return 0;
+				}
+				return null;
+			}
+			
+		});
+		
+	}
+	
+	
+	private static ResultSet result_set(final List<Object[]> rows) {
+		
+		return (ResultSet)proxy(ResultSet.class, new InvocationHandler() {
+			
+			private int row = -1;
+			
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("next")) {
+					return ++row < rows.size();
+				} else if (name.equals("getInt")) {
+					Object value = rows.get(row)[(Integer)args[0] - 1];
+					return (value != null)? value : 0;
+				} else if (name.equals("getString")) {
+					Object value = rows.get(row)[(Integer)args[0] - 1];
+					return (value != null)? value.toString() : null;
+				} else if (method.getReturnType() == boolean.class) {
+					return false;
+				}
+				return null;
+			}
+			
+		});
+		
+	}
+	
+	
+	private static Object proxy(Class<?> type, InvocationHandler handler) {
+		
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+		
+	}
+	
+}
@@ -0,0 +1,188 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ch.specchio.plots.VectorStatistics;
+import ch.specchio.spaces.Space;
+import ch.specchio.spaces.SpectralSpace;
+
+
+public class SpaceMatrixTest {
+	
+	private static Space space(int dim, int... ids) {
+		
+		Space space = new SpectralSpace();
+		space.setDimensionality(dim);
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		for (int id : ids) {
+			list.add(id);
+		}
+		space.setSpectrumIds(list);
+		
+		return space;
+		
+	}
+	
+	
+	@Test
+	public void testRowsShareOneArray() {
+		
+		Space space = space(3, 10, 20);
+		space.allocateMatrix(2);
+		for (int i = 0; i < 2; i++) {
+			int offset = space.getRowOffset(space.nextRow());
+			for (int j = 0; j < 3; j++) {
+				space.getMatrix()[offset + j] = 10 * i + j;
+			}
+		}
+		
+		assertTrue(space.isMatrixStorage());
+		assertEquals(6, space.getMatrix().length);
+		assertEquals(2, space.getNumberOfDataPoints());
+		assertArrayEquals(new double[] { 10, 11, 12 }, space.getVector(20), 0);
+		assertEquals(2.0, space.get_vector_element(10, 2), 0);
+		
+		double[][] rows = space.getVectorsAsArray();
+		assertArrayEquals(new double[] { 0, 1, 2 }, rows[0], 0);
+		assertArrayEquals(new double[] { 10, 11, 12 }, rows[1], 0);
+		
+	}
+	
+	
+	@Test
+	public void testListVectorsCarriedOverAndMatrixGrows() {
+		
+		Space space = space(2, 1, 2, 3);
+		space.addVector(new double[] { 1, 2 });
+		space.allocateMatrix(1);
+		space.addVector(new double[] { 3, 4 });
+		space.addVector(new double[] { 5, 6 });
+		
+		assertEquals(3, space.getNumberOfDataPoints());
+		assertEquals(Arrays.asList(1.0, 2.0, 3.0, 4.0, 5.0, 6.0), toList(space.getMatrix(), 6));
+		
+		double[] vector = new double[2];
+		space.copyVector(2, vector);
+		assertArrayEquals(new double[] { 5, 6 }, vector, 0);
+		
+	}
+	
+	
+	@Test
+	public void testClearedRowsStartFromZero() {
+		
+		Space space = space(2, 1);
+		space.allocateMatrix(1);
+		space.addVector(new double[] { 7, 8 });
+		space.clearDataVectors();
+		space.nextRow();
+		
+		assertArrayEquals(new double[] { 0, 0 }, space.getVectorByIndex(0), 0);
+		
+	}
+	
+	
+	@Test
+	public void testStatisticsMatchListStorage() {
+		
+		Space list_space = space(3, 1, 2);
+		list_space.addVector(new double[] { 1, 2, 3 });
+		list_space.addVector(new double[] { 4, 5, 6 });
+		Space matrix_space = space(3, 1, 2);
+		matrix_space.allocateMatrix(2);
+		matrix_space.addVector(new double[] { 1, 2, 3 });
+		matrix_space.addVector(new double[] { 4, 5, 6 });
+		
+		VectorStatistics list_stats = new VectorStatistics();
+		list_stats.calc_stats(list_space, 1, 2);
+		VectorStatistics matrix_stats = new VectorStatistics();
+		matrix_stats.calc_stats(matrix_space, 1, 2);
+		
+		assertEquals(list_stats.mean(), matrix_stats.mean(), 0);
+		assertEquals(list_stats.min(), matrix_stats.min(), 0);
+		assertEquals(list_stats.max(), matrix_stats.max(), 0);
+		assertEquals(list_stats.standardDeviation(), matrix_stats.standardDeviation(), 0);
+		
+	}
+	
+	
+	@Test
+	public void testViewsShareStorage() {
+		
+		Space space = space(3, 10, 20);
+		space.allocateMatrix(2);
+		space.addVector(new double[] { 1, 2, 3 });
+		space.addVector(new double[] { 4, 5, 6 });
+		
+		assertEquals(3, space.getDimension());
+		DoubleBuffer view = space.getVectorView(1);
+		assertEquals(3, view.limit());
+		assertEquals(6.0, view.get(2), 0);
+		
+		// the view reads the matrix row itself
+		space.getMatrix()[space.getRowOffset(1)] = 40;
+		assertEquals(40.0, view.get(0), 0);
+		assertTrue(view.array() == space.getMatrix());
+		
+		VectorStatistics stats = new VectorStatistics();
+		stats.calc_stats(view, 1, 2);
+		assertEquals(5.5, stats.mean(), 0);
+		
+	}
+	
+	
+	@Test
+	public void testViewsOfListStorage() {
+		
+		Space space = space(2, 1, 2);
+		double[] vector = new double[] { 7, 8 };
+		space.addVector(new double[] { 5, 6 });
+		space.addVector(vector);
+		
+		assertEquals(2, space.getDimension());
+		assertTrue(space.getVectorView(space.getVectorIndex(2)).array() == vector);
+		
+	}
+	
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testViewOutsideMatrixRejected() {
+		
+		Space space = space(2, 1, 2);
+		space.allocateMatrix(2);
+		space.addVector(new double[] { 1, 2 });
+		space.getVectorView(1);
+		
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testVectorOfWrongLengthRejected() {
+		
+		Space space = space(2, 1);
+		space.allocateMatrix(1);
+		space.addVector(new double[] { 1, 2, 3 });
+		
+	}
+	
+	
+	private static ArrayList<Double> toList(double[] values, int n) {
+		
+		ArrayList<Double> list = new ArrayList<Double>();
+		for (int i = 0; i < n; i++) {
+			list.add(values[i]);
+		}
+		
+		return list;
+		
+	}
+	
+}
@@ -0,0 +1,103 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.bind.JAXBContext;
+
+import org.junit.Test;
+
+import ch.specchio.types.MeasurementCodec;
+import ch.specchio.types.SpectralFile;
+
+
+/**
+ * The packed form in which the measurements of a spectral file are sent to
+ * the server and stored in the database.
+ */
+public class SpectralFileMeasurementsTest {
+	
+	/** the number of bands in each test spectrum */
+	private static final int BANDS = 5;
+	
+	
+	@Test
+	public void testPackedMeasurementsRoundTrip() throws Exception {
+		
+		SpectralFile spec_file = newSpectralFile();
+		
+		JAXBContext context = JAXBContext.newInstance(SpectralFile.class);
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		context.createMarshaller().marshal(spec_file, xml);
+		SpectralFile received = (SpectralFile)context.createUnmarshaller().unmarshal(new ByteArrayInputStream(xml.toByteArray()));
+		
+		byte[][] packed = received.getPackedMeasurements();
+		assertEquals(3, packed.length);
+		assertArrayEquals(new float[] { 1.0f, 1.1f, 1.2f, 1.3f, 1.4f }, MeasurementCodec.decode(packed[0]), 0.0f);
+		assertArrayEquals(new float[] { 2.0f, 2.1f }, MeasurementCodec.decode(packed[1]), 0.0f);
+		assertNull(packed[2]);
+		
+		// the server stores what it received and logs the incomplete spectra
+		assertEquals(BANDS * MeasurementCodec.BYTES_PER_VALUE, received.getMeasurementBytes(0).length);
+		assertEquals(0, received.getFileErrors().size());
+		assertEquals(2 * MeasurementCodec.BYTES_PER_VALUE, received.getMeasurementBytes(1).length);
+		assertEquals(1, received.getFileErrors().size());
+		assertEquals(0, received.getMeasurementBytes(2).length);
+		assertEquals(2, received.getFileErrors().size());
+		
+	}
+	
+	
+	@Test
+	public void testMeasurementsAreTruncatedAtTheFirstNull() {
+		
+		SpectralFile spec_file = newSpectralFile();
+		
+		assertArrayEquals(new float[] { 1.0f, 1.1f, 1.2f, 1.3f, 1.4f }, MeasurementCodec.decode(spec_file.getMeasurementBytes(0)), 0.0f);
+		assertEquals(0, spec_file.getFileErrors().size());
+		assertArrayEquals(new float[] { 2.0f, 2.1f }, MeasurementCodec.decode(spec_file.getMeasurementBytes(1)), 0.0f);
+		assertEquals(1, spec_file.getFileErrors().size());
+		
+	}
+	
+	
+	@Test
+	public void testMissingMeasurementIsLoggedAsAFileError() {
+		
+		SpectralFile spec_file = newSpectralFile();
+		
+		assertEquals(0, spec_file.getMeasurementBytes(2).length);
+		assertEquals(1, spec_file.getFileErrors().size());
+		
+		// the same holds for measurements received in packed form
+		spec_file.setPackedMeasurements(new byte[][] { null });
+		assertEquals(0, spec_file.getMeasurementBytes(0).length);
+		assertEquals(2, spec_file.getFileErrors().size());
+		
+	}
+	
+	
+	/**
+	 * Create a spectral file holding a complete spectrum, a spectrum that
+	 * ends at a null band, and a missing spectrum.
+	 */
+	private static SpectralFile newSpectralFile() {
+		
+		SpectralFile spec_file = new SpectralFile();
+		spec_file.setNumberOfSpectra(3);
+		spec_file.addNumberOfChannels(BANDS);
+		spec_file.setMeasurements(new Float[][] {
+				{ 1.0f, 1.1f, 1.2f, 1.3f, 1.4f },
+				{ 2.0f, 2.1f, null, 2.3f, 2.4f },
+				null
+			});
+		
+		return spec_file;
+		
+	}
+	
+}
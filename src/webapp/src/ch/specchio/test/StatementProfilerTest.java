@@ -0,0 +1,77 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ch.specchio.eav_db.StatementProfiler;
+import ch.specchio.types.StatementStatistics;
+
+
+// the statistics are server-wide, so the bound is only reached after the other test has run
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class StatementProfilerTest {
+	
+	private static StatementStatistics find(String sql) {
+		
+		for (StatementStatistics s : StatementProfiler.getStatementStatistics()) {
+			if (s.getSql().equals(sql)) {
+				return s;
+			}
+		}
+		
+		return null;
+		
+	}
+	
+	
+	@Test
+	public void testConcurrentExecutionsAreAllCounted() throws Exception {
+		
+		final String sql = "select 1 from profiler_test where id = ?";
+		final int threads = 8;
+		final int executions = 10000;
+		
+		ArrayList<Thread> list = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final long nanos = t + 1;
+			Thread thread = new Thread() {
+				public void run() {
+					for (int i = 0; i < executions; i++) {
+						StatementProfiler.recordExecution(sql, nanos);
+					}
+				}
+			};
+			list.add(thread);
+			thread.start();
+		}
+		for (Thread thread : list) {
+			thread.join();
+		}
+		
+		StatementStatistics s = find(sql);
+		assertEquals(threads * executions, s.getExecutions());
+		assertEquals(threads, s.getMaxTime() * 1e6, 1e-6);
+		
+	}
+	
+	
+	@Test
+	public void testNumberOfStatementsIsBounded() {
+		
+		for (int i = 0; i < StatementProfiler.MAX_STATEMENTS + 10; i++) {
+			StatementProfiler.recordExecution("select " + i + " from profiler_bound_test", 1);
+		}
+		
+		ArrayList<StatementStatistics> statistics = StatementProfiler.getStatementStatistics();
+		assertTrue(statistics.size() <= StatementProfiler.MAX_STATEMENTS + 1);
+		assertTrue(find(StatementProfiler.OTHER_STATEMENTS).getExecutions() >= 10);
+		
+	}
+	
+}
@@ -0,0 +1,189 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * Round trip of the uploads that are posted as application/octet-stream
+ * (campaign imports and sensor definitions) through a client that
+ * compresses its requests.
+ * 
+ * The client is configured like SPECCHIOWebClient after it has connected to
+ * a server that can decode compressed requests: the gzip filter decodes
+ * responses and compresses only those requests that are marked with a
+ * "Content-Encoding: gzip" header, and streams are never marked. The
+ * server decodes compressed requests the way the container's gzip filter
+ * decodes a resource method's entity stream.
+ */
+public class UploadCompressionTest {
+	
+	/** the test server */
+	private HttpServer server;
+	
+	/** the resource on the test server */
+	private WebResource resource;
+	
+	/** the content encoding of the last request received by the server */
+	private String received_encoding;
+	
+	/** the body of the last request received by the server, after decoding */
+	private byte[] received_body;
+	
+	
+	@Before
+	public void startServer() throws IOException {
+		
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				received_encoding = exchange.getRequestHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+				InputStream body = exchange.getRequestBody();
+				if ("gzip".equals(received_encoding)) {
+					body = new GZIPInputStream(body);
+				}
+				received_body = read(body);
+				exchange.sendResponseHeaders(200, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+		
+		Client client = Client.create();
+		client.addFilter(new GZIPContentEncodingFilter(false));
+		client.addFilter(new ClientFilter() {
+			public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+				// the same rule as SPECCHIORequestCompressionFilter
+				Object type = request.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+				boolean octet_stream = type != null && MediaType.APPLICATION_OCTET_STREAM_TYPE.isCompatible(MediaType.valueOf(type.toString()));
+				if (request.getEntity() != null && !(request.getEntity() instanceof InputStream) && !octet_stream) {
+					request.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, "gzip");
+				}
+				return getNext().handle(request);
+			}
+		});
+		resource = client.resource("http://localhost:" + server.getAddress().getPort() + "/");
+		
+	}
+	
+	
+	@After
+	public void stopServer() {
+		
+		server.stop(0);
+		
+	}
+	
+	
+	@Test
+	public void testCompressedCampaignExportArrivesUnchanged() throws IOException {
+		
+		// a gzip-compressed binary export, as written by CampaignExport
+		ByteArrayOutputStream export = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(export);
+		gzip.write("SCBX".getBytes("US-ASCII"));
+		gzip.write(randomBytes(100000));
+		gzip.close();
+		
+		postOctetStream(export.toByteArray(), "campaign/import/specchio/1");
+		
+		assertNull(received_encoding);
+		assertArrayEquals(export.toByteArray(), received_body);
+		
+	}
+	
+	
+	@Test
+	public void testSensorDefinitionArrivesUnchanged() throws IOException {
+		
+		byte[] definition = "Sensor name: Test\tBands: 3\n400\t500\t600\n".getBytes("UTF-8");
+		
+		postOctetStream(definition, "instrumentation/loadSensor");
+		
+		assertNull(received_encoding);
+		assertArrayEquals(definition, received_body);
+		
+	}
+	
+	
+	@Test
+	public void testXmlRequestIsCompressed() throws IOException {
+		
+		StringBuilder sb = new StringBuilder("<spectrumIds>");
+		for (int id = 0; id < 1000; id++) {
+			sb.append("<id>").append(id).append("</id>");
+		}
+		sb.append("</spectrumIds>");
+		
+		ClientResponse response = resource.path("spectrum/countSpectra").type(MediaType.APPLICATION_XML).post(ClientResponse.class, sb.toString());
+		
+		assertEquals(200, response.getStatus());
+		assertEquals("gzip", received_encoding);
+		assertEquals(sb.toString(), new String(received_body, "UTF-8"));
+		
+	}
+	
+	
+	/**
+	 * Post a stream in the same way as SPECCHIOWebClient.postInputStream().
+	 */
+	private void postOctetStream(byte[] bytes, String path) {
+		
+		ClientResponse response = resource.path(path).type(MediaType.APPLICATION_OCTET_STREAM).post(ClientResponse.class, new ByteArrayInputStream(bytes));
+		assertEquals(200, response.getStatus());
+		
+	}
+	
+	
+	private static byte[] randomBytes(int n) {
+		
+		byte[] bytes = new byte[n];
+		new Random(1).nextBytes(bytes);
+		
+		return bytes;
+		
+	}
+	
+	
+	private static byte[] read(InputStream is) throws IOException {
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int cnt;
+		while ((cnt = is.read(buffer)) >= 0) {
+			bytes.write(buffer, 0, cnt);
+		}
+		
+		return bytes.toByteArray();
+		
+	}
+	
+}
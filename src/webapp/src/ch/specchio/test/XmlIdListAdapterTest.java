@@ -0,0 +1,139 @@
+package ch.specchio.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ch.specchio.jaxb.XmlIdListAdapter;
+
+
+public class XmlIdListAdapterTest {
+	
+	private static ArrayList<Integer> list(Integer... ids) {
+		
+		return new ArrayList<Integer>(Arrays.asList(ids));
+		
+	}
+	
+	
+	@Test
+	public void testEncode() {
+		
+		assertEquals("1-4,9,7", XmlIdListAdapter.encode(list(1, 2, 3, 4, 9, 7)));
+		assertEquals("", XmlIdListAdapter.encode(list()));
+		assertEquals("5,5", XmlIdListAdapter.encode(list(5, 5)));
+		
+	}
+	
+	
+	@Test
+	public void testRoundTrip() {
+		
+		ArrayList<Integer> ids = list(1, 2, 3, 4, 9, 7, 7, 8, -3, -2, -1, 0, 100, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+		assertEquals(ids, XmlIdListAdapter.decode(XmlIdListAdapter.encode(ids)));
+		
+		ArrayList<Integer> run = new ArrayList<Integer>();
+		for (int id = 1000; id < 51000; id++) {
+			run.add(id);
+		}
+		assertEquals("1000-50999", XmlIdListAdapter.encode(run));
+		assertEquals(run, XmlIdListAdapter.decode(XmlIdListAdapter.encode(run)));
+		
+	}
+	
+	
+	@Test
+	public void testAdapterNulls() {
+		
+		XmlIdListAdapter adapter = new XmlIdListAdapter();
+		assertEquals(null, adapter.marshal(null));
+		assertEquals(null, adapter.unmarshal(null));
+		
+	}
+	
+	
+	@Test
+	public void testDecodeToleratesWhitespaceAndEmptyTokens() {
+		
+		assertEquals(list(1, 2, 3, 5), XmlIdListAdapter.decode(" 1-3 , ,5,"));
+		assertEquals(list(), XmlIdListAdapter.decode(""));
+		
+	}
+	
+	
+	@Test
+	public void testDecodeRangeEndingAtMaxValue() {
+		
+		assertEquals(list(Integer.MAX_VALUE - 2, Integer.MAX_VALUE - 1, Integer.MAX_VALUE),
+				XmlIdListAdapter.decode((Integer.MAX_VALUE - 2) + "-" + Integer.MAX_VALUE));
+		
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void testDecodeRejectsInvertedRange() {
+		
+		XmlIdListAdapter.decode("10-5");
+		
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void testDecodeRejectsHugeRange() {
+		
+		XmlIdListAdapter.decode("1-2000000000");
+		
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void testDecodeRejectsFullIntegerRange() {
+		
+		XmlIdListAdapter.decode(Integer.MIN_VALUE + "-" + Integer.MAX_VALUE);
+		
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void testDecodeRejectsManyRangesTogetherTooLarge() {
+		
+		XmlIdListAdapter.decode("1-50,1-50,1", 100);
+		
+	}
+	
+	
+	@Test
+	public void testDecodeAcceptsListAtLimit() {
+		
+		assertEquals(100, XmlIdListAdapter.decode("1-50,1-49,7", 100).size());
+		
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void testDecodeRejectsGarbage() {
+		
+		XmlIdListAdapter.decode("1,two,3");
+		
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void testDecodeRejectsOpenRange() {
+		
+		XmlIdListAdapter.decode("5-");
+		
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void testDecodeRejectsOutOfRangeNumber() {
+		
+		XmlIdListAdapter.decode("1-99999999999");
+		
+	}
+	
+}
@@ -0,0 +1,95 @@
+package ch.specchio.test.benchmark;
+
+import java.util.Arrays;
+
+
+/**
+ * A minimal timing harness for the benchmarks in this package. Each
+ * operation is run a number of times to warm up the JIT, then timed over a
+ * number of measured runs; the median is reported.
+ * 
+ * The benchmarks are not part of the unit test suite. They are run by hand
+ * through their main() methods, and their results are printed rather than
+ * asserted.
+ */
+public class BenchmarkTimer {
+	
+	/** an operation to be timed */
+	public interface Operation {
+		
+		/**
+		 * Run the operation once.
+		 * 
+		 * @throws Exception	the operation failed
+		 */
+		public void run() throws Exception;
+		
+	}
+	
+	/** the default number of warm-up runs */
+	public static final int WARMUP_RUNS = 10;
+	
+	/** the default number of measured runs */
+	public static final int MEASURED_RUNS = 20;
+	
+	
+	/**
+	 * Time an operation with the default number of runs.
+	 * 
+	 * @param op	the operation
+	 * 
+	 * @return the median duration of one run, in nanoseconds
+	 * 
+	 * @throws Exception	the operation failed
+	 */
+	public static long median(Operation op) throws Exception {
+		
+		return median(op, WARMUP_RUNS, MEASURED_RUNS);
+		
+	}
+	
+	
+	/**
+	 * Time an operation.
+	 * 
+	 * @param op		the operation
+	 * @param warmup	the number of runs before timing starts
+	 * @param runs		the number of timed runs
+	 * 
+	 * @return the median duration of one run, in nanoseconds
+	 * 
+	 * @throws Exception	the operation failed
+	 */
+	public static long median(Operation op, int warmup, int runs) throws Exception {
+		
+		for (int i = 0; i < warmup; i++) {
+			op.run();
+		}
+		
+		long times[] = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			op.run();
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		
+		return times[runs / 2];
+		
+	}
+	
+	
+	/**
+	 * Format a duration for printing.
+	 * 
+	 * @param ns	the duration in nanoseconds
+	 * 
+	 * @return the duration in milliseconds, with three decimals
+	 */
+	public static String ms(long ns) {
+		
+		return String.format("%.3f ms", ns / 1e6);
+		
+	}
+	
+}
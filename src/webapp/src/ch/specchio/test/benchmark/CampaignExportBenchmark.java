@@ -0,0 +1,92 @@
+package ch.specchio.test.benchmark;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import ch.specchio.constants.FileTypes;
+import ch.specchio.db_import_export.CampaignExport;
+import ch.specchio.eav_db.SQL_StatementBuilder;
+
+
+/**
+ * Size and cost of exporting a campaign in each of the campaign export
+ * formats. The campaign is read from a real database, so the benchmark
+ * needs a JDBC driver on the class path.
+ * 
+ * For each format, the benchmark prints the size of the export and the
+ * median time taken to write it. The export is written to a stream that
+ * discards its output, so the times include the database queries but no
+ * file or network I/O. Reading the database structure is timed on its own,
+ * because every export starts with it.
+ * 
+ * Usage: CampaignExportBenchmark jdbc_url user password schema campaign_id [runs, default 5]
+ */
+public class CampaignExportBenchmark {
+	
+	/** the formats to compare */
+	private static final int[] FILE_TYPES = {
+		FileTypes.CAMPAIGN_EXPORT_XML, FileTypes.CAMPAIGN_EXPORT_BINARY, FileTypes.CAMPAIGN_EXPORT_BINARY_GZIP
+	};
+	
+	
+	public static void main(String[] args) throws Exception {
+		
+		if (args.length < 5) {
+			System.err.println("Usage: CampaignExportBenchmark jdbc_url user password schema campaign_id [runs]");
+			System.exit(1);
+		}
+		final String schema = args[3];
+		final int campaign_id = Integer.parseInt(args[4]);
+		int runs = (args.length > 5)? Integer.parseInt(args[5]) : 5;
+		
+		Connection conn = DriverManager.getConnection(args[0], args[1], args[2]);
+		final SQL_StatementBuilder SQL = new SQL_StatementBuilder(conn);
+		
+		long structure_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+			public void run() throws Exception { new CampaignExport(SQL, schema, campaign_id); }
+		}, 1, runs);
+		System.out.println("database structure: " + BenchmarkTimer.ms(structure_ns));
+		
+		for (final int file_type : FILE_TYPES) {
+			
+			final CountingOutputStream out = new CountingOutputStream();
+			long export_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+				public void run() throws Exception {
+					out.count = 0;
+					new CampaignExport(SQL, schema, campaign_id).export(out, file_type);
+				}
+			}, 1, runs);
+			
+			System.out.println(FileTypes.descr_strs[file_type] + ": " + out.count + " bytes, " + BenchmarkTimer.ms(export_ns));
+			
+		}
+		
+		conn.close();
+		
+	}
+	
+	
+	/**
+	 * An output stream that counts the bytes written to it and discards them.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		
+		/** the number of bytes written */
+		public long count = 0;
+		
+		public void write(int b) {
+			
+			count++;
+			
+		}
+		
+		public void write(byte[] b, int off, int len) {
+			
+			count += len;
+			
+		}
+		
+	}
+	
+}
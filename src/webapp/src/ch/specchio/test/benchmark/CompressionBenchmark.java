@@ -0,0 +1,149 @@
+package ch.specchio.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
+import ch.specchio.spaces.Space;
+import ch.specchio.spaces.SpectralSpace;
+import ch.specchio.types.MetaParameter;
+import ch.specchio.types.MetadataUpdateDescriptor;
+
+
+/**
+ * Size and cost of gzip compression for the largest bodies exchanged by
+ * the web services, per endpoint. The bodies are marshalled by JAXB in the
+ * same way as Jersey marshals them on the wire.
+ * 
+ * For each body, the benchmark prints its size with and without
+ * compression, the time taken to compress and decompress it, and the time
+ * taken to send it over a link of the given speed.
+ * 
+ * Usage: CompressionBenchmark [link speed in Mbit/s, default 10]
+ */
+public class CompressionBenchmark {
+	
+	/** the number of spectra in the spectrum id lists and spaces */
+	private static final int SPECTRA = 10000;
+	
+	/** the number of bands in a space */
+	private static final int BANDS = 2151;
+	
+	/** the number of spectra in a space */
+	private static final int SPACE_VECTORS = 200;
+	
+	
+	public static void main(String[] args) throws Exception {
+		
+		double mbit_per_s = (args.length > 0)? Double.parseDouble(args[0]) : 10.0;
+		
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < SPECTRA; i++) {
+			ids.add(100000 + i);
+		}
+		
+		// metadata/update: a metaparameter and the spectra to which it applies
+		MetaParameter mp = MetaParameter.newInstance("General", "Comments", "benchmark comment");
+		report("metadata/update (request)", new MetadataUpdateDescriptor(mp, ids), mbit_per_s);
+		
+		// spectrum/loadSpace: a space without vectors is posted...
+		SpectralSpace space = new SpectralSpace();
+		space.setSpectrumIds(ids);
+		space.setDimensionality(BANDS);
+		report("spectrum/loadSpace (request)", space, mbit_per_s);
+		
+		// ...and returned with its vectors
+		SpectralSpace loaded = new SpectralSpace();
+		loaded.setSpectrumIds(new ArrayList<Integer>(ids.subList(0, SPACE_VECTORS)));
+		loaded.setDimensionality(BANDS);
+		Random random = new Random(1);
+		for (int i = 0; i < SPACE_VECTORS; i++) {
+			double vector[] = new double[BANDS];
+			for (int j = 0; j < BANDS; j++) {
+				vector[j] = 0.3 + 0.1 * Math.sin(j / 100.0) + 0.001 * random.nextGaussian();
+			}
+			loaded.addVector(vector);
+		}
+		report("spectrum/loadSpace (response)", loaded, mbit_per_s);
+		
+	}
+	
+	
+	private static void report(String endpoint, Object body, double mbit_per_s) throws Exception {
+		
+		final byte xml[] = marshal(body);
+		final byte gz[] = gzip(xml);
+		
+		long gzip_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+			public void run() throws Exception { gzip(xml); }
+		});
+		long gunzip_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+			public void run() throws Exception { gunzip(gz); }
+		});
+		
+		long plain_transfer_ns = transfer_ns(xml.length, mbit_per_s);
+		long gz_transfer_ns = transfer_ns(gz.length, mbit_per_s);
+		
+		System.out.println(endpoint + ":");
+		System.out.println("  xml " + xml.length + " bytes, gzip " + gz.length + " bytes (" + (100 * gz.length / xml.length) + "%)");
+		System.out.println("  compress " + BenchmarkTimer.ms(gzip_ns) + ", decompress " + BenchmarkTimer.ms(gunzip_ns));
+		System.out.println("  at " + mbit_per_s + " Mbit/s: plain " + BenchmarkTimer.ms(plain_transfer_ns) +
+				", compressed " + BenchmarkTimer.ms(gz_transfer_ns + gzip_ns + gunzip_ns));
+		
+	}
+	
+	
+	private static byte[] marshal(Object body) throws Exception {
+		
+		Class<?> type = (body instanceof Space)? Space.class : body.getClass();
+		Marshaller marshaller = JAXBContext.newInstance(type).createMarshaller();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		marshaller.marshal(body, bytes);
+		
+		return bytes.toByteArray();
+		
+	}
+	
+	
+	private static byte[] gzip(byte[] bytes) throws Exception {
+		
+		ByteArrayOutputStream gz = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(gz);
+		out.write(bytes);
+		out.close();
+		
+		return gz.toByteArray();
+		
+	}
+	
+	
+	private static int gunzip(byte[] bytes) throws Exception {
+		
+		InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes));
+		byte buffer[] = new byte[65536];
+		int total = 0;
+		int cnt;
+		while ((cnt = in.read(buffer)) >= 0) {
+			total += cnt;
+		}
+		in.close();
+		
+		return total;
+		
+	}
+	
+	
+	private static long transfer_ns(int bytes, double mbit_per_s) {
+		
+		return (long)(bytes * 8 / (mbit_per_s * 1e6) * 1e9);
+		
+	}
+	
+}
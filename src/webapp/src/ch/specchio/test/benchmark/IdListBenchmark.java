@@ -0,0 +1,61 @@
+package ch.specchio.test.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+
+import ch.specchio.eav_db.SQL_StatementBuilder;
+
+
+/**
+ * Cost of the id list builders for lists of 10^3 to 10^6 identifiers. The
+ * builders are used for every "in (...)" condition.
+ * 
+ * For each list length, the benchmark prints the median time taken by
+ * conc_ids(), which builds the list as a string of its own, and by
+ * append_ids(), which appends it to a statement under construction.
+ * 
+ * Usage: IdListBenchmark
+ */
+public class IdListBenchmark {
+	
+	public static void main(String[] args) throws Exception {
+		
+		// a connection whose every method returns null; the builders never touch it
+		Connection conn = (Connection)Proxy.newProxyInstance(
+				Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						return null;
+					}
+				}
+			);
+		final SQL_StatementBuilder SQL = new SQL_StatementBuilder(conn);
+		
+		for (int n = 1000; n <= 1000000; n *= 10) {
+			
+			// every other id, so that the list has no runs
+			final ArrayList<Integer> ids = new ArrayList<Integer>(n);
+			for (int i = 0; i < n; i++) {
+				ids.add(1000000 + 2 * i);
+			}
+			
+			long conc_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+				public void run() throws Exception { SQL.conc_ids(ids); }
+			});
+			long append_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+				public void run() throws Exception {
+					SQL.append_ids(new StringBuilder("select spectrum_id from spectrum where spectrum_id in ("), ids).append(")");
+				}
+			});
+			
+			System.out.println(n + " ids: conc_ids " + BenchmarkTimer.ms(conc_ns) + ", append_ids " + BenchmarkTimer.ms(append_ns));
+			
+		}
+		
+	}
+	
+}
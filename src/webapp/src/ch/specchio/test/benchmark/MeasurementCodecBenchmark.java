@@ -0,0 +1,102 @@
+package ch.specchio.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import ch.specchio.types.MeasurementCodec;
+
+
+/**
+ * Cost of converting measurement vectors to and from the binary form in
+ * which they are stored in the database. MeasurementCodec, which converts
+ * whole arrays through a FloatBuffer view, is compared with the
+ * DataInputStream and DataOutputStream loops that converted one value at a
+ * time before it.
+ * 
+ * For each conversion, the benchmark prints the median time taken to
+ * convert all of the vectors and the time per vector.
+ * 
+ * Usage: MeasurementCodecBenchmark [vectors, default 1000] [bands, default 2151]
+ */
+public class MeasurementCodecBenchmark {
+	
+	public static void main(String[] args) throws Exception {
+		
+		final int vectors = (args.length > 0)? Integer.parseInt(args[0]) : 1000;
+		final int bands = (args.length > 1)? Integer.parseInt(args[1]) : 2151;
+		
+		Random random = new Random(1);
+		final float[][] values = new float[vectors][bands];
+		final byte[][] stored = new byte[vectors][];
+		for (int i = 0; i < vectors; i++) {
+			for (int j = 0; j < bands; j++) {
+				values[i][j] = random.nextFloat();
+			}
+			stored[i] = MeasurementCodec.encode(values[i]);
+		}
+		
+		report("decode, per value", vectors, new BenchmarkTimer.Operation() {
+			public void run() throws Exception {
+				for (int i = 0; i < vectors; i++) {
+					float[] decoded = new float[stored[i].length / MeasurementCodec.BYTES_PER_VALUE];
+					DataInputStream dis = new DataInputStream(new ByteArrayInputStream(stored[i]));
+					for (int j = 0; j < decoded.length; j++) {
+						decoded[j] = dis.readFloat();
+					}
+					dis.close();
+				}
+			}
+		});
+		report("decode, MeasurementCodec", vectors, new BenchmarkTimer.Operation() {
+			public void run() throws Exception {
+				for (int i = 0; i < vectors; i++) {
+					MeasurementCodec.decode(stored[i]);
+				}
+			}
+		});
+		
+		report("encode, per value", vectors, new BenchmarkTimer.Operation() {
+			public void run() throws Exception {
+				for (int i = 0; i < vectors; i++) {
+					ByteArrayOutputStream baos = new ByteArrayOutputStream();
+					DataOutputStream dos = new DataOutputStream(baos);
+					for (int j = 0; j < bands; j++) {
+						dos.writeFloat(values[i][j]);
+					}
+					baos.toByteArray();
+				}
+			}
+		});
+		report("encode, MeasurementCodec", vectors, new BenchmarkTimer.Operation() {
+			public void run() throws Exception {
+				for (int i = 0; i < vectors; i++) {
+					MeasurementCodec.encode(values[i]);
+				}
+			}
+		});
+		
+	}
+	
+	
+	/**
+	 * Time a conversion and print the results.
+	 * 
+	 * @param name		the name of the conversion
+	 * @param vectors	the number of vectors converted by each run
+	 * @param op		the conversion
+	 * 
+	 * @throws Exception	the conversion failed
+	 */
+	private static void report(String name, int vectors, BenchmarkTimer.Operation op) throws Exception {
+		
+		long ns = BenchmarkTimer.median(op);
+		
+		System.out.println(name + ": " + BenchmarkTimer.ms(ns) + ", " +
+				String.format("%.1f us", ns / 1e3 / vectors) + " per vector");
+		
+	}
+	
+}
@@ -0,0 +1,101 @@
+package ch.specchio.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import ch.specchio.types.SpectralFile;
+
+
+/**
+ * Size and cost of sending the measurements of a spectral file to the
+ * server. The packed form, one base64 element per spectrum, is compared
+ * with the boxed Float[][] form that was sent before, in which JAXB writes
+ * one element per band.
+ * 
+ * For each form, the benchmark prints the size of the XML in bytes per band
+ * and the median time taken to marshal and unmarshal it. Needs a JAXB
+ * implementation on the class path.
+ * 
+ * Usage: MeasurementUploadBenchmark [spectra, default 100] [bands, default 2151]
+ */
+public class MeasurementUploadBenchmark {
+	
+	public static void main(String[] args) throws Exception {
+		
+		int spectra = (args.length > 0)? Integer.parseInt(args[0]) : 100;
+		int bands = (args.length > 1)? Integer.parseInt(args[1]) : 2151;
+		
+		// reflectance-like values with a full float mantissa, as the file loaders produce
+		Random random = new Random(1);
+		Float[][] measurements = new Float[spectra][bands];
+		for (int i = 0; i < spectra; i++) {
+			for (int j = 0; j < bands; j++) {
+				measurements[i][j] = random.nextFloat();
+			}
+		}
+		
+		SpectralFile packed = new SpectralFile();
+		packed.setNumberOfSpectra(spectra);
+		packed.addNumberOfChannels(bands);
+		packed.setMeasurements(measurements);
+		
+		BoxedMeasurements boxed = new BoxedMeasurements();
+		boxed.measurements = measurements;
+		
+		report("packed", packed, spectra * bands);
+		report("boxed", boxed, spectra * bands);
+		
+	}
+	
+	
+	/**
+	 * Time a marshal and unmarshal round trip of an object and print the results.
+	 * 
+	 * @param name		the name of the form
+	 * @param object	the object to be sent
+	 * @param values	the number of values held by the object
+	 * 
+	 * @throws Exception	could not marshal or unmarshal the object
+	 */
+	private static void report(String name, final Object object, int values) throws Exception {
+		
+		JAXBContext context = JAXBContext.newInstance(object.getClass());
+		final Marshaller marshaller = context.createMarshaller();
+		final Unmarshaller unmarshaller = context.createUnmarshaller();
+		
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		marshaller.marshal(object, os);
+		final byte[] xml = os.toByteArray();
+		
+		long marshal_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+			public void run() throws Exception { marshaller.marshal(object, new ByteArrayOutputStream(xml.length)); }
+		});
+		long unmarshal_ns = BenchmarkTimer.median(new BenchmarkTimer.Operation() {
+			public void run() throws Exception { unmarshaller.unmarshal(new ByteArrayInputStream(xml)); }
+		});
+		
+		System.out.println(name + ": " + String.format("%.1f", xml.length / (double)values) + " bytes per band, " +
+				"marshal " + BenchmarkTimer.ms(marshal_ns) + ", unmarshal " + BenchmarkTimer.ms(unmarshal_ns));
+		
+	}
+	
+	
+	/**
+	 * The measurements in the form in which they were sent before they were packed.
+	 */
+	@XmlRootElement(name="spectral_file")
+	public static class BoxedMeasurements {
+		
+		@XmlElement(name="measurements")
+		public Float[][] measurements;
+		
+	}
+	
+}